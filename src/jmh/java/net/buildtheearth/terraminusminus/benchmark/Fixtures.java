@@ -0,0 +1,152 @@
+package net.buildtheearth.terraminusminus.benchmark;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+import net.buildtheearth.terraminusminus.config.scalarparse.d.ParseTerrariumPngDSP;
+import net.buildtheearth.terraminusminus.dataset.geojson.GeoJson;
+import net.buildtheearth.terraminusminus.dataset.geojson.GeoJsonObject;
+import net.buildtheearth.terraminusminus.dataset.geojson.Geometry;
+import net.buildtheearth.terraminusminus.dataset.geojson.object.Feature;
+import net.buildtheearth.terraminusminus.dataset.osm.OSMMapper;
+import net.buildtheearth.terraminusminus.dataset.vector.geometry.VectorGeometry;
+import net.buildtheearth.terraminusminus.generator.EarthGeneratorSettings;
+import net.buildtheearth.terraminusminus.projection.GeographicProjection;
+import net.buildtheearth.terraminusminus.projection.OutOfProjectionBoundsException;
+
+import static net.daporkchop.lib.common.util.PValidation.*;
+
+/**
+ * Access to the checked-in benchmark fixtures in {@code src/jmh/resources/fixtures}.
+ * <p>
+ * None of the fixtures are fetched over the network, so every benchmark can be run offline and produces comparable results between runs.
+ *
+ * @author DaPorkchop_
+ */
+@UtilityClass
+public class Fixtures {
+    /**
+     * A 256x256 Terrarium-encoded elevation tile. The bottom-left corner contains a block of nodata pixels.
+     */
+    public final String TERRARIUM_PNG = "/fixtures/terrarium_256.png";
+    public final int TERRARIUM_RESOLUTION = 256;
+
+    /**
+     * A single OpenStreetMap GeoJSON tile (one feature per line, in the same format as served by the OSM servers), covering the
+     * 1/64° tile starting at {@link #OSM_TILE_MIN_LON}, {@link #OSM_TILE_MIN_LAT}.
+     */
+    public final String OSM_TILE = "/fixtures/osm_tile.json";
+    public final double OSM_TILE_MIN_LON = -0.125d;
+    public final double OSM_TILE_MIN_LAT = 51.5d;
+    public final double OSM_TILE_SIZE = 1.0d / 64.0d;
+
+    /**
+     * 4096 longitude/latitude pairs distributed uniformly over the sphere between 80°S and 80°N, one {@code lon,lat} pair per line.
+     */
+    public final String GEO_POINTS = "/fixtures/geo_points.csv";
+
+    /**
+     * Reads the given fixture into a new heap {@link ByteBuf}.
+     *
+     * @param name the name of the fixture
+     * @return a {@link ByteBuf} containing the fixture's contents
+     */
+    public ByteBuf resource(@NonNull String name) throws IOException {
+        try (InputStream in = Fixtures.class.getResourceAsStream(name)) {
+            checkArg(in != null, "missing fixture: %s", name);
+
+            ByteBuf buf = Unpooled.buffer();
+            while (buf.writeBytes(in, 4096) > 0) {
+            }
+            return buf;
+        }
+    }
+
+    /**
+     * @return the decoded elevation values of {@link #TERRARIUM_PNG}
+     */
+    public double[] terrariumHeights() throws IOException {
+        ByteBuf buf = resource(TERRARIUM_PNG);
+        try {
+            return new ParseTerrariumPngDSP().parse(TERRARIUM_RESOLUTION, buf);
+        } finally {
+            buf.release();
+        }
+    }
+
+    /**
+     * @return the raw lines of {@link #OSM_TILE}
+     */
+    public List<String> osmTileLines() throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(Fixtures.class.getResourceAsStream(OSM_TILE), StandardCharsets.UTF_8))) {
+            List<String> lines = new ArrayList<>();
+            for (String line; (line = reader.readLine()) != null; ) {
+                lines.add(line);
+            }
+            return lines;
+        }
+    }
+
+    /**
+     * @return the points in {@link #GEO_POINTS}, as a flat array of alternating longitude and latitude values
+     */
+    public double[] geoPoints() throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(Fixtures.class.getResourceAsStream(GEO_POINTS), StandardCharsets.UTF_8))) {
+            return reader.lines()
+                    .filter(line -> !line.startsWith("#"))
+                    .flatMapToDouble(line -> Arrays.stream(line.split(",")).mapToDouble(Double::parseDouble))
+                    .toArray();
+        }
+    }
+
+    /**
+     * @return the parsed GeoJSON objects in {@link #OSM_TILE}
+     */
+    public GeoJsonObject[] osmTile() throws IOException {
+        return osmTileLines().stream().map(GeoJson::parse).toArray(GeoJsonObject[]::new);
+    }
+
+    /**
+     * Converts the features in {@link #OSM_TILE} to {@link VectorGeometry} elements using the default {@link OSMMapper}, in the same way
+     * as {@link net.buildtheearth.terraminusminus.dataset.vector.GeoJsonToVectorDataset} would.
+     *
+     * @param projection the projection to project the features with
+     * @return the generated elements
+     */
+    public VectorGeometry[] osmElements(@NonNull GeographicProjection projection) throws IOException {
+        OSMMapper<Geometry> mapper = OSMMapper.load();
+
+        List<VectorGeometry> elements = new ArrayList<>();
+        for (GeoJsonObject object : osmTile()) {
+            Feature feature = (Feature) object;
+            try {
+                Collection<VectorGeometry> mapped = mapper.apply(feature.id(), feature.properties() != null ? feature.properties() : Collections.emptyMap(),
+                        feature.geometry(), feature.geometry().project(projection::fromGeo));
+                if (mapped != null) {
+                    elements.addAll(mapped);
+                }
+            } catch (OutOfProjectionBoundsException ignored) {
+            }
+        }
+        return elements.toArray(new VectorGeometry[0]);
+    }
+
+    /**
+     * @return the default BTE generator settings
+     */
+    public EarthGeneratorSettings bteSettings() {
+        return EarthGeneratorSettings.parse(EarthGeneratorSettings.BTE_DEFAULT_SETTINGS);
+    }
+}
@@ -0,0 +1,50 @@
+package net.buildtheearth.terraminusminus.config.scalarparse.d;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.netty.buffer.ByteBuf;
+import net.buildtheearth.terraminusminus.benchmark.Fixtures;
+
+/**
+ * Benchmarks decoding of a single 256x256 Terrarium elevation tile.
+ *
+ * @author DaPorkchop_
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParseTerrariumPngDSPBenchmark {
+    protected final ParseTerrariumPngDSP parser = new ParseTerrariumPngDSP();
+
+    protected ByteBuf png;
+
+    @Setup
+    public void setup() throws Exception {
+        this.png = Fixtures.resource(Fixtures.TERRARIUM_PNG);
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.png.release();
+    }
+
+    @Benchmark
+    public double[] parse() throws Exception {
+        return this.parser.parse(Fixtures.TERRARIUM_RESOLUTION, this.png.duplicate());
+    }
+}
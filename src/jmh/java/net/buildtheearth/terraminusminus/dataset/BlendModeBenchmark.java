@@ -0,0 +1,71 @@
+package net.buildtheearth.terraminusminus.dataset;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import net.buildtheearth.terraminusminus.benchmark.Fixtures;
+import net.buildtheearth.terraminusminus.util.IntToDoubleBiFunction;
+import net.buildtheearth.terraplusplus.dataset.BlendMode;
+
+/**
+ * Benchmarks sampling the elevation fixture with every {@link BlendMode}.
+ *
+ * @author DaPorkchop_
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BlendModeBenchmark {
+    protected static final int SAMPLES = 16 * 16;
+
+    @Param
+    public BlendMode mode;
+
+    protected IntToDoubleBiFunction sampler;
+    protected double[] coordinates;
+
+    @Setup
+    public void setup() throws Exception {
+        double[] heights = Fixtures.terrariumHeights();
+        int resolution = Fixtures.TERRARIUM_RESOLUTION;
+        this.sampler = (x, z) -> heights[Math.floorMod(z, resolution) * resolution + Math.floorMod(x, resolution)];
+
+        //a 16x16 grid of samples at an arbitrary fractional offset, the same shape as the grid sampled for a single chunk
+        SplittableRandom r = new SplittableRandom(1337L);
+        double baseX = r.nextDouble(8.0d, resolution - 32.0d);
+        double baseZ = r.nextDouble(8.0d, resolution - 32.0d);
+        this.coordinates = new double[SAMPLES * 2];
+        for (int i = 0; i < SAMPLES; i++) {
+            this.coordinates[i * 2] = baseX + (i >> 4) * 1.03125d;
+            this.coordinates[i * 2 + 1] = baseZ + (i & 0xF) * 1.03125d;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public void get(Blackhole bh) {
+        BlendMode mode = this.mode;
+        IntToDoubleBiFunction sampler = this.sampler;
+        double[] coordinates = this.coordinates;
+        for (int i = 0; i < SAMPLES * 2; i += 2) {
+            bh.consume(mode.get(coordinates[i], coordinates[i + 1], sampler));
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package net.buildtheearth.terraminusminus.generator;
+
+import static net.daporkchop.lib.common.math.PMath.floorI;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import net.buildtheearth.terraminusminus.benchmark.Fixtures;
+import net.buildtheearth.terraminusminus.dataset.vector.geometry.VectorGeometry;
+import net.buildtheearth.terraminusminus.generator.data.HeightsBaker;
+import net.buildtheearth.terraminusminus.generator.data.IEarthDataBaker;
+import net.buildtheearth.terraminusminus.generator.data.NullIslandBaker;
+import net.buildtheearth.terraminusminus.generator.data.OSMBaker;
+import net.buildtheearth.terraminusminus.generator.data.TreeCoverBaker;
+import net.buildtheearth.terraminusminus.projection.GeographicProjection;
+import net.buildtheearth.terraminusminus.substitutes.BlockState;
+import net.buildtheearth.terraminusminus.substitutes.BlockStateBuilder;
+import net.buildtheearth.terraminusminus.substitutes.ChunkPos;
+import net.buildtheearth.terraminusminus.substitutes.Identifier;
+import net.buildtheearth.terraminusminus.util.CornerBoundingBox2d;
+import net.buildtheearth.terraminusminus.util.bvh.BVH;
+import net.buildtheearth.terraminusminus.util.bvh.Bounds2d;
+
+/**
+ * Benchmarks the chunk data pipeline ({@link IEarthAsyncPipelineStep#getFuture}) and {@link CachedChunkData.Builder#build()}.
+ * <p>
+ * The real bakers are used, but their input data is taken from the fixtures instead of being requested from the datasets, so this measures
+ * the pipeline's own overhead (projection of the chunk bounds, future orchestration) plus the baking itself.
+ *
+ * @author DaPorkchop_
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChunkPipelineBenchmark {
+    protected static final int CHUNKS = 16; //the fixture heights cover 16x16 chunks
+
+    protected GeneratorDatasets datasets;
+    protected IEarthDataBaker<?>[] steps;
+
+    protected ChunkPos[] positions;
+    protected int index;
+
+    protected double[] heights;
+    protected BlockState surfaceBlock;
+
+    @Setup
+    public void setup() throws Exception {
+        EarthGeneratorSettings settings = Fixtures.bteSettings();
+        GeographicProjection projection = settings.projection();
+        this.datasets = settings.datasets();
+
+        double[] center = projection.fromGeo(Fixtures.OSM_TILE_MIN_LON + Fixtures.OSM_TILE_SIZE * 0.5d, Fixtures.OSM_TILE_MIN_LAT + Fixtures.OSM_TILE_SIZE * 0.5d);
+        int baseChunkX = (floorI(center[0]) >> 4) - (CHUNKS >> 1);
+        int baseChunkZ = (floorI(center[1]) >> 4) - (CHUNKS >> 1);
+
+        this.positions = new ChunkPos[CHUNKS * CHUNKS];
+        for (int x = 0; x < CHUNKS; x++) {
+            for (int z = 0; z < CHUNKS; z++) {
+                this.positions[x * CHUNKS + z] = new ChunkPos(baseChunkX + x, baseChunkZ + z);
+            }
+        }
+
+        this.heights = Fixtures.terrariumHeights();
+        double[][] chunkHeights = new double[CHUNKS * CHUNKS][];
+        for (int i = 0; i < chunkHeights.length; i++) {
+            chunkHeights[i] = this.chunkHeights(i / CHUNKS, i % CHUNKS);
+        }
+
+        double[] treeCover = new double[16 * 16];
+        Arrays.fill(treeCover, 0.5d);
+
+        @SuppressWarnings("unchecked")
+        BVH<VectorGeometry>[] osm = new BVH[]{ BVH.of(Fixtures.osmElements(projection)) };
+
+        this.steps = new IEarthDataBaker<?>[]{
+                new FixtureStep<>(new TreeCoverBaker(), pos -> treeCover),
+                new FixtureStep<>(new HeightsBaker(), pos -> chunkHeights[(pos.x() - baseChunkX) * CHUNKS + (pos.z() - baseChunkZ)]),
+                new FixtureStep<>(new OSMBaker(), pos -> osm),
+                new NullIslandBaker()
+        };
+
+        this.surfaceBlock = BlockStateBuilder.get().setBlock(new Identifier("minecraft:grass")).build();
+    }
+
+    protected double[] chunkHeights(int chunkX, int chunkZ) {
+        double[] out = new double[16 * 16];
+        for (int x = 0; x < 16; x++) {
+            for (int z = 0; z < 16; z++) {
+                out[x * 16 + z] = this.heights[((chunkZ << 4) + z) * Fixtures.TERRARIUM_RESOLUTION + (chunkX << 4) + x];
+            }
+        }
+        return out;
+    }
+
+    protected ChunkPos nextPos() {
+        ChunkPos pos = this.positions[this.index];
+        this.index = (this.index + 1) % this.positions.length;
+        return pos;
+    }
+
+    @Benchmark
+    public CachedChunkData getFuture() {
+        return IEarthAsyncPipelineStep.getFuture(this.nextPos(), this.datasets, this.steps, CachedChunkData::builder).join();
+    }
+
+    /**
+     * Loads the whole 16x16 chunk area at once, for comparison with {@link #getFuture()} (the score is per chunk).
+     */
+    @Benchmark
+    @OperationsPerInvocation(CHUNKS * CHUNKS)
+    public void getRegionFutures(Blackhole bh) {
+        CompletableFuture<CachedChunkData>[] futures = IEarthAsyncPipelineStep.getRegionFutures(
+                this.positions[0], this.positions[this.positions.length - 1], this.datasets, this.steps, CachedChunkData::builder);
+        for (CompletableFuture<CachedChunkData> future : futures) {
+            bh.consume(future.join());
+        }
+    }
+
+    @Benchmark
+    public CachedChunkData build() {
+        CachedChunkData.Builder builder = CachedChunkData.builder();
+
+        int[] surfaceHeight = builder.surfaceHeight();
+        double[] heights = this.heights;
+        for (int i = 0; i < 16 * 16; i++) {
+            double height = heights[i];
+            if (Double.isNaN(height)) {
+                builder.updateOceanDepth(i >> 4, i & 0xF, 0);
+            } else {
+                surfaceHeight[i] = floorI(height);
+            }
+        }
+        for (int x = 0; x < 16; x += 4) {
+            builder.updateWaterDepth(x, x, 2);
+        }
+        Arrays.fill(builder.surfaceBlocks(), 0, 16 * 8, this.surfaceBlock);
+        builder.putCustom(EarthGeneratorPipelines.KEY_DATA_TREE_COVER, new byte[16 * 16]);
+
+        return builder.build();
+    }
+
+    /**
+     * Wraps a real {@link IEarthDataBaker}, supplying it with data from the fixtures instead of from the datasets.
+     *
+     * @author DaPorkchop_
+     */
+    @RequiredArgsConstructor
+    protected static final class FixtureStep<D> implements IEarthDataBaker<D> {
+        @NonNull
+        protected final IEarthDataBaker<D> delegate;
+        @NonNull
+        protected final Function<ChunkPos, D> data;
+
+        @Override
+        public CompletableFuture<D> requestData(ChunkPos pos, GeneratorDatasets datasets, Bounds2d bounds, CornerBoundingBox2d boundsGeo) {
+            return CompletableFuture.completedFuture(this.data.apply(pos));
+        }
+
+        @Override
+        public void bake(ChunkPos pos, CachedChunkData.Builder builder, D data) {
+            this.delegate.bake(pos, builder, data);
+        }
+    }
+}
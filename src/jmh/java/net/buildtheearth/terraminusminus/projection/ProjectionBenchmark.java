@@ -0,0 +1,90 @@
+package net.buildtheearth.terraminusminus.projection;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import net.buildtheearth.terraminusminus.TerraConstants;
+import net.buildtheearth.terraminusminus.benchmark.Fixtures;
+
+/**
+ * Benchmarks {@link GeographicProjection#fromGeo(double, double)} and {@link GeographicProjection#toGeo(double, double)} for the main
+ * projection implementations, using the points from {@link Fixtures#GEO_POINTS}.
+ *
+ * @author DaPorkchop_
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProjectionBenchmark {
+    protected static final int POINTS = 4096;
+
+    /**
+     * The projection to benchmark, as JSON. {@code bte} is the full projection used by the default BTE generator settings.
+     */
+    @Param({
+            "{\"equirectangular\":{}}",
+            "{\"sinusoidal\":{}}",
+            "{\"equal_earth\":{}}",
+            "{\"web_mercator\":{}}",
+            "{\"dymaxion\":{}}",
+            "{\"conformal_dymaxion\":{}}",
+            "bte"
+    })
+    public String projection;
+
+    protected GeographicProjection proj;
+
+    protected double[] geo;
+    protected double[] projected;
+
+    @Setup
+    public void setup() throws Exception {
+        this.proj = "bte".equals(this.projection)
+                ? Fixtures.bteSettings().projection()
+                : TerraConstants.JSON_MAPPER.readValue(this.projection, GeographicProjection.class);
+
+        this.geo = Fixtures.geoPoints();
+        this.projected = new double[this.geo.length];
+        for (int i = 0; i < this.geo.length; i += 2) {
+            double[] xy = this.proj.fromGeo(this.geo[i], this.geo[i + 1]);
+            this.projected[i] = xy[0];
+            this.projected[i + 1] = xy[1];
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public void fromGeo(Blackhole bh) throws OutOfProjectionBoundsException {
+        GeographicProjection proj = this.proj;
+        double[] geo = this.geo;
+        for (int i = 0; i < POINTS * 2; i += 2) {
+            bh.consume(proj.fromGeo(geo[i], geo[i + 1]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public void toGeo(Blackhole bh) throws OutOfProjectionBoundsException {
+        GeographicProjection proj = this.proj;
+        double[] projected = this.projected;
+        for (int i = 0; i < POINTS * 2; i += 2) {
+            bh.consume(proj.toGeo(projected[i], projected[i + 1]));
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package net.buildtheearth.terraminusminus.util.bvh;
+
+import static net.daporkchop.lib.common.math.PMath.floorI;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.buildtheearth.terraminusminus.benchmark.Fixtures;
+import net.buildtheearth.terraminusminus.dataset.vector.geometry.VectorGeometry;
+
+/**
+ * Benchmarks construction of and chunk-sized queries against each {@link BVH} implementation containing the elements of the OSM fixture tile.
+ *
+ * @author DaPorkchop_
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BVHBenchmark {
+    protected static final int QUERIES = 1024;
+
+    @Param({ "quadtree", "str" })
+    public String implementation;
+
+    protected VectorGeometry[] elements;
+    protected BVH<VectorGeometry> bvh;
+
+    protected Bounds2d[] queries;
+    protected int index;
+
+    @Setup
+    public void setup() throws Exception {
+        this.elements = Fixtures.osmElements(Fixtures.bteSettings().projection());
+        this.bvh = this.build();
+
+        //chunk-sized queries expanded by 16 blocks in every direction, the same as those issued by OSMBaker
+        SplittableRandom r = new SplittableRandom(1337L);
+        this.queries = new Bounds2d[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            int x = floorI(r.nextDouble(this.bvh.minX(), this.bvh.maxX())) & ~0xF;
+            int z = floorI(r.nextDouble(this.bvh.minZ(), this.bvh.maxZ())) & ~0xF;
+            this.queries[i] = Bounds2d.of(x, x + 16, z, z + 16).expand(16.0d);
+        }
+    }
+
+    @Benchmark
+    public BVH<VectorGeometry> build() {
+        switch (this.implementation) {
+            case "quadtree":
+                return new QuadtreeBVH<>(this.elements);
+            case "str":
+                return new STRTreeBVH<>(this.elements);
+            default:
+                throw new IllegalArgumentException(this.implementation);
+        }
+    }
+
+    @Benchmark
+    public List<VectorGeometry> getAllIntersecting() {
+        Bounds2d query = this.queries[this.index];
+        this.index = (this.index + 1) % QUERIES;
+        return this.bvh.getAllIntersecting(query);
+    }
+}
@@ -0,0 +1,109 @@
+package net.buildtheearth.terraminusminus.util.http;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import net.buildtheearth.terraminusminus.TerraConfig;
+import net.buildtheearth.terraminusminus.benchmark.Fixtures;
+
+/**
+ * Measures the cost of reading a single cache entry from a {@link FileCacheStorage} and {@link CacheCompression#decode(ByteBuf) decoding} it,
+ * with and without {@link TerraConfig.HttpOpts#compressCache compression}.
+ * <p>
+ * The stored size of each entry is reported as the {@code storedBytes} secondary result. Note that the entry will usually be in the OS page cache, so this mostly measures the
+ * cost of decompression rather than the time saved by reading less data from disk.
+ *
+ * @author DaPorkchop_
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CacheCompressionBenchmark {
+    protected static final String URL = "https://example.com/tile";
+
+    @Param({ "osm", "terrarium" })
+    public String payload;
+
+    @Param({ "true", "false" })
+    public boolean compress;
+
+    protected Path root;
+    protected FileCacheStorage storage;
+
+    @Setup
+    public void setup() throws IOException {
+        TerraConfig.http.compressCache = this.compress;
+
+        ByteBuf body = Fixtures.resource("osm".equals(this.payload) ? Fixtures.OSM_TILE : Fixtures.TERRARIUM_PNG);
+        ByteBuf entry = Unpooled.buffer();
+        entry.writeByte(CacheEntry.CACHE_VERSION);
+        new CacheEntry(CacheEntry.STATUS_SUCCESS, System.currentTimeMillis(), -1L, Long.MAX_VALUE, 0, null, null, false).write(entry);
+        entry.writeBytes(body);
+        body.release();
+
+        ByteBuf encoded = CacheCompression.encode(entry);
+        try {
+            this.root = Files.createTempDirectory("terra--cache-compression");
+            this.storage = new FileCacheStorage(this.root);
+            this.storage.write(URL, encoded);
+        } finally {
+            encoded.release();
+            entry.release();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        TerraConfig.http.compressCache = false;
+
+        try (Stream<Path> stream = Files.walk(this.root)) {
+            stream.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public void read(Blackhole bh, StoredSize counters) throws IOException {
+        ByteBuf stored = this.storage.read(URL);
+        try {
+            counters.storedBytes = stored.readableBytes();
+            ByteBuf decoded = CacheCompression.decode(stored);
+            bh.consume(decoded.getByte(decoded.writerIndex() - 1));
+            decoded.release();
+        } finally {
+            stored.release();
+        }
+    }
+
+    /**
+     * Reports the size of the entry as it's stored, which is the same for every invocation.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class StoredSize {
+        public long storedBytes;
+    }
+}
@@ -0,0 +1,176 @@
+package net.buildtheearth.terraminusminus.util.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import net.buildtheearth.terraminusminus.TerraConfig;
+
+/**
+ * Measures the throughput of {@link Http#get(String)} when downloading large, gzip-compressed tiles over HTTPS from a local server, depending on
+ * the number of {@link TerraConfig.HttpOpts#networkThreads network threads}.
+ * <p>
+ * The tiles are spread over multiple hosts (different ports of the same server), as every host is served by a single network thread. Each
+ * parameter combination runs in its own fork, because the network threads are only created once.
+ *
+ * @author DaPorkchop_
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class HttpThroughputBenchmark {
+    protected static final int TILE_SIZE = 1 << 20;
+    protected static final int BATCH = 64;
+
+    @Param({ "1", "2", "4" })
+    public int networkThreads;
+
+    @Param({ "4" })
+    public int hosts;
+
+    protected EventLoopGroup serverGroup;
+    protected String[] urls;
+    protected byte[] tile;
+    protected int index;
+
+    @Setup
+    public void setup() throws Exception {
+        //must be configured before Http is initialized
+        TerraConfig.http.networkThreads = this.networkThreads;
+        TerraConfig.http.cache = false;
+        TerraConfig.http.adaptiveConcurrency = false;
+        TerraConfig.reducedConsoleMessages = true;
+
+        this.tile = gzip(randomTile());
+
+        SslContext sslContext;
+        try (InputStream cert = HttpThroughputBenchmark.class.getResourceAsStream("localhost.crt");
+             InputStream key = HttpThroughputBenchmark.class.getResourceAsStream("localhost.key")) {
+            sslContext = SslContextBuilder.forServer(cert, key).build();
+        }
+
+        this.serverGroup = new NioEventLoopGroup(Runtime.getRuntime().availableProcessors());
+        this.urls = new String[this.hosts];
+        for (int i = 0; i < this.hosts; i++) {
+            Channel channel = new ServerBootstrap()
+                    .group(this.serverGroup)
+                    .channel(NioServerSocketChannel.class)
+                    .childHandler(new ChannelInitializer<Channel>() {
+                        @Override
+                        protected void initChannel(Channel ch) {
+                            ch.pipeline().addLast(
+                                    sslContext.newHandler(ch.alloc()),
+                                    new HttpServerCodec(),
+                                    new HttpObjectAggregator(1 << 16),
+                                    new TileHandler());
+                        }
+                    })
+                    .bind("127.0.0.1", 0).syncUninterruptibly().channel();
+            this.urls[i] = "https://localhost:" + ((InetSocketAddress) channel.localAddress()).getPort();
+            Http.setMaximumConcurrentRequestsTo(this.urls[i], 8);
+        }
+    }
+
+    @TearDown
+    public void teardown() {
+        this.serverGroup.shutdownGracefully(0L, 1L, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @return tile-sized data which compresses about as well as real elevation tiles
+     */
+    protected static byte[] randomTile() {
+        SplittableRandom r = new SplittableRandom(1337L);
+        byte[] data = new byte[TILE_SIZE];
+        int value = 0;
+        for (int i = 0; i < data.length; i++) {
+            value += r.nextInt(-3, 4);
+            data[i] = (byte) value;
+        }
+        return data;
+    }
+
+    protected static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(baos)) {
+            out.write(data);
+        }
+        return baos.toByteArray();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void fetch(Blackhole bh) {
+        @SuppressWarnings("unchecked")
+        CompletableFuture<ByteBuf>[] futures = new CompletableFuture[BATCH];
+        for (int i = 0; i < BATCH; i++, this.index++) { //every URL is distinct, so that requests aren't coalesced
+            futures[i] = Http.get(this.urls[this.index % this.hosts] + "/tile/" + this.index);
+        }
+
+        for (CompletableFuture<ByteBuf> future : futures) {
+            ByteBuf buf = future.join();
+            bh.consume(buf.readableBytes());
+            buf.release();
+        }
+    }
+
+    /**
+     * Responds to every request with the same gzip-compressed tile.
+     *
+     * @author DaPorkchop_
+     */
+    protected final class TileHandler extends SimpleChannelInboundHandler<FullHttpRequest> {
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest request) {
+            FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK, Unpooled.wrappedBuffer(HttpThroughputBenchmark.this.tile));
+            response.headers()
+                    .set(HttpHeaderNames.CONTENT_LENGTH, response.content().readableBytes())
+                    .set(HttpHeaderNames.CONTENT_ENCODING, HttpHeaderValues.GZIP);
+            ctx.writeAndFlush(response);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package net.buildtheearth.terraminusminus.util.interval;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.buildtheearth.terraminusminus.benchmark.Fixtures;
+import net.buildtheearth.terraminusminus.dataset.geojson.GeoJsonObject;
+import net.buildtheearth.terraminusminus.dataset.geojson.geometry.Point;
+import net.buildtheearth.terraminusminus.dataset.geojson.geometry.Polygon;
+import net.buildtheearth.terraminusminus.dataset.geojson.object.Feature;
+import net.buildtheearth.terraminusminus.dataset.vector.geometry.Segment;
+import net.buildtheearth.terraminusminus.projection.GeographicProjection;
+
+/**
+ * Benchmarks construction of and point queries against an {@link IntervalTree} containing the projected edges of every polygon in the OSM
+ * fixture tile, which is how polygons are rasterized.
+ *
+ * @author DaPorkchop_
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IntervalTreeBenchmark {
+    protected static final int QUERIES = 1024;
+
+    protected List<Segment> segments;
+    protected IntervalTree<Segment> tree;
+
+    protected double[] queries;
+    protected int index;
+
+    @Setup
+    public void setup() throws Exception {
+        GeographicProjection projection = Fixtures.bteSettings().projection();
+
+        this.segments = new ArrayList<>();
+        for (GeoJsonObject object : Fixtures.osmTile()) {
+            if (((Feature) object).geometry() instanceof Polygon) {
+                Polygon polygon = ((Polygon) ((Feature) object).geometry()).project(projection::fromGeo);
+                Point[] points = polygon.outerRing().points();
+                for (int i = 1; i < points.length; i++) {
+                    this.segments.add(new Segment(points[i - 1].lon(), points[i - 1].lat(), points[i].lon(), points[i].lat()));
+                }
+            }
+        }
+        this.tree = new IntervalTree<>(this.segments);
+
+        double min = this.segments.stream().mapToDouble(Segment::min).min().getAsDouble();
+        double max = this.segments.stream().mapToDouble(Segment::max).max().getAsDouble();
+        SplittableRandom r = new SplittableRandom(1337L);
+        this.queries = new double[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            this.queries[i] = r.nextDouble(min, max);
+        }
+    }
+
+    @Benchmark
+    public IntervalTree<Segment> build() {
+        return new IntervalTree<>(this.segments);
+    }
+
+    @Benchmark
+    public List<Segment> getAllIntersecting() {
+        double query = this.queries[this.index];
+        this.index = (this.index + 1) % QUERIES;
+        return this.tree.getAllIntersecting(query);
+    }
+}
@@ -10,6 +10,10 @@ public class TerraConfig {
 
 	public static HttpOpts http = new HttpOpts();
 
+	public static ChunkCacheOpts chunkCache = new ChunkCacheOpts();
+
+	public static ExecutorOpts executors = new ExecutorOpts();
+
 	public static class OSMOpts {
 		public String[] servers = {
 				"https://cloud.daporkchop.net/gis/osm/0/"
@@ -26,8 +30,179 @@ public class TerraConfig {
 				"1: https://lz4.overpass-api.de/"
 		};
 
+		/**
+		 * Whether HTTP/2 should be used for hosts which support it. Requests to a host using HTTP/2 are multiplexed over a single connection.
+		 * <p>
+		 * Only affects connections opened after it's changed.
+		 */
+		public boolean http2 = false;
+
+		/**
+		 * The maximum number of concurrent HTTP/2 streams per host, in the same format as {@link #maxConcurrentRequests}. Hosts which aren't
+		 * listed here are limited to 32 concurrent streams.
+		 */
+		public String[] maxConcurrentStreams = {
+				"64: https://cloud.daporkchop.net/"
+		};
+
 		public boolean cache = true;
 
+		/**
+		 * Whether resources should only ever be read from the cache. Requests for anything which isn't cached fail immediately instead of being
+		 * sent, and stale or expired responses are used without being refreshed. Expired responses are also kept in the cache. Useful for servers whose cache was pre-filled using
+		 * {@link net.buildtheearth.terraminusminus.generator.CacheSeeder}, and which shouldn't depend on the network while they're running.
+		 */
+		public boolean cacheOnly = false;
+
+		/**
+		 * Whether requests which are cancelled while they're already being sent should be aborted. This resets the request's stream if the
+		 * host uses HTTP/2, and closes the whole connection otherwise.
+		 */
+		public boolean resetCancelledRequests = false;
+
+		/**
+		 * How long (in milliseconds) each step of a request's priority may delay it behind more urgent requests, see
+		 * {@link net.buildtheearth.terraminusminus.util.http.RequestPriority}.
+		 */
+		public int priorityAgingMillis = 250;
+
+		/**
+		 * Whether the number of concurrent requests to each host should be adjusted automatically, depending on the host's latency and whether
+		 * it throttles requests. If enabled, {@link #maxConcurrentRequests} and {@link #maxConcurrentStreams} are used as upper bounds.
+		 */
+		public boolean adaptiveConcurrency = false;
+
+		/**
+		 * Whether requests to a host should be failed immediately while the host appears to be down, instead of waiting for each of them to
+		 * time out. A single request is sent to check whether the host is reachable again after a few seconds, backing off up to a few minutes
+		 * while it stays down.
+		 */
+		public boolean circuitBreaker = false;
+
+		/**
+		 * How resources which are available from multiple mirrors are requested, see
+		 * {@link net.buildtheearth.terraminusminus.util.http.MirrorStrategy}: {@code "sequential"} tries the mirrors one after another in their
+		 * configured order, {@code "hedged"} also tries the next mirror if a mirror is slower than usual, and {@code "race"} requests all mirrors
+		 * at once.
+		 */
+		public String mirrorStrategy = "sequential";
+
+		/**
+		 * When using the {@code "hedged"} {@link #mirrorStrategy}, the next mirror is tried if a mirror takes longer to respond than this
+		 * percentage of its recent requests.
+		 */
+		public int hedgePercentile = 95;
+
+		/**
+		 * The number of threads used for handling network connections, including TLS and decompressing responses. Each host is handled by a
+		 * single thread, so more threads only help if data is requested from multiple hosts. 0 means one per CPU, up to 4.
+		 * <p>
+		 * Changes only take effect after a restart.
+		 */
+		public int networkThreads = 0;
+
 		public int cacheTTL = 1440;
+
+		/**
+		 * The maximum total size (in MiB) of all cached responses. When it's exceeded, the least recently used responses are removed from the
+		 * cache. 0 means unlimited, in which case responses are only removed once they expire.
+		 */
+		public long maxCacheSize = 0L;
+
+		/**
+		 * The maximum total size (in MiB) of the cached responses which are also kept in memory, so that responses which are needed again
+		 * shortly after being used don't need to be read from disk. 0 disables the memory cache.
+		 * <p>
+		 * Changes only take effect after a restart.
+		 */
+		public long memoryCacheSize = 64L;
+
+		/**
+		 * Whether cached responses should be compressed on disk. Responses which are already compressed (such as PNG or TIFF images) are always
+		 * stored as-is.
+		 * <p>
+		 * Responses which are cached while this is enabled can't be read by versions which don't support compression.
+		 */
+		public boolean compressCache = false;
+
+		/**
+		 * Whether responses should be decoded while they're still being downloaded, where supported (currently only the newline-delimited
+		 * GeoJSON used for OpenStreetMap data). The complete responses are still cached as usual.
+		 */
+		public boolean streamingDecode = false;
+
+		/**
+		 * Cached responses at least this large (in KiB) are memory-mapped when they're read, instead of being copied into memory. 0 disables
+		 * memory-mapping. Only used by the {@code "file"} {@link #cacheBackend}.
+		 * <p>
+		 * Mapped responses are only unmapped once they've been garbage collected. On Windows, a cached response can't be replaced while it's
+		 * mapped, so this should stay disabled if the same responses are refreshed frequently.
+		 */
+		public int mmapThreshold = 0;
+
+		/**
+		 * How cached responses are stored on disk: {@code "file"} stores each response in a separate file, {@code "segment"} packs them into
+		 * large segment files, which scales much better when millions of responses are cached.
+		 */
+		public String cacheBackend = "file";
+
+		/**
+		 * The number of threads used for reading and writing cached responses. All operations on the same URL are handled by the same thread.
+		 * <p>
+		 * Changes only take effect after a restart.
+		 */
+		public int diskThreads = 4;
+	}
+
+	public static class ChunkCacheOpts {
+
+		/**
+		 * Whether generated chunk data should be stored on disk, so that it doesn't need to be regenerated after a restart.
+		 */
+		public boolean enabled = false;
+
+		/**
+		 * The time (in minutes) after which stored chunk data is regenerated. Values {@code <= 0} disable expiry.
+		 */
+		public int ttl = 10080;
+	}
+
+	/**
+	 * The thread pools used by the asynchronous generation pipeline, see {@link net.buildtheearth.terraminusminus.util.TerraExecutors}.
+	 * <p>
+	 * Thread counts {@code <= 0} use the default for the pool, which is derived from the number of available processors.
+	 */
+	public static class ExecutorOpts {
+
+		/**
+		 * The number of threads used to decode downloaded images and stored chunk data.
+		 * <p>
+		 * Defaults to the number of available processors.
+		 */
+		public int decodeThreads = 0;
+
+		/**
+		 * The number of threads used to sample datasets and bake chunk data.
+		 * <p>
+		 * Defaults to half the number of available processors.
+		 */
+		public int bakeThreads = 0;
+
+		/**
+		 * The number of threads used to parse GeoJSON data.
+		 * <p>
+		 * Defaults to half the number of available processors.
+		 */
+		public int parseThreads = 0;
+
+		/**
+		 * The number of threads used for blocking I/O. Ignored if {@link #virtualThreadsForIO} is enabled.
+		 */
+		public int ioThreads = 4;
+
+		/**
+		 * Whether blocking I/O should be done on virtual threads instead of a fixed-size pool.
+		 */
+		public boolean virtualThreadsForIO = false;
 	}
 }
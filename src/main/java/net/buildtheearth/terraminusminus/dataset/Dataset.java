@@ -8,19 +8,50 @@ import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 
 import lombok.NonNull;
+import net.buildtheearth.terraminusminus.util.SharedFuture;
 
 /**
  * @author DaPorkchop_
  */
 public abstract class Dataset<K, V> extends CacheLoader<K, CompletableFuture<V>> implements IDataset<K, V> {
-    protected final LoadingCache<K, CompletableFuture<V>> cache = CacheBuilder.newBuilder()
+    protected final LoadingCache<K, SharedFuture<V>> cache = CacheBuilder.newBuilder()
             .softValues()
             .expireAfterAccess(5L, TimeUnit.MINUTES)
-            .build(this);
+            .build(new CacheLoader<K, SharedFuture<V>>() {
+                @Override
+                public SharedFuture<V> load(K key) throws Exception {
+                    return Dataset.this.share(key, Dataset.this.load(key));
+                }
+            });
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Every call returns a separate future. Cancelling it has no effect on other callers, but once every caller which requested the same key
+     * has cancelled its future before the value was loaded, loading the value is cancelled as well.
+     */
     @Override
     public CompletableFuture<V> getAsync(@NonNull K key) {
-        return this.cache.getUnchecked(key);
+        while (true) {
+            SharedFuture<V> shared = this.cache.getUnchecked(key);
+            CompletableFuture<V> future = shared.newConsumer();
+            if (future != null) {
+                return future;
+            }
+
+            //loading was cancelled because nobody was interested in the value anymore, try again
+            this.cache.asMap().remove(key, shared);
+        }
+    }
+
+    private SharedFuture<V> share(K key, CompletableFuture<V> future) {
+        SharedFuture<V> shared = new SharedFuture<>(future);
+        future.whenComplete((v, t) -> {
+            if (future.isCancelled()) { //don't keep cancelled futures around in the cache
+                this.cache.asMap().remove(key, shared);
+            }
+        });
+        return shared;
     }
 
     /**
@@ -1,5 +1,7 @@
 package net.buildtheearth.terraminusminus.dataset;
 
+import static net.daporkchop.lib.common.util.PorkUtil.uncheckedCast;
+
 import java.util.concurrent.CompletableFuture;
 
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
@@ -41,4 +43,29 @@ public interface IScalarDataset {
      * @return a {@link CompletableFuture} which will be completed with the values
      */
     CompletableFuture<double[]> getAsync(@NonNull CornerBoundingBox2d bounds, int sizeX, int sizeZ) throws OutOfProjectionBoundsException;
+
+    /**
+     * Asynchronously gets a bunch of values in each of the given bounding boxes.
+     * <p>
+     * This is equivalent to calling {@link #getAsync(CornerBoundingBox2d, int, int)} for each bounding box individually, but allows implementations
+     * to share work (such as fetching tiles) between bounding boxes which are close to each other.
+     *
+     * @param bounds the bounding boxes. {@code null} elements are permitted.
+     * @param sizeX  the number of samples to take along the X axis of each bounding box
+     * @param sizeZ  the number of samples to take along the Z axis of each bounding box
+     * @return {@link CompletableFuture}s which will be completed with the values, in the same order as {@code bounds}. The future for a bounding
+     * box is {@code null} if the bounding box is {@code null} or out of valid projection bounds.
+     */
+    default CompletableFuture<double[]>[] getAsync(@NonNull CornerBoundingBox2d[] bounds, int sizeX, int sizeZ) {
+        CompletableFuture<double[]>[] futures = uncheckedCast(new CompletableFuture[bounds.length]);
+        for (int i = 0; i < bounds.length; i++) {
+            if (bounds[i] != null) {
+                try {
+                    futures[i] = this.getAsync(bounds[i], sizeX, sizeZ);
+                } catch (OutOfProjectionBoundsException ignored) {
+                }
+            }
+        }
+        return futures;
+    }
 }
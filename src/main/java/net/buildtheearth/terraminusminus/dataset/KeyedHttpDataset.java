@@ -2,11 +2,13 @@ package net.buildtheearth.terraminusminus.dataset;
 
 import java.util.Arrays;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 import io.netty.buffer.ByteBuf;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
+import net.buildtheearth.terraminusminus.util.TerraExecutors;
 import net.buildtheearth.terraminusminus.util.http.Http;
 
 /**
@@ -22,6 +24,13 @@ public abstract class KeyedHttpDataset<V> extends Dataset<String, V> {
 
     @Override
     public CompletableFuture<V> load(@NonNull String key) throws Exception {
-        return Http.getFirst(Arrays.stream(this.urls()).map(s -> s + key).toArray(String[]::new), data -> this.decode(key, data));
+        return Http.getFirst(Arrays.stream(this.urls()).map(s -> s + key).toArray(String[]::new), data -> this.decode(key, data), this.decodeExecutor());
+    }
+
+    /**
+     * @return the executor on which downloaded data will be decoded
+     */
+    protected Executor decodeExecutor() {
+        return TerraExecutors.decode();
     }
 }
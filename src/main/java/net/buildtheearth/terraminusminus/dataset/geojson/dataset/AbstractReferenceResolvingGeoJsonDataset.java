@@ -19,6 +19,8 @@ import lombok.NonNull;
 import net.buildtheearth.terraminusminus.dataset.Dataset;
 import net.buildtheearth.terraminusminus.dataset.geojson.GeoJsonObject;
 import net.buildtheearth.terraminusminus.dataset.geojson.object.Reference;
+import net.buildtheearth.terraminusminus.util.Futures;
+import net.buildtheearth.terraminusminus.util.http.RequestPriority;
 
 /**
  * @author DaPorkchop_
@@ -46,7 +48,8 @@ public abstract class AbstractReferenceResolvingGeoJsonDataset<V> extends Datase
 
     @Override
     public CompletableFuture<V> load(@NonNull String key) throws Exception {
-        return this.delegate.getAsync(key).thenCompose(objects -> {
+        //references are resolved on whichever thread completes the delegate's future, so the priority has to be carried over
+        return Futures.thenCompose(this.delegate.getAsync(key), RequestPriority.capture((GeoJsonObject[] objects) -> {
             if (!areAnyObjectsReferences(objects)) { //none of the objects are references, so there's nothing to be resolved!
                 return CompletableFuture.completedFuture(this.translate(Arrays.stream(objects)));
             }
@@ -67,9 +70,9 @@ public abstract class AbstractReferenceResolvingGeoJsonDataset<V> extends Datase
             }
 
             CompletableFuture<V>[] packedReferenceFutures = uncheckedCast(referenceFutures.toArray(new CompletableFuture[0]));
-            return CompletableFuture.allOf(packedReferenceFutures).thenApply(unused ->
-                    this.merge(Arrays.stream(packedReferenceFutures).map(CompletableFuture::join)));
-        });
+            return Futures.propagateCancellation(CompletableFuture.allOf(packedReferenceFutures).thenApply(unused ->
+                    this.merge(Arrays.stream(packedReferenceFutures).map(CompletableFuture::join))), packedReferenceFutures);
+        }));
     }
 
     protected abstract V translate(@NonNull Stream<GeoJsonObject> inputs);
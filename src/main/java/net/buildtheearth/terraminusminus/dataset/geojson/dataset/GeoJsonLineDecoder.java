@@ -0,0 +1,56 @@
+package net.buildtheearth.terraminusminus.dataset.geojson.dataset;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import lombok.NonNull;
+import net.buildtheearth.terraminusminus.dataset.geojson.GeoJson;
+import net.buildtheearth.terraminusminus.dataset.geojson.GeoJsonObject;
+import net.buildtheearth.terraminusminus.util.http.StreamDecoder;
+
+/**
+ * Incrementally parses newline-delimited GeoJSON, where each line contains a single GeoJSON object.
+ * <p>
+ * Every line is parsed as soon as it has been received completely, so only the incomplete last line has to be buffered.
+ *
+ * @author DaPorkchop_
+ */
+final class GeoJsonLineDecoder implements StreamDecoder<GeoJsonObject[]> {
+    private final List<GeoJsonObject> objects = new ArrayList<>();
+    private final ByteBuf partial = Unpooled.buffer(0); //the start of a line whose end hasn't been received yet
+
+    @Override
+    public void decode(@NonNull ByteBuf data) {
+        int start = data.readerIndex();
+        int end = data.writerIndex();
+        for (int lf; (lf = data.indexOf(start, end, (byte) '\n')) >= 0; start = lf + 1) {
+            if (this.partial.isReadable()) { //the line started in a previous part of the body
+                this.partial.writeBytes(data, start, lf - start);
+                this.line(this.partial, this.partial.readerIndex(), this.partial.readableBytes());
+                this.partial.clear();
+            } else {
+                this.line(data, start, lf - start);
+            }
+        }
+        this.partial.writeBytes(data, start, end - start);
+    }
+
+    private void line(ByteBuf buf, int index, int length) {
+        if (length > 0 && buf.getByte(index + length - 1) == '\r') { //strip the carriage return of windows-style line breaks
+            length--;
+        }
+        this.objects.add(GeoJson.parse(buf.toString(index, length, StandardCharsets.UTF_8)));
+    }
+
+    @Override
+    public GeoJsonObject[] finish() {
+        if (this.partial.isReadable()) { //the last line doesn't end with a line break
+            this.line(this.partial, this.partial.readerIndex(), this.partial.readableBytes());
+            this.partial.clear();
+        }
+        return this.objects.toArray(new GeoJsonObject[0]);
+    }
+}
@@ -2,15 +2,26 @@ package net.buildtheearth.terraminusminus.dataset.geojson.dataset;
 
 import java.io.BufferedReader;
 import java.io.InputStreamReader;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufInputStream;
 import lombok.NonNull;
+import net.buildtheearth.terraminusminus.TerraConfig;
 import net.buildtheearth.terraminusminus.dataset.KeyedHttpDataset;
 import net.buildtheearth.terraminusminus.dataset.geojson.GeoJson;
 import net.buildtheearth.terraminusminus.dataset.geojson.GeoJsonObject;
+import net.buildtheearth.terraminusminus.util.TerraExecutors;
+import net.buildtheearth.terraminusminus.util.http.Http;
 
 /**
+ * Parses newline-delimited GeoJSON.
+ * <p>
+ * If {@link TerraConfig.HttpOpts#streamingDecode} is enabled, each line is parsed as soon as it has been downloaded, instead of waiting for the
+ * whole response.
+ *
  * @author DaPorkchop_
  */
 public class ParsingGeoJsonDataset extends KeyedHttpDataset<GeoJsonObject[]> {
@@ -18,10 +29,23 @@ public class ParsingGeoJsonDataset extends KeyedHttpDataset<GeoJsonObject[]> {
         super(urls);
     }
 
+    @Override
+    public CompletableFuture<GeoJsonObject[]> load(@NonNull String key) throws Exception {
+        if (!TerraConfig.http.streamingDecode) {
+            return super.load(key);
+        }
+        return Http.getFirstStreaming(Arrays.stream(this.urls()).map(s -> s + key).toArray(String[]::new), GeoJsonLineDecoder::new, this.decodeExecutor());
+    }
+
     @Override
     protected GeoJsonObject[] decode(@NonNull String path, @NonNull ByteBuf data) throws Exception {
         try (BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteBufInputStream(data)))) { //parse each line as a GeoJSON object
             return reader.lines().map(GeoJson::parse).toArray(GeoJsonObject[]::new);
         }
     }
+
+    @Override
+    protected Executor decodeExecutor() {
+        return TerraExecutors.parse();
+    }
 }
@@ -14,6 +14,7 @@ import net.buildtheearth.terraminusminus.projection.EquirectangularProjection;
 import net.buildtheearth.terraminusminus.projection.OutOfProjectionBoundsException;
 import net.buildtheearth.terraminusminus.substitutes.ChunkPos;
 import net.buildtheearth.terraminusminus.util.CornerBoundingBox2d;
+import net.buildtheearth.terraminusminus.util.Futures;
 import net.buildtheearth.terraminusminus.util.bvh.Bounds2d;
 
 /**
@@ -40,9 +41,9 @@ public class TiledGeoJsonDataset extends TiledDataset<GeoJsonObject[]> implement
                 .map(this::getAsync)
                 .toArray(CompletableFuture[]::new));
 
-        return CompletableFuture.allOf(futures).thenApply(unused ->
+        return Futures.propagateCancellation(CompletableFuture.allOf(futures).thenApply(unused ->
                 Arrays.stream(futures)
                         .map(CompletableFuture::join)
-                        .toArray(GeoJsonObject[][]::new));
+                        .toArray(GeoJsonObject[][]::new)), futures);
     }
 }
@@ -31,11 +31,7 @@ public final class LineString implements Geometry {
 
     @Override
     public LineString project(@NonNull ProjectionFunction projection) throws OutOfProjectionBoundsException {
-        Point[] out = this.points.clone();
-        for (int i = 0; i < out.length; i++) {
-            out[i] = out[i].project(projection);
-        }
-        return new LineString(out);
+        return new LineString(Point.project(this.points, projection));
     }
 
     @Override
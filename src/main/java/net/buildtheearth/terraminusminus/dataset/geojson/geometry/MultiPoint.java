@@ -29,11 +29,7 @@ public final class MultiPoint implements Geometry, Iterable<Point> {
 
     @Override
     public MultiPoint project(@NonNull ProjectionFunction projection) throws OutOfProjectionBoundsException {
-        Point[] out = this.points.clone();
-        for (int i = 0; i < out.length; i++) {
-            out[i] = out[i].project(projection);
-        }
-        return new MultiPoint(out);
+        return new MultiPoint(Point.project(this.points, projection));
     }
 
     @Override
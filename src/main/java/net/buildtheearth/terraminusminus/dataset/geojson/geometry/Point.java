@@ -12,6 +12,30 @@ import net.buildtheearth.terraminusminus.util.bvh.Bounds2d;
  */
 @Data
 public final class Point implements Geometry {
+    /**
+     * Projects every point in the given array as a single batch.
+     *
+     * @param points     the points to project
+     * @param projection the {@link ProjectionFunction} to use
+     * @return the projected points
+     * @throws OutOfProjectionBoundsException if any of the points could not be projected
+     */
+    static Point[] project(@NonNull Point[] points, @NonNull ProjectionFunction projection) throws OutOfProjectionBoundsException {
+        double[] coords = new double[points.length << 1];
+        for (int i = 0; i < points.length; i++) {
+            coords[i << 1] = points[i].lon;
+            coords[(i << 1) + 1] = points[i].lat;
+        }
+
+        projection.project(coords, 0, coords, 0, points.length);
+
+        Point[] out = new Point[points.length];
+        for (int i = 0; i < points.length; i++) {
+            out[i] = new Point(coords[i << 1], coords[(i << 1) + 1]);
+        }
+        return out;
+    }
+
     protected final double lon;
     protected final double lat;
 
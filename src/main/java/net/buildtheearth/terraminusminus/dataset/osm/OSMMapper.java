@@ -6,6 +6,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Collection;
 import java.util.Map;
+import java.util.Set;
 
 import com.google.gson.JsonParseException;
 import com.google.gson.stream.JsonReader;
@@ -32,7 +33,7 @@ public interface OSMMapper<G extends Geometry> {
                 ? new UTF8FileReader(path.toString())
                 : new InputStreamReader(OSMMapper.class.getResourceAsStream("osm.json5")))) {
             try {
-                return TerraConstants.GSON.fromJson(reader, Root.class);
+                return TerraConstants.GSON.fromJson(reader, Root.class).compile();
             } catch (Exception e) {
                 throw new JsonParseException(reader.toString(), e);
             }
@@ -40,4 +41,25 @@ public interface OSMMapper<G extends Geometry> {
     }
 
     Collection<VectorGeometry> apply(String id, @NonNull Map<String, String> tags, @NonNull Geometry originalGeometry, @NonNull G projectedGeometry);
+
+    /**
+     * Gets the tag keys which an element must have at least one of in order for {@link #apply} to return a non-{@code null} value.
+     *
+     * @return the tag keys, or {@code null} if this mapper may emit results for elements regardless of their tags
+     * @see net.buildtheearth.terraminusminus.dataset.osm.match.MatchCondition#requiredKeys()
+     */
+    default Set<String> requiredKeys() {
+        return null;
+    }
+
+    /**
+     * Gets an equivalent version of this mapper which is optimized for evaluating large numbers of elements.
+     * <p>
+     * The returned mapper must produce exactly the same results as this one.
+     *
+     * @return the compiled mapper
+     */
+    default OSMMapper<G> compile() {
+        return this;
+    }
 }
@@ -60,6 +60,11 @@ final class Root implements OSMMapper<Geometry> {
         }
     }
 
+    @Override
+    public Root compile() {
+        return builder().line(this.line.compile()).polygon(this.polygon.compile()).build();
+    }
+
     static final class Parser extends JsonParser<Root> {
         @Override
         public Root read(JsonReader in) throws IOException {
@@ -15,9 +15,11 @@ import net.daporkchop.lib.common.util.GenericMatcher;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static net.daporkchop.lib.common.util.PValidation.*;
 
@@ -46,6 +48,19 @@ abstract class All<G extends Geometry, M extends OSMMapper<G>> implements OSMMap
         return out;
     }
 
+    @Override
+    public Set<String> requiredKeys() {
+        //every child has to return a non-null result, so the keys required by any one of them are sufficient. pick the most selective one
+        Set<String> result = null;
+        for (M child : this.children) {
+            Set<String> keys = child.requiredKeys();
+            if (keys != null && (result == null || keys.size() < result.size())) {
+                result = keys;
+            }
+        }
+        return result;
+    }
+
     static abstract class Parser<G extends Geometry, M extends OSMMapper<G>> extends JsonParser<M> {
         protected final Class<M> mapperClass = GenericMatcher.uncheckedFind(this.getClass(), Parser.class, "M");
 
@@ -65,6 +80,11 @@ abstract class All<G extends Geometry, M extends OSMMapper<G>> implements OSMMap
             super(children);
         }
 
+        @Override
+        public LineMapper compile() {
+            return new Line(Arrays.stream(this.children).map(LineMapper::compile).toArray(LineMapper[]::new));
+        }
+
         static class Parser extends All.Parser<MultiLineString, LineMapper> {
             @Override
             protected LineMapper construct(@NonNull List<LineMapper> children) {
@@ -79,6 +99,11 @@ abstract class All<G extends Geometry, M extends OSMMapper<G>> implements OSMMap
             super(children);
         }
 
+        @Override
+        public PolygonMapper compile() {
+            return new Polygon(Arrays.stream(this.children).map(PolygonMapper::compile).toArray(PolygonMapper[]::new));
+        }
+
         static class Parser extends All.Parser<MultiPolygon, PolygonMapper> {
             @Override
             protected PolygonMapper construct(@NonNull List<PolygonMapper> children) {
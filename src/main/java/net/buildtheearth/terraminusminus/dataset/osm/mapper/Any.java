@@ -15,6 +15,7 @@ import net.daporkchop.lib.common.util.GenericMatcher;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -64,6 +65,11 @@ abstract class Any<G extends Geometry, M extends OSMMapper<G>> implements OSMMap
             super(children);
         }
 
+        @Override
+        public LineMapper compile() {
+            return new Line(Arrays.stream(this.children).map(LineMapper::compile).toArray(LineMapper[]::new));
+        }
+
         static class Parser extends Any.Parser<MultiLineString, LineMapper> {
             @Override
             protected LineMapper construct(@NonNull List<LineMapper> children) {
@@ -78,6 +84,11 @@ abstract class Any<G extends Geometry, M extends OSMMapper<G>> implements OSMMap
             super(children);
         }
 
+        @Override
+        public PolygonMapper compile() {
+            return new Polygon(Arrays.stream(this.children).map(PolygonMapper::compile).toArray(PolygonMapper[]::new));
+        }
+
         static class Parser extends Any.Parser<MultiPolygon, PolygonMapper> {
             @Override
             protected PolygonMapper construct(@NonNull List<PolygonMapper> children) {
@@ -3,6 +3,7 @@ package net.buildtheearth.terraminusminus.dataset.osm.mapper;
 import java.io.IOException;
 import java.util.Collection;
 import java.util.Map;
+import java.util.Set;
 
 import com.google.gson.annotations.JsonAdapter;
 import com.google.gson.stream.JsonReader;
@@ -41,6 +42,12 @@ abstract class Condition<G extends Geometry, M extends OSMMapper<G>> implements
         return this.emit.apply(id, tags, originalGeometry, projectedGeometry);
     }
 
+    @Override
+    public Set<String> requiredKeys() {
+        Set<String> keys = this.match.requiredKeys();
+        return keys != null ? keys : this.emit.requiredKeys();
+    }
+
     static abstract class Parser<G extends Geometry, M extends OSMMapper<G>, I extends Condition<?, ?>> extends JsonParser<I> {
         protected final Class<M> mapperClass = GenericMatcher.uncheckedFind(this.getClass(), Parser.class, "M");
 
@@ -80,6 +87,11 @@ abstract class Condition<G extends Geometry, M extends OSMMapper<G>> implements
             super(match, emit);
         }
 
+        @Override
+        public LineMapper compile() {
+            return new Line(this.match, this.emit.compile());
+        }
+
         static class Parser extends Condition.Parser<MultiLineString, LineMapper, Line> {
             @Override
             protected Line construct(@NonNull MatchCondition match, @NonNull LineMapper emit) {
@@ -94,6 +106,11 @@ abstract class Condition<G extends Geometry, M extends OSMMapper<G>> implements
             super(match, emit);
         }
 
+        @Override
+        public PolygonMapper compile() {
+            return new Polygon(this.match, this.emit.compile());
+        }
+
         static class Parser extends Condition.Parser<MultiPolygon, PolygonMapper, Polygon> {
             @Override
             protected Polygon construct(@NonNull MatchCondition match, @NonNull PolygonMapper emit) {
@@ -9,39 +9,129 @@ import net.buildtheearth.terraminusminus.dataset.geojson.geometry.MultiPolygon;
 import net.buildtheearth.terraminusminus.dataset.osm.JsonParser;
 import net.buildtheearth.terraminusminus.dataset.osm.OSMMapper;
 import net.buildtheearth.terraminusminus.dataset.vector.geometry.VectorGeometry;
-import lombok.AllArgsConstructor;
+import com.google.common.collect.ImmutableSet;
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
 import lombok.NonNull;
 import net.daporkchop.lib.common.util.GenericMatcher;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static net.daporkchop.lib.common.util.PValidation.*;
 
 /**
  * Returns the result of the first of a number of mappers that returned a non-{@code null} value.
+ * <p>
+ * Once compiled, the children are indexed by their {@link OSMMapper#requiredKeys() required tag keys}, so that only the children which could
+ * possibly match a given element's tags need to be evaluated.
  *
  * @author DaPorkchop_
  */
-@AllArgsConstructor
 abstract class First<G extends Geometry, M extends OSMMapper<G>> implements OSMMapper<G> {
     @NonNull
     protected final M[] children;
 
+    //maps each tag key to a bitmask of the children which require it. null if this mapper hasn't been compiled
+    protected final Map<String, long[]> index;
+    //bitmask of the children which may match regardless of the element's tags
+    protected final long[] unconditional;
+
+    public First(@NonNull M[] children) {
+        this.children = children;
+        this.index = null;
+        this.unconditional = null;
+    }
+
+    protected First(@NonNull M[] children, boolean indexed) {
+        this.children = children;
+        if (!indexed) {
+            this.index = null;
+            this.unconditional = null;
+            return;
+        }
+
+        int words = (children.length + 63) >> 6;
+        Map<String, long[]> index = new Object2ObjectOpenHashMap<>();
+        long[] unconditional = new long[words];
+        for (int i = 0; i < children.length; i++) {
+            Set<String> keys = children[i].requiredKeys();
+            if (keys == null) {
+                unconditional[i >> 6] |= 1L << i;
+            } else {
+                for (String key : keys) {
+                    index.computeIfAbsent(key, k -> new long[words])[i >> 6] |= 1L << i;
+                }
+            }
+        }
+        this.index = index;
+        this.unconditional = unconditional;
+    }
+
     @Override
     public Collection<VectorGeometry> apply(String id, @NonNull Map<String, String> tags, @NonNull Geometry originalGeometry, @NonNull G projectedGeometry) {
-        for (M child : this.children) {
-            Collection<VectorGeometry> result = child.apply(id, tags, originalGeometry, projectedGeometry);
-            if (result != null) {
-                return result;
+        if (this.index == null) { //not compiled, simply try every child in order
+            for (M child : this.children) {
+                Collection<VectorGeometry> result = child.apply(id, tags, originalGeometry, projectedGeometry);
+                if (result != null) {
+                    return result;
+                }
+            }
+            return null; //none matched!
+        }
+
+        //find all children whose required keys are present, iterating over whichever of the two maps is smaller
+        long[] candidates = this.unconditional.clone();
+        if (tags.size() <= this.index.size()) {
+            for (String key : tags.keySet()) {
+                long[] mask = this.index.get(key);
+                if (mask != null) {
+                    or(candidates, mask);
+                }
+            }
+        } else {
+            for (Map.Entry<String, long[]> entry : this.index.entrySet()) {
+                if (tags.containsKey(entry.getKey())) {
+                    or(candidates, entry.getValue());
+                }
             }
         }
 
+        //try each candidate in order
+        for (int word = 0; word < candidates.length; word++) {
+            for (long bits = candidates[word]; bits != 0L; bits &= bits - 1L) {
+                Collection<VectorGeometry> result = this.children[(word << 6) | Long.numberOfTrailingZeros(bits)].apply(id, tags, originalGeometry, projectedGeometry);
+                if (result != null) {
+                    return result;
+                }
+            }
+        }
         return null; //none matched!
     }
 
+    private static void or(long[] dst, long[] src) {
+        for (int i = 0; i < dst.length; i++) {
+            dst[i] |= src[i];
+        }
+    }
+
+    @Override
+    public Set<String> requiredKeys() {
+        //any child may match, so an element has to have at least one of the keys required by any of them
+        ImmutableSet.Builder<String> builder = ImmutableSet.builder();
+        for (M child : this.children) {
+            Set<String> keys = child.requiredKeys();
+            if (keys == null) {
+                return null;
+            }
+            builder.addAll(keys);
+        }
+        return builder.build();
+    }
+
     static abstract class Parser<G extends Geometry, M extends OSMMapper<G>> extends JsonParser<M> {
         protected final Class<M> mapperClass = GenericMatcher.uncheckedFind(this.getClass(), Parser.class, "M");
 
@@ -61,6 +151,15 @@ abstract class First<G extends Geometry, M extends OSMMapper<G>> implements OSMM
             super(children);
         }
 
+        protected Line(LineMapper[] children, boolean indexed) {
+            super(children, indexed);
+        }
+
+        @Override
+        public LineMapper compile() {
+            return new Line(Arrays.stream(this.children).map(LineMapper::compile).toArray(LineMapper[]::new), true);
+        }
+
         static class Parser extends First.Parser<MultiLineString, LineMapper> {
             @Override
             protected LineMapper construct(@NonNull List<LineMapper> children) {
@@ -75,6 +174,15 @@ abstract class First<G extends Geometry, M extends OSMMapper<G>> implements OSMM
             super(children);
         }
 
+        protected Polygon(PolygonMapper[] children, boolean indexed) {
+            super(children, indexed);
+        }
+
+        @Override
+        public PolygonMapper compile() {
+            return new Polygon(Arrays.stream(this.children).map(PolygonMapper::compile).toArray(PolygonMapper[]::new), true);
+        }
+
         static class Parser extends First.Parser<MultiPolygon, PolygonMapper> {
             @Override
             protected PolygonMapper construct(@NonNull List<PolygonMapper> children) {
@@ -11,4 +11,8 @@ import net.buildtheearth.terraminusminus.dataset.osm.OSMMapper;
 @JsonAdapter(LineParser.class)
 @FunctionalInterface
 public interface LineMapper extends OSMMapper<MultiLineString> {
+    @Override
+    default LineMapper compile() {
+        return this;
+    }
 }
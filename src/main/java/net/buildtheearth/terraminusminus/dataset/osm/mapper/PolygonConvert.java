@@ -6,6 +6,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import com.google.gson.annotations.JsonAdapter;
 import com.google.gson.stream.JsonReader;
@@ -65,6 +66,16 @@ public interface PolygonConvert extends PolygonMapper {
             return this.next.apply(id, tags, originalGeometry, new MultiLineString(lines.toArray(new LineString[0])));
         }
 
+        @Override
+        public Set<String> requiredKeys() {
+            return this.next.requiredKeys();
+        }
+
+        @Override
+        public PolygonMapper compile() {
+            return new Line(this.next.compile());
+        }
+
         static class Parser extends JsonParser<Line> {
             @Override
             public Line read(JsonReader in) throws IOException {
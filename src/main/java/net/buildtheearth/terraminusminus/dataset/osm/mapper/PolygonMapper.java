@@ -11,4 +11,8 @@ import net.buildtheearth.terraminusminus.dataset.osm.OSMMapper;
 @JsonAdapter(PolygonParser.class)
 @FunctionalInterface
 public interface PolygonMapper extends OSMMapper<MultiPolygon> {
+    @Override
+    default PolygonMapper compile() {
+        return this;
+    }
 }
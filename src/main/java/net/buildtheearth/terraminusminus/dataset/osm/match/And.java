@@ -9,6 +9,7 @@ import net.buildtheearth.terraminusminus.dataset.geojson.Geometry;
 
 import java.io.IOException;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Combines the results of multiple match conditions using a logical AND operation.
@@ -31,6 +32,19 @@ final class And implements MatchCondition {
         return true;
     }
 
+    @Override
+    public Set<String> requiredKeys() {
+        //every delegate has to match, so the keys required by any one of them are sufficient. pick the most selective one
+        Set<String> result = null;
+        for (MatchCondition delegate : this.delegates) {
+            Set<String> keys = delegate.requiredKeys();
+            if (keys != null && (result == null || keys.size() < result.size())) {
+                result = keys;
+            }
+        }
+        return result;
+    }
+
     static class Parser extends MatchParser {
         @Override
         public MatchCondition read(JsonReader in) throws IOException {
@@ -6,6 +6,7 @@ import lombok.NonNull;
 import net.buildtheearth.terraminusminus.dataset.geojson.Geometry;
 
 import java.util.Map;
+import java.util.Set;
 
 /**
  * @author DaPorkchop_
@@ -19,4 +20,15 @@ public interface MatchCondition {
     MatchCondition FALSE = (id, tags, originalGeometry, projectedGeometry) -> false;
 
     boolean test(String id, @NonNull Map<String, String> tags, @NonNull Geometry originalGeometry, @NonNull Geometry projectedGeometry);
+
+    /**
+     * Gets the tag keys which an element must have at least one of in order for this condition to match it.
+     * <p>
+     * This is used to quickly rule out conditions without having to evaluate them.
+     *
+     * @return the tag keys, or {@code null} if this condition may match elements regardless of their tags
+     */
+    default Set<String> requiredKeys() {
+        return null;
+    }
 }
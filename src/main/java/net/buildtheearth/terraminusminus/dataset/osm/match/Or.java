@@ -1,5 +1,6 @@
 package net.buildtheearth.terraminusminus.dataset.osm.match;
 
+import com.google.common.collect.ImmutableSet;
 import com.google.gson.annotations.JsonAdapter;
 import com.google.gson.stream.JsonReader;
 
@@ -9,6 +10,7 @@ import net.buildtheearth.terraminusminus.dataset.geojson.Geometry;
 
 import java.io.IOException;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Combines the results of multiple match conditions using a logical OR operation.
@@ -31,6 +33,20 @@ final class Or implements MatchCondition {
         return false;
     }
 
+    @Override
+    public Set<String> requiredKeys() {
+        //any delegate may match, so an element has to have at least one of the keys required by any of them
+        ImmutableSet.Builder<String> builder = ImmutableSet.builder();
+        for (MatchCondition delegate : this.delegates) {
+            Set<String> keys = delegate.requiredKeys();
+            if (keys == null) {
+                return null;
+            }
+            builder.addAll(keys);
+        }
+        return builder.build();
+    }
+
     static class Parser extends MatchParser {
         @Override
         public MatchCondition read(JsonReader in) throws IOException {
@@ -11,6 +11,7 @@ import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 
 import java.io.IOException;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
 
@@ -36,6 +37,11 @@ interface Tag extends MatchCondition {
         public boolean test(String id, @NonNull Map<String, String> tags, @NonNull Geometry originalGeometry, @NonNull Geometry projectedGeometry) {
             return tags.containsKey(this.key);
         }
+
+        @Override
+        public Set<String> requiredKeys() {
+            return Collections.singleton(this.key);
+        }
     }
 
     /**
@@ -54,6 +60,11 @@ interface Tag extends MatchCondition {
         public boolean test(String id, @NonNull Map<String, String> tags, @NonNull Geometry originalGeometry, @NonNull Geometry projectedGeometry) {
             return this.expectedValues.contains(tags.get(this.key));
         }
+
+        @Override
+        public Set<String> requiredKeys() {
+            return Collections.singleton(this.key);
+        }
     }
 
     /**
@@ -72,6 +83,11 @@ interface Tag extends MatchCondition {
         public boolean test(String id, @NonNull Map<String, String> tags, @NonNull Geometry originalGeometry, @NonNull Geometry projectedGeometry) {
             return this.value.equals(tags.get(this.key));
         }
+
+        @Override
+        public Set<String> requiredKeys() {
+            return Collections.singleton(this.key);
+        }
     }
 
     class Parser extends JsonParser<MatchCondition> {
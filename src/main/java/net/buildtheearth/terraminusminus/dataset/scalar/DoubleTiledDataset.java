@@ -1,6 +1,5 @@
 package net.buildtheearth.terraminusminus.dataset.scalar;
 
-import java.util.Arrays;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
 
@@ -17,11 +16,15 @@ import net.buildtheearth.terraminusminus.projection.GeographicProjection;
 import net.buildtheearth.terraminusminus.projection.OutOfProjectionBoundsException;
 import net.buildtheearth.terraminusminus.substitutes.ChunkPos;
 import net.buildtheearth.terraminusminus.util.CornerBoundingBox2d;
+import net.buildtheearth.terraminusminus.util.Futures;
 import net.buildtheearth.terraminusminus.util.IntToDoubleBiFunction;
+import net.buildtheearth.terraminusminus.util.SharedFuture;
+import net.buildtheearth.terraminusminus.util.TerraExecutors;
 import net.buildtheearth.terraminusminus.util.bvh.Bounds2d;
 import net.daporkchop.lib.common.math.BinMath;
 
 import static net.daporkchop.lib.common.util.PValidation.*;
+import static net.daporkchop.lib.common.util.PorkUtil.*;
 
 /**
  * A {@link TiledDataset} which operates on a grid of interpolated {@code double}s.
@@ -30,6 +33,12 @@ import static net.daporkchop.lib.common.util.PValidation.*;
  */
 @Getter
 public abstract class DoubleTiledDataset extends TiledHttpDataset<double[]> implements IScalarDataset {
+    /**
+     * If the bounding box containing all of the bounding boxes requested at once is more than this many times larger than their combined area
+     * (e.g. because they straddle the antimeridian or a projection seam), the bounding boxes are fetched individually instead.
+     */
+    protected static final double MAX_REGION_AREA_FACTOR = 4.0d;
+
     protected final BlendMode blend;
     protected final int resolution;
     protected final int shift;
@@ -89,34 +98,123 @@ public abstract class DoubleTiledDataset extends TiledHttpDataset<double[]> impl
 
             @Override
             public double[] apply(Void unused) { //stage 2: actually compute the values now that the tiles have been fetched
-                BlendMode blend = DoubleTiledDataset.this.blend;
+                return DoubleTiledDataset.this.sample(this.localBounds, sizeX, sizeZ, this);
+            }
+        }
 
-                double stepX = 1.0d / sizeX;
-                double stepZ = 1.0d / sizeZ;
+        CornerBoundingBox2d localBounds = bounds.fromGeo(this.projection);
+        Bounds2d paddedLocalBounds = localBounds.axisAlign().expand(this.blend.size).validate(this.projection, false);
 
-                double[] point = new double[2];
-                double[] out = new double[sizeX * sizeZ];
+        return new State(localBounds, paddedLocalBounds).future();
+    }
 
-                double fx = 0.0d;
-                for (int i = 0, x = 0; x < sizeX; x++, fx += stepX) {
-                    double fz = 0.0d;
-                    for (int z = 0; z < sizeZ; z++, fz += stepZ) {
-                        //compute coordinates of point
-                        point = this.localBounds.point(point, fx, fz);
+    @Override
+    public CompletableFuture<double[]>[] getAsync(@NonNull CornerBoundingBox2d[] bounds, int sizeX, int sizeZ) {
+        CompletableFuture<double[]>[] futures = uncheckedCast(new CompletableFuture[bounds.length]);
+        if (notNegative(sizeX, "sizeX") == 0 | notNegative(sizeZ, "sizeZ") == 0) { //no input points -> no output points, ez
+            for (int i = 0; i < bounds.length; i++) {
+                if (bounds[i] != null) {
+                    futures[i] = CompletableFuture.completedFuture(new double[0]);
+                }
+            }
+            return futures;
+        }
 
-                        //sample value at point
-                        out[i++] = blend.get(point[0], point[1], this);
+        //project all the bounding boxes, and compute a single bounding box which contains all of them
+        CornerBoundingBox2d[] localBounds = new CornerBoundingBox2d[bounds.length];
+        Bounds2d paddedRegionBounds = null;
+        double paddedArea = 0.0d;
+        for (int i = 0; i < bounds.length; i++) {
+            if (bounds[i] != null) {
+                try {
+                    CornerBoundingBox2d local = bounds[i].fromGeo(this.projection);
+                    Bounds2d paddedLocalBounds = local.axisAlign().expand(this.blend.size).validate(this.projection, false);
+
+                    localBounds[i] = local;
+                    paddedArea += area(paddedLocalBounds);
+                    paddedRegionBounds = paddedRegionBounds == null ? paddedLocalBounds : paddedRegionBounds.union(paddedLocalBounds);
+                } catch (OutOfProjectionBoundsException ignored) {
+                }
+            }
+        }
+        if (paddedRegionBounds == null) { //every bounding box is out of bounds
+            return futures;
+        } else if (area(paddedRegionBounds) > paddedArea * MAX_REGION_AREA_FACTOR) { //the region would contain far more tiles than are needed
+            for (int i = 0; i < bounds.length; i++) {
+                if (localBounds[i] != null) {
+                    try {
+                        futures[i] = this.getAsync(bounds[i], sizeX, sizeZ);
+                    } catch (OutOfProjectionBoundsException ignored) {
                     }
                 }
+            }
+            return futures;
+        }
 
+        class State extends AbstractState<double[][]> {
+            public State(Bounds2d paddedRegionBounds) {
+                super(paddedRegionBounds);
+            }
+
+            @Override
+            public double[][] apply(Void unused) { //stage 2: sample every bounding box at once now that all of the tiles have been fetched
+                double[][] out = new double[localBounds.length][];
+                for (int i = 0; i < localBounds.length; i++) {
+                    if (localBounds[i] != null) {
+                        out[i] = DoubleTiledDataset.this.sample(localBounds[i], sizeX, sizeZ, this);
+                    }
+                }
                 return out;
             }
         }
 
-        CornerBoundingBox2d localBounds = bounds.fromGeo(this.projection);
-        Bounds2d paddedLocalBounds = localBounds.axisAlign().expand(this.blend.size).validate(this.projection, false);
+        //fetch every tile in the region exactly once. the tiles are only cancelled if every bounding box is cancelled
+        SharedFuture<double[][]> regionFuture = new SharedFuture<>(new State(paddedRegionBounds).future());
+        for (int i = 0; i < bounds.length; i++) {
+            if (localBounds[i] != null) {
+                int index = i;
+                CompletableFuture<double[][]> consumer = regionFuture.newConsumer();
+                futures[i] = Futures.propagateCancellation(consumer.thenApply(values -> values[index]), consumer);
+            }
+        }
+        return futures;
+    }
 
-        return new State(localBounds, paddedLocalBounds).future();
+    private static double area(Bounds2d bounds) {
+        return (bounds.maxX() - bounds.minX()) * (bounds.maxZ() - bounds.minZ());
+    }
+
+    /**
+     * Samples a grid of values in the given bounding box.
+     *
+     * @param localBounds the bounding box (in the dataset's local coordinates)
+     * @param sizeX       the number of samples to take along the X axis
+     * @param sizeZ       the number of samples to take along the Z axis
+     * @param sampler     a function for accessing the raw tile data
+     * @return the sampled values
+     */
+    protected double[] sample(@NonNull CornerBoundingBox2d localBounds, int sizeX, int sizeZ, @NonNull IntToDoubleBiFunction sampler) {
+        BlendMode blend = this.blend;
+
+        double stepX = 1.0d / sizeX;
+        double stepZ = 1.0d / sizeZ;
+
+        double[] point = new double[2];
+        double[] out = new double[sizeX * sizeZ];
+
+        double fx = 0.0d;
+        for (int i = 0, x = 0; x < sizeX; x++, fx += stepX) {
+            double fz = 0.0d;
+            for (int z = 0; z < sizeZ; z++, fz += stepZ) {
+                //compute coordinates of point
+                point = localBounds.point(point, fx, fz);
+
+                //sample value at point
+                out[i++] = blend.get(point[0], point[1], sampler);
+            }
+        }
+
+        return out;
     }
 
     @RequiredArgsConstructor
@@ -141,17 +239,21 @@ public abstract class DoubleTiledDataset extends TiledHttpDataset<double[]> impl
         public CompletableFuture<R> future() {
             ChunkPos[] tilePositions = this.paddedLocalBounds.toTiles(DoubleTiledDataset.this.resolution);
 
-            return CompletableFuture.allOf(Arrays.stream(tilePositions)
-                    .map(pos -> DoubleTiledDataset.this.getAsync(pos)
-                            .thenApply(tile -> { //put tile directly into map when it's loaded
-                                //synchronize because we can't be certain that all of the futures will be completed by the same thread
-                                synchronized (this.loadedTiles) {
-                                    this.loadedTiles.put(BinMath.packXY(pos.x(), pos.z()), tile);
-                                }
-                                return tile;
-                            }))
-                    .toArray(CompletableFuture[]::new))
-                    .thenApplyAsync(this);
+            CompletableFuture<?>[] tileFutures = new CompletableFuture[tilePositions.length];
+            CompletableFuture<?>[] loadedFutures = new CompletableFuture[tilePositions.length];
+            for (int i = 0; i < tilePositions.length; i++) {
+                ChunkPos pos = tilePositions[i];
+                loadedFutures[i] = (tileFutures[i] = DoubleTiledDataset.this.getAsync(pos))
+                        .thenApply(tile -> { //put tile directly into map when it's loaded
+                            //synchronize because we can't be certain that all of the futures will be completed by the same thread
+                            synchronized (this.loadedTiles) {
+                                this.loadedTiles.put(BinMath.packXY(pos.x(), pos.z()), tile);
+                            }
+                            return tile;
+                        });
+            }
+
+            return Futures.propagateCancellation(CompletableFuture.allOf(loadedFutures).thenApplyAsync(this, TerraExecutors.bake()), tileFutures);
         }
     }
 }
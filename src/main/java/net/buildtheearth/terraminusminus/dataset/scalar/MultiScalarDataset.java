@@ -7,7 +7,10 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.BiConsumer;
 import java.util.stream.Stream;
@@ -18,6 +21,8 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.SneakyThrows;
@@ -30,10 +35,12 @@ import net.buildtheearth.terraminusminus.util.IntRange;
 import net.buildtheearth.terraminusminus.util.bvh.BVH;
 import net.buildtheearth.terraminusminus.util.bvh.Bounds2d;
 import net.buildtheearth.terraminusminus.util.http.Disk;
+import net.buildtheearth.terraminusminus.util.http.RequestPriority;
 import net.daporkchop.lib.common.function.io.IOFunction;
 import net.daporkchop.lib.common.function.throwing.EFunction;
 
 import static net.daporkchop.lib.common.util.PValidation.*;
+import static net.daporkchop.lib.common.util.PorkUtil.*;
 
 /**
  * Implementation of {@link IScalarDataset} which can sample from multiple {@link IScalarDataset}s and combine the results.
@@ -78,6 +85,17 @@ public class MultiScalarDataset implements IScalarDataset {
 
         class State implements BiConsumer<Double, Throwable> {
             final CompletableFuture<Double> future = new CompletableFuture<>();
+            final int priority = RequestPriority.current(); //datasets after the first one are sampled from other threads
+            volatile CompletableFuture<Double> current; //the future for the dataset which is currently being sampled
+
+            {
+                this.future.whenComplete((v, t) -> {
+                    CompletableFuture<Double> current = this.current;
+                    if (this.future.isCancelled() && current != null) {
+                        current.cancel(false);
+                    }
+                });
+            }
             int i = -1;
 
             @Override
@@ -92,12 +110,16 @@ public class MultiScalarDataset implements IScalarDataset {
             }
 
             private void advance() {
-                if (++this.i < datasets.length) {
-                    try {
-                        datasets[this.i].dataset.getAsync(lon, lat).whenComplete(this);
-                    } catch (OutOfProjectionBoundsException e) {
-                        this.future.completeExceptionally(e);
-                    }
+                if (this.future.isDone()) { //the future was cancelled, don't bother sampling any more datasets
+                    return;
+                } else if (++this.i < datasets.length) {
+                    RequestPriority.run(this.priority, () -> {
+                        try {
+                            (this.current = datasets[this.i].dataset.getAsync(lon, lat)).whenComplete(this);
+                        } catch (OutOfProjectionBoundsException e) {
+                            this.future.completeExceptionally(e);
+                        }
+                    });
                 } else { //no datasets remain, complete the future successfully with whatever value we currently have
                     this.future.complete(Double.NaN);
                 }
@@ -127,6 +149,17 @@ public class MultiScalarDataset implements IScalarDataset {
 
         class State implements BiConsumer<double[], Throwable> {
             final CompletableFuture<double[]> future = new CompletableFuture<>();
+            final int priority = RequestPriority.current(); //datasets after the first one are sampled from other threads
+            volatile CompletableFuture<double[]> current; //the future for the dataset which is currently being sampled
+
+            {
+                this.future.whenComplete((v, t) -> {
+                    CompletableFuture<double[]> current = this.current;
+                    if (this.future.isCancelled() && current != null) {
+                        current.cancel(false);
+                    }
+                });
+            }
             double[] out;
             int remaining = sizeX * sizeZ;
             int i = -1;
@@ -160,12 +193,16 @@ public class MultiScalarDataset implements IScalarDataset {
             }
 
             private void advance() {
-                if (++this.i < datasets.length) {
-                    try {
-                        datasets[this.i].dataset.getAsync(bounds, sizeX, sizeZ).whenComplete(this);
-                    } catch (OutOfProjectionBoundsException e) {
-                        this.future.completeExceptionally(e);
-                    }
+                if (this.future.isDone()) { //the future was cancelled, don't bother sampling any more datasets
+                    return;
+                } else if (++this.i < datasets.length) {
+                    RequestPriority.run(this.priority, () -> {
+                        try {
+                            (this.current = datasets[this.i].dataset.getAsync(bounds, sizeX, sizeZ)).whenComplete(this);
+                        } catch (OutOfProjectionBoundsException e) {
+                            this.future.completeExceptionally(e);
+                        }
+                    });
                 } else { //no datasets remain, complete the future successfully with whatever value we currently have
                     this.future.complete(this.out);
                 }
@@ -177,6 +214,168 @@ public class MultiScalarDataset implements IScalarDataset {
         return state.future;
     }
 
+    @Override
+    public CompletableFuture<double[]>[] getAsync(@NonNull CornerBoundingBox2d[] bounds, int sizeX, int sizeZ) {
+        CompletableFuture<double[]>[] futures = uncheckedCast(new CompletableFuture[bounds.length]);
+        if (notNegative(sizeX, "sizeX") == 0 | notNegative(sizeZ, "sizeZ") == 0) { //no input points -> no output points, ez
+            for (int i = 0; i < bounds.length; i++) {
+                if (bounds[i] != null) {
+                    futures[i] = CompletableFuture.completedFuture(new double[0]);
+                }
+            }
+            return futures;
+        }
+
+        //group the bounding boxes by the datasets which intersect them, so that each group can be sampled together
+        Map<List<WrappedDataset>, IntList> groups = new HashMap<>();
+        for (int i = 0; i < bounds.length; i++) {
+            if (bounds[i] != null) {
+                WrappedDataset[] datasets = this.bvh.getAllIntersecting(bounds[i]).toArray(new WrappedDataset[0]);
+                if (datasets.length == 0) { //no matching datasets!
+                    futures[i] = CompletableFuture.completedFuture(null);
+                } else {
+                    Arrays.sort(datasets); //ensure datasets are in priority order
+                    groups.computeIfAbsent(Arrays.asList(datasets), unused -> new IntArrayList()).add(i);
+                }
+            }
+        }
+
+        groups.forEach((datasets, indices) -> {
+            CornerBoundingBox2d[] groupBounds = new CornerBoundingBox2d[indices.size()];
+            for (int i = 0; i < groupBounds.length; i++) {
+                groupBounds[i] = bounds[indices.getInt(i)];
+            }
+
+            CompletableFuture<double[]>[] groupFutures;
+            if (datasets.size() == 1 && datasets.get(0).condition == null) { //if there's only one dataset without a condition, there's no reason to do any merging
+                groupFutures = datasets.get(0).dataset.getAsync(groupBounds, sizeX, sizeZ);
+            } else {
+                groupFutures = new RegionMergeState(datasets.toArray(new WrappedDataset[0]), groupBounds, sizeX, sizeZ).futures;
+            }
+
+            for (int i = 0; i < groupFutures.length; i++) {
+                futures[indices.getInt(i)] = groupFutures[i];
+            }
+        });
+        return futures;
+    }
+
+    /**
+     * Merges the values from multiple datasets for a group of bounding boxes, in the same way as
+     * {@link #getAsync(CornerBoundingBox2d, int, int)} does for a single bounding box.
+     * <p>
+     * Each dataset is queried for all of the bounding boxes which still contain unset values at once.
+     *
+     * @author DaPorkchop_
+     */
+    private static final class RegionMergeState {
+        final WrappedDataset[] datasets;
+        final CornerBoundingBox2d[] bounds;
+        final int sizeX;
+        final int sizeZ;
+
+        final CompletableFuture<double[]>[] futures;
+        final CompletableFuture<?>[] current; //the future for the dataset which is currently being sampled for each bounding box
+        final double[][] out;
+        final int[] remaining;
+        final int priority = RequestPriority.current(); //datasets after the first one are sampled from other threads
+        int i = -1;
+
+        RegionMergeState(@NonNull WrappedDataset[] datasets, @NonNull CornerBoundingBox2d[] bounds, int sizeX, int sizeZ) {
+            this.datasets = datasets;
+            this.bounds = bounds;
+            this.sizeX = sizeX;
+            this.sizeZ = sizeZ;
+
+            this.futures = uncheckedCast(new CompletableFuture[bounds.length]);
+            this.current = new CompletableFuture[bounds.length];
+            for (int b = 0; b < bounds.length; b++) {
+                int index = b;
+                this.futures[b] = new CompletableFuture<>();
+                this.futures[b].whenComplete((v, t) -> {
+                    CompletableFuture<?> current = this.current[index];
+                    if (this.futures[index].isCancelled() && current != null) {
+                        current.cancel(false);
+                    }
+                });
+            }
+            this.out = new double[bounds.length][];
+            this.remaining = new int[bounds.length];
+            Arrays.fill(this.remaining, sizeX * sizeZ);
+
+            this.advance();
+        }
+
+        private void advance() {
+            if (++this.i >= this.datasets.length) { //no datasets remain, complete the futures successfully with whatever values we currently have
+                for (int b = 0; b < this.bounds.length; b++) {
+                    this.futures[b].complete(this.out[b]);
+                }
+                return;
+            }
+
+            //sample the next dataset for every bounding box that isn't complete yet
+            IntList pending = new IntArrayList();
+            for (int b = 0; b < this.bounds.length; b++) {
+                if (!this.futures[b].isDone()) {
+                    pending.add(b);
+                }
+            }
+            if (pending.isEmpty()) {
+                return;
+            }
+
+            CornerBoundingBox2d[] pendingBounds = new CornerBoundingBox2d[pending.size()];
+            for (int j = 0; j < pendingBounds.length; j++) {
+                pendingBounds[j] = this.bounds[pending.getInt(j)];
+            }
+
+            CompletableFuture<double[]>[] pendingFutures = RequestPriority.with(this.priority,
+                    () -> this.datasets[this.i].dataset.getAsync(pendingBounds, this.sizeX, this.sizeZ));
+            for (int j = 0; j < pendingFutures.length; j++) {
+                this.current[pending.getInt(j)] = pendingFutures[j];
+            }
+            CompletableFuture.allOf(Arrays.stream(pendingFutures).filter(Objects::nonNull).toArray(CompletableFuture[]::new)).whenComplete((unused, t) -> {
+                for (int j = 0; j < pendingFutures.length; j++) {
+                    int b = pending.getInt(j);
+                    if (pendingFutures[j] == null) { //out of bounds
+                        this.futures[b].completeExceptionally(OutOfProjectionBoundsException.get());
+                    } else if (pendingFutures[j].isCompletedExceptionally()) {
+                        pendingFutures[j].whenComplete((v, cause) -> this.futures[b].completeExceptionally(cause));
+                    } else {
+                        this.accept(b, pendingFutures[j].join());
+                    }
+                }
+                this.advance();
+            });
+        }
+
+        private void accept(int b, double[] data) {
+            if (data == null) { //if the array is null, it's as if it were an array of NaNs - nothing would be set, we simply skip it
+                return;
+            }
+
+            double[] out = this.out[b];
+            if (out == null) { //ensure the destination array is set
+                Arrays.fill(this.out[b] = out = new double[this.sizeX * this.sizeZ], Double.NaN);
+            }
+
+            WrappedDataset dataset = this.datasets[this.i];
+            for (int i = 0; i < this.sizeX * this.sizeZ; i++) {
+                if (Double.isNaN(out[i])) { //if value in output array is NaN, consider replacing it
+                    double v = data[i];
+                    if (!Double.isNaN(v) && dataset.test(v)) { //if the value in the input array is accepted, use it as the output
+                        out[i] = v;
+                        if (--this.remaining[b] == 0) { //if no samples are left to process, we're done!
+                            this.futures[b].complete(out);
+                            return;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
     /**
      * Wrapper around a dataset with a bounding box.
      *
@@ -20,6 +20,7 @@ import net.buildtheearth.terraminusminus.dataset.osm.OSMMapper;
 import net.buildtheearth.terraminusminus.dataset.vector.geometry.VectorGeometry;
 import net.buildtheearth.terraminusminus.projection.GeographicProjection;
 import net.buildtheearth.terraminusminus.projection.OutOfProjectionBoundsException;
+import net.buildtheearth.terraminusminus.projection.ProjectionFunction;
 import net.daporkchop.lib.common.util.PorkUtil;
 
 /**
@@ -63,7 +64,7 @@ public class GeoJsonToVectorDataset extends AbstractReferenceResolvingGeoJsonDat
         } else {
             try {
                 Geometry geometry = (Geometry) object;
-                Collection<VectorGeometry> elements = this.mapper.apply(id, tags, geometry, geometry.project(this.earthProjection::fromGeo));
+                Collection<VectorGeometry> elements = this.mapper.apply(id, tags, geometry, geometry.project(ProjectionFunction.fromGeo(this.earthProjection)));
                 return elements != null ? elements.stream() : Stream.empty();
             } catch (OutOfProjectionBoundsException e) {//skip element
                 return Stream.empty();
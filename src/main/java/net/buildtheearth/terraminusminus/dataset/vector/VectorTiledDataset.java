@@ -14,6 +14,8 @@ import net.buildtheearth.terraminusminus.projection.EquirectangularProjection;
 import net.buildtheearth.terraminusminus.projection.OutOfProjectionBoundsException;
 import net.buildtheearth.terraminusminus.substitutes.ChunkPos;
 import net.buildtheearth.terraminusminus.util.CornerBoundingBox2d;
+import net.buildtheearth.terraminusminus.util.Futures;
+import net.buildtheearth.terraminusminus.util.TerraExecutors;
 import net.buildtheearth.terraminusminus.util.bvh.BVH;
 import net.buildtheearth.terraminusminus.util.bvh.Bounds2d;
 
@@ -41,9 +43,9 @@ public class VectorTiledDataset extends TiledDataset<BVH<VectorGeometry>> implem
                 .map(this::getAsync)
                 .toArray(CompletableFuture[]::new));
 
-        return CompletableFuture.allOf(futures).thenApplyAsync(unused ->
+        return Futures.propagateCancellation(CompletableFuture.allOf(futures).thenApplyAsync(unused ->
                 uncheckedCast(Arrays.stream(futures)
                         .map(CompletableFuture::join)
-                        .toArray(BVH[]::new)));
+                        .toArray(BVH[]::new)), TerraExecutors.bake()), futures);
     }
 }
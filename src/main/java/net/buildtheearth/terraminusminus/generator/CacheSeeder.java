@@ -0,0 +1,247 @@
+package net.buildtheearth.terraminusminus.generator;
+
+import lombok.Getter;
+import lombok.NonNull;
+import net.buildtheearth.terraminusminus.TerraConfig;
+import net.buildtheearth.terraminusminus.TerraMinusMinus;
+import net.buildtheearth.terraminusminus.generator.data.IEarthDataBaker;
+import net.buildtheearth.terraminusminus.projection.OutOfProjectionBoundsException;
+import net.buildtheearth.terraminusminus.substitutes.ChunkPos;
+import net.buildtheearth.terraminusminus.util.CornerBoundingBox2d;
+import net.buildtheearth.terraminusminus.util.http.Disk;
+import net.buildtheearth.terraminusminus.util.http.Http;
+import net.buildtheearth.terraminusminus.util.http.RequestPriority;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.BitSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.lang.Math.*;
+import static net.daporkchop.lib.common.math.PMath.*;
+import static net.daporkchop.lib.common.util.PValidation.*;
+
+/**
+ * Fills the HTTP cache with every resource which is needed to generate a region, without a display or a running server.
+ * <p>
+ * The region is split into square areas of {@code 1 << AREA_SHIFT} chunks, and the data for each area is requested exactly like the generator
+ * does (see {@link IEarthAsyncPipelineStep#getRegionFutures}). This way, every tile of the {@code heights}, {@code tree_cover} and
+ * {@code osm_parsed} datasets (as well as any other dataset used by the generator settings) which the generator would request ends up in the
+ * cache, without having to know how each dataset maps the region to tile URLs. Once the cache is seeded, a server can be run with
+ * {@link TerraConfig.HttpOpts#cacheOnly} enabled.
+ * <p>
+ * If a checkpoint file is given, progress is periodically written to it, and running the seeder again with the same region resumes after the
+ * last area which was seeded without errors.
+ *
+ * @author DaPorkchop_
+ */
+@Getter
+public class CacheSeeder {
+    /**
+     * The default maximum number of areas which may be in flight at once.
+     */
+    public static final int DEFAULT_MAX_IN_FLIGHT = Integer.getInteger("terraplusplus.seed.max_in_flight", 8);
+
+    /**
+     * The base-2 logarithm of the size of the areas the region is split into, in chunks.
+     */
+    public static final int AREA_SHIFT = 4;
+
+    /**
+     * The interval (in milliseconds) at which progress is logged, and the checkpoint is written.
+     */
+    protected static final long PROGRESS_INTERVAL = 5000L;
+
+    /**
+     * Usage: {@code CacheSeeder <blocks|geo> <minX> <minZ> <maxX> <maxZ> [checkpoint] [settings]}
+     * <p>
+     * The rectangle is given either in projected (block) coordinates, or in geographic coordinates as {@code <minLon> <minLat> <maxLon> <maxLat>}.
+     * If no generator settings JSON is given, the BTE default settings are used.
+     */
+    public static void main(String... args) throws IOException, OutOfProjectionBoundsException {
+        if (args.length < 5 || args.length > 7 || !("blocks".equals(args[0]) || "geo".equals(args[0]))) {
+            System.err.println("Usage: CacheSeeder <blocks|geo> <minX> <minZ> <maxX> <maxZ> [checkpoint] [settings]");
+            System.exit(1);
+        }
+
+        checkState(TerraConfig.http.cache, "the HTTP cache is disabled");
+        TerraConfig.http.cacheOnly = false; //the whole point is to fetch whatever isn't cached yet
+        Http.configChanged();
+
+        EarthGeneratorSettings settings = EarthGeneratorSettings.parseUncached(args.length == 7
+                ? new String(Files.readAllBytes(Paths.get(args[6])), StandardCharsets.UTF_8)
+                : EarthGeneratorSettings.BTE_DEFAULT_SETTINGS);
+
+        double minX = Double.parseDouble(args[1]);
+        double minZ = Double.parseDouble(args[2]);
+        double maxX = Double.parseDouble(args[3]);
+        double maxZ = Double.parseDouble(args[4]);
+        if ("geo".equals(args[0])) { //project the rectangle's corners, and use the blocks enclosing all of them
+            CornerBoundingBox2d bounds = new CornerBoundingBox2d(minX, minZ, maxX - minX, maxZ - minZ, settings.projection(), true).fromGeo();
+            minX = bounds.minX();
+            minZ = bounds.minZ();
+            maxX = bounds.maxX();
+            maxZ = bounds.maxZ();
+        }
+
+        new CacheSeeder(settings, args.length >= 6 ? Paths.get(args[5]) : null, DEFAULT_MAX_IN_FLIGHT)
+                .seed(floorI(minX) >> 4, floorI(minZ) >> 4, floorI(maxX) >> 4, floorI(maxZ) >> 4);
+    }
+
+    protected final GeneratorDatasets datasets;
+    protected final IEarthDataBaker<?>[] bakers;
+    protected final Path checkpoint; //null if progress isn't saved
+    protected final int maxInFlight;
+
+    protected final LongAdder areas = new LongAdder();
+    protected final LongAdder failedAreas = new LongAdder();
+
+    //the areas which were seeded without errors, and the index of the first one which wasn't
+    protected final BitSet completed = new BitSet();
+    protected int completedPrefix;
+
+    public CacheSeeder(@NonNull EarthGeneratorSettings settings, Path checkpoint, int maxInFlight) {
+        this.datasets = settings.datasets();
+        this.bakers = EarthGeneratorPipelines.dataBakers(settings);
+        this.checkpoint = checkpoint;
+        this.maxInFlight = positive(maxInFlight, "maxInFlight");
+    }
+
+    /**
+     * Fetches all resources needed to generate the chunks in the given rectangle into the HTTP cache.
+     * <p>
+     * This method blocks until every area has been seeded.
+     *
+     * @param minX the minimum X coordinate of the rectangle, in chunks
+     * @param minZ the minimum Z coordinate of the rectangle, in chunks
+     * @param maxX the maximum X coordinate of the rectangle, in chunks (inclusive)
+     * @param maxZ the maximum Z coordinate of the rectangle, in chunks (inclusive)
+     */
+    public void seed(int minX, int minZ, int maxX, int maxZ) throws IOException {
+        checkArg(minX <= maxX && minZ <= maxZ, "invalid rectangle: (%d, %d) -> (%d, %d)", minX, minZ, maxX, maxZ);
+
+        int areasX = (maxX >> AREA_SHIFT) - (minX >> AREA_SHIFT) + 1;
+        int areasZ = (maxZ >> AREA_SHIFT) - (minZ >> AREA_SHIFT) + 1;
+        int totalAreas = multiplyExact(areasX, areasZ);
+        String region = minX + " " + minZ + " " + maxX + " " + maxZ;
+
+        int start = this.readCheckpoint(region);
+        if (start >= totalAreas) {
+            TerraMinusMinus.LOGGER.info("the cache has already been seeded for chunks ({}, {}) -> ({}, {})", minX, minZ, maxX, maxZ);
+            return;
+        }
+        synchronized (this.completed) {
+            this.completedPrefix = start;
+        }
+        TerraMinusMinus.LOGGER.info("seeding the cache for {} areas of {}x{} chunks ({} already done)", totalAreas, 1 << AREA_SHIFT, 1 << AREA_SHIFT, start);
+
+        Semaphore inFlight = new Semaphore(this.maxInFlight);
+        long startTime = System.nanoTime();
+        long lastProgressTime = startTime;
+
+        for (int i = start; i < totalAreas; i++) {
+            //clamp the area to the rectangle, so that nothing outside of it is requested
+            int ax = ((minX >> AREA_SHIFT) + i / areasZ) << AREA_SHIFT;
+            int az = ((minZ >> AREA_SHIFT) + i % areasZ) << AREA_SHIFT;
+            ChunkPos areaMin = new ChunkPos(max(ax, minX), max(az, minZ));
+            ChunkPos areaMax = new ChunkPos(min(ax + (1 << AREA_SHIFT) - 1, maxX), min(az + (1 << AREA_SHIFT) - 1, maxZ));
+
+            inFlight.acquireUninterruptibly();
+            int index = i;
+            this.seedArea(areaMin, areaMax).whenComplete((unused, t) -> {
+                if (t == null) {
+                    this.completed(index);
+                }
+                inFlight.release();
+            });
+
+            long now = System.nanoTime();
+            if (now - lastProgressTime >= TimeUnit.MILLISECONDS.toNanos(PROGRESS_INTERVAL)) {
+                lastProgressTime = now;
+                this.logProgress(totalAreas - start, now - startTime);
+                this.writeCheckpoint(region);
+            }
+        }
+
+        inFlight.acquireUninterruptibly(this.maxInFlight);
+        Disk.flush(); //the disk I/O threads won't keep the JVM running until the last responses have been stored
+        this.logProgress(totalAreas - start, System.nanoTime() - startTime);
+        this.writeCheckpoint(region);
+
+        if (this.failedAreas.sum() != 0L) {
+            TerraMinusMinus.LOGGER.warn("{} areas couldn't be seeded, run the seeder again to retry them", this.failedAreas.sum());
+        }
+    }
+
+    protected CompletableFuture<Void> seedArea(@NonNull ChunkPos min, @NonNull ChunkPos max) {
+        //nobody is waiting on the seeded data, so don't delay requests which are more urgent
+        CompletableFuture<CachedChunkData>[] futures = RequestPriority.with(RequestPriority.BACKGROUND,
+                () -> IEarthAsyncPipelineStep.getRegionFutures(min, max, this.datasets, this.bakers, CachedChunkData::builder));
+        return CompletableFuture.allOf(futures).whenComplete((unused, t) -> {
+            if (t != null) {
+                this.failedAreas.increment();
+                TerraMinusMinus.LOGGER.error("unable to seed chunks " + min + " -> " + max, t);
+            } else {
+                this.areas.increment();
+            }
+        });
+    }
+
+    protected void completed(int index) {
+        synchronized (this.completed) {
+            this.completed.set(index);
+            this.completedPrefix = max(this.completedPrefix, this.completed.nextClearBit(this.completedPrefix));
+        }
+    }
+
+    /**
+     * @return the index of the area to resume seeding from
+     */
+    protected int readCheckpoint(@NonNull String region) throws IOException {
+        if (this.checkpoint == null || !Files.exists(this.checkpoint)) {
+            return 0;
+        }
+
+        String[] lines = new String(Files.readAllBytes(this.checkpoint), StandardCharsets.UTF_8).split("\n");
+        if (lines.length < 2 || !region.equals(lines[0].trim())) { //the checkpoint is for a different region
+            TerraMinusMinus.LOGGER.warn("ignoring checkpoint {}, it's for a different region", this.checkpoint);
+            return 0;
+        }
+        return Integer.parseInt(lines[1].trim());
+    }
+
+    protected void writeCheckpoint(@NonNull String region) throws IOException {
+        if (this.checkpoint == null) {
+            return;
+        }
+
+        int completedPrefix;
+        synchronized (this.completed) {
+            completedPrefix = this.completedPrefix;
+        }
+
+        //an area is completed as soon as its responses have been queued for writing, make sure they've actually been stored before recording it
+        Disk.flush();
+
+        Path tmpFile = this.checkpoint.resolveSibling(this.checkpoint.getFileName() + ".tmp");
+        Files.write(tmpFile, (region + '\n' + completedPrefix + '\n').getBytes(StandardCharsets.UTF_8));
+        Files.move(tmpFile, this.checkpoint, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    protected void logProgress(long totalAreas, long elapsedNanos) {
+        long areas = this.areas.sum();
+        double seconds = max(elapsedNanos * 1.0e-9d, 1.0e-9d);
+        TerraMinusMinus.LOGGER.info("seeded {}/{} areas ({} failed) in {}s: {} areas/s, {} resources requested ({} coalesced), {}/{} cache reads served from memory",
+                areas, totalAreas, this.failedAreas.sum(),
+                String.format("%.1f", seconds), String.format("%.2f", areas / seconds),
+                Http.requestCount(), Http.coalescedRequestCount(),
+                Disk.memoryCacheHitCount(), Disk.memoryCacheHitCount() + Disk.memoryCacheMissCount());
+    }
+}
@@ -5,23 +5,32 @@ import static java.lang.Math.min;
 import static net.daporkchop.lib.common.math.PMath.clamp;
 import static net.daporkchop.lib.common.math.PMath.floorI;
 import static net.daporkchop.lib.common.math.PMath.lerp;
+import static net.daporkchop.lib.common.util.PValidation.checkArg;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Map;
 
 import com.google.common.collect.ImmutableMap;
 
+import io.netty.buffer.ByteBuf;
 import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.Setter;
+import net.buildtheearth.terraminusminus.substitutes.BlockPropertyValue;
 import net.buildtheearth.terraminusminus.substitutes.BlockState;
+import net.buildtheearth.terraminusminus.substitutes.BlockStateBuilder;
 import net.buildtheearth.terraminusminus.substitutes.ChunkPos;
 import net.buildtheearth.terraminusminus.substitutes.Biome;
+import net.buildtheearth.terraminusminus.substitutes.Identifier;
 import net.buildtheearth.terraminusminus.util.CustomAttributeContainer;
 import net.buildtheearth.terraminusminus.util.ImmutableCompactArray;
 import net.daporkchop.lib.common.reference.ReferenceStrength;
 import net.daporkchop.lib.common.reference.cache.Cached;
+import net.daporkchop.lib.common.misc.string.PStrings;
 import net.daporkchop.lib.common.util.PorkUtil;
 
 /**
@@ -41,12 +50,170 @@ public class CachedChunkData extends CustomAttributeContainer {
     public static final int WATERDEPTH_TYPE_WATER = (byte) 0x00;
     public static final int WATERDEPTH_TYPE_OCEAN = (byte) 0x40;
 
+    /**
+     * The version of the binary format used by {@link #write(ByteBuf)}. Must be incremented whenever the format changes.
+     */
+    public static final int SERIALIZATION_VERSION = 1;
+
+    private static final byte PROPERTY_TYPE_STRING = 0;
+    private static final byte PROPERTY_TYPE_INT = 1;
+    private static final byte PROPERTY_TYPE_BOOLEAN = 2;
+
+    private static final byte CUSTOM_TYPE_BYTE_ARRAY = 0;
+    private static final byte CUSTOM_TYPE_INT_ARRAY = 1;
+    private static final byte CUSTOM_TYPE_DOUBLE_ARRAY = 2;
+    private static final byte CUSTOM_TYPE_STRING = 3;
+
     private static final Cached<Builder> BUILDER_CACHE = Cached.threadLocal(Builder::new, ReferenceStrength.SOFT);
 
     public static Builder builder() {
         return BUILDER_CACHE.get().reset();
     }
 
+    /**
+     * Reads a {@link CachedChunkData} which was previously serialized using {@link #write(ByteBuf)}.
+     *
+     * @param src the {@link ByteBuf} to read from
+     * @return the deserialized {@link CachedChunkData}
+     * @throws IllegalArgumentException if the data is malformed or was written using an unsupported format version
+     */
+    public static CachedChunkData read(@NonNull ByteBuf src) {
+        int version = src.readUnsignedByte();
+        checkArg(version == SERIALIZATION_VERSION, "unsupported serialization version: %d", version);
+
+        int[] surfaceHeight = new int[16 * 16];
+        for (int i = 0; i < 16 * 16; i++) {
+            surfaceHeight[i] = src.readInt();
+        }
+        int[] groundHeight = new int[16 * 16];
+        for (int i = 0; i < 16 * 16; i++) {
+            groundHeight[i] = src.readInt();
+        }
+
+        byte[] biomes = new byte[16 * 16];
+        src.readBytes(biomes);
+
+        BlockState[] palette = new BlockState[src.readUnsignedShort()];
+        for (int i = 0; i < palette.length; i++) {
+            palette[i] = readBlockState(src);
+        }
+        BlockState[] surfaceBlocks = new BlockState[16 * 16];
+        for (int i = 0; i < 16 * 16; i++) {
+            surfaceBlocks[i] = palette[src.readUnsignedByte()];
+        }
+
+        int customCount = src.readInt();
+        ImmutableMap.Builder<String, Object> custom = ImmutableMap.builder();
+        for (int i = 0; i < customCount; i++) {
+            custom.put(readString(src), readCustomValue(src));
+        }
+
+        return new CachedChunkData(surfaceHeight, groundHeight, biomes, new ImmutableCompactArray<>(surfaceBlocks), custom.build());
+    }
+
+    private static String readString(ByteBuf src) {
+        return src.readCharSequence(src.readInt(), StandardCharsets.UTF_8).toString();
+    }
+
+    private static void writeString(ByteBuf dst, String value) {
+        int i = dst.writerIndex();
+        int len = dst.writeInt(-1).writeCharSequence(value, StandardCharsets.UTF_8);
+        dst.setInt(i, len);
+    }
+
+    private static BlockState readBlockState(ByteBuf src) {
+        if (!src.readBoolean()) {
+            return null;
+        }
+
+        BlockStateBuilder builder = BlockStateBuilder.get().setBlock(new Identifier(readString(src)));
+        for (int i = 0, count = src.readUnsignedByte(); i < count; i++) {
+            String property = readString(src);
+            switch (src.readByte()) {
+                case PROPERTY_TYPE_STRING -> builder.setProperty(property, readString(src));
+                case PROPERTY_TYPE_INT -> builder.setProperty(property, src.readInt());
+                case PROPERTY_TYPE_BOOLEAN -> builder.setProperty(property, src.readBoolean());
+                default -> throw new IllegalArgumentException("invalid property type");
+            }
+        }
+        return builder.build();
+    }
+
+    private static void writeBlockState(ByteBuf dst, BlockState state) {
+        dst.writeBoolean(state != null);
+        if (state == null) {
+            return;
+        }
+
+        writeString(dst, state.getBlock().toString());
+        Map<String, BlockPropertyValue> properties = state.getProperties();
+        checkArg(properties.size() <= 0xFF, "too many block properties: %s", state);
+        dst.writeByte(properties.size());
+        properties.forEach((property, value) -> {
+            writeString(dst, property);
+            if (value.canBeBoolean()) {
+                dst.writeByte(PROPERTY_TYPE_BOOLEAN).writeBoolean(value.getAsBoolean());
+            } else if (value.canBeInt()) {
+                dst.writeByte(PROPERTY_TYPE_INT).writeInt(value.getAsInt());
+            } else {
+                dst.writeByte(PROPERTY_TYPE_STRING);
+                writeString(dst, value.getAsString());
+            }
+        });
+    }
+
+    private static Object readCustomValue(ByteBuf src) {
+        switch (src.readByte()) {
+            case CUSTOM_TYPE_BYTE_ARRAY: {
+                byte[] arr = new byte[src.readInt()];
+                src.readBytes(arr);
+                return arr;
+            }
+            case CUSTOM_TYPE_INT_ARRAY: {
+                int[] arr = new int[src.readInt()];
+                for (int i = 0; i < arr.length; i++) {
+                    arr[i] = src.readInt();
+                }
+                return arr;
+            }
+            case CUSTOM_TYPE_DOUBLE_ARRAY: {
+                double[] arr = new double[src.readInt()];
+                for (int i = 0; i < arr.length; i++) {
+                    arr[i] = src.readDouble();
+                }
+                return arr;
+            }
+            case CUSTOM_TYPE_STRING:
+                return readString(src);
+            default:
+                throw new IllegalArgumentException("invalid custom attribute type");
+        }
+    }
+
+    private static void writeCustomValue(ByteBuf dst, String key, Object value) {
+        if (value instanceof byte[]) {
+            byte[] arr = (byte[]) value;
+            dst.writeByte(CUSTOM_TYPE_BYTE_ARRAY).writeInt(arr.length).writeBytes(arr);
+        } else if (value instanceof int[]) {
+            int[] arr = (int[]) value;
+            dst.writeByte(CUSTOM_TYPE_INT_ARRAY).writeInt(arr.length);
+            for (int v : arr) {
+                dst.writeInt(v);
+            }
+        } else if (value instanceof double[]) {
+            double[] arr = (double[]) value;
+            dst.writeByte(CUSTOM_TYPE_DOUBLE_ARRAY).writeInt(arr.length);
+            for (double v : arr) {
+                dst.writeDouble(v);
+            }
+        } else if (value instanceof String) {
+            dst.writeByte(CUSTOM_TYPE_STRING);
+            writeString(dst, (String) value);
+        } else {
+            throw new IllegalArgumentException(PStrings.fastFormat("custom attribute \"%s\" has unserializable type %s", key, value.getClass()));
+        }
+    }
+
     private static int extractActualDepth(int waterDepth) {
         //discard upper 2 bits from least significant byte and then sign-extend everything back down
         return ((waterDepth & 0x3F) - 32) << 26 >> 26;
@@ -106,14 +273,80 @@ public class CachedChunkData extends CustomAttributeContainer {
 
         this.surfaceBlocks = new ImmutableCompactArray<>(builder.surfaceBlocks);
 
+        this.surfaceMinCube = surfaceMinCube(this.surfaceHeight, this.groundHeight);
+        this.surfaceMaxCube = surfaceMaxCube(this.surfaceHeight, this.groundHeight);
+    }
+
+    private CachedChunkData(@NonNull int[] surfaceHeight, @NonNull int[] groundHeight, @NonNull byte[] biomes, @NonNull ImmutableCompactArray<BlockState> surfaceBlocks, @NonNull Map<String, Object> custom) {
+        super(custom);
+
+        this.surfaceHeight = surfaceHeight;
+        this.groundHeight = groundHeight;
+        this.biomes = biomes;
+        this.surfaceBlocks = surfaceBlocks;
+
+        this.surfaceMinCube = surfaceMinCube(this.surfaceHeight, this.groundHeight);
+        this.surfaceMaxCube = surfaceMaxCube(this.surfaceHeight, this.groundHeight);
+    }
+
+    private static int surfaceMinCube(int[] surfaceHeight, int[] groundHeight) {
         int min = Integer.MAX_VALUE;
+        for (int i = 0; i < 16 * 16; i++) {
+            min = min(min, min(groundHeight[i], surfaceHeight[i]));
+        }
+        return ChunkPos.blockToCube(min) - 1;
+    }
+
+    private static int surfaceMaxCube(int[] surfaceHeight, int[] groundHeight) {
         int max = Integer.MIN_VALUE;
         for (int i = 0; i < 16 * 16; i++) {
-            min = min(min, min(this.groundHeight[i], this.surfaceHeight[i]));
-            max = max(max, max(this.groundHeight[i], this.surfaceHeight[i]));
+            max = max(max, max(groundHeight[i], surfaceHeight[i]));
+        }
+        return ChunkPos.blockToCube(max) + 1;
+    }
+
+    /**
+     * Serializes this {@link CachedChunkData} into the given {@link ByteBuf}, such that it can be read back using {@link #read(ByteBuf)}.
+     *
+     * @param dst the {@link ByteBuf} to write to
+     * @throws IllegalArgumentException if one of the custom attributes is of a type which can't be serialized
+     */
+    public void write(@NonNull ByteBuf dst) {
+        dst.writeByte(SERIALIZATION_VERSION);
+
+        for (int i = 0; i < 16 * 16; i++) {
+            dst.writeInt(this.surfaceHeight[i]);
+        }
+        for (int i = 0; i < 16 * 16; i++) {
+            dst.writeInt(this.groundHeight[i]);
+        }
+
+        dst.writeBytes(this.biomes);
+
+        //there are at most 256 distinct surface blocks, so each index fits into a single byte
+        Reference2IntMap<BlockState> paletteIds = new Reference2IntOpenHashMap<>();
+        byte[] indices = new byte[16 * 16];
+        int paletteSizeIndex = dst.writerIndex();
+        dst.writeShort(0);
+        for (int i = 0; i < 16 * 16; i++) {
+            BlockState state = this.surfaceBlocks.get(i);
+            int id;
+            if (paletteIds.containsKey(state)) {
+                id = paletteIds.getInt(state);
+            } else {
+                paletteIds.put(state, id = paletteIds.size());
+                writeBlockState(dst, state);
+            }
+            indices[i] = (byte) id;
         }
-        this.surfaceMinCube = ChunkPos.blockToCube(min) - 1;
-        this.surfaceMaxCube = ChunkPos.blockToCube(max) + 1;
+        dst.setShort(paletteSizeIndex, paletteIds.size());
+        dst.writeBytes(indices);
+
+        dst.writeInt(this.custom.size());
+        this.custom.forEach((key, value) -> {
+            writeString(dst, key);
+            writeCustomValue(dst, key, value);
+        });
     }
 
     public boolean intersectsSurface(int cubeY) {
@@ -1,31 +1,191 @@
 package net.buildtheearth.terraminusminus.generator;
 
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static net.daporkchop.lib.common.util.PorkUtil.uncheckedCast;
+
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
 import com.google.common.cache.CacheLoader;
 
 import lombok.NonNull;
+import net.buildtheearth.terraminusminus.TerraConfig;
+import net.buildtheearth.terraminusminus.TerraMinusMinus;
 import net.buildtheearth.terraminusminus.generator.data.IEarthDataBaker;
 import net.buildtheearth.terraminusminus.substitutes.ChunkPos;
+import net.buildtheearth.terraminusminus.util.Futures;
+import net.buildtheearth.terraminusminus.util.SharedFuture;
+import net.buildtheearth.terraminusminus.util.http.RequestPriority;
 
 /**
  * {@link CacheLoader} implementation for earth generators, which asynchronously aggregates information from multiple datasets and stores it
  * in a {@link CachedChunkData} for use by the generator.
+ * <p>
+ * If enabled in {@link TerraConfig#chunkCache}, generated chunk data is persisted in a {@link ChunkDataStore} and read back from there
+ * instead of being generated again.
+ * <p>
+ * Any HTTP requests needed to load a chunk use the {@link RequestPriority} of the thread which requested it, so callers should set it
+ * according to how urgently the chunk is needed. Chunks requested by a player can be loaded using {@link #load(ChunkPos, ChunkPos)} and
+ * {@link #loadRegion(ChunkPos, ChunkPos, ChunkPos)}, which prioritize them by their distance to the player.
  *
  * @author DaPorkchop_
  */
 public class ChunkDataLoader extends CacheLoader<ChunkPos, CompletableFuture<CachedChunkData>> {
 	protected final GeneratorDatasets datasets;
 	protected final IEarthDataBaker<?>[] bakers;
+	protected final ChunkDataStore store; //null if the persistent chunk store is disabled
 
 	public ChunkDataLoader(@NonNull EarthGeneratorSettings settings) {
 		this.datasets = settings.datasets();
 		this.bakers = EarthGeneratorPipelines.dataBakers(settings);
+		this.store = TerraConfig.chunkCache.enabled ? new ChunkDataStore(settings) : null;
 	}
 
 	@Override
 	public CompletableFuture<CachedChunkData> load(@NonNull ChunkPos pos) {
-		return IEarthAsyncPipelineStep.getFuture(pos, this.datasets, this.bakers, CachedChunkData::builder);
+		if (this.store == null) {
+			return IEarthAsyncPipelineStep.getFuture(pos, this.datasets, this.bakers, CachedChunkData::builder);
+		}
+
+		CompletableFuture<CachedChunkData> stored = this.store.read(pos)
+				.exceptionally(t -> {
+					TerraMinusMinus.LOGGER.error("unable to read stored chunk data", t);
+					return null;
+				});
+		return Futures.thenCompose(stored, RequestPriority.capture((CachedChunkData data) -> data != null
+				? CompletableFuture.completedFuture(data)
+				: this.persist(pos, IEarthAsyncPipelineStep.getFuture(pos, this.datasets, this.bakers, CachedChunkData::builder))));
+	}
+
+	/**
+	 * Loads the data for the given chunk, prioritizing it based on its distance to the chunk which the requesting player is in.
+	 *
+	 * @param pos    the position of the chunk
+	 * @param origin the position of the chunk which the player is in
+	 * @see RequestPriority#forDistance(ChunkPos, ChunkPos)
+	 */
+	public CompletableFuture<CachedChunkData> load(@NonNull ChunkPos pos, @NonNull ChunkPos origin) {
+		return RequestPriority.with(RequestPriority.forDistance(pos, origin), () -> this.load(pos));
+	}
+
+	/**
+	 * Loads the data for every chunk in the given region at once, prioritizing it based on the distance of the region's closest chunk to the
+	 * chunk which the requesting player is in.
+	 *
+	 * @param min    the position of the chunk with the minimum coordinates (inclusive)
+	 * @param max    the position of the chunk with the maximum coordinates (inclusive)
+	 * @param origin the position of the chunk which the player is in
+	 * @return the futures for each chunk, indexed by {@code (x - min.x()) * (max.z() - min.z() + 1) + (z - min.z())}
+	 * @see RequestPriority#forDistance(ChunkPos, ChunkPos)
+	 */
+	public CompletableFuture<CachedChunkData>[] loadRegion(@NonNull ChunkPos min, @NonNull ChunkPos max, @NonNull ChunkPos origin) {
+		//the tiles are shared by the whole region, so they're needed as urgently as the chunk closest to the player
+		ChunkPos closest = new ChunkPos(min(max(origin.x(), min.x()), max.x()), min(max(origin.z(), min.z()), max.z()));
+		return RequestPriority.with(RequestPriority.forDistance(closest, origin), () -> this.loadRegion(min, max));
+	}
+
+	/**
+	 * Loads the data for every chunk in the given region at once.
+	 * <p>
+	 * This is considerably faster than calling {@link #load(ChunkPos)} for each chunk individually, as the region's bounds are only projected once
+	 * and every dataset tile is only requested once.
+	 *
+	 * @param min the position of the chunk with the minimum coordinates (inclusive)
+	 * @param max the position of the chunk with the maximum coordinates (inclusive)
+	 * @return the futures for each chunk, indexed by {@code (x - min.x()) * (max.z() - min.z() + 1) + (z - min.z())}
+	 */
+	public CompletableFuture<CachedChunkData>[] loadRegion(@NonNull ChunkPos min, @NonNull ChunkPos max) {
+		if (this.store == null) {
+			return IEarthAsyncPipelineStep.getRegionFutures(min, max, this.datasets, this.bakers, CachedChunkData::builder);
+		}
+
+		int sizeZ = max.z() - min.z() + 1;
+		CompletableFuture<CompletableFuture<CachedChunkData>[]> regionFuture = this.store.readRegion(min, max)
+				.exceptionally(t -> {
+					TerraMinusMinus.LOGGER.error("unable to read stored chunk data", t);
+					return new CachedChunkData[(max.x() - min.x() + 1) * sizeZ];
+				})
+				.thenApply(RequestPriority.capture((CachedChunkData[] stored) -> {
+					CompletableFuture<CachedChunkData>[] futures = uncheckedCast(new CompletableFuture[stored.length]);
+					int missing = 0;
+					for (int i = 0; i < stored.length; i++) {
+						if (stored[i] != null) {
+							futures[i] = CompletableFuture.completedFuture(stored[i]);
+						} else {
+							missing++;
+						}
+					}
+
+					if (missing * 2 >= stored.length) { //most of the region is missing, so it's cheaper to generate the whole thing at once
+						CompletableFuture<CachedChunkData>[] generated = IEarthAsyncPipelineStep.getRegionFutures(min, max, this.datasets, this.bakers, CachedChunkData::builder);
+						for (int i = 0; i < stored.length; i++) {
+							if (futures[i] == null) {
+								futures[i] = this.persist(new ChunkPos(min.x() + i / sizeZ, min.z() + i % sizeZ), generated[i]);
+							}
+						}
+					} else if (missing != 0) {
+						for (int i = 0; i < stored.length; i++) {
+							if (futures[i] == null) {
+								ChunkPos pos = new ChunkPos(min.x() + i / sizeZ, min.z() + i % sizeZ);
+								futures[i] = this.persist(pos, IEarthAsyncPipelineStep.getFuture(pos, this.datasets, this.bakers, CachedChunkData::builder));
+							}
+						}
+					}
+					return futures;
+				}));
+
+		SharedFuture<CompletableFuture<CachedChunkData>[]> sharedRegionFuture = new SharedFuture<>(regionFuture);
+		CompletableFuture<CachedChunkData>[] futures = uncheckedCast(new CompletableFuture[(max.x() - min.x() + 1) * sizeZ]);
+		for (int i = 0; i < futures.length; i++) {
+			int index = i;
+			futures[i] = Futures.thenCompose(sharedRegionFuture.newConsumer(), regionFutures -> regionFutures[index]);
+		}
+		return futures;
+	}
+
+	/**
+	 * Writes the generated chunk data to the persistent store once it's available.
+	 */
+	protected CompletableFuture<CachedChunkData> persist(ChunkPos pos, CompletableFuture<CachedChunkData> future) {
+		return Futures.propagateCancellation(future.thenApply(data -> {
+			this.store.write(pos, data);
+			return data;
+		}), future);
+	}
+
+	/**
+	 * Used by {@link com.google.common.cache.LoadingCache#getAll(Iterable)}: if the requested chunks are reasonably dense, they are loaded
+	 * using {@link #loadRegion(ChunkPos, ChunkPos)}. The returned map may contain chunks which weren't requested, which will also be cached.
+	 */
+	@Override
+	public Map<ChunkPos, CompletableFuture<CachedChunkData>> loadAll(@NonNull Iterable<? extends ChunkPos> keys) throws Exception {
+		int minX = Integer.MAX_VALUE;
+		int minZ = Integer.MAX_VALUE;
+		int maxX = Integer.MIN_VALUE;
+		int maxZ = Integer.MIN_VALUE;
+		long count = 0L;
+		for (ChunkPos pos : keys) {
+			minX = min(minX, pos.x());
+			minZ = min(minZ, pos.z());
+			maxX = max(maxX, pos.x());
+			maxZ = max(maxZ, pos.z());
+			count++;
+		}
+
+		long area = (maxX - (long) minX + 1L) * (maxZ - (long) minZ + 1L);
+		if (count <= 1L || area > count * 2L) { //the chunks are too sparse, loading the whole region would waste more time than it saves
+			return super.loadAll(keys); //throws UnsupportedLoadingOperationException, which makes the cache load each chunk individually
+		}
+
+		int sizeZ = maxZ - minZ + 1;
+		CompletableFuture<CachedChunkData>[] futures = this.loadRegion(new ChunkPos(minX, minZ), new ChunkPos(maxX, maxZ));
+		Map<ChunkPos, CompletableFuture<CachedChunkData>> out = new HashMap<>(futures.length);
+		for (int i = 0; i < futures.length; i++) {
+			out.put(new ChunkPos(minX + i / sizeZ, minZ + i % sizeZ), futures[i]);
+		}
+		return out;
 	}
 
 }
\ No newline at end of file
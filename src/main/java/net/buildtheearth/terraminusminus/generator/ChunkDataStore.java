@@ -0,0 +1,583 @@
+package net.buildtheearth.terraminusminus.generator;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.DefaultEventLoop;
+import io.netty.channel.EventLoop;
+import io.netty.util.ReferenceCountUtil;
+import lombok.NonNull;
+import net.buildtheearth.terraminusminus.TerraConfig;
+import net.buildtheearth.terraminusminus.TerraMinusMinus;
+import net.buildtheearth.terraminusminus.substitutes.ChunkPos;
+import net.buildtheearth.terraminusminus.util.TerraExecutors;
+import net.buildtheearth.terraminusminus.util.http.Disk;
+import net.daporkchop.lib.common.misc.string.PStrings;
+import net.daporkchop.lib.common.misc.threadfactory.PThreadFactories;
+import org.apache.commons.codec.binary.Hex;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static net.daporkchop.lib.common.util.PValidation.*;
+
+/**
+ * Persistent on-disk storage for {@link CachedChunkData}, allowing chunk data to survive restarts and cache evictions without having to be
+ * regenerated from the datasets.
+ * <p>
+ * Chunks are grouped into region files of {@value #REGION_SIZE}x{@value #REGION_SIZE} chunks. Each region file starts with a header containing
+ * the fingerprint of the generator settings and dataset configurations it was generated with, followed by a table containing the offset and
+ * length of each chunk's record. Records are only ever appended, so a partially written record can never corrupt any of the existing ones.
+ * <p>
+ * Once a region file reaches the maximum size of 2 GiB, the space used by replaced records is reclaimed by moving the remaining records towards
+ * the start of the file. If more than half of the file is still in use, the region is reset instead, as it would fill up again almost immediately.
+ * <p>
+ * Region files whose fingerprint doesn't match the current one are treated as empty, and are overwritten as soon as a chunk is stored in them.
+ *
+ * @author DaPorkchop_
+ */
+public class ChunkDataStore {
+    /**
+     * The version of the region file format. Must be incremented whenever the format (or the way chunk data is generated) changes.
+     */
+    public static final int FORMAT_VERSION = 1;
+
+    protected static final int MAGIC = 0x54434344; //"TCCD"
+
+    protected static final int REGION_SHIFT = 5;
+    protected static final int REGION_SIZE = 1 << REGION_SHIFT;
+    protected static final int REGION_MASK = REGION_SIZE - 1;
+
+    protected static final int FINGERPRINT_SIZE = 32; //SHA-256
+    protected static final int TABLE_OFFSET = 4 + 4 + FINGERPRINT_SIZE;
+    protected static final int TABLE_ENTRY_SIZE = 4 + 4;
+    protected static final int HEADER_SIZE = TABLE_OFFSET + REGION_SIZE * REGION_SIZE * TABLE_ENTRY_SIZE;
+
+    //compressed length, uncompressed length, crc32, write time
+    protected static final int RECORD_HEADER_SIZE = 4 + 4 + 4 + 8;
+
+    protected static final int MAX_OPEN_REGIONS = 64;
+
+    protected static final String[] BUILTIN_CONFIGS = {
+            "/net/buildtheearth/terraminusminus/dataset/scalar/heights.json5",
+            "/net/buildtheearth/terraminusminus/dataset/scalar/tree_cover.json5",
+            "/net/buildtheearth/terraminusminus/dataset/osm/osm.json5",
+            "/net/buildtheearth/terraminusminus/dataset/osm/osm_no_buildings.json5",
+            "/net/buildtheearth/terraminusminus/dataset/osm/osm_no_roads.json5",
+            "/net/buildtheearth/terraminusminus/dataset/osm/osm_no_roads_or_buildings.json5"
+    };
+
+    protected static final EventLoop STORE_EXECUTOR = new DefaultEventLoop(PThreadFactories.builder().daemon().minPriority().name("terra++ chunk store I/O thread").build());
+
+    /**
+     * The currently open region files, in access order. Must only be accessed from {@link #STORE_EXECUTOR}.
+     */
+    protected static final Map<Path, RegionFile> OPEN_REGIONS = new LinkedHashMap<Path, RegionFile>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, RegionFile> eldest) {
+            if (this.size() > MAX_OPEN_REGIONS) {
+                eldest.getValue().close();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    /**
+     * Computes the fingerprint of the given generator settings, combined with the dataset configurations which are currently in use.
+     * <p>
+     * Any change to the settings, to the built-in dataset configurations or to the user's configuration files will result in a different fingerprint.
+     *
+     * @param settings the generator settings
+     * @return the fingerprint
+     */
+    public static byte[] fingerprint(@NonNull EarthGeneratorSettings settings) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 not supported", e);
+        }
+
+        digest.update(PStrings.fastFormat("%d:%d:", FORMAT_VERSION, CachedChunkData.SERIALIZATION_VERSION).getBytes(StandardCharsets.UTF_8));
+        digest.update(settings.toString().getBytes(StandardCharsets.UTF_8));
+
+        for (String name : BUILTIN_CONFIGS) {
+            digest.update(name.getBytes(StandardCharsets.UTF_8));
+            try (InputStream in = ChunkDataStore.class.getResourceAsStream(name)) {
+                if (in != null) {
+                    digest.update(in.readAllBytes());
+                }
+            }
+        }
+
+        Path configRoot = Disk.configFile("");
+        if (Files.isDirectory(configRoot)) {
+            List<Path> files;
+            try (Stream<Path> stream = Files.walk(configRoot)) {
+                files = stream.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+            }
+            for (Path file : files) {
+                digest.update(configRoot.relativize(file).toString().getBytes(StandardCharsets.UTF_8));
+                digest.update(Files.readAllBytes(file));
+            }
+        }
+
+        return digest.digest();
+    }
+
+    protected final Path root;
+    protected final byte[] fingerprint;
+    protected final long ttl;
+
+    /**
+     * Creates a new {@link ChunkDataStore} for chunk data generated using the given settings.
+     *
+     * @param settings the generator settings
+     */
+    public ChunkDataStore(@NonNull EarthGeneratorSettings settings) {
+        try {
+            this.fingerprint = fingerprint(settings);
+        } catch (IOException e) {
+            throw new UncheckedIOException("unable to compute chunk data fingerprint", e);
+        }
+        this.root = Disk.cacheDirectory("chunks").resolve(Hex.encodeHexString(this.fingerprint).substring(0, 16));
+        this.ttl = TerraConfig.chunkCache.ttl > 0 ? TimeUnit.MINUTES.toMillis(TerraConfig.chunkCache.ttl) : Long.MAX_VALUE;
+    }
+
+    protected ChunkDataStore(@NonNull Path root, @NonNull byte[] fingerprint, long ttl) {
+        checkArg(fingerprint.length == FINGERPRINT_SIZE, "fingerprint must be %d bytes long", FINGERPRINT_SIZE);
+        this.root = root;
+        this.fingerprint = fingerprint;
+        this.ttl = positive(ttl, "ttl");
+    }
+
+    /**
+     * Asynchronously reads the stored data for the given chunk.
+     *
+     * @param pos the position of the chunk
+     * @return a {@link CompletableFuture} which will be completed with the stored data, or with {@code null} if the chunk isn't stored
+     */
+    public CompletableFuture<CachedChunkData> read(@NonNull ChunkPos pos) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return this.readRecord(pos.x(), pos.z());
+            } catch (IOException e) {
+                throw new UncheckedIOException("unable to read chunk data for " + pos, e);
+            }
+        }, STORE_EXECUTOR).thenApplyAsync(this::decode, TerraExecutors.decode());
+    }
+
+    /**
+     * Asynchronously reads the stored data for every chunk in the given region.
+     *
+     * @param min the position of the chunk with the minimum coordinates (inclusive)
+     * @param max the position of the chunk with the maximum coordinates (inclusive)
+     * @return a {@link CompletableFuture} which will be completed with the stored data for each chunk, indexed by
+     * {@code (x - min.x()) * (max.z() - min.z() + 1) + (z - min.z())}. Chunks which aren't stored are {@code null}.
+     */
+    public CompletableFuture<CachedChunkData[]> readRegion(@NonNull ChunkPos min, @NonNull ChunkPos max) {
+        int sizeX = max.x() - min.x() + 1;
+        int sizeZ = max.z() - min.z() + 1;
+        checkArg(sizeX > 0 && sizeZ > 0, "invalid region: %s - %s", min, max);
+
+        return CompletableFuture.supplyAsync(() -> {
+            ByteBuf[] records = new ByteBuf[sizeX * sizeZ];
+            try {
+                for (int i = 0; i < records.length; i++) {
+                    records[i] = this.readRecord(min.x() + i / sizeZ, min.z() + i % sizeZ);
+                }
+                return records;
+            } catch (IOException e) {
+                Arrays.stream(records).forEach(ReferenceCountUtil::release);
+                throw new UncheckedIOException("unable to read chunk data for " + min + " - " + max, e);
+            }
+        }, STORE_EXECUTOR).thenApplyAsync(records -> {
+            CachedChunkData[] out = new CachedChunkData[records.length];
+            for (int i = 0; i < records.length; i++) {
+                out[i] = this.decode(records[i]);
+            }
+            return out;
+        }, TerraExecutors.decode());
+    }
+
+    /**
+     * Asynchronously stores the given data for the given chunk, replacing any data which was previously stored for it.
+     * <p>
+     * The data is serialized on the calling thread.
+     *
+     * @param pos  the position of the chunk
+     * @param data the data to store
+     */
+    public void write(@NonNull ChunkPos pos, @NonNull CachedChunkData data) {
+        ByteBuf record;
+        try {
+            record = this.encode(data);
+        } catch (IllegalArgumentException e) { //the data contains something that can't be serialized, so it can't be stored
+            if (!TerraConfig.reducedConsoleMessages) {
+                TerraMinusMinus.LOGGER.warn("unable to store chunk data for {}, it will be regenerated next time: {}", pos, e.getMessage());
+            }
+            return;
+        }
+
+        STORE_EXECUTOR.submit(() -> {
+            try {
+                this.writeRecord(pos.x(), pos.z(), record);
+            } catch (IOException e) {
+                TerraMinusMinus.LOGGER.error("unable to write chunk data for " + pos, e);
+            } finally {
+                record.release();
+            }
+        });
+    }
+
+    protected ByteBuf encode(CachedChunkData data) {
+        ByteBuf raw = ByteBufAllocator.DEFAULT.heapBuffer();
+        ByteBuf record = null;
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            data.write(raw);
+            int rawLength = raw.readableBytes();
+
+            deflater.setInput(raw.nioBuffer());
+            deflater.finish();
+
+            record = ByteBufAllocator.DEFAULT.heapBuffer(RECORD_HEADER_SIZE + (rawLength >> 1));
+            record.writerIndex(RECORD_HEADER_SIZE);
+            while (!deflater.finished()) {
+                record.ensureWritable(1024);
+                record.writerIndex(record.writerIndex() + deflater.deflate(record.nioBuffer(record.writerIndex(), record.writableBytes())));
+            }
+
+            int compressedLength = record.readableBytes() - RECORD_HEADER_SIZE;
+            CRC32 crc = new CRC32();
+            crc.update(record.nioBuffer(RECORD_HEADER_SIZE, compressedLength));
+
+            record.setInt(0, compressedLength)
+                    .setInt(4, rawLength)
+                    .setInt(8, (int) crc.getValue())
+                    .setLong(12, System.currentTimeMillis());
+            return record.retain();
+        } finally {
+            deflater.end();
+            raw.release();
+            ReferenceCountUtil.release(record);
+        }
+    }
+
+    protected CachedChunkData decode(ByteBuf record) {
+        if (record == null) {
+            return null;
+        }
+
+        ByteBuf raw = null;
+        Inflater inflater = new Inflater();
+        try {
+            int compressedLength = record.getInt(0);
+            int rawLength = record.getInt(4);
+            raw = ByteBufAllocator.DEFAULT.heapBuffer(rawLength, rawLength);
+
+            inflater.setInput(record.nioBuffer(RECORD_HEADER_SIZE, compressedLength));
+            while (!inflater.finished() && raw.isWritable()) {
+                int n = inflater.inflate(raw.nioBuffer(raw.writerIndex(), raw.writableBytes()));
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                raw.writerIndex(raw.writerIndex() + n);
+            }
+            checkState(inflater.finished() && !raw.isWritable(), "truncated chunk data");
+
+            return CachedChunkData.read(raw);
+        } catch (DataFormatException | RuntimeException e) { //the record is corrupted, treat it as missing
+            if (!TerraConfig.reducedConsoleMessages) {
+                TerraMinusMinus.LOGGER.warn("discarding corrupted chunk data", e);
+            }
+            return null;
+        } finally {
+            inflater.end();
+            ReferenceCountUtil.release(raw);
+            record.release();
+        }
+    }
+
+    protected Path regionFile(int regionX, int regionZ) {
+        return this.root.resolve(PStrings.fastFormat("r.%d.%d.dat", regionX, regionZ));
+    }
+
+    protected RegionFile region(int chunkX, int chunkZ, boolean create) throws IOException {
+        Path path = this.regionFile(chunkX >> REGION_SHIFT, chunkZ >> REGION_SHIFT);
+        RegionFile region = OPEN_REGIONS.get(path);
+        if (region == null) {
+            if (!create && !Files.exists(path)) {
+                return null;
+            }
+
+            Files.createDirectories(this.root);
+            OPEN_REGIONS.put(path, region = new RegionFile(FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE)));
+        }
+        return region;
+    }
+
+    /**
+     * Reads the raw record for the given chunk. Must only be called from {@link #STORE_EXECUTOR}.
+     *
+     * @return the record, or {@code null} if the chunk isn't stored, the stored data is expired or the record is corrupted
+     */
+    protected ByteBuf readRecord(int chunkX, int chunkZ) throws IOException {
+        RegionFile region = this.region(chunkX, chunkZ, false);
+        if (region == null) {
+            return null;
+        }
+
+        FileChannel channel = region.channel;
+        ByteBuf record = null;
+        try (FileLock lock = channel.lock(0L, Long.MAX_VALUE, true)) { //prevent other processes from compacting or resetting the file while we're reading
+            if (!region.checkHeader(this.fingerprint)) {
+                return null;
+            }
+
+            ByteBuffer entry = ByteBuffer.allocate(TABLE_ENTRY_SIZE);
+            readFully(channel, entry, tableEntryOffset(chunkX, chunkZ));
+            int offset = entry.getInt(0);
+            int length = entry.getInt(4);
+            if (!isStored(offset, length, channel.size())) {
+                return null;
+            }
+
+            record = ByteBufAllocator.DEFAULT.heapBuffer(length, length);
+            for (int i = 0; i < length; ) {
+                int n = record.writeBytes(channel, offset + i, length - i);
+                checkState(n > 0, "unexpected end of file");
+                i += n;
+            }
+
+            int compressedLength = record.getInt(0);
+            if (compressedLength != length - RECORD_HEADER_SIZE) {
+                return null;
+            }
+
+            CRC32 crc = new CRC32();
+            crc.update(record.nioBuffer(RECORD_HEADER_SIZE, compressedLength));
+            if ((int) crc.getValue() != record.getInt(8)) {
+                return null;
+            }
+
+            long writeTime = record.getLong(12);
+            if (System.currentTimeMillis() - writeTime > this.ttl) { //expired
+                return null;
+            }
+
+            return record.retain();
+        } finally {
+            ReferenceCountUtil.release(record);
+        }
+    }
+
+    /**
+     * Appends the given record to the region file and points the chunk's table entry at it. Must only be called from {@link #STORE_EXECUTOR}.
+     */
+    protected void writeRecord(int chunkX, int chunkZ, ByteBuf record) throws IOException {
+        RegionFile region = this.region(chunkX, chunkZ, true);
+        FileChannel channel = region.channel;
+
+        try (FileLock lock = channel.lock()) { //prevent other processes from writing to the file at the same time
+            if (!region.checkHeader(this.fingerprint)) { //the file is empty or was generated using different settings, reset it
+                this.reset(region);
+            }
+
+            int length = record.readableBytes();
+            if (channel.size() + length > Integer.MAX_VALUE) { //region file is full
+                long size = channel.size();
+                if (size - HEADER_SIZE - liveBytes(channel) > size >> 1) { //most of the file is taken up by records which have since been replaced
+                    compact(channel);
+                }
+                if (channel.size() + length > Integer.MAX_VALUE) {
+                    TerraMinusMinus.LOGGER.warn("region file {} is full, discarding all chunk data stored in it",
+                            this.regionFile(chunkX >> REGION_SHIFT, chunkZ >> REGION_SHIFT));
+                    this.reset(region);
+                }
+            }
+
+            long offset = channel.size();
+            writeFully(channel, record.nioBuffer(), offset);
+
+            ByteBuffer entry = ByteBuffer.allocate(TABLE_ENTRY_SIZE);
+            entry.putInt((int) offset).putInt(length).clear();
+            writeFully(channel, entry, tableEntryOffset(chunkX, chunkZ));
+        }
+    }
+
+    /**
+     * Truncates the given region file to an empty header with the current fingerprint. Must only be called while holding the file's lock.
+     */
+    protected void reset(RegionFile region) throws IOException {
+        region.channel.truncate(0L);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(FORMAT_VERSION).put(this.fingerprint).clear();
+        writeFully(region.channel, header, 0L);
+        region.fingerprint = this.fingerprint;
+    }
+
+    /**
+     * @return the total length of all records which are currently referenced by the region file's table
+     */
+    protected static long liveBytes(FileChannel channel) throws IOException {
+        long size = channel.size();
+        ByteBuffer table = readTable(channel);
+
+        long liveBytes = 0L;
+        for (int i = 0; i < REGION_SIZE * REGION_SIZE; i++) {
+            int offset = table.getInt(i * TABLE_ENTRY_SIZE);
+            int length = table.getInt(i * TABLE_ENTRY_SIZE + 4);
+            if (isStored(offset, length, size)) {
+                liveBytes += length;
+            }
+        }
+        return liveBytes;
+    }
+
+    /**
+     * Moves every record which is referenced by the region file's table towards the start of the file, overwriting the records which have been
+     * replaced, and then truncates the file. Must only be called while holding the file's lock.
+     * <p>
+     * Each record's table entry is updated as soon as it has been moved, so if the process crashes during compaction, at most the record which
+     * was being moved at the time is lost (it will fail its checksum).
+     */
+    protected static void compact(FileChannel channel) throws IOException {
+        long size = channel.size();
+        ByteBuffer table = readTable(channel);
+
+        //sort the records by offset, then each one is only ever moved into space which is unused or was used by the records before it
+        long[] records = new long[REGION_SIZE * REGION_SIZE];
+        int count = 0;
+        for (int i = 0; i < REGION_SIZE * REGION_SIZE; i++) {
+            int offset = table.getInt(i * TABLE_ENTRY_SIZE);
+            int length = table.getInt(i * TABLE_ENTRY_SIZE + 4);
+            if (isStored(offset, length, size)) {
+                records[count++] = ((long) offset << 32) | i;
+            }
+        }
+        Arrays.sort(records, 0, count);
+
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        ByteBuffer entry = ByteBuffer.allocate(TABLE_ENTRY_SIZE);
+        long position = HEADER_SIZE;
+        for (int j = 0; j < count; j++) {
+            int index = (int) records[j];
+            int offset = (int) (records[j] >>> 32);
+            int length = table.getInt(index * TABLE_ENTRY_SIZE + 4);
+
+            if (offset != position) {
+                //the destination is before the source, so copying from front to back never overwrites anything which hasn't been copied yet
+                for (int i = 0; i < length; ) {
+                    int n = Math.min(buffer.capacity(), length - i);
+                    buffer.clear();
+                    buffer.limit(n);
+                    readFully(channel, buffer, offset + i);
+                    buffer.flip();
+                    writeFully(channel, buffer, position + i);
+                    i += n;
+                }
+
+                entry.clear();
+                entry.putInt((int) position).putInt(length).clear();
+                writeFully(channel, entry, TABLE_OFFSET + index * (long) TABLE_ENTRY_SIZE);
+            }
+            position += length;
+        }
+        channel.truncate(position);
+    }
+
+    protected static ByteBuffer readTable(FileChannel channel) throws IOException {
+        ByteBuffer table = ByteBuffer.allocate(REGION_SIZE * REGION_SIZE * TABLE_ENTRY_SIZE);
+        readFully(channel, table, TABLE_OFFSET);
+        return table;
+    }
+
+    /**
+     * @return whether the given table entry references a record
+     */
+    protected static boolean isStored(int offset, int length, long size) {
+        return offset >= HEADER_SIZE && length >= RECORD_HEADER_SIZE && (long) offset + length <= size;
+    }
+
+    protected static long tableEntryOffset(int chunkX, int chunkZ) {
+        return TABLE_OFFSET + (((chunkX & REGION_MASK) << REGION_SHIFT) | (chunkZ & REGION_MASK)) * (long) TABLE_ENTRY_SIZE;
+    }
+
+    protected static void readFully(FileChannel channel, ByteBuffer dst, long position) throws IOException {
+        while (dst.hasRemaining()) {
+            int n = channel.read(dst, position);
+            if (n < 0) {
+                throw new IOException("unexpected end of file");
+            }
+            position += n;
+        }
+    }
+
+    protected static void writeFully(FileChannel channel, ByteBuffer src, long position) throws IOException {
+        while (src.hasRemaining()) {
+            position += channel.write(src, position);
+        }
+    }
+
+    /**
+     * An open region file.
+     *
+     * @author DaPorkchop_
+     */
+    protected static final class RegionFile {
+        protected final FileChannel channel;
+        protected byte[] fingerprint; //the fingerprint stored in the header (empty if the header is invalid), null if not yet read
+
+        protected RegionFile(@NonNull FileChannel channel) {
+            this.channel = channel;
+        }
+
+        protected boolean checkHeader(byte[] fingerprint) throws IOException {
+            if (this.fingerprint == null) {
+                this.fingerprint = new byte[0];
+                if (this.channel.size() >= HEADER_SIZE) {
+                    ByteBuffer header = ByteBuffer.allocate(TABLE_OFFSET);
+                    readFully(this.channel, header, 0L);
+                    if (header.getInt(0) == MAGIC && header.getInt(4) == FORMAT_VERSION) {
+                        this.fingerprint = new byte[FINGERPRINT_SIZE];
+                        header.position(8);
+                        header.get(this.fingerprint);
+                    }
+                }
+            }
+            return Arrays.equals(this.fingerprint, fingerprint);
+        }
+
+        protected void close() {
+            try {
+                this.channel.close();
+            } catch (IOException e) {
+                TerraMinusMinus.LOGGER.error("unable to close region file", e);
+            }
+        }
+    }
+}
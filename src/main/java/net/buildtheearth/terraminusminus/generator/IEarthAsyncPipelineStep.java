@@ -10,8 +10,13 @@ import net.buildtheearth.terraminusminus.TerraMinusMinus;
 import net.buildtheearth.terraminusminus.projection.OutOfProjectionBoundsException;
 import net.buildtheearth.terraminusminus.substitutes.ChunkPos;
 import net.buildtheearth.terraminusminus.util.CornerBoundingBox2d;
+import net.buildtheearth.terraminusminus.util.Futures;
+import net.buildtheearth.terraminusminus.util.SharedFuture;
+import net.buildtheearth.terraminusminus.util.TerraExecutors;
 import net.buildtheearth.terraminusminus.util.bvh.Bounds2d;
+import net.buildtheearth.terraminusminus.util.http.RequestPriority;
 
+import static net.daporkchop.lib.common.util.PValidation.*;
 import static net.daporkchop.lib.common.util.PorkUtil.*;
 
 /**
@@ -20,7 +25,7 @@ import static net.daporkchop.lib.common.util.PorkUtil.*;
 public interface IEarthAsyncPipelineStep<D, V, B extends IEarthAsyncDataBuilder<V>> {
     static <V, B extends IEarthAsyncDataBuilder<V>> CompletableFuture<V> getFuture(ChunkPos pos, GeneratorDatasets datasets, IEarthAsyncPipelineStep<?, V, B>[] steps, Supplier<B> builderFactory) {
         //i used the future to create the future
-        return CompletableFuture.supplyAsync(() -> {
+        return Futures.thenCompose(CompletableFuture.supplyAsync(RequestPriority.capture(() -> {
             int baseX = ChunkPos.cubeToMinBlock(pos.x());
             int baseZ = ChunkPos.cubeToMinBlock(pos.z());
 
@@ -38,29 +43,100 @@ public interface IEarthAsyncPipelineStep<D, V, B extends IEarthAsyncDataBuilder<
             } catch (OutOfProjectionBoundsException ignored) {
             }
 
-            boolean areAnyFuturesNull = Arrays.stream(futures).anyMatch(Objects::isNull);
-            CompletableFuture<?>[] nonNullFutures = areAnyFuturesNull
-                    ? Arrays.stream(futures).filter(Objects::nonNull).toArray(CompletableFuture[]::new)
-                    : futures;
-
-            CompletableFuture<V> future = (nonNullFutures.length != 0 ? CompletableFuture.allOf(nonNullFutures) : CompletableFuture.completedFuture(null))
-                    .thenApply(unused -> {
-                        B builder = builderFactory.get();
-
-                        for (int i = 0; i < steps.length; i++) {
-                            CompletableFuture<?> stepFuture = futures[i];
-                            steps[i].bake(pos, builder, stepFuture != null ? uncheckedCast(stepFuture.join()) : null);
-                        }
-
-                        return builder.build();
-                    });
-            future.whenComplete((data, t) -> {
-                if (t != null) {
-                    TerraMinusMinus.LOGGER.error("async exception while loading data", t);
+            return bake(pos, futures, steps, builderFactory);
+        }), TerraExecutors.bake()), Function.identity());
+    }
+
+    /**
+     * Gets the data for every column in the given region at once.
+     * <p>
+     * This produces the same results as calling {@link #getFuture(ChunkPos, GeneratorDatasets, IEarthAsyncPipelineStep[], Supplier)} for every
+     * column individually, but the bounds of the whole region are projected in a single pass and each step may fetch the data for the entire
+     * region at once (see {@link #requestRegionData(ChunkPos, ChunkPos, GeneratorDatasets, Bounds2d[], CornerBoundingBox2d[])}), which is
+     * considerably faster when many adjacent columns are needed.
+     *
+     * @param min the position of the column with the minimum coordinates (inclusive)
+     * @param max the position of the column with the maximum coordinates (inclusive)
+     * @return the futures for each column, indexed by {@code (x - min.x()) * (max.z() - min.z() + 1) + (z - min.z())}
+     */
+    static <V, B extends IEarthAsyncDataBuilder<V>> CompletableFuture<V>[] getRegionFutures(ChunkPos min, ChunkPos max, GeneratorDatasets datasets, IEarthAsyncPipelineStep<?, V, B>[] steps, Supplier<B> builderFactory) {
+        int sizeX = max.x() - min.x() + 1;
+        int sizeZ = max.z() - min.z() + 1;
+        checkArg(sizeX > 0 && sizeZ > 0, "invalid region: %s - %s", min, max);
+
+        CompletableFuture<CompletableFuture<V>[]> regionFuture = CompletableFuture.supplyAsync(RequestPriority.capture(() -> {
+            int baseX = ChunkPos.cubeToMinBlock(min.x());
+            int baseZ = ChunkPos.cubeToMinBlock(min.z());
+
+            Bounds2d[] bounds = new Bounds2d[sizeX * sizeZ];
+            for (int i = 0, dx = 0; dx < sizeX; dx++) {
+                for (int dz = 0; dz < sizeZ; dz++) {
+                    int x = baseX + (dx << 4);
+                    int z = baseZ + (dz << 4);
+                    bounds[i++] = Bounds2d.of(x, x + 16, z, z + 16);
+                }
+            }
+            CornerBoundingBox2d[] boundsGeo = CornerBoundingBox2d.toGeoGrid(baseX, baseZ, 16.0d, sizeX, sizeZ, datasets.projection());
+
+            CompletableFuture<?>[][] stepFutures = new CompletableFuture[steps.length][];
+            for (int i = 0; i < steps.length; i++) {
+                stepFutures[i] = steps[i].requestRegionData(min, max, datasets, bounds, boundsGeo);
+            }
+
+            CompletableFuture<V>[] futures = uncheckedCast(new CompletableFuture[sizeX * sizeZ]);
+            for (int i = 0; i < futures.length; i++) {
+                CompletableFuture<?>[] columnFutures = new CompletableFuture[steps.length];
+                for (int j = 0; j < steps.length; j++) {
+                    columnFutures[j] = stepFutures[j][i];
                 }
-            });
-            return future;
-        }).thenCompose(Function.identity());
+                futures[i] = bake(new ChunkPos(min.x() + i / sizeZ, min.z() + i % sizeZ), columnFutures, steps, builderFactory);
+            }
+            return futures;
+        }), TerraExecutors.bake());
+
+        //the shared region future is only cancelled once every column has been cancelled
+        SharedFuture<CompletableFuture<V>[]> sharedRegionFuture = new SharedFuture<>(regionFuture);
+        CompletableFuture<V>[] futures = uncheckedCast(new CompletableFuture[sizeX * sizeZ]);
+        for (int i = 0; i < futures.length; i++) {
+            int index = i;
+            futures[i] = Futures.thenCompose(sharedRegionFuture.newConsumer(), regionFutures -> regionFutures[index]);
+        }
+        return futures;
+    }
+
+    /**
+     * Bakes the data for a single column once all of the data requested by the steps is available.
+     *
+     * @param pos     the position of the column
+     * @param futures the futures returned by each step's data request. May contain {@code null} elements if a step doesn't have any data for the column.
+     */
+    private static <V, B extends IEarthAsyncDataBuilder<V>> CompletableFuture<V> bake(ChunkPos pos, CompletableFuture<?>[] futures, IEarthAsyncPipelineStep<?, V, B>[] steps, Supplier<B> builderFactory) {
+        boolean areAnyFuturesNull = Arrays.stream(futures).anyMatch(Objects::isNull);
+        CompletableFuture<?>[] nonNullFutures = areAnyFuturesNull
+                ? Arrays.stream(futures).filter(Objects::nonNull).toArray(CompletableFuture[]::new)
+                : futures;
+
+        CompletableFuture<V> future = (nonNullFutures.length != 0 ? CompletableFuture.allOf(nonNullFutures) : CompletableFuture.completedFuture(null))
+                .thenApply(unused -> {
+                    B builder = builderFactory.get();
+
+                    for (int i = 0; i < steps.length; i++) {
+                        CompletableFuture<?> stepFuture = futures[i];
+                        steps[i].bake(pos, builder, stepFuture != null ? uncheckedCast(stepFuture.join()) : null);
+                    }
+
+                    return builder.build();
+                });
+        future.whenComplete((data, t) -> {
+            if (future.isCancelled()) { //nobody needs the data for this column anymore, so there's no reason to keep fetching it
+                for (CompletableFuture<?> stepFuture : nonNullFutures) {
+                    stepFuture.cancel(false);
+                }
+            } else if (t != null) {
+                TerraMinusMinus.LOGGER.error("async exception while loading data", t);
+            }
+        });
+        return future;
     }
 
     /**
@@ -74,6 +150,36 @@ public interface IEarthAsyncPipelineStep<D, V, B extends IEarthAsyncDataBuilder<
      */
     CompletableFuture<D> requestData(ChunkPos pos, GeneratorDatasets datasets, Bounds2d bounds, CornerBoundingBox2d boundsGeo) throws OutOfProjectionBoundsException;
 
+    /**
+     * Asynchronously fetches the data required to bake the data for every column in the given region.
+     * <p>
+     * The default implementation simply calls {@link #requestData(ChunkPos, GeneratorDatasets, Bounds2d, CornerBoundingBox2d)} for every column.
+     * Steps whose data comes from tiled datasets should override this to request each tile only once for the whole region.
+     *
+     * @param min       the position of the column with the minimum coordinates (inclusive)
+     * @param max       the position of the column with the maximum coordinates (inclusive)
+     * @param datasets  the datasets to be used
+     * @param bounds    the bounding box of each column (in blocks), indexed by {@code (x - min.x()) * (max.z() - min.z() + 1) + (z - min.z())}
+     * @param boundsGeo the bounding box of each column (in world coordinates), in the same order as {@code bounds}. Columns which are out of
+     *                  projection bounds are {@code null}.
+     * @return the {@link CompletableFuture}s which will be completed with the required data for each column, in the same order as {@code bounds}.
+     * Columns for which no data is available are {@code null}.
+     */
+    default CompletableFuture<D>[] requestRegionData(ChunkPos min, ChunkPos max, GeneratorDatasets datasets, Bounds2d[] bounds, CornerBoundingBox2d[] boundsGeo) {
+        int sizeZ = max.z() - min.z() + 1;
+
+        CompletableFuture<D>[] futures = uncheckedCast(new CompletableFuture[bounds.length]);
+        for (int i = 0; i < bounds.length; i++) {
+            if (boundsGeo[i] != null) {
+                try {
+                    futures[i] = this.requestData(new ChunkPos(min.x() + i / sizeZ, min.z() + i % sizeZ), datasets, bounds[i], boundsGeo[i]);
+                } catch (OutOfProjectionBoundsException ignored) {
+                }
+            }
+        }
+        return futures;
+    }
+
     /**
      * Bakes the retrieved data into the chunk data for the given column.
      *
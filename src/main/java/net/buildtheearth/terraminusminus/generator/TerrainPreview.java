@@ -10,6 +10,7 @@ import net.buildtheearth.terraminusminus.projection.OutOfProjectionBoundsExcepti
 import net.buildtheearth.terraminusminus.substitutes.BlockState;
 import net.buildtheearth.terraminusminus.substitutes.ChunkPos;
 import net.buildtheearth.terraminusminus.util.TilePos;
+import net.buildtheearth.terraminusminus.util.TerraExecutors;
 import net.buildtheearth.terraminusminus.util.http.Http;
 
 import javax.swing.JFrame;
@@ -23,9 +24,10 @@ import java.awt.event.KeyEvent;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.awt.image.BufferedImage;
-import java.util.Arrays;
+import java.awt.image.DataBufferInt;
 import java.util.Collections;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 import static java.lang.Math.*;
 import static net.daporkchop.lib.common.math.PMath.*;
@@ -45,6 +47,15 @@ public class TerrainPreview extends CacheLoader<TilePos, CompletableFuture<Buffe
         return new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_RGB);
     }
 
+    /**
+     * Gets the backing pixel array of a tile created by {@link #createBlankTile()}.
+     * <p>
+     * Pixels are stored in row-major order, so the pixel at {@code (x, z)} is at index {@code z * SIZE + x}.
+     */
+    protected static int[] pixels(@NonNull BufferedImage tile) {
+        return ((DataBufferInt) tile.getRaster().getDataBuffer()).getData();
+    }
+
     public static void main(String... args) throws OutOfProjectionBoundsException {
         Http.configChanged();
 
@@ -234,14 +245,25 @@ public class TerrainPreview extends CacheLoader<TilePos, CompletableFuture<Buffe
 
     protected final LoadingCache<TilePos, CompletableFuture<BufferedImage>> cache;
     protected final ChunkDataLoader loader;
+    protected final Executor executor;
 
     public TerrainPreview(@NonNull EarthGeneratorSettings settings) {
         this(settings, "softValues");
     }
 
     public TerrainPreview(@NonNull EarthGeneratorSettings settings, @NonNull String cacheSpec) {
+        this(settings, cacheSpec, TerraExecutors.bake());
+    }
+
+    /**
+     * @param settings  the settings to generate terrain with
+     * @param cacheSpec the {@link CacheBuilder} spec to use for the tile cache
+     * @param executor  the executor on which tiles will be rendered
+     */
+    public TerrainPreview(@NonNull EarthGeneratorSettings settings, @NonNull String cacheSpec, @NonNull Executor executor) {
         this.loader = new ChunkDataLoader(settings);
         this.cache = CacheBuilder.from(cacheSpec).build(this);
+        this.executor = executor;
     }
 
     public CompletableFuture<BufferedImage> tile(int x, int z, int zoom) {
@@ -268,15 +290,13 @@ public class TerrainPreview extends CacheLoader<TilePos, CompletableFuture<Buffe
     }
 
     protected CompletableFuture<BufferedImage> baseZoomTile(int x, int z) {
-        CompletableFuture<CachedChunkData>[] dataFutures = uncheckedCast(new CompletableFuture[CHUNKS_PER_TILE * CHUNKS_PER_TILE]);
-        for (int i = 0, dx = 0; dx < CHUNKS_PER_TILE; dx++) {
-            for (int dz = 0; dz < CHUNKS_PER_TILE; dz++) {
-                dataFutures[i++] = this.loader.load(new ChunkPos((x << CHUNKS_PER_TILE_SHIFT) + dx, (z << CHUNKS_PER_TILE_SHIFT) + dz));
-            }
-        }
+        CompletableFuture<CachedChunkData>[] dataFutures = this.loader.loadRegion(
+                new ChunkPos(x << CHUNKS_PER_TILE_SHIFT, z << CHUNKS_PER_TILE_SHIFT),
+                new ChunkPos((x << CHUNKS_PER_TILE_SHIFT) + CHUNKS_PER_TILE - 1, (z << CHUNKS_PER_TILE_SHIFT) + CHUNKS_PER_TILE - 1));
 
         return CompletableFuture.allOf(dataFutures).thenApplyAsync(unused -> {
             BufferedImage dst = createBlankTile();
+            int[] dstPixels = pixels(dst);
 
             for (int ti = 0, tx = 0; tx < CHUNKS_PER_TILE; tx++) {
                 for (int tz = 0; tz < CHUNKS_PER_TILE; tz++) {
@@ -322,14 +342,14 @@ public class TerrainPreview extends CacheLoader<TilePos, CompletableFuture<Buffe
                                 c = r << 16 | g << 8 | b;
                             }
 
-                            dst.setRGB(baseX + cx, baseZ + cz, 0xFF000000 | c);
+                            dstPixels[(baseZ + cz) * SIZE + baseX + cx] = c;
                         }
                     }
                 }
             }
 
             return dst;
-        });
+        }, this.executor);
     }
 
     protected CompletableFuture<BufferedImage> zoomedOutTile(int x, int z, int zoom) {
@@ -342,54 +362,59 @@ public class TerrainPreview extends CacheLoader<TilePos, CompletableFuture<Buffe
 
         return CompletableFuture.allOf(children).thenApplyAsync(unused -> {
             BufferedImage dst = createBlankTile();
-            int[] buf = new int[4];
+            int[] dstPixels = pixels(dst);
 
             for (int ti = 0, tx = 0; tx < 2; tx++) {
                 for (int tz = 0; tz < 2; tz++) {
-                    BufferedImage child = children[ti++].join();
+                    int[] childPixels = pixels(children[ti++].join());
                     int baseX = tx << (SIZE_SHIFT - 1);
                     int baseZ = tz << (SIZE_SHIFT - 1);
-                    for (int cx = 0; cx < SIZE >> 1; cx++) {
-                        for (int cz = 0; cz < SIZE >> 1; cz++) {
-                            child.getRGB(cx << 1, cz << 1, 2, 2, buf, 0, 2);
+                    for (int cz = 0; cz < SIZE >> 1; cz++) {
+                        int row0 = (cz << 1) * SIZE;
+                        int row1 = row0 + SIZE;
+                        int dstRow = (baseZ + cz) * SIZE + baseX;
+                        for (int cx = 0; cx < SIZE >> 1; cx++) {
+                            int c0 = childPixels[row0 + (cx << 1)];
+                            int c1 = childPixels[row0 + (cx << 1) + 1];
+                            int c2 = childPixels[row1 + (cx << 1)];
+                            int c3 = childPixels[row1 + (cx << 1) + 1];
 
                             //compute average color
-                            int r = 0;
-                            int g = 0;
-                            int b = 0;
-                            for (int i = 0; i < 4; i++) {
-                                int c = buf[i];
-                                r += (c >> 16) & 0xFF;
-                                g += (c >> 8) & 0xFF;
-                                b += c & 0xFF;
-                            }
+                            int r = ((c0 >> 16) & 0xFF) + ((c1 >> 16) & 0xFF) + ((c2 >> 16) & 0xFF) + ((c3 >> 16) & 0xFF);
+                            int g = ((c0 >> 8) & 0xFF) + ((c1 >> 8) & 0xFF) + ((c2 >> 8) & 0xFF) + ((c3 >> 8) & 0xFF);
+                            int b = (c0 & 0xFF) + (c1 & 0xFF) + (c2 & 0xFF) + (c3 & 0xFF);
 
-                            dst.setRGB(baseX + cx, baseZ + cz, 0xFF000000 | ((r >> 2) << 16) | ((g >> 2) << 8) | (b >> 2));
+                            dstPixels[dstRow + cx] = ((r >> 2) << 16) | ((g >> 2) << 8) | (b >> 2);
                         }
                     }
                 }
             }
 
             return dst;
-        });
+        }, this.executor);
     }
 
     protected CompletableFuture<BufferedImage> zoomedInTile(int x, int z, int zoom) {
         return this.tile(x >> 1, z >> 1, zoom + 1)
                 .thenApplyAsync(src -> {
                     BufferedImage dst = createBlankTile();
-                    int[] buf = new int[4];
+                    int[] srcPixels = pixels(src);
+                    int[] dstPixels = pixels(dst);
 
                     int baseX = (x & 1) << (SIZE_SHIFT - 1);
                     int baseZ = (z & 1) << (SIZE_SHIFT - 1);
-                    for (int dx = 0; dx < SIZE >> 1; dx++) {
-                        for (int dz = 0; dz < SIZE >> 1; dz++) {
-                            Arrays.fill(buf, src.getRGB(baseX + dx, baseZ + dz));
-                            dst.setRGB(dx << 1, dz << 1, 2, 2, buf, 0, 2);
+                    for (int dz = 0; dz < SIZE >> 1; dz++) {
+                        int srcRow = (baseZ + dz) * SIZE + baseX;
+                        int dstRow = (dz << 1) * SIZE;
+                        for (int dx = 0; dx < SIZE >> 1; dx++) {
+                            int c = srcPixels[srcRow + dx];
+                            dstPixels[dstRow + (dx << 1)] = c;
+                            dstPixels[dstRow + (dx << 1) + 1] = c;
                         }
+                        System.arraycopy(dstPixels, dstRow, dstPixels, dstRow + SIZE, SIZE);
                     }
 
                     return dst;
-                });
+                }, this.executor);
     }
 }
@@ -0,0 +1,204 @@
+package net.buildtheearth.terraminusminus.generator;
+
+import lombok.Getter;
+import lombok.NonNull;
+import net.buildtheearth.terraminusminus.TerraMinusMinus;
+import net.buildtheearth.terraminusminus.util.TilePos;
+import net.buildtheearth.terraminusminus.util.http.Disk;
+import net.buildtheearth.terraminusminus.util.http.Http;
+import net.buildtheearth.terraminusminus.util.http.RequestPriority;
+import net.daporkchop.lib.common.misc.threadfactory.PThreadFactories;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.lang.Math.*;
+import static net.daporkchop.lib.common.math.PMath.*;
+import static net.daporkchop.lib.common.util.PValidation.*;
+
+/**
+ * Renders {@link TerrainPreview} tiles without a display, and writes them to disk as a pyramid of PNG images.
+ * <p>
+ * Tiles are stored at {@code <output>/<zoom>/<x>/<z>.png}. Zoom levels are rendered from the most detailed to the least detailed one, so that
+ * each zoomed-out tile can be assembled from the already rendered tiles below it.
+ * <p>
+ * As the whole generation pipeline is exercised for every tile, the reported throughput can also be used as an end-to-end benchmark.
+ *
+ * @author DaPorkchop_
+ */
+@Getter
+public class TerrainPreviewExporter {
+    /**
+     * The default number of worker threads to render tiles on.
+     */
+    public static final int DEFAULT_THREADS = Integer.getInteger("terraplusplus.preview.threads", Runtime.getRuntime().availableProcessors());
+
+    /**
+     * The default maximum number of tiles which may be in flight at once.
+     */
+    public static final int DEFAULT_MAX_IN_FLIGHT = Integer.getInteger("terraplusplus.preview.max_in_flight", DEFAULT_THREADS << 2);
+
+    /**
+     * The least detailed zoom level which can be exported. Tile coordinates are computed by shifting block coordinates right by
+     * {@code TerrainPreview.SIZE_SHIFT + zoom}, which stops working once the shift distance reaches 31.
+     */
+    public static final int MAX_ZOOM = 30 - TerrainPreview.SIZE_SHIFT;
+
+    /**
+     * The interval (in milliseconds) at which progress is logged.
+     */
+    protected static final long PROGRESS_INTERVAL = 5000L;
+
+    /**
+     * Usage: {@code TerrainPreviewExporter <output> <minX> <minZ> <maxX> <maxZ> <minZoom> <maxZoom> [settings]}
+     * <p>
+     * The rectangle is given in projected (block) coordinates. If no generator settings JSON is given, the BTE default settings are used.
+     */
+    public static void main(String... args) throws IOException {
+        if (args.length != 7 && args.length != 8) {
+            System.err.println("Usage: TerrainPreviewExporter <output> <minX> <minZ> <maxX> <maxZ> <minZoom> <maxZoom> [settings]");
+            System.exit(1);
+        }
+
+        int minZoom = Integer.parseInt(args[5]);
+        int maxZoom = Integer.parseInt(args[6]);
+        if (minZoom < 0 || minZoom > maxZoom || maxZoom > MAX_ZOOM) {
+            System.err.println("Usage: TerrainPreviewExporter <output> <minX> <minZ> <maxX> <maxZ> <minZoom> <maxZoom> [settings]");
+            System.err.println("The zoom levels must satisfy 0 <= minZoom <= maxZoom <= " + MAX_ZOOM);
+            System.exit(1);
+        }
+
+        Http.configChanged();
+
+        EarthGeneratorSettings settings = EarthGeneratorSettings.parseUncached(args.length == 8
+                ? new String(Files.readAllBytes(Paths.get(args[7])), StandardCharsets.UTF_8)
+                : EarthGeneratorSettings.BTE_DEFAULT_SETTINGS);
+
+        ExecutorService executor = Executors.newFixedThreadPool(DEFAULT_THREADS, PThreadFactories.builder().daemon().minPriority().name("terra++ preview worker").build());
+        try {
+            TerrainPreviewExporter exporter = new TerrainPreviewExporter(new TerrainPreview(settings, "softValues", executor), Paths.get(args[0]), DEFAULT_MAX_IN_FLIGHT);
+            exporter.export(
+                    floorI(Double.parseDouble(args[1])), floorI(Double.parseDouble(args[2])),
+                    floorI(Double.parseDouble(args[3])), floorI(Double.parseDouble(args[4])),
+                    minZoom, maxZoom);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    protected final TerrainPreview preview;
+    protected final Path output;
+    protected final int maxInFlight;
+
+    protected final LongAdder tiles = new LongAdder();
+    protected final LongAdder failedTiles = new LongAdder();
+    protected final LongAdder bytes = new LongAdder();
+
+    public TerrainPreviewExporter(@NonNull TerrainPreview preview, @NonNull Path output, int maxInFlight) {
+        this.preview = preview;
+        this.output = output;
+        this.maxInFlight = positive(maxInFlight, "maxInFlight");
+    }
+
+    /**
+     * Renders and writes all tiles intersecting the given rectangle at every zoom level in the given range.
+     * <p>
+     * This method blocks until every tile has been written.
+     *
+     * @param minX    the minimum X coordinate of the rectangle, in blocks
+     * @param minZ    the minimum Z coordinate of the rectangle, in blocks
+     * @param maxX    the maximum X coordinate of the rectangle, in blocks (inclusive)
+     * @param maxZ    the maximum Z coordinate of the rectangle, in blocks (inclusive)
+     * @param minZoom the most detailed zoom level to render
+     * @param maxZoom the least detailed zoom level to render. Must not be greater than {@link #MAX_ZOOM}
+     */
+    public void export(int minX, int minZ, int maxX, int maxZ, int minZoom, int maxZoom) {
+        checkArg(minX <= maxX && minZ <= maxZ, "invalid rectangle: (%d, %d) -> (%d, %d)", minX, minZ, maxX, maxZ);
+        checkArg(minZoom >= 0 && minZoom <= maxZoom, "invalid zoom range: %d -> %d", minZoom, maxZoom);
+        checkArg(maxZoom <= MAX_ZOOM, "zoom level %d is too large (maximum: %d)", maxZoom, MAX_ZOOM);
+
+        long totalTiles = 0L;
+        for (int zoom = minZoom; zoom <= maxZoom; zoom++) {
+            int shift = TerrainPreview.SIZE_SHIFT + zoom;
+            totalTiles += ((maxX >> shift) - (long) (minX >> shift) + 1L) * ((maxZ >> shift) - (long) (minZ >> shift) + 1L);
+        }
+        TerraMinusMinus.LOGGER.info("exporting {} tiles at zoom levels {}-{} to {}", totalTiles, minZoom, maxZoom, this.output);
+
+        Semaphore inFlight = new Semaphore(this.maxInFlight);
+        long startTime = System.nanoTime();
+        long lastProgressTime = startTime;
+
+        for (int zoom = minZoom; zoom <= maxZoom; zoom++) {
+            int shift = TerrainPreview.SIZE_SHIFT + zoom;
+            for (int tx = minX >> shift; tx <= maxX >> shift; tx++) {
+                for (int tz = minZ >> shift; tz <= maxZ >> shift; tz++) {
+                    inFlight.acquireUninterruptibly();
+                    this.exportTile(new TilePos(tx, tz, zoom)).whenComplete((unused, t) -> inFlight.release());
+
+                    long now = System.nanoTime();
+                    if (now - lastProgressTime >= TimeUnit.MILLISECONDS.toNanos(PROGRESS_INTERVAL)) {
+                        lastProgressTime = now;
+                        this.logProgress(totalTiles, now - startTime);
+                    }
+                }
+            }
+
+            //wait for the whole level to be written before starting on the next one, so that its tiles are still cached
+            inFlight.acquireUninterruptibly(this.maxInFlight);
+            inFlight.release(this.maxInFlight);
+        }
+
+        this.logProgress(totalTiles, System.nanoTime() - startTime);
+    }
+
+    protected CompletableFuture<Void> exportTile(@NonNull TilePos pos) {
+        //nobody is waiting on the exported tiles, so don't delay requests which are more urgent
+        return RequestPriority.with(RequestPriority.BACKGROUND, () -> this.preview.tile(pos))
+                .thenAcceptAsync(tile -> {
+                    try {
+                        this.write(pos, tile);
+                        this.tiles.increment();
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                }, this.preview.executor)
+                .whenComplete((unused, t) -> {
+                    if (t != null) {
+                        this.failedTiles.increment();
+                        TerraMinusMinus.LOGGER.error("unable to export tile " + pos, t);
+                    }
+                });
+    }
+
+    protected void write(@NonNull TilePos pos, @NonNull BufferedImage tile) throws IOException {
+        Path file = this.output.resolve(String.valueOf(pos.zoom())).resolve(String.valueOf(pos.x())).resolve(pos.z() + ".png");
+        Files.createDirectories(file.getParent());
+
+        try (OutputStream out = Files.newOutputStream(file)) {
+            ImageIO.write(tile, "png", out);
+        }
+        this.bytes.add(Files.size(file));
+    }
+
+    protected void logProgress(long totalTiles, long elapsedNanos) {
+        long tiles = this.tiles.sum();
+        double seconds = max(elapsedNanos * 1.0e-9d, 1.0e-9d);
+        TerraMinusMinus.LOGGER.info("exported {}/{} tiles ({} failed, {} KiB) in {}s: {} tiles/s, {} resources requested ({} coalesced), {}/{} cache reads served from memory",
+                tiles, totalTiles, this.failedTiles.sum(), this.bytes.sum() >> 10L,
+                String.format("%.1f", seconds), String.format("%.2f", tiles / seconds),
+                Http.requestCount(), Http.coalescedRequestCount(),
+                Disk.memoryCacheHitCount(), Disk.memoryCacheHitCount() + Disk.memoryCacheMissCount());
+    }
+}
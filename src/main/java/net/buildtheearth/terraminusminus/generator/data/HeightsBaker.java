@@ -23,6 +23,11 @@ public class HeightsBaker implements IEarthDataBaker<double[]> {
         return datasets.<IScalarDataset>getCustom(EarthGeneratorPipelines.KEY_DATASET_HEIGHTS).getAsync(boundsGeo, 16, 16);
     }
 
+    @Override
+    public CompletableFuture<double[]>[] requestRegionData(ChunkPos min, ChunkPos max, GeneratorDatasets datasets, Bounds2d[] bounds, CornerBoundingBox2d[] boundsGeo) {
+        return datasets.<IScalarDataset>getCustom(EarthGeneratorPipelines.KEY_DATASET_HEIGHTS).getAsync(boundsGeo, 16, 16);
+    }
+
     @Override
     public void bake(ChunkPos pos, CachedChunkData.Builder builder, double[] heights) {
         if (heights == null) { //consider heights array to be filled with NaNs
@@ -1,5 +1,7 @@
 package net.buildtheearth.terraminusminus.generator.data;
 
+import static net.daporkchop.lib.common.util.PorkUtil.uncheckedCast;
+
 import java.util.Arrays;
 import java.util.Set;
 import java.util.TreeSet;
@@ -20,12 +22,65 @@ import net.buildtheearth.terraminusminus.util.bvh.Bounds2d;
  * @author DaPorkchop_
  */
 public class OSMBaker implements IEarthDataBaker<BVH<VectorGeometry>[]> {
+    /**
+     * The maximum ratio between the area of the geographic bounding box requested for a region and the combined area of its columns. Beyond
+     * this, the columns are far apart in geographic coordinates (which happens when a region crosses the antimeridian), so requesting all of
+     * the tiles in between would be wasteful.
+     */
+    protected static final double MAX_REGION_AREA_FACTOR = 4.0d;
+
     @Override
     public CompletableFuture<BVH<VectorGeometry>[]> requestData(ChunkPos pos, GeneratorDatasets datasets, Bounds2d bounds, CornerBoundingBox2d boundsGeo) throws OutOfProjectionBoundsException {
         return datasets.<IElementDataset<BVH<VectorGeometry>>>getCustom(EarthGeneratorPipelines.KEY_DATASET_OSM_PARSED)
                 .getAsync(bounds.expand(16.0d).toCornerBB(datasets.projection(), false).toGeo());
     }
 
+    @Override
+    public CompletableFuture<BVH<VectorGeometry>[]>[] requestRegionData(ChunkPos min, ChunkPos max, GeneratorDatasets datasets, Bounds2d[] bounds, CornerBoundingBox2d[] boundsGeo) {
+        //request the tiles for the whole region at once, and share them between all of the columns. every column will only use the elements
+        // which intersect it, so the extra tiles don't affect the output.
+        //the bounding box requested for each column is padded by 16 blocks (see requestData()), making it 3 times the size of the chunk, so its
+        // geographic bounds are obtained by padding the chunk's geographic bounds by their own size on every side.
+        Bounds2d regionBoundsGeo = null;
+        double paddedArea = 0.0d;
+        for (CornerBoundingBox2d chunkBoundsGeo : boundsGeo) {
+            if (chunkBoundsGeo != null) {
+                double sizeX = chunkBoundsGeo.maxX() - chunkBoundsGeo.minX();
+                double sizeZ = chunkBoundsGeo.maxZ() - chunkBoundsGeo.minZ();
+                Bounds2d paddedBoundsGeo = Bounds2d.of(chunkBoundsGeo.minX() - sizeX, chunkBoundsGeo.maxX() + sizeX,
+                        chunkBoundsGeo.minZ() - sizeZ, chunkBoundsGeo.maxZ() + sizeZ);
+
+                paddedArea += 9.0d * sizeX * sizeZ;
+                regionBoundsGeo = regionBoundsGeo == null ? paddedBoundsGeo : regionBoundsGeo.union(paddedBoundsGeo);
+            }
+        }
+        if (regionBoundsGeo == null) { //every column is out of bounds
+            return uncheckedCast(new CompletableFuture[bounds.length]);
+        }
+
+        double regionSizeX = regionBoundsGeo.maxX() - regionBoundsGeo.minX();
+        double regionSizeZ = regionBoundsGeo.maxZ() - regionBoundsGeo.minZ();
+        if (regionSizeX * regionSizeZ > paddedArea * MAX_REGION_AREA_FACTOR) { //request the data for each column individually
+            return IEarthDataBaker.super.requestRegionData(min, max, datasets, bounds, boundsGeo);
+        }
+
+        CompletableFuture<BVH<VectorGeometry>[]> regionFuture;
+        try {
+            regionFuture = datasets.<IElementDataset<BVH<VectorGeometry>>>getCustom(EarthGeneratorPipelines.KEY_DATASET_OSM_PARSED)
+                    .getAsync(new CornerBoundingBox2d(regionBoundsGeo.minX(), regionBoundsGeo.minZ(), regionSizeX, regionSizeZ, datasets.projection(), true));
+        } catch (OutOfProjectionBoundsException e) { //part of the region is out of bounds, fall back to requesting the data for each column individually
+            return IEarthDataBaker.super.requestRegionData(min, max, datasets, bounds, boundsGeo);
+        }
+
+        CompletableFuture<BVH<VectorGeometry>[]>[] futures = uncheckedCast(new CompletableFuture[bounds.length]);
+        for (int i = 0; i < bounds.length; i++) {
+            if (boundsGeo[i] != null) {
+                futures[i] = regionFuture;
+            }
+        }
+        return futures;
+    }
+
     @Override
     public void bake(ChunkPos pos, CachedChunkData.Builder builder, BVH<VectorGeometry>[] regions) {
         if (regions == null) { //there's no data in this chunk... we're going to assume it's completely out of bounds
@@ -49,6 +49,11 @@ public class TreeCoverBaker implements IEarthDataBaker<double[]> {
         return datasets.<IScalarDataset>getCustom(EarthGeneratorPipelines.KEY_DATASET_TREE_COVER).getAsync(boundsGeo, 16, 16);
     }
 
+    @Override
+    public CompletableFuture<double[]>[] requestRegionData(ChunkPos min, ChunkPos max, GeneratorDatasets datasets, Bounds2d[] bounds, CornerBoundingBox2d[] boundsGeo) {
+        return datasets.<IScalarDataset>getCustom(EarthGeneratorPipelines.KEY_DATASET_TREE_COVER).getAsync(boundsGeo, 16, 16);
+    }
+
     @Override
     public void bake(ChunkPos pos, CachedChunkData.Builder builder, double[] treeCover) {
         byte[] arr = new byte[16 * 16];
@@ -1,6 +1,7 @@
 package net.buildtheearth.terraminusminus.projection;
 
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import lombok.NonNull;
 
 import net.buildtheearth.terraminusminus.TerraConstants;
 import net.buildtheearth.terraminusminus.util.MathUtils;
@@ -19,7 +20,20 @@ public class EqualEarthProjection implements GeographicProjection {
 
     @Override
     public double[] toGeo(double x, double y) {
+        double[] geo = new double[2];
+        toGeo0(x, y, geo, 0);
+        return geo;
+    }
+
+    @Override
+    public boolean toGeo(@NonNull double[] src, int srcOff, @NonNull double[] dst, int dstOff, int count) {
+        for (int i = 0; i < count; i++, srcOff += 2, dstOff += 2) {
+            toGeo0(src[srcOff], src[srcOff + 1], dst, dstOff);
+        }
+        return true;
+    }
 
+    private static void toGeo0(double x, double y, double[] dst, int dstOff) {
         double theta = y / A1; //start with initial guess at y/A1 since A1 is by far the largest term
 
         //Using newtons method to find theta
@@ -50,13 +64,35 @@ public class EqualEarthProjection implements GeographicProjection {
         dx += 7 * A3 * (tpow *= thetasquare * thetasquare); //7 A3 t^6
         dx += 9 * A4 * (tpow *= thetasquare); //9 A4 t^8
 
-        return new double[]{ Math.toDegrees(x * dx * 3 / (2 * MathUtils.ROOT3 * Math.cos(theta))),
-                Math.toDegrees(Math.asin(Math.sin(theta) * 2 / MathUtils.ROOT3)) };
+        dst[dstOff] = Math.toDegrees(x * dx * 3 / (2 * MathUtils.ROOT3 * Math.cos(theta)));
+        dst[dstOff + 1] = Math.toDegrees(Math.asin(Math.sin(theta) * 2 / MathUtils.ROOT3));
     }
 
     @Override
     public double[] fromGeo(double longitude, double latitude) throws OutOfProjectionBoundsException {
     	OutOfProjectionBoundsException.checkLongitudeLatitudeInRange(longitude, latitude);
+        double[] proj = new double[2];
+        fromGeo0(longitude, latitude, proj, 0);
+        return proj;
+    }
+
+    @Override
+    public boolean fromGeo(@NonNull double[] src, int srcOff, @NonNull double[] dst, int dstOff, int count) {
+        boolean valid = true;
+        for (int i = 0; i < count; i++, srcOff += 2, dstOff += 2) {
+            double longitude = src[srcOff];
+            double latitude = src[srcOff + 1];
+            if (OutOfProjectionBoundsException.isLongitudeLatitudeInRange(longitude, latitude)) {
+                fromGeo0(longitude, latitude, dst, dstOff);
+            } else {
+                dst[dstOff] = dst[dstOff + 1] = Double.NaN;
+                valid = false;
+            }
+        }
+        return valid;
+    }
+
+    private static void fromGeo0(double longitude, double latitude, double[] dst, int dstOff) {
         double sintheta = MathUtils.ROOT3 * Math.sin(Math.toRadians(latitude)) / 2;
         double theta = Math.asin(sintheta);
         double tpow = theta;
@@ -72,7 +108,8 @@ public class EqualEarthProjection implements GeographicProjection {
 
         double costheta = Math.sqrt(1 - sintheta * sintheta);
 
-        return new double[]{ (2 * MathUtils.ROOT3 * Math.toRadians(longitude) * costheta / 3) / x, y };
+        dst[dstOff] = (2 * MathUtils.ROOT3 * Math.toRadians(longitude) * costheta / 3) / x;
+        dst[dstOff + 1] = y;
     }
 
     @Override
@@ -1,6 +1,7 @@
 package net.buildtheearth.terraminusminus.projection;
 
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import lombok.NonNull;
 
 /**
  * Implements the equirectangular map projection, which applies no transformation at all.
@@ -34,6 +35,28 @@ public class EquirectangularProjection implements GeographicProjection {
         return new double[]{ longitude, latitude };
     }
 
+    @Override
+    public boolean toGeo(@NonNull double[] src, int srcOff, @NonNull double[] dst, int dstOff, int count) {
+        boolean valid = true;
+        for (int i = 0; i < count; i++, srcOff += 2, dstOff += 2) {
+            double x = src[srcOff];
+            double y = src[srcOff + 1];
+            if (OutOfProjectionBoundsException.isLongitudeLatitudeInRange(x, y)) {
+                dst[dstOff] = x;
+                dst[dstOff + 1] = y;
+            } else {
+                dst[dstOff] = dst[dstOff + 1] = Double.NaN;
+                valid = false;
+            }
+        }
+        return valid;
+    }
+
+    @Override
+    public boolean fromGeo(@NonNull double[] src, int srcOff, @NonNull double[] dst, int dstOff, int count) {
+        return this.toGeo(src, srcOff, dst, dstOff, count); //both directions are the same
+    }
+
     /**
      * Gives an estimation of the scale of this projection.
      * This is just an estimation, as distortion is inevitable when projecting a sphere onto a flat surface,
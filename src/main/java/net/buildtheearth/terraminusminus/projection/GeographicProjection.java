@@ -14,6 +14,8 @@ import java.io.IOException;
 import java.util.Collections;
 import java.util.Map;
 
+import static java.util.Objects.checkFromIndexSize;
+
 /**
  * Support for various projection types.
  * <p>
@@ -53,6 +55,78 @@ public interface GeographicProjection {
      */
     double[] fromGeo(double longitude, double latitude) throws OutOfProjectionBoundsException;
 
+    /**
+     * Converts a batch of map coordinates to geographic coordinates.
+     * <p>
+     * Coordinates are stored as interleaved pairs. {@code src} and {@code dst} may be the same array, but only if {@code srcOff == dstOff}.
+     * <p>
+     * Rather than throwing an {@link OutOfProjectionBoundsException}, both coordinates of any point which cannot be mapped to the geographic space are
+     * set to {@link Double#NaN}.
+     * <p>
+     * The default implementation simply calls {@link #toGeo(double, double)} for every point. Implementations should override this if they are able
+     * to avoid allocating a new array for every point.
+     *
+     * @param src    the array containing the {x, y} map coordinates
+     * @param srcOff the index of the first coordinate in {@code src}
+     * @param dst    the array to write the {longitude, latitude} coordinates to, in degrees
+     * @param dstOff the index of the first coordinate in {@code dst}
+     * @param count  the number of points to convert
+     * @return whether or not every point could be converted
+     */
+    default boolean toGeo(@NonNull double[] src, int srcOff, @NonNull double[] dst, int dstOff, int count) {
+        checkFromIndexSize(srcOff, count << 1, src.length);
+        checkFromIndexSize(dstOff, count << 1, dst.length);
+
+        boolean valid = true;
+        for (int i = 0; i < count; i++, srcOff += 2, dstOff += 2) {
+            try {
+                double[] geo = this.toGeo(src[srcOff], src[srcOff + 1]);
+                dst[dstOff] = geo[0];
+                dst[dstOff + 1] = geo[1];
+            } catch (OutOfProjectionBoundsException e) {
+                dst[dstOff] = dst[dstOff + 1] = Double.NaN;
+                valid = false;
+            }
+        }
+        return valid;
+    }
+
+    /**
+     * Converts a batch of geographic coordinates to map coordinates.
+     * <p>
+     * Coordinates are stored as interleaved pairs. {@code src} and {@code dst} may be the same array, but only if {@code srcOff == dstOff}.
+     * <p>
+     * Rather than throwing an {@link OutOfProjectionBoundsException}, both coordinates of any point which cannot be mapped to the projected space are
+     * set to {@link Double#NaN}.
+     * <p>
+     * The default implementation simply calls {@link #fromGeo(double, double)} for every point. Implementations should override this if they are
+     * able to avoid allocating a new array for every point.
+     *
+     * @param src    the array containing the {longitude, latitude} coordinates, in degrees
+     * @param srcOff the index of the first coordinate in {@code src}
+     * @param dst    the array to write the {x, y} map coordinates to
+     * @param dstOff the index of the first coordinate in {@code dst}
+     * @param count  the number of points to convert
+     * @return whether or not every point could be converted
+     */
+    default boolean fromGeo(@NonNull double[] src, int srcOff, @NonNull double[] dst, int dstOff, int count) {
+        checkFromIndexSize(srcOff, count << 1, src.length);
+        checkFromIndexSize(dstOff, count << 1, dst.length);
+
+        boolean valid = true;
+        for (int i = 0; i < count; i++, srcOff += 2, dstOff += 2) {
+            try {
+                double[] proj = this.fromGeo(src[srcOff], src[srcOff + 1]);
+                dst[dstOff] = proj[0];
+                dst[dstOff + 1] = proj[1];
+            } catch (OutOfProjectionBoundsException e) {
+                dst[dstOff] = dst[dstOff + 1] = Double.NaN;
+                valid = false;
+            }
+        }
+        return valid;
+    }
+
     /**
      * Gives an estimation of the scale of this projection.
      * This is just an estimation, as distortion is inevitable when projecting a sphere onto a flat surface,
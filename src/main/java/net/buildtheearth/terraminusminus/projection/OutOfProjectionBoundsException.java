@@ -35,6 +35,26 @@ public final class OutOfProjectionBoundsException extends Exception {
         checkInRange(longitude, latitude, 180, 90);
     }
 
+    /**
+     * @param x
+     * @param y
+     * @param maxX
+     * @param maxY
+     * @return whether or not {@link #checkInRange(double, double, double, double)} would succeed for the given values
+     */
+    public static boolean isInRange(double x, double y, double maxX, double maxY) {
+        return !(Math.abs(x) > maxX || Math.abs(y) > maxY);
+    }
+
+    /**
+     * @param longitude
+     * @param latitude
+     * @return whether or not {@link #checkLongitudeLatitudeInRange(double, double)} would succeed for the given values
+     */
+    public static boolean isLongitudeLatitudeInRange(double longitude, double latitude) {
+        return isInRange(longitude, latitude, 180, 90);
+    }
+
     private OutOfProjectionBoundsException(boolean flag) {
         super(null, null, flag, flag);
     }
@@ -1,5 +1,7 @@
 package net.buildtheearth.terraminusminus.projection;
 
+import lombok.NonNull;
+
 /**
  * A function that can apply a projection to a pair of lon/lat or x/y coordinates.
  *
@@ -7,5 +9,75 @@ package net.buildtheearth.terraminusminus.projection;
  */
 @FunctionalInterface
 public interface ProjectionFunction {
+    /**
+     * Gets a {@link ProjectionFunction} which converts geographic coordinates to map coordinates using the given {@link GeographicProjection}.
+     * <p>
+     * Unlike a method reference to {@link GeographicProjection#fromGeo(double, double)}, the returned function uses
+     * {@link GeographicProjection#fromGeo(double[], int, double[], int, int)} to project batches of points.
+     *
+     * @param projection the {@link GeographicProjection}
+     * @return a {@link ProjectionFunction} which converts geographic coordinates to map coordinates
+     */
+    static ProjectionFunction fromGeo(@NonNull GeographicProjection projection) {
+        return new ProjectionFunction() {
+            @Override
+            public double[] project(double lon, double lat) throws OutOfProjectionBoundsException {
+                return projection.fromGeo(lon, lat);
+            }
+
+            @Override
+            public void project(@NonNull double[] src, int srcOff, @NonNull double[] dst, int dstOff, int count) throws OutOfProjectionBoundsException {
+                if (!projection.fromGeo(src, srcOff, dst, dstOff, count)) {
+                    throw OutOfProjectionBoundsException.get();
+                }
+            }
+        };
+    }
+
+    /**
+     * Gets a {@link ProjectionFunction} which converts map coordinates to geographic coordinates using the given {@link GeographicProjection}.
+     * <p>
+     * Unlike a method reference to {@link GeographicProjection#toGeo(double, double)}, the returned function uses
+     * {@link GeographicProjection#toGeo(double[], int, double[], int, int)} to project batches of points.
+     *
+     * @param projection the {@link GeographicProjection}
+     * @return a {@link ProjectionFunction} which converts map coordinates to geographic coordinates
+     */
+    static ProjectionFunction toGeo(@NonNull GeographicProjection projection) {
+        return new ProjectionFunction() {
+            @Override
+            public double[] project(double x, double y) throws OutOfProjectionBoundsException {
+                return projection.toGeo(x, y);
+            }
+
+            @Override
+            public void project(@NonNull double[] src, int srcOff, @NonNull double[] dst, int dstOff, int count) throws OutOfProjectionBoundsException {
+                if (!projection.toGeo(src, srcOff, dst, dstOff, count)) {
+                    throw OutOfProjectionBoundsException.get();
+                }
+            }
+        };
+    }
+
     double[] project(double lon_x, double lat_y) throws OutOfProjectionBoundsException;
+
+    /**
+     * Projects a batch of points, stored as interleaved coordinate pairs.
+     * <p>
+     * {@code src} and {@code dst} may be the same array, but only if {@code srcOff == dstOff}.
+     *
+     * @param src    the array containing the coordinates to project
+     * @param srcOff the index of the first coordinate in {@code src}
+     * @param dst    the array to write the projected coordinates to
+     * @param dstOff the index of the first coordinate in {@code dst}
+     * @param count  the number of points to project
+     * @throws OutOfProjectionBoundsException if any of the points could not be projected
+     */
+    default void project(@NonNull double[] src, int srcOff, @NonNull double[] dst, int dstOff, int count) throws OutOfProjectionBoundsException {
+        for (int i = 0; i < count; i++, srcOff += 2, dstOff += 2) {
+            double[] proj = this.project(src[srcOff], src[srcOff + 1]);
+            dst[dstOff] = proj[0];
+            dst[dstOff + 1] = proj[1];
+        }
+    }
 }
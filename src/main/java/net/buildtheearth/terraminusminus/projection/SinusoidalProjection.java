@@ -1,6 +1,7 @@
 package net.buildtheearth.terraminusminus.projection;
 
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import lombok.NonNull;
 
 import net.buildtheearth.terraminusminus.TerraConstants;
 
@@ -22,6 +23,34 @@ public class SinusoidalProjection implements GeographicProjection {
         return new double[]{ longitude * Math.cos(Math.toRadians(latitude)), latitude };
     }
 
+    @Override
+    public boolean toGeo(@NonNull double[] src, int srcOff, @NonNull double[] dst, int dstOff, int count) {
+        for (int i = 0; i < count; i++, srcOff += 2, dstOff += 2) {
+            double x = src[srcOff];
+            double y = src[srcOff + 1];
+            dst[dstOff] = x / Math.cos(Math.toRadians(y));
+            dst[dstOff + 1] = y;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean fromGeo(@NonNull double[] src, int srcOff, @NonNull double[] dst, int dstOff, int count) {
+        boolean valid = true;
+        for (int i = 0; i < count; i++, srcOff += 2, dstOff += 2) {
+            double longitude = src[srcOff];
+            double latitude = src[srcOff + 1];
+            if (OutOfProjectionBoundsException.isLongitudeLatitudeInRange(longitude, latitude)) {
+                dst[dstOff] = longitude * Math.cos(Math.toRadians(latitude));
+                dst[dstOff + 1] = latitude;
+            } else {
+                dst[dstOff] = dst[dstOff + 1] = Double.NaN;
+                valid = false;
+            }
+        }
+        return valid;
+    }
+
     @Override
     public double metersPerUnit() {
         return TerraConstants.EARTH_CIRCUMFERENCE / 360.0; //gotta make good on that exact area
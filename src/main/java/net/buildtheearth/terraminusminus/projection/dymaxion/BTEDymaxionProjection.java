@@ -1,7 +1,7 @@
 package net.buildtheearth.terraminusminus.projection.dymaxion;
 
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
-
+import lombok.NonNull;
 import net.buildtheearth.terraminusminus.projection.OutOfProjectionBoundsException;
 import net.buildtheearth.terraminusminus.util.MathUtils;
 
@@ -31,8 +31,25 @@ public class BTEDymaxionProjection extends ConformalDynmaxionProjection {
     @Override
     public double[] fromGeo(double longitude, double latitude) throws OutOfProjectionBoundsException {
         double[] c = super.fromGeo(longitude, latitude);
-        double x = c[0];
-        double y = c[1];
+        this.fromConformal(c, 0);
+        return c;
+    }
+
+    @Override
+    public boolean fromGeo(@NonNull double[] src, int srcOff, @NonNull double[] dst, int dstOff, int count) {
+        boolean valid = super.fromGeo(src, srcOff, dst, dstOff, count);
+        for (int i = 0; i < count; i++, dstOff += 2) {
+            this.fromConformal(dst, dstOff);
+        }
+        return valid;
+    }
+
+    /**
+     * Moves a point from the conformal Dymaxion projection into its position on this projection, in-place.
+     */
+    protected void fromConformal(double[] c, int off) {
+        double x = c[off];
+        double y = c[off + 1];
 
         boolean easia = this.isEurasianPart(x, y);
 
@@ -49,13 +66,37 @@ public class BTEDymaxionProjection extends ConformalDynmaxionProjection {
             x -= ARC;
         }
 
-        c[0] = y;
-        c[1] = -x;
-        return c;
+        c[off] = y;
+        c[off + 1] = -x;
     }
 
     @Override
     public double[] toGeo(double x, double y) throws OutOfProjectionBoundsException {
+        double[] c = new double[2];
+        if (!this.toConformal(x, y, c, 0)) {
+            throw OutOfProjectionBoundsException.get();
+        }
+        return super.toGeo(c[0], c[1]);
+    }
+
+    @Override
+    public boolean toGeo(@NonNull double[] src, int srcOff, @NonNull double[] dst, int dstOff, int count) {
+        boolean valid = true;
+        for (int i = 0, s = srcOff, d = dstOff; i < count; i++, s += 2, d += 2) {
+            if (!this.toConformal(src[s], src[s + 1], dst, d)) {
+                dst[d] = dst[d + 1] = Double.NaN;
+                valid = false;
+            }
+        }
+        return super.toGeo(dst, dstOff, dst, dstOff, count) & valid;
+    }
+
+    /**
+     * Moves a point on this projection back to its position on the conformal Dymaxion projection.
+     *
+     * @return whether or not the point is within the projection bounds. If {@code false}, nothing will have been written to {@code dst}
+     */
+    protected boolean toConformal(double x, double y, double[] dst, int dstOff) {
         boolean easia;
         if (y < 0) {
             easia = x > 0;
@@ -83,10 +124,12 @@ public class BTEDymaxionProjection extends ConformalDynmaxionProjection {
 
         //check to make sure still in right part
         if (easia != this.isEurasianPart(x, y)) {
-            throw OutOfProjectionBoundsException.get();
+            return false;
         }
 
-        return super.toGeo(x, y);
+        dst[dstOff] = x;
+        dst[dstOff + 1] = y;
+        return true;
     }
 
     protected boolean isEurasianPart(double x, double y) {
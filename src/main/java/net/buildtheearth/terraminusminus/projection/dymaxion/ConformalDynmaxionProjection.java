@@ -24,6 +24,16 @@ public class ConformalDynmaxionProjection extends DymaxionProjection {
     protected static final double VECTOR_SCALE_FACTOR = 1.0d / 1.1473979730192934d;
     protected static final int SIDE_LENGTH = 256;
 
+    /**
+     * The maximum number of Newton's method iterations used when inverting the vector field.
+     */
+    protected static final int NEWTON_MAX_ITERATIONS = 5;
+
+    /**
+     * Newton's method stops iterating once a step moves the estimate by less than this distance (in template triangle units).
+     */
+    protected static final double NEWTON_TOLERANCE = 1.0e-12d;
+
     protected static final Cached<InvertableVectorField> INVERSE_CACHE = Cached.global((IOSupplier<InvertableVectorField>) () -> {
         double[][] vx = PArrays.filledBy(SIDE_LENGTH + 1, double[][]::new, i -> new double[SIDE_LENGTH + 1 - i]);
         double[][] vy = PArrays.filledBy(SIDE_LENGTH + 1, double[][]::new, i -> new double[SIDE_LENGTH + 1 - i]);
@@ -49,22 +59,7 @@ public class ConformalDynmaxionProjection extends DymaxionProjection {
     protected double[] triangleTransform(double[] vec) {
         double[] c = super.triangleTransform(vec);
 
-        double x = c[0];
-        double y = c[1];
-
-        c[0] /= ARC;
-        c[1] /= ARC;
-
-        c[0] += 0.5;
-        c[1] += MathUtils.ROOT3 / 6;
-
-        //use another interpolated vector to have a really good guess before using Newton's method
-        //Note: foward was removed for now, will need to be added back if this improvement is ever re-implemented
-        //c = forward.getInterpolatedVector(c[0], c[1]);
-        //c = inverse.applyNewtonsMethod(x, y, c[0]/ARC + 0.5, c[1]/ARC + ROOT3/6, 1);
-
-        //just use newtons method: slower
-        c = this.inverse.applyNewtonsMethod(x, y, c[0], c[1], 5);//c[0]/ARC + 0.5, c[1]/ARC + ROOT3/6
+        this.invertVectorField(c[0], c[1], c);
 
         c[0] -= 0.5;
         c[1] -= MathUtils.ROOT3 / 6;
@@ -75,6 +70,17 @@ public class ConformalDynmaxionProjection extends DymaxionProjection {
         return c;
     }
 
+    /**
+     * Finds the position on the template triangle which the vector field maps to the given point.
+     *
+     * @param x   the X coordinate of the point, relative to the template triangle's centroid
+     * @param y   the Y coordinate of the point, relative to the template triangle's centroid
+     * @param out an array of at least 2 elements to write the position on the template triangle to
+     */
+    protected void invertVectorField(double x, double y, double[] out) {
+        this.inverse.invert(x, y, out);
+    }
+
     @Override
     protected double[] inverseTriangleTransform(double x, double y) {
 
@@ -98,16 +104,92 @@ public class ConformalDynmaxionProjection extends DymaxionProjection {
         return "Conformal Dymaxion";
     }
 
-    private static class InvertableVectorField {
+    protected static class InvertableVectorField {
+        /**
+         * The number of lookup table cells along one unit of the template triangle.
+         */
+        private static final int LOOKUP_SCALE = SIDE_LENGTH;
+        private static final int LOOKUP_SIZE_X = LOOKUP_SCALE + 1;
+        private static final int LOOKUP_SIZE_Y = (int) Math.ceil(LOOKUP_SCALE * MathUtils.ROOT3 / 2) + 1;
+
+        //scratch space for the interpolated vector and its partial derivatives, so that inverting the vector field doesn't allocate anything
+        private static final Cached<double[]> SCRATCH_CACHE = Cached.threadLocal(() -> new double[6], ReferenceStrength.SOFT);
+
         private final double[][] vx;
         private final double[][] vy;
 
+        //approximate inverse of the vector field, sampled on a regular grid over the template triangle's bounding box
+        private final double[] lookupX;
+        private final double[] lookupY;
+
         public InvertableVectorField(double[][] vx, double[][] vy) {
             this.vx = vx;
             this.vy = vy;
+
+            this.lookupX = new double[LOOKUP_SIZE_X * LOOKUP_SIZE_Y];
+            this.lookupY = new double[LOOKUP_SIZE_X * LOOKUP_SIZE_Y];
+
+            double[] scratch = SCRATCH_CACHE.get();
+            double[] out = new double[2];
+            for (int i = 0, ly = 0; ly < LOOKUP_SIZE_Y; ly++) {
+                for (int lx = 0; lx < LOOKUP_SIZE_X; lx++, i++) {
+                    double x = lx / (double) LOOKUP_SCALE;
+                    double y = ly / (double) LOOKUP_SCALE;
+
+                    //solve starting from the identity, allowing plenty of iterations since this is only done once
+                    this.applyNewtonsMethod((x - 0.5) * ARC, (y - MathUtils.ROOT3 / 6) * ARC, x, y, NEWTON_MAX_ITERATIONS * 4, scratch, out);
+                    if (Double.isFinite(out[0]) && Double.isFinite(out[1])) {
+                        this.lookupX[i] = out[0];
+                        this.lookupY[i] = out[1];
+                    } else { //fall back to the identity
+                        this.lookupX[i] = x;
+                        this.lookupY[i] = y;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Finds the position on the template triangle which this vector field maps to the given point.
+         * <p>
+         * An initial estimate is interpolated from the lookup table, which is then refined using Newton's method until it converges.
+         *
+         * @param expectedf the X coordinate of the point, relative to the template triangle's centroid
+         * @param expectedg the Y coordinate of the point, relative to the template triangle's centroid
+         * @param out       an array of at least 2 elements to write the position on the template triangle to
+         */
+        public void invert(double expectedf, double expectedg, double[] out) {
+            double x = (expectedf / ARC + 0.5) * LOOKUP_SCALE;
+            double y = (expectedg / ARC + MathUtils.ROOT3 / 6) * LOOKUP_SCALE;
+
+            int lx = Math.max(Math.min((int) Math.floor(x), LOOKUP_SIZE_X - 2), 0);
+            int ly = Math.max(Math.min((int) Math.floor(y), LOOKUP_SIZE_Y - 2), 0);
+            double fx = x - lx;
+            double fy = y - ly;
+
+            int i = ly * LOOKUP_SIZE_X + lx;
+            double xest = lerp(lerp(this.lookupX[i], this.lookupX[i + 1], fx), lerp(this.lookupX[i + LOOKUP_SIZE_X], this.lookupX[i + LOOKUP_SIZE_X + 1], fx), fy);
+            double yest = lerp(lerp(this.lookupY[i], this.lookupY[i + 1], fx), lerp(this.lookupY[i + LOOKUP_SIZE_X], this.lookupY[i + LOOKUP_SIZE_X + 1], fx), fy);
+
+            this.applyNewtonsMethod(expectedf, expectedg, xest, yest, NEWTON_MAX_ITERATIONS, SCRATCH_CACHE.get(), out);
+        }
+
+        private static double lerp(double a, double b, double t) {
+            return a + (b - a) * t;
         }
 
         public double[] getInterpolatedVector(double x, double y) {
+            double[] out = new double[6];
+            this.getInterpolatedVector(x, y, out);
+            return out;
+        }
+
+        /**
+         * Gets the interpolation cell containing the given position. The vector field is linear within each cell.
+         *
+         * @return an opaque ID for the cell
+         */
+        private static int cell(double x, double y) {
             //scale up triangle to be triangleSize across
             x *= SIDE_LENGTH;
             y *= SIDE_LENGTH;
@@ -131,6 +213,26 @@ public class ConformalDynmaxionProjection extends DymaxionProjection {
                 v1 = SIDE_LENGTH - u1 - 1;
             }
 
+            boolean lower = y < -MathUtils.ROOT3 * (x - u1 - v1 - 1) || v1 == SIDE_LENGTH - u1 - 1;
+            return ((u1 * SIDE_LENGTH + v1) << 1) | (lower ? 0 : 1);
+        }
+
+        /**
+         * Interpolates the vector field at the given position, writing the vector followed by its partial derivatives to the given array.
+         *
+         * @param out an array of at least 6 elements to write the result to
+         * @return the ID of the interpolation cell containing the given position
+         * @see #cell(double, double)
+         */
+        public int getInterpolatedVector(double x, double y, double[] out) {
+            int cell = cell(x, y);
+            int u1 = (cell >> 1) / SIDE_LENGTH;
+            int v1 = (cell >> 1) % SIDE_LENGTH;
+
+            //scale up triangle to be triangleSize across
+            x *= SIDE_LENGTH;
+            y *= SIDE_LENGTH;
+
             double valx1;
             double valy1;
             double valx2;
@@ -142,7 +244,7 @@ public class ConformalDynmaxionProjection extends DymaxionProjection {
 
             double flip = 1;
 
-            if (y < -MathUtils.ROOT3 * (x - u1 - v1 - 1) || v1 == SIDE_LENGTH - u1 - 1) {
+            if ((cell & 1) == 0) {
                 valx1 = this.vx[u1][v1];
                 valy1 = this.vy[u1][v1];
                 valx2 = this.vx[u1][v1 + 1];
@@ -172,9 +274,13 @@ public class ConformalDynmaxionProjection extends DymaxionProjection {
             double w2 = 2 * (y - y3) / MathUtils.ROOT3;
             double w3 = 1 - w1 - w2;
 
-            return new double[]{ valx1 * w1 + valx2 * w2 + valx3 * w3, valy1 * w1 + valy2 * w2 + valy3 * w3,
-                    (valx3 - valx1) * SIDE_LENGTH, SIDE_LENGTH * flip * (2 * valx2 - valx1 - valx3) / MathUtils.ROOT3,
-                    (valy3 - valy1) * SIDE_LENGTH, SIDE_LENGTH * flip * (2 * valy2 - valy1 - valy3) / MathUtils.ROOT3 };
+            out[0] = valx1 * w1 + valx2 * w2 + valx3 * w3;
+            out[1] = valy1 * w1 + valy2 * w2 + valy3 * w3;
+            out[2] = (valx3 - valx1) * SIDE_LENGTH;
+            out[3] = SIDE_LENGTH * flip * (2 * valx2 - valx1 - valx3) / MathUtils.ROOT3;
+            out[4] = (valy3 - valy1) * SIDE_LENGTH;
+            out[5] = SIDE_LENGTH * flip * (2 * valy2 - valy1 - valy3) / MathUtils.ROOT3;
+            return cell;
         }
 
         public double[] applyNewtonsMethod(double expectedf, double expectedg, double xest, double yest, int iter) {
@@ -196,5 +302,40 @@ public class ConformalDynmaxionProjection extends DymaxionProjection {
 
             return new double[]{ xest, yest };
         }
+
+        /**
+         * Same as {@link #applyNewtonsMethod(double, double, double, double, int)}, but stops early once the estimate has converged and doesn't
+         * allocate any arrays.
+         *
+         * @param scratch an array of at least 6 elements to use as scratch space
+         * @param out     an array of at least 2 elements to write the result to
+         */
+        public void applyNewtonsMethod(double expectedf, double expectedg, double xest, double yest, int iter, double[] scratch, double[] out) {
+            for (int i = 0; i < iter; i++) {
+                int cell = this.getInterpolatedVector(xest, yest, scratch);
+
+                double f = scratch[0] - expectedf;
+                double g = scratch[1] - expectedg;
+                double dfdx = scratch[2];
+                double dfdy = scratch[3];
+                double dgdx = scratch[4];
+                double dgdy = scratch[5];
+
+                double determinant = 1 / (dfdx * dgdy - dfdy * dgdx);
+
+                double dx = determinant * (dgdy * f - dfdy * g);
+                double dy = determinant * (-dgdx * f + dfdx * g);
+                xest -= dx;
+                yest -= dy;
+
+                //the vector field is linear within each cell, so the step was exact if it didn't leave the cell
+                if (cell(xest, yest) == cell || dx * dx + dy * dy < NEWTON_TOLERANCE * NEWTON_TOLERANCE) { //converged
+                    break;
+                }
+            }
+
+            out[0] = xest;
+            out[1] = yest;
+        }
     }
 }
\ No newline at end of file
@@ -1,7 +1,7 @@
 package net.buildtheearth.terraminusminus.projection.dymaxion;
 
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
-
+import lombok.NonNull;
 import net.buildtheearth.terraminusminus.projection.GeographicProjection;
 import net.buildtheearth.terraminusminus.projection.OutOfProjectionBoundsException;
 import net.buildtheearth.terraminusminus.util.MathUtils;
@@ -253,14 +253,21 @@ public class DymaxionProjection implements GeographicProjection {
      * @return an integer identifying the face on which to project the point
      */
     protected int findTriangle(double[] vector) {
+        return this.findTriangle(vector[0], vector[1], vector[2]);
+    }
+
+    /**
+     * @see #findTriangle(double[])
+     */
+    protected int findTriangle(double x, double y, double z) {
 
         double min = Double.MAX_VALUE;
         int face = 0;
 
         for (int i = 0; i < 20; i++) {
-            double xd = CENTROIDS[i][0] - vector[0];
-            double yd = CENTROIDS[i][1] - vector[1];
-            double zd = CENTROIDS[i][2] - vector[2];
+            double xd = CENTROIDS[i][0] - x;
+            double yd = CENTROIDS[i][1] - y;
+            double zd = CENTROIDS[i][2] - z;
 
             double dissq = xd * xd + yd * yd + zd * zd;
             if (dissq < min) {
@@ -349,40 +356,107 @@ public class DymaxionProjection implements GeographicProjection {
     	
     	OutOfProjectionBoundsException.checkLongitudeLatitudeInRange(longitude, latitude);
 
-        double[] vector = MathUtils.spherical2Cartesian(MathUtils.geo2Spherical(new double[]{ longitude, latitude }));
+        double[] proj = new double[2];
+        this.fromGeo0(longitude, latitude, new double[3], proj, 0);
+        return proj;
+    }
 
-        int face = this.findTriangle(vector);
+    @Override
+    public boolean fromGeo(@NonNull double[] src, int srcOff, @NonNull double[] dst, int dstOff, int count) {
+        double[] pvec = new double[3];
+
+        boolean valid = true;
+        for (int i = 0; i < count; i++, srcOff += 2, dstOff += 2) {
+            double longitude = src[srcOff];
+            double latitude = src[srcOff + 1];
+            if (OutOfProjectionBoundsException.isLongitudeLatitudeInRange(longitude, latitude)) {
+                this.fromGeo0(longitude, latitude, pvec, dst, dstOff);
+            } else {
+                dst[dstOff] = dst[dstOff + 1] = Double.NaN;
+                valid = false;
+            }
+        }
+        return valid;
+    }
+
+    /**
+     * Projects a single point, which must already have been checked to be in range.
+     *
+     * @param pvec   a scratch array of length 3
+     * @param dst    the array to write the projected {x, y} coordinates to
+     * @param dstOff the index in {@code dst} to write the projected coordinates at
+     */
+    protected void fromGeo0(double longitude, double latitude, double[] pvec, double[] dst, int dstOff) {
+        //convert to spherical, then cartesian coordinates
+        double lambda = Math.toRadians(longitude);
+        double phi = Math.toRadians(90 - latitude);
+        double sinphi = Math.sin(phi);
+        double vx = sinphi * Math.cos(lambda);
+        double vy = sinphi * Math.sin(lambda);
+        double vz = Math.cos(phi);
+
+        int face = this.findTriangle(vx, vy, vz);
 
         //apply rotation matrix (move triangle onto template triangle)
-        double[] pvec = MathUtils.matVecProdD(ROTATION_MATRICES[face], vector);
+        double[][] matrix = ROTATION_MATRICES[face];
+        pvec[0] = matrix[0][0] * vx + matrix[0][1] * vy + matrix[0][2] * vz;
+        pvec[1] = matrix[1][0] * vx + matrix[1][1] * vy + matrix[1][2] * vz;
+        pvec[2] = matrix[2][0] * vx + matrix[2][1] * vy + matrix[2][2] * vz;
         double[] projectedVec = this.triangleTransform(pvec);
+        double x = projectedVec[0];
+        double y = projectedVec[1];
 
         //flip triangle to correct orientation
         if (FLIP_TRIANGLE[face]) {
-            projectedVec[0] = -projectedVec[0];
-            projectedVec[1] = -projectedVec[1];
+            x = -x;
+            y = -y;
         }
 
-        vector[0] = projectedVec[0];
         //deal with special snowflakes (child faces 20, 21)
-        if (((face == 15 && vector[0] > projectedVec[1] * MathUtils.ROOT3) || face == 14) && vector[0] > 0) {
-            projectedVec[0] = 0.5 * vector[0] - 0.5 * MathUtils.ROOT3 * projectedVec[1];
-            projectedVec[1] = 0.5 * MathUtils.ROOT3 * vector[0] + 0.5 * projectedVec[1];
+        if (((face == 15 && x > y * MathUtils.ROOT3) || face == 14) && x > 0) {
+            double t = x;
+            x = 0.5 * t - 0.5 * MathUtils.ROOT3 * y;
+            y = 0.5 * MathUtils.ROOT3 * t + 0.5 * y;
             face += 6; //shift 14->20 & 15->21
         }
 
-        projectedVec[0] += CENTER_MAP[face][0];
-        projectedVec[1] += CENTER_MAP[face][1];
-
-        return projectedVec;
+        dst[dstOff] = x + CENTER_MAP[face][0];
+        dst[dstOff + 1] = y + CENTER_MAP[face][1];
     }
 
     @Override
     public double[] toGeo(double x, double y) throws OutOfProjectionBoundsException {
+        double[] geo = new double[2];
+        if (!this.toGeo0(x, y, geo, 0)) {
+            throw OutOfProjectionBoundsException.get();
+        }
+        return geo;
+    }
+
+    @Override
+    public boolean toGeo(@NonNull double[] src, int srcOff, @NonNull double[] dst, int dstOff, int count) {
+        boolean valid = true;
+        for (int i = 0; i < count; i++, srcOff += 2, dstOff += 2) {
+            if (!this.toGeo0(src[srcOff], src[srcOff + 1], dst, dstOff)) {
+                dst[dstOff] = dst[dstOff + 1] = Double.NaN;
+                valid = false;
+            }
+        }
+        return valid;
+    }
+
+    /**
+     * Converts a single point to geographic coordinates.
+     *
+     * @param dst    the array to write the {longitude, latitude} coordinates to
+     * @param dstOff the index in {@code dst} to write the geographic coordinates at
+     * @return whether or not the point is within the projection bounds. If {@code false}, nothing will have been written to {@code dst}
+     */
+    protected boolean toGeo0(double x, double y, double[] dst, int dstOff) {
         int face = findTriangleGrid(x, y);
 
         if (face == -1) {
-            throw OutOfProjectionBoundsException.get();
+            return false;
         }
 
         x -= CENTER_MAP[face][0];
@@ -392,22 +466,22 @@ public class DymaxionProjection implements GeographicProjection {
         switch (face) {
             case 14:
                 if (x > 0) {
-                    throw OutOfProjectionBoundsException.get();
+                    return false;
                 }
                 break;
             case 20:
                 if (-y * MathUtils.ROOT3 > x) {
-                    throw OutOfProjectionBoundsException.get();
+                    return false;
                 }
                 break;
             case 15:
                 if (x > 0 && x > y * MathUtils.ROOT3) {
-                    throw OutOfProjectionBoundsException.get();
+                    return false;
                 }
                 break;
             case 21:
                 if (x < 0 || -y * MathUtils.ROOT3 > x) {
-                    throw OutOfProjectionBoundsException.get();
+                    return false;
                 }
                 break;
         }
@@ -420,16 +494,17 @@ public class DymaxionProjection implements GeographicProjection {
 
         //invert triangle transform
         double[] c = this.inverseTriangleTransform(x, y);
-        x = c[0];
-        y = c[1];
-        double z = c[2];
 
-        double[] vec = { x, y, z };
         //apply inverse rotation matrix (move triangle from template triangle to correct position on globe)
-        double[] vecp = MathUtils.matVecProdD(INVERSE_ROTATION_MATRICES[face], vec);
-
-        //convert back to geo coordinates
-        return MathUtils.spherical2Geo(MathUtils.cartesian2Spherical(vecp));
+        double[][] matrix = INVERSE_ROTATION_MATRICES[face];
+        double vx = matrix[0][0] * c[0] + matrix[0][1] * c[1] + matrix[0][2] * c[2];
+        double vy = matrix[1][0] * c[0] + matrix[1][1] * c[1] + matrix[1][2] * c[2];
+        double vz = matrix[2][0] * c[0] + matrix[2][1] * c[1] + matrix[2][2] * c[2];
+
+        //convert back to spherical, then geo coordinates
+        dst[dstOff] = Math.toDegrees(Math.atan2(vy, vx));
+        dst[dstOff + 1] = 90 - Math.toDegrees(Math.atan2(Math.sqrt(vx * vx + vy * vy), vz));
+        return true;
     }
 
     @Override
@@ -5,6 +5,7 @@ import com.fasterxml.jackson.annotation.JsonGetter;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import lombok.Getter;
+import lombok.NonNull;
 import net.buildtheearth.terraminusminus.projection.GeographicProjection;
 import net.buildtheearth.terraminusminus.projection.OutOfProjectionBoundsException;
 import net.buildtheearth.terraminusminus.util.MathUtils;
@@ -62,6 +63,40 @@ public class WebMercatorProjection implements GeographicProjection {
         };
     }
 
+    @Override
+    public boolean toGeo(@NonNull double[] src, int srcOff, @NonNull double[] dst, int dstOff, int count) {
+        boolean valid = true;
+        for (int i = 0; i < count; i++, srcOff += 2, dstOff += 2) {
+            double x = src[srcOff];
+            double y = src[srcOff + 1];
+            if (x < 0 || y < 0 || x > this.scaleFrom || y > this.scaleFrom) {
+                dst[dstOff] = dst[dstOff + 1] = Double.NaN;
+                valid = false;
+            } else {
+                dst[dstOff] = Math.toDegrees(this.scaleTo * x * MathUtils.TAU - Math.PI);
+                dst[dstOff + 1] = Math.toDegrees(Math.atan(Math.exp(Math.PI - this.scaleTo * y * MathUtils.TAU)) * 2 - Math.PI / 2);
+            }
+        }
+        return valid;
+    }
+
+    @Override
+    public boolean fromGeo(@NonNull double[] src, int srcOff, @NonNull double[] dst, int dstOff, int count) {
+        boolean valid = true;
+        for (int i = 0; i < count; i++, srcOff += 2, dstOff += 2) {
+            double longitude = src[srcOff];
+            double latitude = src[srcOff + 1];
+            if (OutOfProjectionBoundsException.isInRange(longitude, latitude, 180, LIMIT_LATITUDE)) {
+                dst[dstOff] = this.scaleFrom * (Math.toRadians(longitude) + Math.PI) / MathUtils.TAU;
+                dst[dstOff + 1] = this.scaleFrom * (Math.PI - Math.log(Math.tan((Math.PI / 2 + Math.toRadians(latitude)) / 2))) / MathUtils.TAU;
+            } else {
+                dst[dstOff] = dst[dstOff + 1] = Double.NaN;
+                valid = false;
+            }
+        }
+        return valid;
+    }
+
     @Override
     public double[] bounds() {
         return new double[]{ 0, 0, this.scaleFrom, this.scaleFrom };
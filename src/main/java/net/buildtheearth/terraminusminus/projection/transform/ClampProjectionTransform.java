@@ -6,6 +6,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.google.common.base.Preconditions;
 import lombok.Getter;
+import lombok.NonNull;
 import net.buildtheearth.terraminusminus.projection.GeographicProjection;
 import net.buildtheearth.terraminusminus.projection.OutOfProjectionBoundsException;
 
@@ -62,6 +63,37 @@ public class ClampProjectionTransform extends ProjectionTransform {
         return pos;
     }
 
+    @Override
+    public boolean toGeo(@NonNull double[] src, int srcOff, @NonNull double[] dst, int dstOff, int count) {
+        boolean valid = true;
+        for (int i = 0, s = srcOff, d = dstOff; i < count; i++, s += 2, d += 2) {
+            double x = src[s];
+            double y = src[s + 1];
+            if (x < this.minX || x > this.maxX || y < this.minY || y > this.maxY) {
+                dst[d] = dst[d + 1] = Double.NaN;
+                valid = false;
+            } else {
+                dst[d] = x;
+                dst[d + 1] = y;
+            }
+        }
+        return super.delegate.toGeo(dst, dstOff, dst, dstOff, count) & valid;
+    }
+
+    @Override
+    public boolean fromGeo(@NonNull double[] src, int srcOff, @NonNull double[] dst, int dstOff, int count) {
+        boolean valid = super.delegate.fromGeo(src, srcOff, dst, dstOff, count);
+        for (int i = 0, d = dstOff; i < count; i++, d += 2) {
+            double x = dst[d];
+            double y = dst[d + 1];
+            if (x < this.minX || x > this.maxX || y < this.minY || y > this.maxY) {
+                dst[d] = dst[d + 1] = Double.NaN;
+                valid = false;
+            }
+        }
+        return valid;
+    }
+
     @Override
     public String toString() {
         return "Clamp (" + super.delegate + ") to " + Arrays.toString(this.bounds());
@@ -6,6 +6,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.google.common.base.Preconditions;
 import lombok.Getter;
+import lombok.NonNull;
 import net.buildtheearth.terraminusminus.projection.GeographicProjection;
 import net.buildtheearth.terraminusminus.projection.OutOfProjectionBoundsException;
 
@@ -81,6 +82,29 @@ public class RotateProjectionTransform extends ProjectionTransform {
         };
     }
 
+    @Override
+    public boolean toGeo(@NonNull double[] src, int srcOff, @NonNull double[] dst, int dstOff, int count) {
+        for (int i = 0, s = srcOff, d = dstOff; i < count; i++, s += 2, d += 2) {
+            double x = src[s];
+            double y = src[s + 1];
+            dst[d] = x * this.cos - y * this.sin;
+            dst[d + 1] = x * this.sin + y * this.cos;
+        }
+        return super.delegate.toGeo(dst, dstOff, dst, dstOff, count);
+    }
+
+    @Override
+    public boolean fromGeo(@NonNull double[] src, int srcOff, @NonNull double[] dst, int dstOff, int count) {
+        boolean valid = super.delegate.fromGeo(src, srcOff, dst, dstOff, count);
+        for (int i = 0, d = dstOff; i < count; i++, d += 2) {
+            double x = dst[d];
+            double y = dst[d + 1];
+            dst[d] = x * this.cosBackwards - y * this.sinBackwards;
+            dst[d + 1] = x * this.sinBackwards + y * this.cosBackwards;
+        }
+        return valid;
+    }
+
     @Override
     public String toString() {
         return "Rotate (" + super.delegate + ") by " + this.by + " degrees";
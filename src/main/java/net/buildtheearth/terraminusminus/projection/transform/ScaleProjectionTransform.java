@@ -6,6 +6,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.google.common.base.Preconditions;
 import lombok.Getter;
+import lombok.NonNull;
 import net.buildtheearth.terraminusminus.projection.GeographicProjection;
 import net.buildtheearth.terraminusminus.projection.OutOfProjectionBoundsException;
 
@@ -51,6 +52,25 @@ public class ScaleProjectionTransform extends ProjectionTransform {
         return p;
     }
 
+    @Override
+    public boolean toGeo(@NonNull double[] src, int srcOff, @NonNull double[] dst, int dstOff, int count) {
+        for (int i = 0, s = srcOff, d = dstOff; i < count; i++, s += 2, d += 2) {
+            dst[d] = src[s] / this.x;
+            dst[d + 1] = src[s + 1] / this.y;
+        }
+        return this.delegate.toGeo(dst, dstOff, dst, dstOff, count);
+    }
+
+    @Override
+    public boolean fromGeo(@NonNull double[] src, int srcOff, @NonNull double[] dst, int dstOff, int count) {
+        boolean valid = this.delegate.fromGeo(src, srcOff, dst, dstOff, count);
+        for (int i = 0, d = dstOff; i < count; i++, d += 2) {
+            dst[d] *= this.x;
+            dst[d + 1] *= this.y;
+        }
+        return valid;
+    }
+
     @Override
     public boolean upright() {
         return (this.y < 0) ^ this.delegate.upright();
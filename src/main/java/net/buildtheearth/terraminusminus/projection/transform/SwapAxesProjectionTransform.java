@@ -3,6 +3,7 @@ package net.buildtheearth.terraminusminus.projection.transform;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import lombok.NonNull;
 
 import net.buildtheearth.terraminusminus.projection.GeographicProjection;
 import net.buildtheearth.terraminusminus.projection.OutOfProjectionBoundsException;
@@ -36,6 +37,27 @@ public class SwapAxesProjectionTransform extends ProjectionTransform {
         return p;
     }
 
+    @Override
+    public boolean toGeo(@NonNull double[] src, int srcOff, @NonNull double[] dst, int dstOff, int count) {
+        for (int i = 0, s = srcOff, d = dstOff; i < count; i++, s += 2, d += 2) {
+            double t = src[s];
+            dst[d] = src[s + 1];
+            dst[d + 1] = t;
+        }
+        return this.delegate.toGeo(dst, dstOff, dst, dstOff, count);
+    }
+
+    @Override
+    public boolean fromGeo(@NonNull double[] src, int srcOff, @NonNull double[] dst, int dstOff, int count) {
+        boolean valid = this.delegate.fromGeo(src, srcOff, dst, dstOff, count);
+        for (int i = 0, d = dstOff; i < count; i++, d += 2) {
+            double t = dst[d];
+            dst[d] = dst[d + 1];
+            dst[d + 1] = t;
+        }
+        return valid;
+    }
+
     @Override
     public double[] bounds() {
         double[] b = this.delegate.bounds();
@@ -17,6 +17,76 @@ import static net.daporkchop.lib.common.util.PValidation.*;
  */
 @ToString
 public class CornerBoundingBox2d implements Bounds2d {
+    /**
+     * Splits the given axis-aligned area into a grid of equally sized square cells, and converts each cell into a {@link CornerBoundingBox2d} in
+     * geographic coordinates.
+     * <p>
+     * The result is equivalent to calling {@code Bounds2d.of(...).toCornerBB(proj, false).toGeo()} on every cell individually, except that each
+     * grid corner is only projected once, even though it is shared by up to 4 cells.
+     *
+     * @param x        the minimum X coordinate of the grid (in local coordinates)
+     * @param z        the minimum Z coordinate of the grid (in local coordinates)
+     * @param cellSize the side length of a single cell
+     * @param countX   the number of cells along the X axis
+     * @param countZ   the number of cells along the Z axis
+     * @param proj     the {@link GeographicProjection} to use
+     * @return the cells in geographic coordinates, indexed by {@code cellX * countZ + cellZ}. Cells which are even partially out of valid
+     * projection bounds are {@code null}.
+     */
+    public static CornerBoundingBox2d[] toGeoGrid(double x, double z, double cellSize, int countX, int countZ, @NonNull GeographicProjection proj) {
+        notNegative(countX, "countX");
+        notNegative(countZ, "countZ");
+
+        //project every corner exactly once
+        int cornersZ = countZ + 1;
+        int cornerCount = (countX + 1) * cornersZ;
+        double[] corners = new double[cornerCount << 1];
+        for (int i = 0, cx = 0; cx <= countX; cx++) {
+            for (int cz = 0; cz <= countZ; cz++, i += 2) {
+                corners[i] = x + cx * cellSize;
+                corners[i + 1] = z + cz * cellSize;
+            }
+        }
+        proj.toGeo(corners, 0, corners, 0, cornerCount);
+
+        //the corners must also be valid in geographic coordinates
+        double[] check = new double[cornerCount << 1];
+        proj.fromGeo(corners, 0, check, 0, cornerCount);
+        for (int i = 0; i < corners.length; i += 2) {
+            if (Double.isNaN(check[i])) {
+                corners[i] = corners[i + 1] = Double.NaN;
+            }
+        }
+
+        CornerBoundingBox2d[] out = new CornerBoundingBox2d[countX * countZ];
+        for (int cx = 0; cx < countX; cx++) {
+            for (int cz = 0; cz < countZ; cz++) {
+                int i00 = (cx * cornersZ + cz) << 1;
+                int i01 = i00 + 2;
+                int i10 = i00 + (cornersZ << 1);
+                int i11 = i10 + 2;
+                if (Double.isNaN(corners[i00]) || Double.isNaN(corners[i01]) || Double.isNaN(corners[i10]) || Double.isNaN(corners[i11])) {
+                    continue;
+                }
+
+                double localX = x + cx * cellSize;
+                double localZ = z + cz * cellSize;
+                CornerBoundingBox2d local = new CornerBoundingBox2d(
+                        localX, localX, localX + cellSize, localX + cellSize,
+                        localZ, localZ + cellSize, localZ, localZ + cellSize,
+                        proj, false);
+                CornerBoundingBox2d geo = new CornerBoundingBox2d(
+                        corners[i00], corners[i01], corners[i10], corners[i11],
+                        corners[i00 + 1], corners[i01 + 1], corners[i10 + 1], corners[i11 + 1],
+                        proj, true);
+                local.other = geo;
+                geo.other = local;
+                out[cx * countZ + cz] = geo;
+            }
+        }
+        return out;
+    }
+
     protected final double lon00;
     protected final double lon01;
     protected final double lon10;
@@ -63,6 +133,24 @@ public class CornerBoundingBox2d implements Bounds2d {
         this.validate();
     }
 
+    /**
+     * Creates a new {@link CornerBoundingBox2d} without validating it.
+     * <p>
+     * Only for use when the corners are already known to be within valid projection bounds.
+     */
+    protected CornerBoundingBox2d(double lon00, double lon01, double lon10, double lon11, double lat00, double lat01, double lat10, double lat11, @NonNull GeographicProjection proj, boolean geo) {
+        this.lon00 = lon00;
+        this.lon01 = lon01;
+        this.lon10 = lon10;
+        this.lon11 = lon11;
+        this.lat00 = lat00;
+        this.lat01 = lat01;
+        this.lat10 = lat10;
+        this.lat11 = lat11;
+        this.proj = proj;
+        this.geo = geo;
+    }
+
     /**
      * Gets the coordinates of a point in this bounding box.
      * <p>
@@ -118,12 +206,14 @@ public class CornerBoundingBox2d implements Bounds2d {
      */
     public CornerBoundingBox2d toGeo(@NonNull GeographicProjection proj) throws OutOfProjectionBoundsException {
         checkState(!this.geo, "already in geographic coordinates!");
+        double[] corners = this.corners();
+        if (!proj.toGeo(corners, 0, corners, 0, 4)) {
+            throw OutOfProjectionBoundsException.get();
+        }
         return new CornerBoundingBox2d(
-                proj.toGeo(this.lon00, this.lat00),
-                proj.toGeo(this.lon01, this.lat01),
-                proj.toGeo(this.lon10, this.lat10),
-                proj.toGeo(this.lon11, this.lat11),
-                proj, true);
+                corners[0], corners[2], corners[4], corners[6],
+                corners[1], corners[3], corners[5], corners[7],
+                proj, true).validate();
     }
 
     /**
@@ -131,12 +221,14 @@ public class CornerBoundingBox2d implements Bounds2d {
      */
     public CornerBoundingBox2d fromGeo(@NonNull GeographicProjection proj) throws OutOfProjectionBoundsException {
         checkState(this.geo, "already in local coordinates!");
+        double[] corners = this.corners();
+        if (!proj.fromGeo(corners, 0, corners, 0, 4)) {
+            throw OutOfProjectionBoundsException.get();
+        }
         return new CornerBoundingBox2d(
-                proj.fromGeo(this.lon00, this.lat00),
-                proj.fromGeo(this.lon01, this.lat01),
-                proj.fromGeo(this.lon10, this.lat10),
-                proj.fromGeo(this.lon11, this.lat11),
-                proj, false);
+                corners[0], corners[2], corners[4], corners[6],
+                corners[1], corners[3], corners[5], corners[7],
+                proj, false).validate();
     }
 
     /**
@@ -145,20 +237,27 @@ public class CornerBoundingBox2d implements Bounds2d {
      * @throws OutOfProjectionBoundsException if any part of this bounding box is out of valid projection bounds
      */
     public CornerBoundingBox2d validate() throws OutOfProjectionBoundsException {
-        if (this.geo) { //validate bounds
-            this.proj.fromGeo(this.lon00, this.lat00);
-            this.proj.fromGeo(this.lon01, this.lat01);
-            this.proj.fromGeo(this.lon10, this.lat10);
-            this.proj.fromGeo(this.lon11, this.lat11);
-        } else {
-            this.proj.toGeo(this.lon00, this.lat00);
-            this.proj.toGeo(this.lon01, this.lat01);
-            this.proj.toGeo(this.lon10, this.lat10);
-            this.proj.toGeo(this.lon11, this.lat11);
+        double[] corners = this.corners();
+        if (!(this.geo //validate bounds
+                ? this.proj.fromGeo(corners, 0, corners, 0, 4)
+                : this.proj.toGeo(corners, 0, corners, 0, 4))) {
+            throw OutOfProjectionBoundsException.get();
         }
         return this;
     }
 
+    /**
+     * @return the coordinates of this bounding box's corners, as interleaved coordinate pairs in the order 00, 01, 10, 11
+     */
+    protected double[] corners() {
+        return new double[]{
+                this.lon00, this.lat00,
+                this.lon01, this.lat01,
+                this.lon10, this.lat10,
+                this.lon11, this.lat11
+        };
+    }
+
     @Override
     public double minX() {
         return min(min(this.lon00, this.lon01), min(this.lon10, this.lon11));
@@ -0,0 +1,88 @@
+package net.buildtheearth.terraminusminus.util;
+
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Helper methods for propagating cancellation through chains of {@link CompletableFuture}s.
+ * <p>
+ * Cancelling a future returned by {@link CompletableFuture#thenApply(Function)} or {@link CompletableFuture#thenCompose(Function)} doesn't affect
+ * the futures it depends on, so any work which is still queued for them keeps running even though nobody is interested in the result anymore.
+ *
+ * @author DaPorkchop_
+ */
+@UtilityClass
+public class Futures {
+    /**
+     * Cancels the given dependencies once the given future is cancelled.
+     *
+     * @param future       the future
+     * @param dependencies the futures which the given future depends on. May contain {@code null} elements.
+     * @return the given future
+     */
+    public <F extends CompletableFuture<?>> F propagateCancellation(@NonNull F future, @NonNull CompletableFuture<?>... dependencies) {
+        future.whenComplete((v, t) -> {
+            if (future.isCancelled()) {
+                for (CompletableFuture<?> dependency : dependencies) {
+                    if (dependency != null) {
+                        dependency.cancel(false);
+                    }
+                }
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Equivalent to {@code src.thenCompose(function)}, except that cancelling the returned future also cancels {@code src} and the future
+     * returned by {@code function}.
+     */
+    public <T, U> CompletableFuture<U> thenCompose(@NonNull CompletableFuture<T> src, @NonNull Function<? super T, ? extends CompletableFuture<U>> function) {
+        CompletableFuture<U> dst = new CompletableFuture<>();
+        AtomicReference<CompletableFuture<U>> next = new AtomicReference<>();
+
+        src.whenComplete((v, t) -> {
+            if (t != null) {
+                dst.completeExceptionally(t);
+                return;
+            } else if (dst.isDone()) { //already cancelled, don't bother starting the next stage
+                return;
+            }
+
+            CompletableFuture<U> future;
+            try {
+                future = function.apply(v);
+            } catch (Throwable e) {
+                dst.completeExceptionally(e);
+                return;
+            }
+
+            next.set(future);
+            future.whenComplete((u, t1) -> {
+                if (t1 != null) {
+                    dst.completeExceptionally(t1);
+                } else {
+                    dst.complete(u);
+                }
+            });
+            if (dst.isCancelled()) { //cancelled while the next stage was being started
+                future.cancel(false);
+            }
+        });
+
+        dst.whenComplete((v, t) -> {
+            if (dst.isCancelled()) {
+                src.cancel(false);
+                CompletableFuture<U> future = next.get();
+                if (future != null) {
+                    future.cancel(false);
+                }
+            }
+        });
+        return dst;
+    }
+}
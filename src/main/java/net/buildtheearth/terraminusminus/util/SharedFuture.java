@@ -0,0 +1,65 @@
+package net.buildtheearth.terraminusminus.util;
+
+import lombok.NonNull;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Shares the result of a single {@link CompletableFuture} between multiple consumers, while allowing each consumer to cancel its interest in
+ * the result individually.
+ * <p>
+ * Every consumer is given its own copy of the future. Cancelling a copy only affects that copy, but once every copy which has been handed out
+ * has been cancelled before the shared future completed, the shared future is cancelled as well. After that, no more consumers may be added.
+ *
+ * @author DaPorkchop_
+ */
+public final class SharedFuture<V> {
+    private final CompletableFuture<V> delegate;
+    private int consumers;
+
+    public SharedFuture(@NonNull CompletableFuture<V> delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * @return whether the shared future has been cancelled
+     */
+    public boolean isCancelled() {
+        return this.delegate.isCancelled();
+    }
+
+    /**
+     * Gets a new copy of the shared future for a single consumer.
+     *
+     * @return a new copy of the shared future, or {@code null} if the shared future has already been cancelled
+     */
+    public CompletableFuture<V> newConsumer() {
+        synchronized (this) {
+            if (this.delegate.isCancelled()) {
+                return null;
+            }
+            this.consumers++;
+        }
+
+        CompletableFuture<V> copy = new CompletableFuture<>();
+        copy.whenComplete((v, t) -> {
+            if (copy.isCancelled() && !this.delegate.isDone()) { //the consumer is no longer interested
+                this.release();
+            }
+        });
+        this.delegate.whenComplete((v, t) -> {
+            if (t != null) {
+                copy.completeExceptionally(t);
+            } else {
+                copy.complete(v);
+            }
+        });
+        return copy;
+    }
+
+    private synchronized void release() {
+        if (--this.consumers == 0) { //cancel while holding the lock to prevent any new consumers from being added in the meantime
+            this.delegate.cancel(false);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package net.buildtheearth.terraminusminus.util;
+
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+import net.buildtheearth.terraminusminus.TerraConfig;
+import net.daporkchop.lib.common.misc.threadfactory.PThreadFactories;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+/**
+ * The executors used by the different stages of the asynchronous generation pipeline.
+ * <p>
+ * Using dedicated pools instead of {@link ForkJoinPool#commonPool()} prevents terrain generation from competing with unrelated work for the
+ * JVM-wide common pool, and allows the number of threads used by each stage to be configured in {@link TerraConfig#executors}.
+ * <p>
+ * The pools are created lazily, and are replaced with new ones based on the current configuration by {@link #configChanged()}.
+ *
+ * @author DaPorkchop_
+ */
+@UtilityClass
+public class TerraExecutors {
+    private volatile ExecutorService DECODE;
+    private volatile ExecutorService BAKE;
+    private volatile ExecutorService PARSE;
+    private volatile ExecutorService IO;
+
+    /**
+     * @return the executor used for decoding binary data, such as downloaded images and stored chunk data
+     */
+    public Executor decode() {
+        ensureInitialized();
+        return DECODE;
+    }
+
+    /**
+     * @return the executor used for computations on already decoded data, such as projecting bounding boxes, sampling datasets and baking chunk data
+     */
+    public Executor bake() {
+        ensureInitialized();
+        return BAKE;
+    }
+
+    /**
+     * @return the executor used for parsing textual data, such as GeoJSON
+     */
+    public Executor parse() {
+        ensureInitialized();
+        return PARSE;
+    }
+
+    /**
+     * @return the executor used for blocking I/O operations
+     */
+    public Executor io() {
+        ensureInitialized();
+        return IO;
+    }
+
+    private void ensureInitialized() {
+        if (DECODE == null) {
+            synchronized (TerraExecutors.class) {
+                if (DECODE == null) {
+                    createExecutors();
+                }
+            }
+        }
+    }
+
+    /**
+     * Replaces all executors with new ones based on the current values in {@link TerraConfig#executors}.
+     * <p>
+     * Tasks which were already submitted to the old executors will still be run.
+     */
+    public synchronized void configChanged() {
+        ExecutorService[] old = { DECODE, BAKE, PARSE, IO };
+        createExecutors();
+        for (ExecutorService executor : old) {
+            if (executor != null) {
+                executor.shutdown();
+            }
+        }
+    }
+
+    private void createExecutors() {
+        TerraConfig.ExecutorOpts opts = TerraConfig.executors;
+        //by default, the pools share a single budget of one thread per processor: decoding gets all of them, as it's by far the most expensive
+        // stage, while baking and parsing only get half each. the stages rarely all run at full load at the same time, so this keeps the
+        // processors busy without every stage oversubscribing them.
+        int cpus = Runtime.getRuntime().availableProcessors();
+        BAKE = createPool("bake", threads(opts.bakeThreads, cpus >> 1));
+        PARSE = createPool("parse", threads(opts.parseThreads, cpus >> 1));
+        IO = opts.virtualThreadsForIO
+                ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("terra++ I/O worker #", 0L).factory())
+                : Executors.newFixedThreadPool(threads(opts.ioThreads, cpus), PThreadFactories.builder().daemon().minPriority().name("terra++ I/O worker").build());
+        DECODE = createPool("decode", threads(opts.decodeThreads, cpus)); //assigned last, as it's used to check whether the executors have been initialized
+    }
+
+    private ExecutorService createPool(@NonNull String name, int threads) {
+        return new ForkJoinPool(threads, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("terra++ " + name + " worker #" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, true);
+    }
+
+    private int threads(int configured, int defaultThreads) {
+        return configured > 0 ? configured : Math.max(defaultThreads, 1);
+    }
+}
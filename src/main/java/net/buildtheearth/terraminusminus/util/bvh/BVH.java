@@ -8,7 +8,10 @@ import java.util.function.Consumer;
 import java.util.stream.Stream;
 
 /**
- * A simple, immutable, quadtree-based implementation of a BVH (Bounding Volume Hierarchy) on arbitrary values implementing {@link Bounds2d}.
+ * An immutable BVH (Bounding Volume Hierarchy) on arbitrary values implementing {@link Bounds2d}.
+ * <p>
+ * By default, this is backed by a quadtree. An STR-packed R-tree may be used instead by setting the system property
+ * {@code terraplusplus.bvh_implementation} to {@code str}.
  *
  * @author DaPorkchop_
  */
@@ -19,7 +22,7 @@ public interface BVH<V extends Bounds2d> extends Bounds2d, Iterable<V> {
         } else if (values.length == 1) {
             return new SingletonBVH<>(values[0]);
         } else {
-            return new QuadtreeBVH<>(values);
+            return STRTreeBVH.ENABLED ? new STRTreeBVH<>(values) : new QuadtreeBVH<>(values);
         }
     }
 
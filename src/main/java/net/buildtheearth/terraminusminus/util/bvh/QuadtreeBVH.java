@@ -22,7 +22,7 @@ import static net.daporkchop.lib.common.util.PorkUtil.*;
 /**
  * @author DaPorkchop_
  */
-//this could probably be made even faster by using an STR/OTR-based R-tree, but it's already quite fast
+//see STRTreeBVH for an R-tree based alternative
 @Getter
 final class QuadtreeBVH<V extends Bounds2d> implements BVH<V> {
     /**
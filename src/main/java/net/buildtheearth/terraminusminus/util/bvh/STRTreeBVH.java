@@ -0,0 +1,201 @@
+package net.buildtheearth.terraminusminus.util.bvh;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static java.lang.Math.*;
+import static net.daporkchop.lib.common.util.PValidation.*;
+
+/**
+ * An immutable R-tree, bulk-loaded using the Sort-Tile-Recursive (STR) algorithm.
+ * <p>
+ * Compared to {@link QuadtreeBVH}, nodes have a fixed fan-out and their bounds are fitted tightly around their contents rather than being fixed
+ * quadrants, so there is less overlap between nodes and fewer nodes need to be visited per query.
+ *
+ * @author DaPorkchop_
+ */
+@Getter
+final class STRTreeBVH<V extends Bounds2d> implements BVH<V> {
+    /**
+     * Whether {@link BVH#of(Bounds2d[])} should use this implementation instead of {@link QuadtreeBVH}.
+     */
+    static final boolean ENABLED = "str".equalsIgnoreCase(System.getProperty("terraplusplus.bvh_implementation", "quadtree"));
+
+    /**
+     * The maximum number of children (or values, for leaf nodes) per node.
+     */
+    protected static final int NODE_CAPACITY = Integer.parseUnsignedInt(System.getProperty("terraplusplus.str_node_capacity", "16"));
+
+    protected static final Comparator<Bounds2d> COMPARATOR_X = Comparator.comparingDouble(bb -> bb.minX() + bb.maxX());
+    protected static final Comparator<Bounds2d> COMPARATOR_Z = Comparator.comparingDouble(bb -> bb.minZ() + bb.maxZ());
+
+    /**
+     * Sorts the given elements into the order in which they are packed into nodes: they are split into vertical slices along the X axis, and
+     * the elements in each slice are ordered along the Z axis.
+     */
+    protected static void sortTiles(@NonNull Bounds2d[] elements) {
+        int nodeCount = (elements.length + NODE_CAPACITY - 1) / NODE_CAPACITY;
+        int sliceSize = (int) ceil(sqrt(nodeCount)) * NODE_CAPACITY;
+
+        Arrays.sort(elements, COMPARATOR_X);
+        for (int i = 0; i < elements.length; i += sliceSize) {
+            Arrays.sort(elements, i, min(i + sliceSize, elements.length), COMPARATOR_Z);
+        }
+    }
+
+    @Getter(AccessLevel.NONE)
+    protected final V[] values; //sorted in leaf order
+    @Getter(AccessLevel.NONE)
+    protected final Node root;
+    protected final int size;
+
+    protected final double minX;
+    protected final double maxX;
+    protected final double minZ;
+    protected final double maxZ;
+
+    public STRTreeBVH(@NonNull V[] values) {
+        checkArg(values.length > 0, "at least one value is required");
+        checkState(NODE_CAPACITY >= 2, "node capacity must be at least 2 (is %d)", NODE_CAPACITY);
+
+        this.values = values.clone();
+        this.size = values.length;
+
+        //pack values into leaf nodes
+        sortTiles(this.values);
+        Node[] nodes = new Node[(this.size + NODE_CAPACITY - 1) / NODE_CAPACITY];
+        for (int i = 0; i < nodes.length; i++) {
+            int start = i * NODE_CAPACITY;
+            int end = min(start + NODE_CAPACITY, this.size);
+            nodes[i] = Node.leaf(this.values, start, end);
+        }
+
+        //recursively pack nodes into parent nodes until only the root remains
+        while (nodes.length > 1) {
+            sortTiles(nodes);
+            Node[] parents = new Node[(nodes.length + NODE_CAPACITY - 1) / NODE_CAPACITY];
+            for (int i = 0; i < parents.length; i++) {
+                int start = i * NODE_CAPACITY;
+                parents[i] = Node.branch(Arrays.copyOfRange(nodes, start, min(start + NODE_CAPACITY, nodes.length)));
+            }
+            nodes = parents;
+        }
+
+        this.root = nodes[0];
+        this.minX = this.root.minX();
+        this.maxX = this.root.maxX();
+        this.minZ = this.root.minZ();
+        this.maxZ = this.root.maxZ();
+    }
+
+    @Override
+    public List<V> getAllIntersecting(@NonNull Bounds2d bb) {
+        List<V> result = new ArrayList<>();
+        this.forEachIntersecting(bb, result::add);
+        return result;
+    }
+
+    @Override
+    public void forEachIntersecting(@NonNull Bounds2d bb, @NonNull Consumer<V> callback) {
+        if (bb.intersects(this.root)) {
+            this.forEachIntersecting(this.root, bb, callback);
+        }
+    }
+
+    protected void forEachIntersecting(Node node, Bounds2d bb, Consumer<V> callback) {
+        if (node.children != null) { //not a leaf node
+            for (Node child : node.children) {
+                if (bb.intersects(child)) {
+                    this.forEachIntersecting(child, bb, callback);
+                }
+            }
+        } else if (bb.contains(node)) { //the query box contains this entire node, therefore we can assume that all of the values intersect it
+            for (int i = node.start; i < node.end; i++) {
+                callback.accept(this.values[i]);
+            }
+        } else { //check intersection with each value individually
+            for (int i = node.start; i < node.end; i++) {
+                V value = this.values[i];
+                if (bb.intersects(value)) {
+                    callback.accept(value);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void forEach(@NonNull Consumer<? super V> callback) {
+        for (V value : this.values) {
+            callback.accept(value);
+        }
+    }
+
+    @Override
+    public Iterator<V> iterator() {
+        return Arrays.asList(this.values).iterator();
+    }
+
+    @Override
+    public Spliterator<V> spliterator() {
+        return Arrays.spliterator(this.values);
+    }
+
+    @Override
+    public Stream<V> stream() {
+        return Arrays.stream(this.values);
+    }
+
+    protected static final class Node extends Bounds2dImpl {
+        protected static Node leaf(Bounds2d[] values, int start, int end) {
+            double minX = Double.POSITIVE_INFINITY;
+            double maxX = Double.NEGATIVE_INFINITY;
+            double minZ = Double.POSITIVE_INFINITY;
+            double maxZ = Double.NEGATIVE_INFINITY;
+            for (int i = start; i < end; i++) {
+                Bounds2d value = values[i];
+                minX = min(minX, value.minX());
+                maxX = max(maxX, value.maxX());
+                minZ = min(minZ, value.minZ());
+                maxZ = max(maxZ, value.maxZ());
+            }
+            return new Node(minX, maxX, minZ, maxZ, null, start, end);
+        }
+
+        protected static Node branch(Node[] children) {
+            double minX = Double.POSITIVE_INFINITY;
+            double maxX = Double.NEGATIVE_INFINITY;
+            double minZ = Double.POSITIVE_INFINITY;
+            double maxZ = Double.NEGATIVE_INFINITY;
+            for (Node child : children) {
+                minX = min(minX, child.minX);
+                maxX = max(maxX, child.maxX);
+                minZ = min(minZ, child.minZ);
+                maxZ = max(maxZ, child.maxZ);
+            }
+            return new Node(minX, maxX, minZ, maxZ, children, 0, 0);
+        }
+
+        protected final Node[] children; //null for leaf nodes
+
+        //the range of values contained in this node, only used for leaf nodes
+        protected final int start;
+        protected final int end;
+
+        private Node(double minX, double maxX, double minZ, double maxZ, Node[] children, int start, int end) {
+            super(minX, maxX, minZ, maxZ);
+            this.children = children;
+            this.start = start;
+            this.end = end;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package net.buildtheearth.terraminusminus.util.http;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+import net.buildtheearth.terraminusminus.TerraConfig;
+
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compresses the response bodies of serialized {@link CacheEntry cache entries} before they're stored, and decompresses them again when they're read.
+ * <p>
+ * Bodies are compressed using deflate, which is fast enough to decompress that reading a compressed entry is usually faster than reading the
+ * uncompressed one from disk. Bodies which are small, already use a compressed format (such as PNG or TIFF images), or don't compress well are
+ * stored as-is.
+ * <p>
+ * A compressed body is prefixed with its uncompressed size, and marked by {@link CacheEntry#FLAG_DEFLATE}. While compression is disabled, entries
+ * are stored in the {@link CacheEntry#LEGACY_CACHE_VERSION legacy format}, so that they can still be read after downgrading.
+ *
+ * @author DaPorkchop_
+ */
+@UtilityClass
+class CacheCompression {
+    /**
+     * The offset of {@link CacheEntry#flags} in a serialized cache entry.
+     */
+    //cache version, status, time, stale time, expire time
+    final int FLAGS_OFFSET = 1 + 1 + 8 + 8 + 8;
+
+    /**
+     * Bodies smaller than this are never compressed, as it wouldn't save much space.
+     */
+    final int MIN_SIZE = 512;
+
+    /**
+     * Compressed bodies are only stored if they're no larger than this fraction of the uncompressed body.
+     */
+    final double MAX_RATIO = 0.9d;
+
+    /**
+     * Magic numbers of formats which are already compressed.
+     */
+    private final byte[][] COMPRESSED_MAGICS = {
+            { (byte) 0x89, 'P', 'N', 'G' }, //PNG
+            { 'I', 'I', 42, 0 }, //little-endian TIFF
+            { 'M', 'M', 0, 42 }, //big-endian TIFF
+            { (byte) 0xFF, (byte) 0xD8, (byte) 0xFF }, //JPEG
+            { 'G', 'I', 'F', '8' }, //GIF
+            { 'R', 'I', 'F', 'F' }, //WebP
+            { 0x1F, (byte) 0x8B }, //gzip
+            { 'P', 'K', 3, 4 }, //zip
+            { 'B', 'Z', 'h' }, //bzip2
+            { (byte) 0xFD, '7', 'z', 'X', 'Z', 0 }, //xz
+            { 0x28, (byte) 0xB5, 0x2F, (byte) 0xFD }, //zstd
+            { 0x04, 0x22, 0x4D, 0x18 }, //lz4
+    };
+
+    private boolean isCompressedFormat(ByteBuf body) {
+        for (byte[] magic : COMPRESSED_MAGICS) {
+            if (startsWith(body, magic)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean startsWith(ByteBuf buf, byte[] prefix) {
+        if (buf.readableBytes() < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (buf.getByte(buf.readerIndex() + i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the size of the header of the given serialized cache entry, i.e. the offset of its body.
+     */
+    private int headerSize(ByteBuf entry) {
+        ByteBuf duplicate = entry.duplicate();
+        duplicate.skipBytes(1); //cache version
+        new CacheEntry(duplicate);
+        return duplicate.readerIndex() - entry.readerIndex();
+    }
+
+    /**
+     * Converts the given serialized cache entry to the legacy format by removing its flags field.
+     */
+    private ByteBuf toLegacy(ByteBuf entry) {
+        int start = entry.readerIndex();
+        return ByteBufAllocator.DEFAULT.ioBuffer(entry.readableBytes() - 1)
+                .writeByte(CacheEntry.LEGACY_CACHE_VERSION)
+                .writeBytes(entry, start + 1, FLAGS_OFFSET - 1)
+                .writeBytes(entry, start + FLAGS_OFFSET + 1, entry.readableBytes() - FLAGS_OFFSET - 1);
+    }
+
+    /**
+     * Compresses the body of the given serialized cache entry, if compression is enabled and worthwhile.
+     * <p>
+     * This method does not take ownership of the given buffer.
+     *
+     * @param entry the serialized cache entry, in the current format and with an uncompressed body
+     * @return the serialized cache entry as it should be stored. Must be released by the caller.
+     */
+    ByteBuf encode(@NonNull ByteBuf entry) {
+        int start = entry.readerIndex();
+        if (entry.readableBytes() <= FLAGS_OFFSET || entry.getByte(start) != CacheEntry.CACHE_VERSION || entry.getByte(start + FLAGS_OFFSET) != 0) {
+            return entry.retainedDuplicate();
+        } else if (!TerraConfig.http.compressCache) {
+            return toLegacy(entry);
+        }
+
+        int headerSize = headerSize(entry);
+        ByteBuf body = entry.slice(start + headerSize, entry.readableBytes() - headerSize);
+        if (body.readableBytes() < MIN_SIZE || isCompressedFormat(body)) {
+            return entry.retainedDuplicate();
+        }
+
+        int maxSize = headerSize + 4 + (int) (body.readableBytes() * MAX_RATIO);
+        ByteBuf out = ByteBufAllocator.DEFAULT.ioBuffer(headerSize + 4 + (body.readableBytes() >> 2), maxSize);
+        Deflater deflater = new Deflater();
+        try {
+            out.writeBytes(entry, start, headerSize).setByte(FLAGS_OFFSET, CacheEntry.FLAG_DEFLATE);
+            out.writeInt(body.readableBytes());
+
+            deflater.setInput(body.nioBuffer());
+            deflater.finish();
+            while (!deflater.finished()) {
+                if (!out.isWritable()) {
+                    if (out.writerIndex() >= maxSize) { //the body doesn't compress well enough, store it uncompressed
+                        return entry.retainedDuplicate();
+                    }
+                    out.ensureWritable(Math.min(maxSize - out.writerIndex(), 65536));
+                }
+
+                ByteBuffer dst = out.nioBuffer(out.writerIndex(), out.writableBytes());
+                out.writerIndex(out.writerIndex() + deflater.deflate(dst));
+            }
+            return out.retain();
+        } finally {
+            deflater.end();
+            out.release();
+        }
+    }
+
+    /**
+     * Converts the given serialized cache entry, as it was stored, to the current format with an uncompressed body.
+     * <p>
+     * This method does not take ownership of the given buffer.
+     *
+     * @param entry the serialized cache entry, as returned by {@link #encode(ByteBuf)} or written by an older version
+     * @return the serialized cache entry, or {@code null} if it is corrupted. Entries of unsupported versions are returned unmodified. Must be released
+     * by the caller.
+     */
+    ByteBuf decode(@NonNull ByteBuf entry) {
+        int start = entry.readerIndex();
+        if (entry.readableBytes() <= FLAGS_OFFSET) {
+            return entry.retainedDuplicate();
+        }
+
+        int version = entry.getByte(start);
+        if (version == CacheEntry.LEGACY_CACHE_VERSION) { //add the flags field
+            ByteBuf out = ByteBufAllocator.DEFAULT.ioBuffer(entry.readableBytes() + 1);
+            out.writeByte(CacheEntry.CACHE_VERSION)
+                    .writeBytes(entry, start + 1, FLAGS_OFFSET - 1)
+                    .writeByte(0)
+                    .writeBytes(entry, start + FLAGS_OFFSET, entry.readableBytes() - FLAGS_OFFSET);
+            return out;
+        } else if (version != CacheEntry.CACHE_VERSION || (entry.getByte(start + FLAGS_OFFSET) & CacheEntry.FLAG_DEFLATE) == 0) {
+            return entry.retainedDuplicate();
+        }
+
+        ByteBuf out = null;
+        Inflater inflater = new Inflater();
+        try {
+            int headerSize = headerSize(entry);
+            int size = entry.getInt(start + headerSize);
+            if (size < 0) {
+                return null;
+            }
+
+            out = ByteBufAllocator.DEFAULT.ioBuffer(headerSize + size, headerSize + size);
+            out.writeBytes(entry, start, headerSize).setByte(FLAGS_OFFSET, 0);
+
+            inflater.setInput(entry.nioBuffer(start + headerSize + 4, entry.readableBytes() - headerSize - 4));
+            while (!inflater.finished()) {
+                if (!out.isWritable() || inflater.needsInput() || inflater.needsDictionary()) { //the size doesn't match, or the data is truncated
+                    return null;
+                }
+                ByteBuffer dst = out.nioBuffer(out.writerIndex(), out.writableBytes());
+                out.writerIndex(out.writerIndex() + inflater.inflate(dst));
+            }
+            return out.isWritable() ? null : out.retain();
+        } catch (DataFormatException | RuntimeException e) {
+            return null;
+        } finally {
+            inflater.end();
+            if (out != null) {
+                out.release();
+            }
+        }
+    }
+}
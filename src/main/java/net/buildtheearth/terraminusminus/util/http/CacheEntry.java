@@ -26,7 +26,20 @@ import java.util.stream.Collectors;
  */
 @RequiredArgsConstructor
 public class CacheEntry {
-    public static final int CACHE_VERSION = 3;
+    public static final int CACHE_VERSION = 4;
+
+    /**
+     * The previous version, which is still read (and converted to the current version) after upgrading. Identical to the current version except
+     * that it doesn't have the {@link #flags} field.
+     * <p>
+     * Entries are still stored in this version unless {@link net.buildtheearth.terraminusminus.TerraConfig.HttpOpts#compressCache} is enabled.
+     */
+    public static final int LEGACY_CACHE_VERSION = 3;
+
+    /**
+     * Set in {@link #flags} if the response body is stored deflate-compressed, see {@link CacheCompression}.
+     */
+    public static final int FLAG_DEFLATE = 1;
 
     public static final int STATUS_NOT_FOUND = 0;
     public static final int STATUS_SUCCESS = 1;
@@ -39,6 +52,7 @@ public class CacheEntry {
     public final long time;
     public final long staleTime;
     public final long expireTime;
+    public final int flags;
     public final String etag;
 
     public final String location;
@@ -76,6 +90,7 @@ public class CacheEntry {
         }
 
         this.etag = headers.get(HttpHeaderNames.ETAG, null);
+        this.flags = 0;
 
         this.staleTime = maxAge >= 0L ? this.time + TimeUnit.SECONDS.toMillis(maxAge)
                 : this.etag != null ? this.time : -1L;
@@ -116,6 +131,7 @@ public class CacheEntry {
         this.time = buf.readLong();
         this.staleTime = buf.readLong();
         this.expireTime = buf.readLong();
+        this.flags = buf.readUnsignedByte();
 
         int len = buf.readInt();
         this.etag = len >= 0 ? buf.readCharSequence(len, StandardCharsets.US_ASCII).toString() : null;
@@ -125,6 +141,16 @@ public class CacheEntry {
         this.noCache = false;
     }
 
+    /**
+     * Checks whether entries of the given version can be read.
+     *
+     * @param version the version
+     * @return whether entries of the given version can be read
+     */
+    public static boolean isSupportedVersion(int version) {
+        return version == CACHE_VERSION || version == LEGACY_CACHE_VERSION;
+    }
+
     public boolean isStale(long now) {
         return this.staleTime >= 0L && now >= this.staleTime;
     }
@@ -147,6 +173,7 @@ public class CacheEntry {
         buf.writeLong(this.time);
         buf.writeLong(this.staleTime);
         buf.writeLong(this.expireTime);
+        buf.writeByte(this.flags);
 
         if (this.etag != null) {
             buf.writeInt(this.etag.length()).writeCharSequence(this.etag, StandardCharsets.US_ASCII);
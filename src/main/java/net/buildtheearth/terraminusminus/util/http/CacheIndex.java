@@ -0,0 +1,312 @@
+package net.buildtheearth.terraminusminus.util.http;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import lombok.NonNull;
+import net.buildtheearth.terraminusminus.TerraConfig;
+import net.buildtheearth.terraminusminus.TerraMinusMinus;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import static java.lang.Math.*;
+import static net.daporkchop.lib.common.util.PValidation.*;
+
+/**
+ * Keeps track of the size, expiry time and last access time of every entry in a {@link CacheStorage}, so that the cache can be pruned without
+ * reading the entries themselves.
+ * <p>
+ * The index is kept in memory, and saved to disk whenever the cache is pruned. As it only sees the entries which are written and read by this
+ * process, it is rebuilt from the headers of all entries if it's missing or corrupted, and every {@link #REBUILD_INTERVAL}. This also picks up
+ * entries written by other processes sharing the same cache directory, as well as entries written shortly before a crash.
+ * <p>
+ * Thread-safe.
+ *
+ * @author DaPorkchop_
+ */
+final class CacheIndex {
+    static final int MAGIC = 0x54434958; //"TCIX"
+    static final int VERSION = 1;
+
+    static final int HASH_SIZE = 32; //SHA-256
+
+    /**
+     * The number of bytes at the beginning of a cache entry which are needed to index it.
+     */
+    //cache version, status, time, stale time, expire time
+    static final int ENTRY_HEADER_SIZE = 1 + 1 + 8 + 8 + 8;
+
+    //magic, version, last rebuild time, entry count
+    static final int FILE_HEADER_SIZE = 4 + 4 + 8 + 4;
+    //url hash, size, expire time, last access time
+    static final int FILE_ENTRY_SIZE = HASH_SIZE + 8 + 8 + 8;
+
+    static final long REBUILD_INTERVAL = TimeUnit.DAYS.toMillis(1L);
+
+    /**
+     * When the cache exceeds its maximum size, entries are evicted until it's no larger than this fraction of the maximum size, so that it doesn't
+     * need to be pruned again after every write.
+     */
+    static final double EVICTION_TARGET = 0.9d;
+
+    private static long key(byte[] hash) {
+        return ByteBuffer.wrap(hash).getLong();
+    }
+
+    /**
+     * Gets the expiry time from the header of a cache entry.
+     *
+     * @return the expiry time, or {@code 0L} if the entry is invalid or was written by an unsupported version
+     */
+    static long expireTime(@NonNull ByteBuf header) {
+        int i = header.readerIndex();
+        return header.readableBytes() >= ENTRY_HEADER_SIZE && CacheEntry.isSupportedVersion(header.getByte(i)) ? header.getLong(i + 18) : 0L;
+    }
+
+    /**
+     * Gets the time at which a cache entry was created from its header.
+     *
+     * @return the creation time, or {@code 0L} if the entry is invalid or was written by an unsupported version
+     */
+    private static long creationTime(ByteBuf header) {
+        int i = header.readerIndex();
+        return header.readableBytes() >= ENTRY_HEADER_SIZE && CacheEntry.isSupportedVersion(header.getByte(i)) ? header.getLong(i + 2) : 0L;
+    }
+
+    private final Path file;
+
+    private final Long2ObjectMap<Entry> entries = new Long2ObjectOpenHashMap<>();
+    private long totalSize;
+    private long lastRebuildTime;
+
+    CacheIndex(@NonNull Path file) {
+        this.file = file;
+        this.load();
+    }
+
+    private synchronized void load() {
+        if (!Files.exists(this.file)) {
+            return;
+        }
+
+        try {
+            ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(this.file));
+            CRC32 crc = new CRC32();
+            crc.update(buf.array(), 0, buf.capacity() - 4);
+            checkState(buf.getInt(buf.capacity() - 4) == (int) crc.getValue(), "checksum mismatch");
+            checkState(buf.getInt() == MAGIC && buf.getInt() == VERSION, "invalid header");
+
+            long lastRebuildTime = buf.getLong();
+            for (int i = 0, count = buf.getInt(); i < count; i++) {
+                byte[] hash = new byte[HASH_SIZE];
+                buf.get(hash);
+                this.put(new Entry(hash, buf.getLong(), buf.getLong(), buf.getLong()));
+            }
+            this.lastRebuildTime = lastRebuildTime;
+        } catch (IOException | RuntimeException e) { //the index is corrupted, it will be rebuilt from scratch
+            if (!TerraConfig.reducedConsoleMessages) {
+                TerraMinusMinus.LOGGER.warn("cache index is corrupted, rebuilding it", e);
+            }
+            this.entries.clear();
+            this.totalSize = 0L;
+            this.lastRebuildTime = 0L;
+        }
+    }
+
+    /**
+     * Saves the index to disk.
+     */
+    void save() throws IOException {
+        ByteBuf buf;
+        synchronized (this) {
+            buf = Unpooled.buffer(FILE_HEADER_SIZE + this.entries.size() * FILE_ENTRY_SIZE + 4);
+            buf.writeInt(MAGIC).writeInt(VERSION).writeLong(this.lastRebuildTime).writeInt(this.entries.size());
+            for (Entry entry : this.entries.values()) {
+                buf.writeBytes(entry.hash).writeLong(entry.size).writeLong(entry.expireTime).writeLong(entry.lastAccess);
+            }
+        }
+
+        try {
+            CRC32 crc = new CRC32();
+            crc.update(buf.nioBuffer());
+            buf.writeInt((int) crc.getValue());
+
+            FileCacheStorage.writeAtomically(this.file, this.file.toAbsolutePath().getParent(), buf);
+        } finally {
+            buf.release();
+        }
+    }
+
+    private void put(Entry entry) {
+        Entry old = this.entries.put(key(entry.hash), entry);
+        if (old != null) {
+            this.totalSize -= old.size;
+        }
+        this.totalSize += entry.size;
+    }
+
+    /**
+     * Notifies the index that an entry was written.
+     *
+     * @param hash the SHA-256 hash of the entry's URL
+     * @param data the entry's data
+     * @param now  the current time
+     */
+    synchronized void written(@NonNull byte[] hash, @NonNull ByteBuf data, long now) {
+        this.put(new Entry(hash, data.readableBytes(), expireTime(data), now));
+    }
+
+    /**
+     * Notifies the index that an entry was read.
+     *
+     * @param hash the SHA-256 hash of the entry's URL
+     * @param now  the current time
+     */
+    synchronized void accessed(@NonNull byte[] hash, long now) {
+        Entry entry = this.entries.get(key(hash));
+        if (entry != null) {
+            entry.lastAccess = max(entry.lastAccess, now);
+        }
+    }
+
+    /**
+     * Checks whether the index contains an entry.
+     *
+     * @param hash the SHA-256 hash of the entry's URL
+     * @return whether the index contains the entry
+     */
+    synchronized boolean contains(@NonNull byte[] hash) {
+        return this.entries.containsKey(key(hash));
+    }
+
+    /**
+     * Notifies the index that an entry doesn't exist (any more).
+     *
+     * @param hash the SHA-256 hash of the entry's URL
+     */
+    synchronized void removed(@NonNull byte[] hash) {
+        Entry entry = this.entries.remove(key(hash));
+        if (entry != null) {
+            this.totalSize -= entry.size;
+        }
+    }
+
+    /**
+     * @return the total size of all entries, in bytes
+     */
+    synchronized long totalSize() {
+        return this.totalSize;
+    }
+
+    /**
+     * @return the number of entries
+     */
+    synchronized int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * @param now the current time
+     * @return whether the index should be {@link #rebuild(CacheStorage, long) rebuilt}
+     */
+    synchronized boolean needsRebuild(long now) {
+        return now - this.lastRebuildTime >= REBUILD_INTERVAL;
+    }
+
+    /**
+     * Rebuilds the index from the headers of all entries in the given storage.
+     * <p>
+     * Entries may be written and read while the index is being rebuilt.
+     *
+     * @param storage the storage
+     * @param now     the current time
+     */
+    void rebuild(@NonNull CacheStorage storage, long now) throws IOException {
+        Long2ObjectMap<Entry> scanned = new Long2ObjectOpenHashMap<>();
+        storage.forEach(ENTRY_HEADER_SIZE, (hash, size, header) -> scanned.put(key(hash), new Entry(hash, size, expireTime(header), creationTime(header))));
+
+        synchronized (this) {
+            for (Entry entry : this.entries.values()) {
+                long key = key(entry.hash);
+                if (entry.lastAccess >= now) { //the entry was written or read while scanning, the information we already have is more up to date
+                    scanned.put(key, entry);
+                } else {
+                    Entry scannedEntry = scanned.get(key);
+                    if (scannedEntry != null) { //keep the last access time
+                        scannedEntry.lastAccess = max(scannedEntry.lastAccess, entry.lastAccess);
+                    }
+                }
+            }
+
+            this.entries.clear();
+            this.totalSize = 0L;
+            scanned.values().forEach(this::put);
+            this.lastRebuildTime = now;
+        }
+    }
+
+    /**
+     * Removes all entries which should be evicted from the index: expired entries, and if the total size of the remaining entries exceeds the
+     * given maximum size, the least recently used ones.
+     *
+     * @param now     the current time
+     * @param maxSize the maximum total size of all entries, in bytes
+     * @return the removed entries, which now need to be removed from the storage
+     */
+    synchronized List<Entry> evict(long now, long maxSize) {
+        notNegative(maxSize, "maxSize");
+
+        List<Entry> evicted = new ArrayList<>();
+        for (Iterator<Entry> itr = this.entries.values().iterator(); itr.hasNext(); ) {
+            Entry entry = itr.next();
+            if (now >= entry.expireTime) {
+                itr.remove();
+                this.totalSize -= entry.size;
+                evicted.add(entry);
+            }
+        }
+
+        if (this.totalSize > maxSize) {
+            long targetSize = (long) (maxSize * EVICTION_TARGET);
+            Entry[] entries = this.entries.values().toArray(new Entry[0]);
+            Arrays.sort(entries, Comparator.comparingLong(entry -> entry.lastAccess));
+            for (int i = 0; i < entries.length && this.totalSize > targetSize; i++) {
+                this.entries.remove(key(entries[i].hash));
+                this.totalSize -= entries[i].size;
+                evicted.add(entries[i]);
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * The metadata of a single cache entry.
+     *
+     * @author DaPorkchop_
+     */
+    static final class Entry {
+        final byte[] hash;
+        final long size;
+        final long expireTime;
+        long lastAccess;
+
+        Entry(@NonNull byte[] hash, long size, long expireTime, long lastAccess) {
+            checkArg(hash.length == HASH_SIZE, "invalid hash length: %d", hash.length);
+            this.hash = hash;
+            this.size = size;
+            this.expireTime = expireTime;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package net.buildtheearth.terraminusminus.util.http;
+
+import io.netty.buffer.ByteBuf;
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * A backend which stores the serialized {@link CacheEntry cache entries} for {@link Http}.
+ * <p>
+ * Implementations must be thread-safe, as {@link Disk} calls them from multiple I/O threads at once. However, all operations on the same URL are
+ * run on the same thread, in the order in which they were submitted.
+ *
+ * @author DaPorkchop_
+ */
+interface CacheStorage {
+    /**
+     * Reads the cached data for the given URL.
+     *
+     * @param url the URL
+     * @return the cached data, or {@code null} if nothing is cached for the URL
+     */
+    ByteBuf read(@NonNull String url) throws IOException;
+
+    /**
+     * Stores the cached data for the given URL, replacing any existing data.
+     * <p>
+     * This method does not take ownership of the given buffer.
+     *
+     * @param url  the URL
+     * @param data the data
+     */
+    void write(@NonNull String url, @NonNull ByteBuf data) throws IOException;
+
+    /**
+     * Removes the entry whose URL has the given hash, if it exists.
+     * <p>
+     * The space used by the entry may not be reclaimed until {@link #compact(LongAdder, LongAdder)} is called.
+     *
+     * @param hash the SHA-256 hash of the entry's URL
+     */
+    void remove(@NonNull byte[] hash) throws IOException;
+
+    /**
+     * Visits every entry, without reading more than the beginning of its data.
+     *
+     * @param headerSize the maximum number of bytes of each entry's data to read
+     * @param visitor    the visitor
+     */
+    void forEach(int headerSize, @NonNull EntryVisitor visitor) throws IOException;
+
+    /**
+     * Reclaims space which is no longer used by any entry, e.g. after entries were {@link #remove(byte[]) removed}.
+     *
+     * @param count incremented for every file which is deleted without belonging to an entry
+     * @param size  incremented by the number of bytes which were reclaimed
+     */
+    void compact(@NonNull LongAdder count, @NonNull LongAdder size) throws IOException;
+
+    /**
+     * Removes every entry which doesn't match the given predicate.
+     * <p>
+     * Unlike {@link #forEach(int, EntryVisitor)}, this reads every entry in its entirety.
+     *
+     * @param keep  a predicate which decides whether or not an entry should be kept. The buffer is only valid for the duration of the call.
+     * @param count incremented for every entry which is removed
+     * @param size  incremented by the size of every entry which is removed
+     */
+    void prune(@NonNull Predicate<ByteBuf> keep, @NonNull LongAdder count, @NonNull LongAdder size) throws IOException;
+
+    /**
+     * Visits the entries of a {@link CacheStorage}.
+     *
+     * @author DaPorkchop_
+     */
+    @FunctionalInterface
+    interface EntryVisitor {
+        /**
+         * @param hash   the SHA-256 hash of the entry's URL
+         * @param size   the size of the entry's data
+         * @param header the beginning of the entry's data. Only valid for the duration of the call.
+         */
+        void visit(@NonNull byte[] hash, long size, @NonNull ByteBuf header) throws IOException;
+    }
+}
@@ -0,0 +1,111 @@
+package net.buildtheearth.terraminusminus.util.http;
+
+import lombok.Getter;
+
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.Math.*;
+
+/**
+ * Keeps track of whether a single host is reachable, so that requests to a host which is down can be failed immediately instead of each of them
+ * waiting for its own connection attempt to time out.
+ * <p>
+ * The breaker starts out {@link State#CLOSED closed}, and {@link State#OPEN opens} once {@link #FAILURE_THRESHOLD} connection attempts or requests
+ * in a row have failed. While it's open, no requests are sent. After a while, it becomes {@link State#HALF_OPEN half-open}, and a single request is
+ * sent to probe the host: if it succeeds, the breaker is closed again, otherwise it's opened again for twice as long as before.
+ * <p>
+ * Not thread-safe, all methods must be called from the network thread.
+ *
+ * @author DaPorkchop_
+ */
+final class CircuitBreaker {
+    /**
+     * The number of consecutive failures after which the breaker opens.
+     */
+    static final int FAILURE_THRESHOLD = 3;
+
+    /**
+     * How long the breaker stays open the first time it opens...
+     */
+    static final long MIN_OPEN_DURATION = TimeUnit.SECONDS.toNanos(5L);
+
+    /**
+     * ...and the longest it stays open after failed probes.
+     */
+    static final long MAX_OPEN_DURATION = TimeUnit.MINUTES.toNanos(2L);
+
+    @Getter
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+
+    private long openDuration = MIN_OPEN_DURATION;
+    private long openUntil;
+
+    /**
+     * Checks whether requests may currently be sent to the host, which makes an open breaker half-open once it has been open for long enough.
+     *
+     * @param now the current time, in the same time base as {@link System#nanoTime()}
+     * @return whether requests may be sent. If the breaker is half-open, only a single request should be sent at a time
+     */
+    public boolean allowRequests(long now) {
+        if (this.state == State.OPEN && now - this.openUntil >= 0L) { //give the host another chance
+            this.state = State.HALF_OPEN;
+        }
+        return this.state != State.OPEN;
+    }
+
+    /**
+     * Notifies the breaker that the host responded to a request.
+     */
+    public void onSuccess() {
+        this.state = State.CLOSED;
+        this.consecutiveFailures = 0;
+        this.openDuration = MIN_OPEN_DURATION;
+    }
+
+    /**
+     * Notifies the breaker that a connection to the host couldn't be established, or that a request failed without a response.
+     *
+     * @param now the current time, in the same time base as {@link System#nanoTime()}
+     */
+    public void onFailure(long now) {
+        switch (this.state) {
+            case CLOSED:
+                if (++this.consecutiveFailures >= FAILURE_THRESHOLD) {
+                    this.open(now);
+                }
+                break;
+            case HALF_OPEN: //the probe failed, wait longer before trying again
+                this.openDuration = min(this.openDuration * 2L, MAX_OPEN_DURATION);
+                this.open(now);
+                break;
+            case OPEN: //requests which were already in flight when the breaker opened
+                break;
+        }
+    }
+
+    private void open(long now) {
+        this.state = State.OPEN;
+        this.openUntil = now + this.openDuration;
+    }
+
+    /**
+     * The states of a {@link CircuitBreaker}.
+     *
+     * @author DaPorkchop_
+     */
+    enum State {
+        /**
+         * The host is reachable, requests are sent normally.
+         */
+        CLOSED,
+        /**
+         * The host is down, requests are failed immediately.
+         */
+        OPEN,
+        /**
+         * The host was down, and a single request is sent to check whether it's reachable again.
+         */
+        HALF_OPEN;
+    }
+}
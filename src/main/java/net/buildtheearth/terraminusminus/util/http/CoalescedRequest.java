@@ -0,0 +1,93 @@
+package net.buildtheearth.terraminusminus.util.http;
+
+import io.netty.buffer.ByteBuf;
+import lombok.NonNull;
+import net.buildtheearth.terraminusminus.util.SharedFuture;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A request which is shared between all callers that requested the same URL while it was in flight.
+ * <p>
+ * The consumers are tracked by a {@link SharedFuture}, so the request itself is only cancelled once every consumer has cancelled its future.
+ * Every consumer's future is completed with a retained duplicate of the response body.
+ *
+ * @author DaPorkchop_
+ */
+final class CoalescedRequest {
+    /**
+     * The future which the actual request completes.
+     */
+    final CompletableFuture<ByteBuf> future = new CompletableFuture<>();
+
+    private final CompletableFuture<ByteBuf> result = new CompletableFuture<>();
+    private final SharedFuture<ByteBuf> shared = new SharedFuture<>(this.result);
+    private volatile boolean done;
+
+    CoalescedRequest() {
+        this.future.whenComplete(this::complete);
+        this.result.whenComplete((buf, t) -> {
+            if (this.result.isCancelled()) { //every consumer has cancelled its future, nobody is interested in the response anymore
+                this.future.cancel(false);
+            }
+        });
+    }
+
+    /**
+     * Adds a new consumer to this request.
+     *
+     * @param consumer the consumer's future
+     * @return whether the consumer could be added. If {@code false}, the request has already completed or was cancelled, and a new request has
+     * to be made instead
+     */
+    boolean addConsumer(@NonNull CompletableFuture<ByteBuf> consumer) {
+        CompletableFuture<ByteBuf> copy;
+        synchronized (this) {
+            if (this.done || (copy = this.shared.newConsumer()) == null) {
+                return false;
+            }
+
+            //registered while holding the lock, which guarantees that it runs before complete() releases the response body
+            copy.whenComplete((buf, t) -> {
+                if (t != null) {
+                    consumer.completeExceptionally(t);
+                } else if (buf == null) {
+                    consumer.complete(null);
+                } else {
+                    ByteBuf duplicate = buf.retainedDuplicate();
+                    if (!consumer.complete(duplicate)) { //the consumer's future was already completed (probably due to cancellation)
+                        duplicate.release();
+                    }
+                }
+            });
+        }
+
+        consumer.whenComplete((buf, t) -> {
+            if (consumer.isCancelled()) {
+                copy.cancel(false);
+            }
+        });
+        return true;
+    }
+
+    private void complete(ByteBuf buf, Throwable t) {
+        if (t != null) { //there's no response body, so there's nothing which the consumers could access after it's released
+            this.done = true;
+            this.result.completeExceptionally(t);
+            return;
+        }
+
+        synchronized (this) { //prevent any more consumers from being added
+            this.done = true;
+        }
+
+        try {
+            //completing the result synchronously completes every consumer's future, so they've all duplicated the body once this returns
+            this.result.complete(buf);
+        } finally {
+            if (buf != null) {
+                buf.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package net.buildtheearth.terraminusminus.util.http;
+
+import lombok.Getter;
+
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.Math.*;
+import static net.daporkchop.lib.common.util.PValidation.*;
+
+/**
+ * Adjusts the number of concurrent requests to a single host based on how the host responds, using additive-increase/multiplicative-decrease.
+ * <p>
+ * The limit starts at 1 and is doubled every round-trip (slow start), until the host first shows signs of being overloaded. From then on,
+ * it is increased by 1 every round-trip while the latency stays close to the lowest latency seen so far, and is cut whenever the host
+ * throttles a request ({@code 429 Too Many Requests} or {@code 503 Service Unavailable}), a request times out, or the latency spikes.
+ * <p>
+ * The limit never exceeds the configured maximum, see {@link #setMaxLimit(int)}.
+ * <p>
+ * Not thread-safe, all methods must be called from the network thread.
+ *
+ * @author DaPorkchop_
+ */
+final class ConcurrencyController {
+    /**
+     * The factor by which the limit is multiplied if a request is throttled or times out.
+     */
+    static final double THROTTLED_DECREASE = 0.5d;
+
+    /**
+     * The factor by which the limit is multiplied if the latency spikes.
+     */
+    static final double LATENCY_DECREASE = 0.8d;
+
+    /**
+     * A request's latency is considered to be a spike if it exceeds the baseline latency by this factor...
+     */
+    static final double LATENCY_TOLERANCE = 2.0d;
+
+    /**
+     * ...and by at least this much, so that jitter doesn't cause spurious decreases for hosts with very low latency.
+     */
+    static final long MIN_LATENCY_SPIKE = TimeUnit.MILLISECONDS.toNanos(20L);
+
+    /**
+     * How quickly the baseline latency moves towards higher latencies, so that a single unusually fast response doesn't become the baseline
+     * forever.
+     */
+    static final double BASELINE_DRIFT = 0.01d;
+
+    @Getter
+    private int maxLimit;
+    private double limit = 1.0d;
+    private boolean slowStart = true;
+
+    private double baselineLatency = Double.NaN;
+    private long lastDecreaseTime = Long.MIN_VALUE;
+
+    ConcurrencyController(int maxLimit) {
+        this.maxLimit = positive(maxLimit, "maxLimit");
+    }
+
+    /**
+     * @return the current maximum number of concurrent requests
+     */
+    public int limit() {
+        return max(1, min(this.maxLimit, (int) this.limit));
+    }
+
+    /**
+     * Sets the upper bound for the limit.
+     *
+     * @param maxLimit the new upper bound
+     */
+    public void setMaxLimit(int maxLimit) {
+        this.maxLimit = positive(maxLimit, "maxLimit");
+        this.limit = min(this.limit, maxLimit);
+    }
+
+    /**
+     * Notifies the controller that a request completed normally.
+     *
+     * @param sentTime the time at which the request was sent, in the same time base as {@link System#nanoTime()}
+     * @param now      the current time, in the same time base as {@link System#nanoTime()}
+     */
+    public void onSuccess(long sentTime, long now) {
+        long latency = now - sentTime;
+        if (Double.isNaN(this.baselineLatency) || latency < this.baselineLatency) {
+            this.baselineLatency = latency;
+        } else {
+            this.baselineLatency += (latency - this.baselineLatency) * BASELINE_DRIFT;
+        }
+
+        if (latency > this.baselineLatency * LATENCY_TOLERANCE && latency - this.baselineLatency > MIN_LATENCY_SPIKE) {
+            this.decrease(sentTime, now, LATENCY_DECREASE);
+        } else if (this.slowStart) { //increase by 1 for every request, which doubles the limit every round-trip
+            this.limit = min(this.limit + 1.0d, this.maxLimit);
+        } else { //increase by 1/limit for every request, which increases the limit by 1 every round-trip
+            this.limit = min(this.limit + 1.0d / this.limit, this.maxLimit);
+        }
+    }
+
+    /**
+     * Notifies the controller that a request was throttled by the host, or timed out.
+     *
+     * @param sentTime the time at which the request was sent, in the same time base as {@link System#nanoTime()}
+     * @param now      the current time, in the same time base as {@link System#nanoTime()}
+     */
+    public void onThrottled(long sentTime, long now) {
+        this.decrease(sentTime, now, THROTTLED_DECREASE);
+    }
+
+    private void decrease(long sentTime, long now, double factor) {
+        if (sentTime < this.lastDecreaseTime) {
+            //the request was sent before the last decrease, and therefore doesn't say anything about whether the current limit is too high.
+            // this prevents a whole window of requests which were sent at the same time from reducing the limit over and over again
+            return;
+        }
+
+        this.limit = max(this.limit * factor, 1.0d);
+        this.slowStart = false;
+        this.lastDecreaseTime = now;
+    }
+}
@@ -5,13 +5,12 @@ import io.netty.buffer.ByteBufAllocator;
 import io.netty.channel.DefaultEventLoop;
 import io.netty.channel.EventLoop;
 import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.Future;
 import lombok.NonNull;
 import lombok.experimental.UtilityClass;
 import net.buildtheearth.terraminusminus.TerraConfig;
 import net.buildtheearth.terraminusminus.TerraMinusMinus;
-import net.daporkchop.lib.binary.netty.PUnpooled;
-import net.daporkchop.lib.common.function.io.IOConsumer;
-import net.daporkchop.lib.common.function.io.IOPredicate;
+import net.buildtheearth.terraminusminus.util.TerraExecutors;
 import net.daporkchop.lib.common.function.io.IORunnable;
 import net.daporkchop.lib.common.misc.file.PFiles;
 import net.daporkchop.lib.common.misc.threadfactory.PThreadFactories;
@@ -21,49 +20,87 @@ import java.io.File;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.channels.FileChannel;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.AccessDeniedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
-import java.nio.file.attribute.FileAttribute;
-import java.nio.file.attribute.FileTime;
-import java.nio.file.attribute.PosixFilePermission;
-import java.nio.file.attribute.PosixFilePermissions;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.LongAdder;
-import java.util.stream.Stream;
 
 import static net.daporkchop.lib.common.util.PValidation.*;
 
 /**
  * Handles disk I/O operations for {@link Http}.
+ * <p>
+ * Cache operations are spread over {@link TerraConfig.HttpOpts#diskThreads} I/O threads. All operations on the same URL (or file) are run by the
+ * same thread, so that they happen in the order in which they were submitted.
+ * <p>
+ * The most recently used cache entries are also kept in a {@link MemoryCache} of {@link TerraConfig.HttpOpts#memoryCacheSize}, which is checked
+ * before reading from disk.
+ * <p>
+ * The cache is pruned using a {@link CacheIndex}, which removes expired entries and keeps the cache within {@link TerraConfig.HttpOpts#maxCacheSize}
+ * by evicting the least recently used entries.
  *
  * @author DaPorkchop_
  */
 @UtilityClass
 public class Disk {
-    private final EventLoop DISK_EXECUTOR = new DefaultEventLoop(PThreadFactories.builder().daemon().minPriority().name("terra++ disk I/O thread").build());
+    private final EventLoop[] DISK_EXECUTORS = createExecutors();
 
     private final Path CACHE_ROOT;
-    private final Path TMP_FILE;
+
+    private final CacheStorage CACHE_STORAGE;
+    private final CacheIndex CACHE_INDEX;
+    private final MemoryCache MEMORY_CACHE = new MemoryCache(Math.max(TerraConfig.http.memoryCacheSize, 0L) << 20L);
+
+    private final AtomicBoolean PRUNE_PENDING = new AtomicBoolean();
 
     static {
         File mcRoot = new File(".");
         CACHE_ROOT = PFiles.ensureDirectoryExists(new File(mcRoot, "terraplusplus/cache")).toPath();
 
-        TMP_FILE = CACHE_ROOT.resolve("tmp");
-        PFiles.rm(TMP_FILE.toFile()); //delete temp file if it exists
+        CACHE_STORAGE = createCacheStorage();
+        CACHE_INDEX = new CacheIndex(CACHE_ROOT.resolveSibling(CACHE_STORAGE instanceof SegmentCacheStorage ? "cache_index_segment" : "cache_index_file"));
 
         //periodically prune the cache
-        DISK_EXECUTOR.scheduleWithFixedDelay((IORunnable) Disk::pruneCache, 1L, 60L, TimeUnit.MINUTES);
+        DISK_EXECUTORS[0].scheduleWithFixedDelay((IORunnable) Disk::pruneCache, 1L, 60L, TimeUnit.MINUTES);
+    }
+
+    private EventLoop[] createExecutors() {
+        ThreadFactory threadFactory = PThreadFactories.builder().daemon().minPriority().name("terra++ disk I/O thread").build();
+        EventLoop[] executors = new EventLoop[positive(TerraConfig.http.diskThreads, "diskThreads")];
+        for (int i = 0; i < executors.length; i++) {
+            executors[i] = new DefaultEventLoop(threadFactory);
+        }
+        return executors;
+    }
+
+    /**
+     * Gets the I/O thread which runs all operations with the given key.
+     *
+     * @param key the key, such as a URL or a file path
+     * @return the I/O thread
+     */
+    private EventLoop executorFor(@NonNull Object key) {
+        return DISK_EXECUTORS[Math.floorMod(key.hashCode(), DISK_EXECUTORS.length)];
+    }
+
+    /**
+     * Gets the index of the I/O thread which runs all cache operations on the URL with the given hash.
+     * <p>
+     * Cache operations are assigned by the URL's hash rather than the URL itself, as entries which are removed while the cache is pruned are only
+     * known by their hash.
+     *
+     * @param hash the SHA-256 hash of the URL
+     * @return the index of the I/O thread in {@link #DISK_EXECUTORS}
+     */
+    private int cacheExecutorIndex(@NonNull byte[] hash) {
+        return Math.floorMod(Arrays.hashCode(hash), DISK_EXECUTORS.length);
     }
 
     /**
@@ -92,7 +129,7 @@ public class Disk {
             } catch (IOException e) {
                 throw new UncheckedIOException("unable to read file: " + file, e);
             }
-        }, DISK_EXECUTOR);
+        }, TerraExecutors.io());
     }
 
     /**
@@ -102,36 +139,149 @@ public class Disk {
      * @param data the data
      */
     public void write(@NonNull Path file, @NonNull ByteBuf data) {
-        DISK_EXECUTOR.submit(() -> {
+        executorFor(file).submit(() -> {
             try {
-                try (FileChannel channel = FileChannel.open(TMP_FILE, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
-                    while (data.isReadable()) {
-                        data.readBytes(channel, data.readableBytes());
-                    }
+                FileCacheStorage.writeAtomically(file, file.toAbsolutePath().getParent(), data);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                ReferenceCountUtil.release(data);
+            }
+        });
+    }
+
+    private CacheStorage createCacheStorage() {
+        if ("segment".equalsIgnoreCase(TerraConfig.http.cacheBackend)) {
+            try {
+                return new SegmentCacheStorage(CACHE_ROOT.resolve("segments"));
+            } catch (IOException e) {
+                TerraMinusMinus.LOGGER.error("unable to open segment cache, falling back to file cache", e);
+            }
+        }
+        int mmapThreshold = notNegative(TerraConfig.http.mmapThreshold, "mmapThreshold");
+        return new FileCacheStorage(CACHE_ROOT, mmapThreshold > 0 ? mmapThreshold * 1024L : Long.MAX_VALUE);
+    }
+
+    /**
+     * Asynchronously reads the cached data for the given url.
+     *
+     * @param url the url
+     * @return a {@link CompletableFuture} which will be completed with the cached data, or with {@code null} if nothing is cached for the url
+     */
+    public CompletableFuture<ByteBuf> readCache(@NonNull String url) {
+        byte[] hash = FileCacheStorage.hash(url);
+        long now = System.currentTimeMillis();
+        ByteBuf cached = MEMORY_CACHE.get(hash, now);
+        if (cached != null) { //the entry was used recently, no need to read it from disk
+            CACHE_INDEX.accessed(hash, now);
+            return CompletableFuture.completedFuture(decode(url, cached));
+        }
+
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                ByteBuf data = CACHE_STORAGE.read(url);
+                if (data == null) {
+                    CACHE_INDEX.removed(hash);
+                    return null;
                 }
 
-                Files.move(TMP_FILE, file, StandardCopyOption.REPLACE_EXISTING);
-                Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+                CACHE_INDEX.accessed(hash, System.currentTimeMillis());
+                if (!(CACHE_STORAGE instanceof FileCacheStorage && ((FileCacheStorage) CACHE_STORAGE).isMapped(data))) {
+                    //keep the compressed data in memory, large mapped entries are kept in the page cache anyway
+                    MEMORY_CACHE.put(hash, data);
+                }
+                return decode(url, data);
             } catch (IOException e) {
-                throw new UncheckedIOException(e);
+                throw new UncheckedIOException("unable to read cache for " + url, e);
+            }
+        }, DISK_EXECUTORS[cacheExecutorIndex(hash)]);
+    }
+
+    /**
+     * Asynchronously stores the cached data for the given url, replacing any existing data.
+     *
+     * @param url  the url
+     * @param data the data
+     */
+    public void writeCache(@NonNull String url, @NonNull ByteBuf data) {
+        byte[] hash = FileCacheStorage.hash(url);
+        DISK_EXECUTORS[cacheExecutorIndex(hash)].submit(() -> {
+            ByteBuf encoded = null;
+            try {
+                encoded = CacheCompression.encode(data);
+                CACHE_STORAGE.write(url, encoded);
+                MEMORY_CACHE.put(hash, encoded);
+
+                CACHE_INDEX.written(hash, encoded, System.currentTimeMillis());
+                if (CACHE_INDEX.totalSize() > maxCacheSize() && PRUNE_PENDING.compareAndSet(false, true)) { //the cache is too big, prune it now
+                    DISK_EXECUTORS[0].execute((IORunnable) Disk::pruneCache);
+                }
+            } catch (IOException e) {
+                TerraMinusMinus.LOGGER.error("unable to write cache for " + url, e);
             } finally {
+                ReferenceCountUtil.release(encoded);
                 ReferenceCountUtil.release(data);
             }
         });
     }
 
+    /**
+     * Blocks until every cache write which was submitted before this method was called has been stored.
+     * <p>
+     * The I/O threads are daemon threads, so this must be called before exiting if the cache needs to be complete afterwards.
+     */
+    public void flush() {
+        List<Future<?>> barriers = new ArrayList<>(DISK_EXECUTORS.length);
+        for (EventLoop executor : DISK_EXECUTORS) {
+            checkState(!executor.inEventLoop(), "flush() may not be called from a disk I/O thread");
+            barriers.add(executor.submit(() -> {})); //each thread runs its tasks in order, so this completes after every write before it
+        }
+        for (Future<?> barrier : barriers) {
+            barrier.syncUninterruptibly();
+        }
+    }
+
+    /**
+     * Decompresses the given cached data, releasing it in the process.
+     *
+     * @return the decompressed data, or {@code null} if the data is corrupted
+     */
+    private ByteBuf decode(@NonNull String url, @NonNull ByteBuf data) {
+        try {
+            ByteBuf decoded = CacheCompression.decode(data);
+            if (decoded == null && !TerraConfig.reducedConsoleMessages) {
+                TerraMinusMinus.LOGGER.warn("discarding corrupted cache entry for {}", url);
+            }
+            return decoded;
+        } finally {
+            data.release();
+        }
+    }
+
+    /**
+     * @return the number of cache reads which were served from memory
+     */
+    public long memoryCacheHitCount() {
+        return MEMORY_CACHE.hitCount();
+    }
+
+    /**
+     * @return the number of cache reads which had to go to disk
+     */
+    public long memoryCacheMissCount() {
+        return MEMORY_CACHE.missCount();
+    }
+
     /**
      * Gets the file path which stores the cached data for the given url.
+     * <p>
+     * This is only meaningful if the cache is stored in separate files (the default), see {@link TerraConfig.HttpOpts#cacheBackend}.
      *
      * @param url the url
      * @return the cache file
      */
     public Path cacheFileFor(@NonNull String url) {
-        try {
-            return CACHE_ROOT.resolve(Hex.encodeHexString(MessageDigest.getInstance("SHA-256").digest(url.getBytes(StandardCharsets.UTF_8))));
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException("SHA-256 not supported", e);
-        }
+        return CACHE_ROOT.resolve(Hex.encodeHexString(FileCacheStorage.hash(url)));
     }
 
     /**
@@ -144,7 +294,23 @@ public class Disk {
         return CACHE_ROOT.resolveSibling("config").resolve(name);
     }
 
+    /**
+     * Gets the path to an additional cache directory with the given name, which is separate from the HTTP cache.
+     *
+     * @param name the cache directory's name
+     * @return the path to the cache directory
+     */
+    public Path cacheDirectory(@NonNull String name) {
+        return CACHE_ROOT.resolveSibling(name);
+    }
+
+    private long maxCacheSize() {
+        return TerraConfig.http.maxCacheSize > 0 ? TerraConfig.http.maxCacheSize * (1L << 20L) : Long.MAX_VALUE;
+    }
+
     private void pruneCache() throws IOException {
+        PRUNE_PENDING.set(false);
+
         if (!TerraConfig.reducedConsoleMessages) {
             TerraMinusMinus.LOGGER.info("running cache cleanup...");
         }
@@ -154,43 +320,66 @@ public class Disk {
 
         long now = System.currentTimeMillis();
 
-        try (Stream<Path> stream = Files.list(CACHE_ROOT)) {
-            stream.filter(Files::isRegularFile)
-                    .filter((IOPredicate<Path>) p -> {
-                        try (FileChannel channel = FileChannel.open(p, StandardOpenOption.READ)) {
-                            long chSize = channel.size();
-                            try {
-                                ByteBuf buf = PUnpooled.wrap(channel.map(FileChannel.MapMode.READ_WRITE, 0L, chSize), toInt(chSize), true);
-                                try {
-                                    if (buf.readByte() == CacheEntry.CACHE_VERSION && !new CacheEntry(buf).isExpired(now)) { //file isn't expired, skip it
-                                        return false;
-                                    }
-                                } finally {
-                                    buf.release();
-                                }
-                            } catch (Throwable ignored) {
-                                //no-op
-                            }
-
-                            //delete file
-                            count.increment();
-                            size.add(chSize);
-                            return true;
-                        }
-                    })
-                    .peek((IOConsumer<Path>) path -> {
-                        count.increment();
-                        size.add(Files.size(path));
-                    })
-                    .forEach((IOConsumer<Path>) Files::delete);
+        try {
+            if (CACHE_INDEX.needsRebuild(now)) {
+                CACHE_INDEX.rebuild(CACHE_STORAGE, now);
+            }
+
+            //only the index needs to be checked to find out which entries should be removed. each entry is removed by the I/O thread which owns
+            //  its URL, so that removing it can't interfere with a concurrent read or write of the same entry
+            List<List<CacheIndex.Entry>> evicted = new ArrayList<>();
+            for (int i = 0; i < DISK_EXECUTORS.length; i++) {
+                evicted.add(new ArrayList<>());
+            }
+            //expired entries can't be refreshed in cache-only mode, so they're only evicted to keep the cache within its maximum size
+            long expiryTime = TerraConfig.http.cacheOnly ? Long.MIN_VALUE : now;
+            for (CacheIndex.Entry entry : CACHE_INDEX.evict(expiryTime, maxCacheSize())) {
+                evicted.get(cacheExecutorIndex(entry.hash)).add(entry);
+            }
+
+            List<Future<?>> removals = new ArrayList<>();
+            for (int i = 0; i < DISK_EXECUTORS.length; i++) {
+                List<CacheIndex.Entry> entries = evicted.get(i);
+                if (entries.isEmpty()) {
+                    continue;
+                }
 
+                IORunnable removal = () -> removeEvicted(entries, count, size);
+                if (DISK_EXECUTORS[i].inEventLoop()) { //we're already on the right thread, and waiting for ourselves would deadlock
+                    removal.run();
+                } else {
+                    removals.add(DISK_EXECUTORS[i].submit(removal));
+                }
+            }
+            for (Future<?> removal : removals) {
+                removal.syncUninterruptibly();
+            }
+
+            CACHE_STORAGE.compact(count, size);
+            CACHE_INDEX.save();
         } catch (Throwable e) {
             TerraMinusMinus.LOGGER.error("exception occurred during cache cleanup!", e);
         } finally {
             if (!TerraConfig.reducedConsoleMessages) {
                 double mib = Math.round(size.sum() / (1024.0d * 1024.0d) * 10.0d) / 10.0d;
-                TerraMinusMinus.LOGGER.info("cache cleanup complete. deleted {} old files, totalling {} bytes ({} MiB)", count.sum(), size.sum(), mib);
+                TerraMinusMinus.LOGGER.info("cache cleanup complete. deleted {} old entries, totalling {} bytes ({} MiB)", count.sum(), size.sum(), mib);
             }
         }
     }
+
+    /**
+     * Removes entries which were evicted from the {@link #CACHE_INDEX}. Must be run on the I/O thread which owns the entries' URLs.
+     */
+    private void removeEvicted(List<CacheIndex.Entry> entries, LongAdder count, LongAdder size) throws IOException {
+        for (CacheIndex.Entry entry : entries) {
+            if (CACHE_INDEX.contains(entry.hash)) { //the entry was written again after it was evicted
+                continue;
+            }
+
+            CACHE_STORAGE.remove(entry.hash);
+            MEMORY_CACHE.remove(entry.hash);
+            count.increment();
+            size.add(entry.size);
+        }
+    }
 }
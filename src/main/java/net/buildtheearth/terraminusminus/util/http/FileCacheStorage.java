@@ -0,0 +1,358 @@
+package net.buildtheearth.terraminusminus.util.http;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.util.ReferenceCountUtil;
+import lombok.NonNull;
+import net.daporkchop.lib.binary.netty.PUnpooled;
+import net.daporkchop.lib.common.misc.file.PFiles;
+import org.apache.commons.codec.DecoderException;
+import org.apache.commons.codec.binary.Hex;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static net.daporkchop.lib.common.util.PValidation.*;
+
+/**
+ * {@link CacheStorage} which stores every entry in a separate file, named by the SHA-256 hash of its URL.
+ * <p>
+ * Entries are replaced atomically, see {@link #writeAtomically(Path, Path, ByteBuf)}. Any number of threads and processes may therefore read and
+ * write the same cache directory at once.
+ * <p>
+ * Entries larger than a configurable threshold are read by memory-mapping their file instead of copying it into a buffer. As files are only ever
+ * replaced and deleted (and never modified in place), a mapping stays valid for as long as it's used. Mappings are read-only, and are only
+ * unmapped once they've been garbage collected, as unmapping them while another thread may still access them could crash the JVM.
+ *
+ * @author DaPorkchop_
+ */
+class FileCacheStorage implements CacheStorage {
+    protected static final String TMP_DIRECTORY = "tmp";
+
+    /**
+     * Temporary files which weren't modified for this long were left behind by a process which crashed while writing them, and are deleted when
+     * pruning.
+     */
+    protected static final long STALE_TMP_FILE_AGE = TimeUnit.HOURS.toMillis(1L);
+
+    /**
+     * The number of times replacing a file is attempted if access to it is denied.
+     */
+    protected static final int MOVE_ATTEMPTS = 5;
+
+    /**
+     * Gets the SHA-256 hash of the given URL.
+     *
+     * @param url the URL
+     * @return the hash
+     */
+    static byte[] hash(@NonNull String url) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(url.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 not supported", e);
+        }
+    }
+
+    /**
+     * Atomically replaces the contents of the given file.
+     * <p>
+     * The data is written to a new temporary file with a unique name, which is then renamed to the given file. Concurrent writers (even in other
+     * processes) therefore never interfere with each other, and readers only ever see either the old or the new contents.
+     * <p>
+     * This method does not take ownership of the given buffer.
+     *
+     * @param file         the file
+     * @param tmpDirectory the directory in which to create the temporary file. Must be on the same file system as the file.
+     * @param data         the data
+     */
+    static void writeAtomically(@NonNull Path file, @NonNull Path tmpDirectory, @NonNull ByteBuf data) throws IOException {
+        Path tmpFile = null;
+        try {
+            FileChannel channel;
+            while (true) {
+                tmpFile = tmpDirectory.resolve(file.getFileName() + "." + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+                try {
+                    channel = FileChannel.open(tmpFile, StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW);
+                    break;
+                } catch (FileAlreadyExistsException e) { //extremely unlikely, simply try again with a different name
+                    tmpFile = null;
+                }
+            }
+
+            try {
+                for (int i = 0, len = data.readableBytes(); i < len; ) {
+                    i += data.getBytes(data.readerIndex() + i, channel, i, len - i);
+                }
+            } finally {
+                channel.close();
+            }
+
+            replace(tmpFile, file);
+            tmpFile = null;
+        } finally {
+            if (tmpFile != null) { //don't leave the temporary file behind if something went wrong
+                Files.deleteIfExists(tmpFile);
+            }
+        }
+    }
+
+    private static void replace(Path src, Path dst) throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                Files.move(src, dst, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                return;
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(src, dst, StandardCopyOption.REPLACE_EXISTING);
+                return;
+            } catch (AccessDeniedException e) {
+                //windows doesn't allow replacing a file while it's open, which means that it's currently being read by another thread or process
+                if (attempt >= MOVE_ATTEMPTS) {
+                    throw e;
+                }
+                try {
+                    Thread.sleep(attempt * 10L);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    protected final Path root;
+    protected final Path tmpDirectory;
+    protected final long mmapThreshold;
+
+    public FileCacheStorage(@NonNull Path root) {
+        this(root, Long.MAX_VALUE);
+    }
+
+    /**
+     * @param root          the directory to store the entries in
+     * @param mmapThreshold entries at least this large (in bytes) are memory-mapped when they're read
+     */
+    public FileCacheStorage(@NonNull Path root, long mmapThreshold) {
+        this.mmapThreshold = positive(mmapThreshold, "mmapThreshold");
+        this.root = PFiles.ensureDirectoryExists(root.toFile()).toPath();
+
+        this.tmpDirectory = this.root.resolve(TMP_DIRECTORY);
+        try {
+            if (Files.isRegularFile(this.tmpDirectory)) { //older versions used a single temporary file with the same name
+                Files.deleteIfExists(this.tmpDirectory);
+            }
+            Files.createDirectories(this.tmpDirectory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("unable to create temporary directory: " + this.tmpDirectory, e);
+        }
+    }
+
+    /**
+     * Gets the file which stores the cached data for the given URL.
+     *
+     * @param url the URL
+     * @return the cache file
+     */
+    public Path file(@NonNull String url) {
+        return this.file(hash(url));
+    }
+
+    protected Path file(@NonNull byte[] hash) {
+        return this.root.resolve(Hex.encodeHexString(hash));
+    }
+
+    @Override
+    public ByteBuf read(@NonNull String url) throws IOException {
+        Path file = this.file(url);
+        if (!Files.exists(file)) { //file doesn't exist
+            return null;
+        }
+
+        try {
+            return Files.size(file) >= this.mmapThreshold ? this.readMapped(file) : this.readCopied(file);
+        } catch (NoSuchFileException e) { //file was deleted in the meantime
+            return null;
+        }
+    }
+
+    private ByteBuf readCopied(Path file) throws IOException {
+        ByteBuf buf = null;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            int size = toInt(channel.size(), "file size");
+            buf = ByteBufAllocator.DEFAULT.ioBuffer(size, size);
+            for (int i = 0; i < size; i += buf.writeBytes(channel, i, size - i)) {
+            }
+            return buf.retain();
+        } finally {
+            ReferenceCountUtil.release(buf);
+        }
+    }
+
+    private ByteBuf readMapped(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            return PUnpooled.wrap(channel.map(FileChannel.MapMode.READ_ONLY, 0L, size), toInt(size, "file size"), false);
+        }
+    }
+
+    /**
+     * Checks whether a buffer which was returned by {@link #read(String)} is memory-mapped.
+     *
+     * @param data the buffer
+     * @return whether the buffer is memory-mapped
+     */
+    boolean isMapped(@NonNull ByteBuf data) {
+        return data.readableBytes() >= this.mmapThreshold;
+    }
+
+    @Override
+    public void write(@NonNull String url, @NonNull ByteBuf data) throws IOException {
+        writeAtomically(this.file(url), this.tmpDirectory, data);
+    }
+
+    @Override
+    public void remove(@NonNull byte[] hash) throws IOException {
+        Files.deleteIfExists(this.file(hash));
+    }
+
+    @Override
+    public void forEach(int headerSize, @NonNull EntryVisitor visitor) throws IOException {
+        notNegative(headerSize, "headerSize");
+
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(this.root)) {
+            files = stream.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(headerSize);
+        for (Path file : files) {
+            byte[] hash;
+            try {
+                hash = Hex.decodeHex(file.getFileName().toString());
+            } catch (DecoderException e) { //not a cache entry
+                continue;
+            }
+            if (hash.length != 32) { //not a SHA-256 hash, so not a cache entry either
+                continue;
+            }
+
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                header.clear();
+                while (header.hasRemaining() && channel.read(header) >= 0) {
+                }
+                header.flip();
+                visitor.visit(hash, channel.size(), Unpooled.wrappedBuffer(header));
+            } catch (NoSuchFileException e) { //file was deleted in the meantime
+                //no-op
+            }
+        }
+    }
+
+    @Override
+    public void compact(@NonNull LongAdder count, @NonNull LongAdder size) throws IOException {
+        //there's nothing to reclaim except for temporary files left behind by crashed processes
+        this.pruneTmpFiles(count, size);
+    }
+
+    @Override
+    public void prune(@NonNull Predicate<ByteBuf> keep, @NonNull LongAdder count, @NonNull LongAdder size) throws IOException {
+        this.pruneTmpFiles(count, size);
+
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(this.root)) {
+            files = stream.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+
+        for (Path file : files) {
+            long fileSize;
+            Object fileKey;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                fileKey = fileKey(file);
+                fileSize = channel.size();
+                try {
+                    ByteBuf buf = PUnpooled.wrap(channel.map(FileChannel.MapMode.READ_ONLY, 0L, fileSize), toInt(fileSize), true);
+                    try {
+                        if (keep.test(buf)) { //file should be kept, skip it
+                            continue;
+                        }
+                    } finally {
+                        buf.release();
+                    }
+                } catch (Throwable ignored) {
+                    //no-op
+                }
+            } catch (NoSuchFileException e) { //file was deleted in the meantime
+                continue;
+            }
+
+            if (!Objects.equals(fileKey, fileKey(file))) { //the file was replaced with a new entry in the meantime, possibly by another process
+                continue;
+            }
+
+            //delete file
+            count.increment();
+            size.add(fileSize);
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Deletes all temporary files which were left behind by processes that crashed while writing them.
+     */
+    protected void pruneTmpFiles(@NonNull LongAdder count, @NonNull LongAdder size) throws IOException {
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(this.tmpDirectory)) {
+            files = stream.collect(Collectors.toList());
+        }
+
+        long staleTime = System.currentTimeMillis() - STALE_TMP_FILE_AGE;
+        for (Path file : files) {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                if (attributes.isRegularFile() && attributes.lastModifiedTime().toMillis() < staleTime && Files.deleteIfExists(file)) {
+                    count.increment();
+                    size.add(attributes.size());
+                }
+            } catch (NoSuchFileException e) { //the file was renamed into place in the meantime
+                //no-op
+            }
+        }
+    }
+
+    /**
+     * Gets a key which identifies the current version of the given file. It changes whenever the file is replaced.
+     */
+    private static Object fileKey(Path file) throws IOException {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            return attributes.fileKey() != null //the inode number on unix-like systems
+                    ? attributes.fileKey()
+                    : attributes.lastModifiedTime().toMillis() + ":" + attributes.size() + ":" + attributes.creationTime().toMillis();
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package net.buildtheearth.terraminusminus.util.http;
 
 import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
@@ -8,33 +9,53 @@ import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoop;
+import io.netty.handler.codec.DateFormatter;
 import io.netty.handler.codec.http.DefaultFullHttpRequest;
 import io.netty.handler.codec.http.FullHttpResponse;
 import io.netty.handler.codec.http.HttpClientCodec;
+import io.netty.handler.codec.http.HttpContent;
 import io.netty.handler.codec.http.HttpContentDecompressor;
 import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http.HttpHeaders;
 import io.netty.handler.codec.http.HttpMethod;
 import io.netty.handler.codec.http.HttpObjectAggregator;
 import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponse;
 import io.netty.handler.codec.http.HttpStatusClass;
 import io.netty.handler.codec.http.HttpUtil;
 import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.handler.codec.http2.Http2FrameCodec;
+import io.netty.handler.codec.http2.Http2FrameCodecBuilder;
+import io.netty.handler.codec.http2.Http2MultiplexHandler;
+import io.netty.handler.codec.http2.Http2Settings;
+import io.netty.handler.codec.http2.Http2StreamChannel;
+import io.netty.handler.codec.http2.Http2StreamChannelBootstrap;
+import io.netty.handler.codec.http2.Http2StreamFrameToHttpObjectCodec;
+import io.netty.handler.ssl.ApplicationProtocolNames;
+import io.netty.handler.ssl.ApplicationProtocolNegotiationHandler;
 import io.netty.handler.timeout.ReadTimeoutHandler;
+import io.netty.handler.timeout.TimeoutException;
 import io.netty.handler.timeout.WriteTimeoutHandler;
 import io.netty.util.AttributeKey;
 import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.GenericFutureListener;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.ToString;
+import net.buildtheearth.terraminusminus.TerraConfig;
 import net.buildtheearth.terraminusminus.TerraConstants;
 import net.daporkchop.lib.common.misc.string.PStrings;
 import net.daporkchop.lib.common.util.PorkUtil;
 
-import java.util.ArrayDeque;
+import java.io.IOException;
 import java.util.Collections;
-import java.util.Deque;
+import java.util.Date;
 import java.util.IdentityHashMap;
+import java.util.PriorityQueue;
+import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
@@ -43,25 +64,74 @@ import static net.daporkchop.lib.common.util.PValidation.*;
 
 /**
  * Manages request queueing, connection keepalives and potential HTTP/2 upgrades for a single remote host.
+ * <p>
+ * If the host supports HTTP/2 (negotiated using ALPN, so only over TLS), all requests are multiplexed as separate streams over a single connection,
+ * limited by {@link #setMaxConcurrentStreams(int)}. Otherwise, requests are sent over up to {@link #setMaxConcurrentRequests(int)} separate HTTP/1.1
+ * keepalive connections.
+ * <p>
+ * Queued requests are served in order of their deadline rather than in the order they were submitted, see {@link RequestPriority}.
+ * <p>
+ * If enabled in {@link TerraConfig.HttpOpts#adaptiveConcurrency}, the number of concurrent requests is adjusted by a
+ * {@link ConcurrencyController} depending on how the host responds, and the configured limits only act as an upper bound.
+ * <p>
+ * If enabled in {@link TerraConfig.HttpOpts#circuitBreaker}, requests are failed immediately while the host appears to be down, see
+ * {@link CircuitBreaker}.
  *
  * @author DaPorkchop_
  */
 final class HostManager extends Host {
     private static final AttributeKey<Request> ATTR_REQUEST = AttributeKey.valueOf(Request.class, "terra++");
 
-    private final Deque<Request> pendingRequests = new ArrayDeque<>();
+    static final int DEFAULT_MAX_CONCURRENT_STREAMS = 32;
+
+    /**
+     * The maximum number of times a request will be re-sent if the host responds with {@code 429 Too Many Requests} or
+     * {@code 503 Service Unavailable}.
+     */
+    static final int MAX_THROTTLED_RETRIES = 3;
+
+    /**
+     * The delay (in milliseconds) before a throttled request is re-sent for the first time, if the host doesn't send a {@code Retry-After} header.
+     * It's doubled for every further retry.
+     */
+    static final long THROTTLED_RETRY_BASE_DELAY = 250L;
+
+    /**
+     * The maximum delay (in milliseconds) before a throttled request is re-sent. If the host asks to wait for longer than this, the response is
+     * passed on to the caller instead.
+     */
+    static final long THROTTLED_RETRY_MAX_DELAY = TimeUnit.SECONDS.toMillis(30L);
+
+    //all of this host's state is only accessed from this event loop, which is also the one all of its connections are registered to
+    final EventLoop eventLoop;
+
+    private final Queue<Request> pendingRequests = new PriorityQueue<>();
+    private long requestSequence; //breaks ties between requests with the same deadline, so that they're served in the order they were submitted
     private final Bootstrap bootstrap;
 
     private int maxConcurrentRequests = 1;
     private int activeRequests;
 
+    private int maxConcurrentStreams = DEFAULT_MAX_CONCURRENT_STREAMS;
+
+    private final ConcurrencyController concurrency = new ConcurrencyController(1);
+    private final CircuitBreaker breaker = new CircuitBreaker();
+
     private final Set<Channel> channels = Collections.newSetFromMap(new IdentityHashMap<>());
     private ChannelFuture channelFuture;
 
+    //the single multiplexed HTTP/2 connection, or null if there is none
+    private Channel http2Channel;
+    private Http2FrameCodec http2Codec;
+    private Http2StreamChannelBootstrap http2StreamBootstrap;
+
+    private final ChannelHandler streamInitializer = new StreamInitializer(new StreamHandler());
+
     public HostManager(@NonNull Host host) {
         super(host);
 
-        this.bootstrap = DEFAULT_BOOTSTRAP.clone()
+        this.eventLoop = NETWORK_EVENT_LOOP_GROUP.next();
+        this.bootstrap = DEFAULT_BOOTSTRAP.clone(this.eventLoop)
                 .handler(new Initializer(new Handler()))
                 .remoteAddress(this.host, this.port)
                 .attr(ATTR_REQUEST, null);
@@ -72,13 +142,38 @@ final class HostManager extends Host {
      *
      * @param path     the path of the request
      * @param callback a {@link Callback} that will be notified once the request is completed
+     * @param priority the request's priority, see {@link RequestPriority}
+     * @return a function which cancels the request. The callback won't be notified if the request is cancelled
      */
-    public void submit(@NonNull String path, @NonNull Callback callback, @NonNull HttpHeaders headers) {
-        NETWORK_EVENT_LOOP.submit(() -> { //force execution on network thread
-            this.pendingRequests.add(new Request(path, callback, headers)); //add to request queue
-
-            this.tryWorkOffQueue();
+    public Runnable submit(@NonNull String path, @NonNull Callback callback, @NonNull HttpHeaders headers, int priority) {
+        Request request = new Request(path, callback, headers, RequestPriority.deadline(notNegative(priority, "priority")));
+        this.eventLoop.execute(() -> { //force execution on network thread
+            if (!request.cancelled) {
+                request.sequence = this.requestSequence++;
+                this.pendingRequests.add(request); //add to request queue
+
+                this.tryWorkOffQueue();
+            }
         });
+        return () -> this.eventLoop.execute(() -> this.cancel(request));
+    }
+
+    private void cancel(@NonNull Request request) {
+        if (request.cancelled) {
+            return;
+        }
+        request.cancelled = true;
+
+        if (this.pendingRequests.remove(request)) { //the request hadn't been sent yet, so we don't need to do anything else
+            return;
+        }
+
+        Channel channel = request.channel;
+        if (channel != null && TerraConfig.http.resetCancelledRequests && channel.attr(ATTR_REQUEST).get() == request) {
+            //the request is still in flight. closing an HTTP/2 stream resets only that stream, while for HTTP/1.1 the whole connection has to be
+            // closed. in both cases, the active request counter is decremented once the channel has been closed
+            channel.close();
+        }
     }
 
     /**
@@ -87,22 +182,98 @@ final class HostManager extends Host {
      * @param maxConcurrentRequests the new maximum number of concurrent requests
      */
     public void setMaxConcurrentRequests(int maxConcurrentRequests) {
-        this.maxConcurrentRequests = positive(maxConcurrentRequests, "maxConcurrentRequests");
+        positive(maxConcurrentRequests, "maxConcurrentRequests");
+        this.eventLoop.execute(() -> {
+            this.maxConcurrentRequests = maxConcurrentRequests;
+            this.tryWorkOffQueue();
+        });
+    }
+
+    /**
+     * Updates the maximum number of concurrent streams to this host, if it supports HTTP/2.
+     *
+     * @param maxConcurrentStreams the new maximum number of concurrent streams
+     */
+    public void setMaxConcurrentStreams(int maxConcurrentStreams) {
+        positive(maxConcurrentStreams, "maxConcurrentStreams");
+        this.eventLoop.execute(() -> {
+            this.maxConcurrentStreams = maxConcurrentStreams;
+            this.tryWorkOffQueue();
+        });
+    }
+
+    /**
+     * @return the maximum number of requests which may currently be active at once
+     */
+    int maxActiveRequests() {
+        if (TerraConfig.http.circuitBreaker && this.breaker.state() == CircuitBreaker.State.HALF_OPEN) { //only send a single request to probe the host
+            return 1;
+        }
+
+        int max = this.http2Channel != null ? this.maxConcurrentStreams : this.maxConcurrentRequests;
+        if (!TerraConfig.http.adaptiveConcurrency) {
+            return max;
+        }
+
+        if (this.concurrency.maxLimit() != max) { //the configured limit was changed, or we switched between HTTP/1.1 and HTTP/2
+            this.concurrency.setMaxLimit(max);
+        }
+        return this.concurrency.limit();
     }
 
     private void tryWorkOffQueue() {
-        for (Request request; this.activeRequests < this.maxConcurrentRequests && (request = this.pendingRequests.peek()) != null && this.trySendRequest0(request); ) {
+        if (TerraConfig.http.circuitBreaker && !this.pendingRequests.isEmpty() && !this.breaker.allowRequests(System.nanoTime())) {
+            //the host is down, fail all requests right away instead of making each of them wait for a connection attempt to time out
+            this.failPendingRequests(new IOException("circuit breaker for " + this.authority + " is open, the host appears to be down"));
+            return;
+        }
+
+        for (Request request; this.activeRequests < this.maxActiveRequests()
+                              && (request = this.pendingRequests.peek()) != null && this.trySendRequest0(request); ) {
             checkState(this.pendingRequests.poll() == request, "unable to remove request from queue!");
         }
     }
 
     private boolean trySendRequest0(@NonNull Request request) {
-        if (request.callback.isCancelled()) { //future is already completed (probably due to cancellation), pretend that we handled it
+        if (request.cancelled || request.callback.isCancelled()) { //future is already completed (probably due to cancellation), pretend that we handled it
+            return true;
+        }
+
+        if (this.http2Channel != null) { //send the request as a new stream on the HTTP/2 connection
+            if (!this.http2Codec.connection().local().canOpenStream()) { //the server doesn't allow any more concurrent streams
+                return false;
+            }
+
+            this.http2StreamBootstrap.open().addListener((GenericFutureListener<Future<Http2StreamChannel>>) future -> {
+                if (!future.isSuccess()) {
+                    this.activeRequests--;
+                    request.callback.handle(null, future.cause());
+                    this.tryWorkOffQueue();
+                    return;
+                }
+
+                Http2StreamChannel stream = future.getNow();
+                if (request.cancelled) { //the request was cancelled while the stream was being opened
+                    this.activeRequests--;
+                    stream.close();
+                    this.tryWorkOffQueue();
+                    return;
+                }
+
+                stream.attr(ATTR_REQUEST).set(request);
+                request.channel = stream;
+                request.sentTime = System.nanoTime();
+                stream.pipeline().addFirst("read_timeout", new ReadTimeoutHandler(TIMEOUT, TimeUnit.SECONDS));
+                stream.writeAndFlush(request.toNetty());
+            });
+            this.activeRequests++;
             return true;
         }
 
         for (Channel channel : this.channels) {
             if (channel.attr(ATTR_REQUEST).compareAndSet(null, request)) { //the channel is currently inactive
+                request.channel = channel;
+                request.sentTime = System.nanoTime();
                 channel.pipeline().addFirst("read_timeout", new ReadTimeoutHandler(TIMEOUT, TimeUnit.SECONDS));
                 channel.writeAndFlush(request.toNetty()); //send request
                 this.activeRequests++;
@@ -122,34 +293,85 @@ final class HostManager extends Host {
 
     private void handleChannelOpened(@NonNull ChannelFuture channelFuture) {
         checkState(channelFuture == this.channelFuture, "unknown channel future?!?");
-        this.channelFuture = null;
 
         if (!channelFuture.isSuccess()) {
-            //TODO: fail pending requests only if no other connections are open
-            this.pendingRequests.forEach(r -> r.callback.handle(null, channelFuture.cause()));
-            this.pendingRequests.clear();
+            this.channelFuture = null;
+            this.handleConnectFailed(channelFuture.cause());
             return;
         }
 
         Channel channel = channelFuture.channel();
-        this.channels.add(channel);
         channel.closeFuture().addListener((ChannelFutureListener) this::handleChannelClosed);
 
+        if (!this.ssl) { //there's no protocol negotiation without TLS, so the connection can be used for HTTP/1.1 right away
+            this.handleChannelReady(channel, null);
+        }
+        //otherwise, channelFuture is kept until the protocol has been negotiated to prevent any more connections from being opened in the meantime
+    }
+
+    private void handleChannelReady(@NonNull Channel channel, Http2FrameCodec http2Codec) {
+        checkState(this.channelFuture != null && this.channelFuture.channel() == channel, "unknown channel?!?");
+        this.channelFuture = null;
+
+        if (http2Codec != null) { //all further requests will be multiplexed over this connection
+            this.http2Channel = channel;
+            this.http2Codec = http2Codec;
+            this.http2StreamBootstrap = new Http2StreamChannelBootstrap(channel).handler(this.streamInitializer);
+        } else {
+            this.channels.add(channel);
+        }
+
         this.tryWorkOffQueue();
     }
 
+    private void handleConnectFailed(@NonNull Throwable cause) {
+        this.breaker.onFailure(System.nanoTime());
+
+        //if there are other connections, the pending requests will be sent once one of them becomes available
+        if (this.http2Channel == null && this.channels.isEmpty()) {
+            this.failPendingRequests(cause);
+        }
+    }
+
+    private void failPendingRequests(@NonNull Throwable cause) {
+        this.pendingRequests.forEach(r -> r.callback.handle(null, cause));
+        this.pendingRequests.clear();
+    }
+
     private void handleChannelClosed(@NonNull ChannelFuture channelFuture) {
         Channel channel = channelFuture.channel();
+        if (this.channelFuture != null && this.channelFuture.channel() == channel) { //the channel was closed before the protocol could be negotiated
+            this.channelFuture = null;
+            this.handleConnectFailed(new IOException("connection to " + this.authority + " closed during protocol negotiation"));
+            return;
+        }
+
+        if (channel == this.http2Channel) {
+            //any streams which were still active will be failed individually once they're closed
+            this.http2Channel = null;
+            this.http2Codec = null;
+            this.http2StreamBootstrap = null;
+
+            //working off the queue will open a new connection if there are more pending requests
+            this.tryWorkOffQueue();
+            return;
+        }
+
         //if the channel is still stored as an active connection, it was closed for some other reason than the
         // server sending a "Connection: close" header, so let's double-check the channel state
         if (this.channels.remove(channel)) {
             Request request = channel.attr(ATTR_REQUEST).getAndSet(null);
             if (request != null) {
-                //the channel still has a request associated with it! the channel was a keepalive channel,
-                // and the server closed it at the same time as we sent the request. let's re-submit the request
-                // so that it can be issued again on a new channel
-
-                this.pendingRequests.addFirst(request); //add to front of queue so that it doesn't have to wait through the entire queue again
+                this.activeRequests--;
+
+                //the channel still has a request associated with it! either the request was cancelled and the connection was closed to abort it,
+                // or the channel was a keepalive channel and the server closed it at the same time as we sent the request. in the latter case,
+                // let's re-submit the request so that it can be issued again on a new channel
+                if (!request.cancelled) {
+                    request.channel = null;
+                    request.deadline = Long.MIN_VALUE; //move to front of queue so that it doesn't have to wait through the entire queue again
+                    this.pendingRequests.add(request);
+                }
             }
 
             //working off the queue may open a new channel to replace this one if there are more pending requests
@@ -157,8 +379,10 @@ final class HostManager extends Host {
         }
     }
 
-    private void handleResponse(@NonNull Channel channel, Object msg) {
+    private void handleResponse(@NonNull Channel channel, Object msg, boolean stream) {
         Request request = null;
+        boolean retry = false;
+        long retryDelay = 0L;
         try {
             if (!(msg instanceof FullHttpResponse)) {
                 throw new IllegalArgumentException(PorkUtil.className(msg));
@@ -172,15 +396,42 @@ final class HostManager extends Host {
             checkState(request != null, "received response on inactive channel?!?");
 
             this.activeRequests--; //decrement active requests counter to enable another request to be made
+            this.breaker.onSuccess(); //the host responded, so it's reachable
+
+            int code = response.status().code();
+            if ((code == 429 || code == 503) && TerraConfig.http.adaptiveConcurrency) { //the host is overloaded
+                this.concurrency.onThrottled(request.sentTime, System.nanoTime());
+
+                //send the request again after a delay, by which time the concurrency limit has been lowered. it keeps its original deadline, so
+                // it will be one of the next requests to be sent
+                if (request.throttledRetries < MAX_THROTTLED_RETRIES && !request.cancelled) {
+                    retryDelay = throttledRetryDelay(response, request.throttledRetries);
+                    retry = retryDelay >= 0L;
+                }
+            } else {
+                this.concurrency.onSuccess(request.sentTime, System.nanoTime());
+            }
 
-            if (!HttpUtil.isKeepAlive(response)) { //response isn't keep-alive, close connection
+            if (!stream && !HttpUtil.isKeepAlive(response)) { //response isn't keep-alive, close connection
                 //remove connection from active connections now to prevent it from
                 // being re-used if the close operation isn't completed before this method ends
                 this.channels.remove(channel);
                 channel.close();
             }
 
-            request.callback.handle(response, null);
+            if (retry) {
+                request.channel = null;
+                request.throttledRetries++;
+                Request retried = request;
+                this.eventLoop.schedule(() -> {
+                    if (!retried.cancelled) { //cancelling the request while it's waiting only sets the flag, as it isn't in the queue
+                        this.pendingRequests.add(retried);
+                        this.tryWorkOffQueue();
+                    }
+                }, retryDelay, TimeUnit.MILLISECONDS);
+            } else {
+                request.callback.handle(response, null);
+            }
         } catch (Exception e) {
             if (request != null) {
                 request.callback.handle(null, e);
@@ -188,10 +439,45 @@ final class HostManager extends Host {
         } finally {
             ReferenceCountUtil.release(msg);
 
+            if (stream && request != null) { //the HTTP/2 stream is finished, close it
+                channel.close();
+            }
+
             this.tryWorkOffQueue(); //if this request is completed, another slot must have been freed up
         }
     }
 
+    /**
+     * Gets the delay before a throttled request is re-sent, which is given by the response's {@code Retry-After} header if present, and
+     * increases exponentially with the number of retries otherwise.
+     *
+     * @param response the response
+     * @param retries  the number of times the request has already been retried
+     * @return the delay in milliseconds, or {@code -1L} if the host asked to wait for longer than {@link #THROTTLED_RETRY_MAX_DELAY}
+     */
+    static long throttledRetryDelay(@NonNull HttpResponse response, int retries) {
+        String retryAfter = response.headers().get(HttpHeaderNames.RETRY_AFTER);
+        long delay = THROTTLED_RETRY_BASE_DELAY << retries;
+        if (retryAfter != null) {
+            try { //either a number of seconds...
+                delay = TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter.trim()));
+            } catch (NumberFormatException e) { //...or a date
+                Date date = DateFormatter.parseHttpDate(retryAfter);
+                if (date != null) {
+                    delay = date.getTime() - System.currentTimeMillis();
+                }
+            }
+        }
+        return delay > THROTTLED_RETRY_MAX_DELAY ? -1L : Math.max(delay, 0L);
+    }
+
+    private void handleRequestFailed(@NonNull Request request, @NonNull Throwable cause) {
+        if (cause instanceof TimeoutException && TerraConfig.http.adaptiveConcurrency) { //the host didn't respond in time, it may be overloaded
+            this.concurrency.onThrottled(request.sentTime, System.nanoTime());
+        }
+        this.breaker.onFailure(System.nanoTime());
+    }
+
     /**
      * A callback function that is executed when the request is completed.
      *
@@ -210,6 +496,20 @@ final class HostManager extends Host {
          * @param throwable the {@link Throwable} that was thrown (if the request was not able to be executed successfully)
          */
         void handle(FullHttpResponse response, Throwable throwable);
+
+        /**
+         * Handles part of the body of a successful response while it's being received, before the whole response has been aggregated and passed
+         * to {@link #handle(FullHttpResponse, Throwable)}.
+         * <p>
+         * Called on the network thread. This method does not take ownership of the given buffer, and must retain it if it's needed after
+         * returning.
+         *
+         * @param head the response's status and headers, which are the same instance for every part of the same response
+         * @param data the received part of the body
+         * @param last whether this is the last part of the body
+         */
+        default void handleContent(HttpResponse head, ByteBuf data, boolean last) {
+        }
     }
 
     /**
@@ -217,9 +517,8 @@ final class HostManager extends Host {
      *
      * @author DaPorkchop_
      */
-    @RequiredArgsConstructor
-    @ToString
-    private final class Request {
+    @ToString(exclude = "channel")
+    private final class Request implements Comparable<Request> {
         @NonNull
         protected final String path;
         @NonNull
@@ -227,6 +526,28 @@ final class HostManager extends Host {
         @NonNull
         protected final HttpHeaders headers;
 
+        protected long deadline; //in the same time base as System.nanoTime()
+        protected long sequence;
+        protected long sentTime; //in the same time base as System.nanoTime()
+        protected int throttledRetries;
+
+        //only accessed from the network thread
+        protected Channel channel; //the channel (or HTTP/2 stream) the request was sent on, or null if it hasn't been sent yet
+        protected volatile boolean cancelled;
+
+        public Request(@NonNull String path, @NonNull Callback callback, @NonNull HttpHeaders headers, long deadline) {
+            this.path = path;
+            this.callback = callback;
+            this.headers = headers;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public int compareTo(Request o) {
+            int d = Long.compare(this.deadline, o.deadline);
+            return d != 0 ? d : Long.compare(this.sequence, o.sequence);
+        }
+
         public HttpRequest toNetty() {
             DefaultFullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, this.path);
             request.headers()
@@ -254,15 +575,94 @@ final class HostManager extends Host {
             ch.pipeline().addLast(new WriteTimeoutHandler(TIMEOUT, TimeUnit.SECONDS));
 
             if (HostManager.this.ssl) {
-                ch.pipeline().addLast(Http.SSL_CONTEXT.newHandler(ch.alloc(), HostManager.this.host, HostManager.this.port));
+                ch.pipeline().addLast(
+                        (TerraConfig.http.http2 ? Http.SSL_CONTEXT_HTTP2 : Http.SSL_CONTEXT).newHandler(ch.alloc(), HostManager.this.host, HostManager.this.port),
+                        new ApplicationProtocolNegotiationHandler(ApplicationProtocolNames.HTTP_1_1) {
+                            @Override
+                            protected void configurePipeline(ChannelHandlerContext ctx, String protocol) throws Exception {
+                                if (ApplicationProtocolNames.HTTP_2.equals(protocol)) {
+                                    HostManager.this.handleChannelReady(ctx.channel(), Initializer.this.initHttp2(ctx.channel()));
+                                } else {
+                                    Initializer.this.initHttp1(ctx.channel());
+                                    HostManager.this.handleChannelReady(ctx.channel(), null);
+                                }
+                            }
+                        });
+            } else {
+                this.initHttp1(ch);
             }
+        }
 
+        private void initHttp1(Channel ch) {
             ch.pipeline().addLast(
                     new HttpClientCodec(),
                     new HttpContentDecompressor(),
+                    new StreamingTap(),
                     new HttpObjectAggregator(Http.MAX_CONTENT_LENGTH),
                     this.httpHandler);
         }
+
+        private Http2FrameCodec initHttp2(Channel ch) {
+            Http2FrameCodec codec = Http2FrameCodecBuilder.forClient()
+                    .initialSettings(Http2Settings.defaultSettings().pushEnabled(false))
+                    .build();
+            ch.pipeline().addLast(
+                    codec,
+                    new Http2MultiplexHandler(new PushHandler()),
+                    new Http2ConnectionHandler());
+            return codec;
+        }
+    }
+
+    /**
+     * Initializes a {@link Http2StreamChannel} for sending a single HTTP/2 request.
+     *
+     * @author DaPorkchop_
+     */
+    @RequiredArgsConstructor
+    private final class StreamInitializer extends ChannelInitializer<Channel> {
+        @NonNull
+        private final ChannelHandler streamHandler;
+
+        @Override
+        protected void initChannel(Channel ch) throws Exception {
+            ch.pipeline().addLast(
+                    new Http2StreamFrameToHttpObjectCodec(false),
+                    new HttpContentDecompressor(),
+                    new StreamingTap(),
+                    new HttpObjectAggregator(Http.MAX_CONTENT_LENGTH),
+                    this.streamHandler);
+        }
+    }
+
+    /**
+     * Passes the body of successful responses to the current request's {@link Callback#handleContent(HttpResponse, ByteBuf, boolean)} as it's
+     * received, before it reaches the {@link HttpObjectAggregator}. The messages themselves are passed on unmodified.
+     *
+     * @author DaPorkchop_
+     */
+    private static final class StreamingTap extends ChannelInboundHandlerAdapter {
+        private HttpResponse head; //the response whose body is currently being received, or null if it isn't passed on
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+            if (msg instanceof HttpResponse) {
+                HttpResponse response = (HttpResponse) msg;
+                this.head = response.status().codeClass() == HttpStatusClass.SUCCESS ? response : null;
+            }
+
+            if (msg instanceof HttpContent && this.head != null) {
+                Request request = ctx.channel().attr(ATTR_REQUEST).get();
+                if (request != null && !request.cancelled) {
+                    request.callback.handleContent(this.head, ((HttpContent) msg).content(), msg instanceof LastHttpContent);
+                }
+                if (msg instanceof LastHttpContent) {
+                    this.head = null;
+                }
+            }
+
+            ctx.fireChannelRead(msg);
+        }
     }
 
     /**
@@ -275,13 +675,14 @@ final class HostManager extends Host {
         @Override
         public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
             ctx.pipeline().remove("read_timeout"); //remove read timeout listener to prevent a fake timeout if the connection is idle
-            HostManager.this.handleResponse(ctx.channel(), msg);
+            HostManager.this.handleResponse(ctx.channel(), msg, false);
         }
 
         @Override
         public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
             Request request = ctx.channel().attr(ATTR_REQUEST).getAndSet(null);
             if (request != null) { //inform request that it failed
+                HostManager.this.handleRequestFailed(request, cause);
                 request.callback.handle(null, cause);
                 HostManager.this.activeRequests--;
             }
@@ -289,4 +690,77 @@ final class HostManager extends Host {
             ctx.close();
         }
     }
+
+    /**
+     * Relays responses received on HTTP/2 streams to the host manager.
+     *
+     * @author DaPorkchop_
+     */
+    @ChannelHandler.Sharable
+    private final class StreamHandler extends ChannelInboundHandlerAdapter {
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+            if (ctx.pipeline().get("read_timeout") != null) {
+                ctx.pipeline().remove("read_timeout");
+            }
+            HostManager.this.handleResponse(ctx.channel(), msg, true);
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+            Request request = ctx.channel().attr(ATTR_REQUEST).getAndSet(null);
+            if (request != null) { //the stream was closed (e.g. reset by the server or the connection was lost) before a response was received
+                if (!request.cancelled) {
+                    request.callback.handle(null, new IOException("HTTP/2 stream closed before a response was received"));
+                }
+                HostManager.this.activeRequests--;
+                HostManager.this.tryWorkOffQueue();
+            }
+
+            super.channelInactive(ctx);
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+            Request request = ctx.channel().attr(ATTR_REQUEST).getAndSet(null);
+            if (request != null) { //inform request that it failed
+                HostManager.this.handleRequestFailed(request, cause);
+                request.callback.handle(null, cause);
+                HostManager.this.activeRequests--;
+                HostManager.this.tryWorkOffQueue();
+            }
+
+            ctx.close();
+        }
+    }
+
+    /**
+     * Sits at the tail of an HTTP/2 connection's pipeline, discarding connection-level frames and closing the connection if an exception occurs.
+     *
+     * @author DaPorkchop_
+     */
+    private static final class Http2ConnectionHandler extends ChannelInboundHandlerAdapter {
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+            ReferenceCountUtil.release(msg);
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+            ctx.close();
+        }
+    }
+
+    /**
+     * Immediately closes any streams opened by the server. Server push is disabled, so this should never actually happen.
+     *
+     * @author DaPorkchop_
+     */
+    @ChannelHandler.Sharable
+    private static final class PushHandler extends ChannelInboundHandlerAdapter {
+        @Override
+        public void channelActive(ChannelHandlerContext ctx) throws Exception {
+            ctx.close();
+        }
+    }
 }
@@ -5,7 +5,7 @@ import io.netty.bootstrap.Bootstrap;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.UnpooledByteBufAllocator;
 import io.netty.channel.ChannelOption;
-import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
 import io.netty.channel.epoll.Epoll;
 import io.netty.channel.epoll.EpollEventLoopGroup;
 import io.netty.channel.epoll.EpollSocketChannel;
@@ -15,7 +15,11 @@ import io.netty.handler.codec.http.DefaultHttpHeaders;
 import io.netty.handler.codec.http.EmptyHttpHeaders;
 import io.netty.handler.codec.http.FullHttpResponse;
 import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpStatusClass;
 import io.netty.handler.codec.http2.Http2SecurityUtil;
+import io.netty.handler.ssl.ApplicationProtocolConfig;
+import io.netty.handler.ssl.ApplicationProtocolNames;
 import io.netty.handler.ssl.SslContext;
 import io.netty.handler.ssl.SslContextBuilder;
 import io.netty.handler.ssl.SupportedCipherSuiteFilter;
@@ -25,25 +29,35 @@ import lombok.NonNull;
 import lombok.experimental.UtilityClass;
 import net.buildtheearth.terraminusminus.TerraConfig;
 import net.buildtheearth.terraminusminus.TerraMinusMinus;
+import net.buildtheearth.terraminusminus.util.Futures;
+import net.buildtheearth.terraminusminus.util.TerraExecutors;
 import net.daporkchop.lib.common.function.throwing.EFunction;
 import net.daporkchop.lib.common.misc.threadfactory.PThreadFactories;
 import net.daporkchop.lib.common.reference.cache.Cached;
 
 import javax.net.ssl.SSLException;
+import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.BiConsumer;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.IntStream;
 
 import static net.daporkchop.lib.common.util.PValidation.*;
 
@@ -58,67 +72,213 @@ public class Http {
 
     private final ThreadFactory NETWORK_THREAD_FACTORY = PThreadFactories.builder().daemon().minPriority().name("terra++ HTTP network thread").build();
 
-    protected final EventLoop NETWORK_EVENT_LOOP = (Epoll.isAvailable()
-            ? new EpollEventLoopGroup(1, NETWORK_THREAD_FACTORY) //use epoll on linux systems wherever possible
-            : new NioEventLoopGroup(1, NETWORK_THREAD_FACTORY)).next(); //this is fine because there's always exactly one network worker
+    /**
+     * The event loops which all connections are handled on. Each {@link HostManager} is pinned to a single event loop, so that connections to
+     * different hosts can be handled in parallel while the state of each host is still only ever accessed by a single thread.
+     */
+    protected final EventLoopGroup NETWORK_EVENT_LOOP_GROUP = Epoll.isAvailable()
+            ? new EpollEventLoopGroup(networkThreads(), NETWORK_THREAD_FACTORY) //use epoll on linux systems wherever possible
+            : new NioEventLoopGroup(networkThreads(), NETWORK_THREAD_FACTORY);
 
     protected final Bootstrap DEFAULT_BOOTSTRAP = new Bootstrap()
-            .group(NETWORK_EVENT_LOOP)
+            .group(NETWORK_EVENT_LOOP_GROUP)
             .channel(Epoll.isAvailable() ? EpollSocketChannel.class : NioSocketChannel.class)
             .option(ChannelOption.SO_KEEPALIVE, true)
             .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, toInt(TimeUnit.SECONDS.toMillis(TIMEOUT)));
 
     protected final SslContext SSL_CONTEXT;
+    protected final SslContext SSL_CONTEXT_HTTP2; //also offers HTTP/2 during the TLS handshake
 
     protected final Map<Host, HostManager> MANAGERS = new ConcurrentHashMap<>();
 
+    //requests which are currently in flight, keyed by URL. concurrent requests for the same URL share a single cache read and network fetch
+    private final Map<String, CoalescedRequest> IN_FLIGHT = new ConcurrentHashMap<>();
+    private final LongAdder REQUESTS = new LongAdder();
+    private final LongAdder COALESCED_REQUESTS = new LongAdder();
+
+    private final Map<Host, MirrorStats> MIRROR_STATS = new ConcurrentHashMap<>();
+
     protected final int MAX_CONTENT_LENGTH = Integer.MAX_VALUE; //impossibly large, no requests will actually be this big but whatever
 
     protected static final Cached<Matcher> URL_FORMATTING_MATCHER_CACHE = Cached.regex(Pattern.compile("\\$\\{([a-z0-9.]+)}"));
 
     static {
         try {
-            SSL_CONTEXT = SslContextBuilder.forClient()
-                    .ciphers(Http2SecurityUtil.CIPHERS, SupportedCipherSuiteFilter.INSTANCE)
-                    .trustManager(InsecureTrustManagerFactory.INSTANCE)
+            SSL_CONTEXT = sslContextBuilder().build();
+            SSL_CONTEXT_HTTP2 = sslContextBuilder() //offer HTTP/2, falling back to HTTP/1.1 if the server doesn't support it
+                    .applicationProtocolConfig(new ApplicationProtocolConfig(
+                            ApplicationProtocolConfig.Protocol.ALPN,
+                            ApplicationProtocolConfig.SelectorFailureBehavior.NO_ADVERTISE,
+                            ApplicationProtocolConfig.SelectedListenerFailureBehavior.ACCEPT,
+                            ApplicationProtocolNames.HTTP_2, ApplicationProtocolNames.HTTP_1_1))
                     .build();
         } catch (SSLException e) {
             throw new RuntimeException("unable to create ssl context", e);
         }
     }
 
+    private SslContextBuilder sslContextBuilder() {
+        return SslContextBuilder.forClient()
+                .ciphers(Http2SecurityUtil.CIPHERS, SupportedCipherSuiteFilter.INSTANCE)
+                .trustManager(InsecureTrustManagerFactory.INSTANCE);
+    }
+
+    private int networkThreads() {
+        int threads = TerraConfig.http.networkThreads;
+        return threads > 0 ? threads : Math.min(Runtime.getRuntime().availableProcessors(), 4);
+    }
+
     private HostManager managerFor(@NonNull URL url) {
         return MANAGERS.computeIfAbsent(new Host(url), HostManager::new);
     }
 
     /**
-     * Asynchronously gets the contents of the given resource.
+     * Gets the {@link MirrorStats} for the host of the given URL.
+     *
+     * @param url the URL
+     * @return the host's {@link MirrorStats}, or {@code null} if the URL isn't a valid HTTP(S) URL
+     */
+    MirrorStats mirrorStats(@NonNull String url) {
+        try {
+            return mirrorStats(new URL(url));
+        } catch (MalformedURLException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private MirrorStats mirrorStats(@NonNull URL url) {
+        return MIRROR_STATS.computeIfAbsent(new Host(url), host -> new MirrorStats());
+    }
+
+    /**
+     * Asynchronously gets the contents of the given resource, using the current thread's {@link RequestPriority}.
      *
      * @param url the url of the resource to get
      * @return a {@link CompletableFuture} which will be completed with the resource data, or {@code null} if the resource isn't found
      */
     public CompletableFuture<ByteBuf> get(@NonNull String url) {
+        return get(url, RequestPriority.current());
+    }
+
+    /**
+     * Asynchronously gets the contents of the given resource.
+     *
+     * @param url      the url of the resource to get
+     * @param priority the priority of the request, see {@link RequestPriority}
+     * @return a {@link CompletableFuture} which will be completed with the resource data, or {@code null} if the resource isn't found
+     */
+    public CompletableFuture<ByteBuf> get(@NonNull String url, int priority) {
         CompletableFuture<ByteBuf> future = new CompletableFuture<>();
-        get(url, future);
+        get(url, future, priority);
         return future;
     }
 
-    public void get(@NonNull String _url, @NonNull CompletableFuture<ByteBuf> future) {
+    /**
+     * Asynchronously gets the contents of the given resource, using the current thread's {@link RequestPriority}.
+     *
+     * @see #get(String, CompletableFuture, int)
+     */
+    public void get(@NonNull String url, @NonNull CompletableFuture<ByteBuf> future) {
+        get(url, future, RequestPriority.current());
+    }
+
+    /**
+     * Asynchronously gets the contents of the given resource.
+     * <p>
+     * If the same URL is already being requested, the request is shared with the other callers instead of sending it again, and keeps the
+     * priority it was originally submitted with.
+     * <p>
+     * Once every caller has cancelled its future, the request is removed from its host's queue. If it was already sent, it is aborted if
+     * {@link TerraConfig.HttpOpts#resetCancelledRequests} is enabled.
+     * <p>
+     * If {@link TerraConfig.HttpOpts#cacheOnly} is enabled, the future is completed with an {@link IOException} instead of sending the request if
+     * the resource isn't cached.
+     *
+     * @param url      the url of the resource to get
+     * @param future   a {@link CompletableFuture} which will be completed with the resource data, or {@code null} if the resource isn't found
+     * @param priority the priority of the request, see {@link RequestPriority}
+     */
+    public void get(@NonNull String url, @NonNull CompletableFuture<ByteBuf> future, int priority) {
+        get(url, future, priority, null);
+    }
+
+    /**
+     * @param stream receives the response body while it's being downloaded. Ignored if the request is shared with a request for the same URL
+     *               which is already in flight.
+     * @see #get(String, CompletableFuture, int)
+     */
+    private void get(@NonNull String url, @NonNull CompletableFuture<ByteBuf> future, int priority, StreamingResponse<?> stream) {
+        notNegative(priority, "priority");
+        REQUESTS.increment();
+
+        while (true) {
+            CoalescedRequest request = IN_FLIGHT.get(url);
+            if (request == null) {
+                CoalescedRequest created = new CoalescedRequest();
+                if ((request = IN_FLIGHT.putIfAbsent(url, created)) == null) { //we're the first to request this URL
+                    checkState(created.addConsumer(future), "unable to add consumer to new request?!?");
+                    created.future.whenComplete((buf, t) -> IN_FLIGHT.remove(url, created));
+                    fetch(url, created.future, priority, stream);
+                    return;
+                }
+            }
+
+            if (request.addConsumer(future)) {
+                COALESCED_REQUESTS.increment();
+                return;
+            }
+
+            //the request completed or was cancelled in the meantime, remove it so that we can try again
+            IN_FLIGHT.remove(url, request);
+        }
+    }
+
+    /**
+     * @return the total number of resources which have been requested using {@link #get(String, CompletableFuture, int)}
+     */
+    public long requestCount() {
+        return REQUESTS.sum();
+    }
+
+    /**
+     * @return the number of requests which were served by sharing a request for the same URL which was already in flight
+     */
+    public long coalescedRequestCount() {
+        return COALESCED_REQUESTS.sum();
+    }
+
+    private void fetch(@NonNull String _url, @NonNull CompletableFuture<ByteBuf> future, int priority, StreamingResponse<?> stream) {
+
         class State implements BiConsumer<ByteBuf, Throwable>, HostManager.Callback {
             URL parsed;
-            Path cacheFile;
+            String cacheKey;
 
             CacheEntry cacheEntry;
             ByteBuf cachedData;
             HttpHeaders nextHeaders = EmptyHttpHeaders.INSTANCE;
 
+            Runnable cancelRequest; //cancels the request which is currently being sent, if any
+            long submitTime;
+
             @Override
             public synchronized boolean isCancelled() {
                 return future.isDone();
             }
 
+            synchronized void cancel() {
+                if (this.cancelRequest != null) {
+                    this.cancelRequest.run();
+                    this.cancelRequest = null;
+                }
+            }
+
             @Override
             public synchronized void accept(ByteBuf cachedData, Throwable throwable) { //stage 1: handle value from cache
+                if (future.isDone()) { //the future was cancelled while the cache was being read
+                    ReferenceCountUtil.release(cachedData);
+                    return;
+                }
+
                 if (throwable != null) {
                     TerraMinusMinus.LOGGER.error("Unable to read cache for " + this.parsed, throwable);
                 }
@@ -137,7 +297,8 @@ public class Http {
                             this.cacheEntry = cacheEntry;
                             this.cachedData = cachedData.retain();
                             cacheEntry.touch(this.nextHeaders = new DefaultHttpHeaders());
-                        } else if (cacheEntry.isExpired(now)) { //discard data and pretend it doesn't exist
+                        } else if (cacheEntry.isExpired(now) && !TerraConfig.http.cacheOnly) { //discard data and pretend it doesn't exist
+                            //  (in cache-only mode, expired data is still better than nothing as it can't be refreshed)
                             if (!TerraConfig.reducedConsoleMessages) {
                                 TerraMinusMinus.LOGGER.info("Cache expired: {}", this.parsed);
                             }
@@ -160,17 +321,46 @@ public class Http {
                 }
 
                 //cache miss, send the actual request
-                managerFor(this.parsed).submit(this.parsed.getFile(), this, this.nextHeaders);
+                this.submit();
                 this.nextHeaders = EmptyHttpHeaders.INSTANCE;
             }
 
+            void submit() {
+                if (TerraConfig.http.cacheOnly) { //never touch the network
+                    try {
+                        if (this.cacheEntry != null) { //use the stale data instead of refreshing it
+                            this.handleCacheEntry(this.cacheEntry, this.cachedData);
+                        } else {
+                            future.completeExceptionally(new IOException("not in cache, and cache-only mode is enabled: " + this.parsed));
+                        }
+                    } catch (Exception e) {
+                        future.completeExceptionally(e);
+                    } finally {
+                        this.releaseCacheEntry();
+                    }
+                    return;
+                }
+
+                this.submitTime = System.nanoTime();
+                this.cancelRequest = managerFor(this.parsed).submit(this.parsed.getFile(), this, this.nextHeaders, priority);
+            }
+
+            @Override
+            public void handleContent(HttpResponse head, ByteBuf data, boolean last) {
+                if (stream != null && !future.isDone()) {
+                    stream.received(head, data, last);
+                }
+            }
+
             void handleCacheEntry(@NonNull CacheEntry cacheEntry, @NonNull ByteBuf cachedData) {
                 switch (cacheEntry.status) {
                     case CacheEntry.STATUS_NOT_FOUND: //404 Not Found
                         future.complete(null);
                         return;
                     case CacheEntry.STATUS_SUCCESS: //2xx
-                        future.complete(cachedData.retain());
+                        if (!future.complete(cachedData.retain())) { //the future was already completed (probably due to cancellation)
+                            cachedData.release();
+                        }
                         return;
                     case CacheEntry.STATUS_REDIRECT: //redirect
                         this.step(cacheEntry.location);
@@ -190,6 +380,17 @@ public class Http {
 
             @Override
             public synchronized void handle(FullHttpResponse response, Throwable throwable) { //stage 2: handle HTTP response
+                this.cancelRequest = null; //the request is complete, there's nothing left to cancel
+                if (!future.isDone()) { //don't count requests which were aborted because they were cancelled
+                    MirrorStats stats = mirrorStats(this.parsed);
+                    long now = System.nanoTime();
+                    if (throwable != null || response.status().codeClass() == HttpStatusClass.SERVER_ERROR) {
+                        stats.failed(now);
+                    } else {
+                        stats.succeeded(now - this.submitTime);
+                    }
+                }
+
                 try {
                     //if cacheEntry is non-null, it means we're currently attempting to refresh a stale entry
 
@@ -234,8 +435,8 @@ public class Http {
                         ByteBuf toCacheData = UnpooledByteBufAllocator.DEFAULT.compositeBuffer(2)
                                 .addComponent(true, cacheEntryBuffer)
                                 .addComponent(true, copiedBuffer.retainedSlice());
-                        if (!cacheEntry.noCache && this.cacheFile != null) { //store in cache
-                            Disk.write(this.cacheFile, toCacheData);
+                        if (!cacheEntry.noCache && this.cacheKey != null) { //store in cache
+                            Disk.writeCache(this.cacheKey, toCacheData);
                         } else { //manually release the data that would have been written to cache
                             toCacheData.release();
                         }
@@ -276,15 +477,21 @@ public class Http {
                 }
 
                 if (TerraConfig.http.cache) { //attempt to read from cache
-                    this.cacheFile = Disk.cacheFileFor(this.parsed.toString());
-                    Disk.read(this.cacheFile).whenComplete(this);
+                    this.cacheKey = this.parsed.toString();
+                    Disk.readCache(this.cacheKey).whenComplete(this);
                 } else { //send the actual request
-                    managerFor(this.parsed).submit(this.parsed.getFile(), this, this.nextHeaders);
+                    this.submit();
                 }
             }
         }
 
-        new State().step(_url);
+        State state = new State();
+        future.whenComplete((unused, t) -> {
+            if (future.isCancelled()) {
+                state.cancel();
+            }
+        });
+        state.step(_url);
     }
 
     /**
@@ -301,6 +508,22 @@ public class Http {
         }
     }
 
+    /**
+     * Sets the maximum number of concurrent HTTP/2 streams to the given remote host.
+     * <p>
+     * This only has an effect if the host supports HTTP/2, in which case it replaces the limit set by {@link #setMaximumConcurrentRequestsTo(String, int)}.
+     *
+     * @param host                 the host. May be any valid URL, however only the protocol and authority components will be considered
+     * @param maxConcurrentStreams the new maximum number of concurrent streams to the host
+     */
+    public void setMaximumConcurrentStreamsTo(@NonNull String host, int maxConcurrentStreams) {
+        try {
+            managerFor(new URL(host)).setMaxConcurrentStreams(maxConcurrentStreams);
+        } catch (MalformedURLException e) {
+            throw new IllegalArgumentException(host, e);
+        }
+    }
+
     /**
      * Attempts to GET an array of URLs in order, returning the parsed response body of the first successful one.
      *
@@ -309,47 +532,194 @@ public class Http {
      * @return the parsed response body
      */
     public static <T> CompletableFuture<T> getFirst(@NonNull String[] urls, @NonNull EFunction<ByteBuf, T> parseFunction) {
+        return getFirst(urls, parseFunction, TerraExecutors.decode());
+    }
+
+    /**
+     * Attempts to GET an array of URLs in order, returning the parsed response body of the first successful one.
+     * <p>
+     * The URLs are requested using the {@link MirrorStrategy#configured() configured} {@link MirrorStrategy}.
+     *
+     * @param urls          the URLs
+     * @param parseFunction a function to use to parse the response body
+     * @param executor      the executor on which the response body will be parsed
+     * @return the parsed response body
+     */
+    public static <T> CompletableFuture<T> getFirst(@NonNull String[] urls, @NonNull EFunction<ByteBuf, T> parseFunction, @NonNull Executor executor) {
+        return getFirst(urls, parseFunction, executor, MirrorStrategy.configured());
+    }
+
+    /**
+     * Attempts to GET an array of URLs which are mirrors of the same resource, returning the parsed response body of the first successful one.
+     *
+     * @param urls          the URLs
+     * @param parseFunction a function to use to parse the response body
+     * @param executor      the executor on which the response body will be parsed
+     * @param strategy      the {@link MirrorStrategy} which decides when each URL is requested
+     * @return the parsed response body
+     */
+    public static <T> CompletableFuture<T> getFirst(@NonNull String[] urls, @NonNull EFunction<ByteBuf, T> parseFunction, @NonNull Executor executor, @NonNull MirrorStrategy strategy) {
+        return getFirst(urls, strategy, (url, priority) -> getSingle(url, parseFunction, executor, priority));
+    }
+
+    /**
+     * Attempts to GET an array of URLs which are mirrors of the same resource, returning the decoded response body of the first successful one.
+     * <p>
+     * Unlike {@link #getFirst(String[], EFunction, Executor)}, the response body is decoded while it's being downloaded, so that decoding and
+     * downloading overlap. The response is still aggregated and cached as usual. If the response body can't be streamed (for example because it
+     * was read from the cache), it's decoded once it's complete instead.
+     * <p>
+     * The URLs are requested using the {@link MirrorStrategy#configured() configured} {@link MirrorStrategy}.
+     *
+     * @param urls           the URLs
+     * @param decoderFactory creates a new {@link StreamDecoder} for each response
+     * @param executor       the executor on which the response body will be decoded
+     * @return the decoded response body
+     */
+    public static <T> CompletableFuture<T> getFirstStreaming(@NonNull String[] urls, @NonNull Supplier<? extends StreamDecoder<T>> decoderFactory, @NonNull Executor executor) {
+        return getFirst(urls, MirrorStrategy.configured(), (url, priority) -> getSingleStreaming(url, decoderFactory, executor, priority));
+    }
+
+    private static <T> CompletableFuture<T> getFirst(@NonNull String[] urls, @NonNull MirrorStrategy strategy, @NonNull SingleRequester<T> requester) {
         checkArg(urls.length > 0, "must provide at least one url");
 
+        int priority = RequestPriority.current(); //subsequent URLs are requested from other threads
         if (urls.length == 1) {
-            return getSingle(urls[0], parseFunction);
+            return requester.get(urls[0], priority);
         }
 
-        class State implements BiConsumer<T, Throwable> {
+        String[] mirrors = strategy == MirrorStrategy.SEQUENTIAL ? urls : orderMirrors(urls);
+        double hedgePercentile = Math.max(0, Math.min(TerraConfig.http.hedgePercentile, 100)) / 100.0d;
+
+        class State implements Runnable {
             final CompletableFuture<T> future = new CompletableFuture<>();
             List<Throwable> suppressed;
 
             /**
-             * The current iteration index.
+             * The index of the next URL to request.
              */
-            int i = -1;
+            int next;
+
+            /**
+             * The number of URLs which were requested, but haven't completed yet.
+             */
+            int inFlight;
 
             /**
              * Whether or not any of the URLs completed successfully, but returned {@code 404 Not Found}.
              */
             boolean foundMissing;
 
-            @Override
-            public void accept(T value, Throwable cause) {
-                if (cause != null) {
-                    if (this.suppressed == null) {
-                        this.suppressed = new ArrayList<>();
+            boolean finished;
+
+            /**
+             * The attempts which are currently in progress, which are cancelled once the future is completed.
+             */
+            final List<CompletableFuture<T>> attempts = new ArrayList<>();
+
+            /**
+             * Requests the next URL once it's time to send a hedged request.
+             */
+            ScheduledFuture<?> hedge;
+
+            {
+                this.future.whenComplete((unused, t) -> this.cancelAttempts());
+            }
+
+            void cancelAttempts() {
+                List<CompletableFuture<T>> attempts;
+                synchronized (this) {
+                    this.cancelHedge();
+                    attempts = new ArrayList<>(this.attempts);
+                }
+
+                //cancelling a request may need to acquire other locks, so we mustn't hold ours while doing it
+                attempts.forEach(attempt -> attempt.cancel(false));
+            }
+
+            void cancelHedge() {
+                if (this.hedge != null) {
+                    this.hedge.cancel(false);
+                    this.hedge = null;
+                }
+            }
+
+            void completed(int i, CompletableFuture<T> attempt, T value, Throwable cause) {
+                synchronized (this) {
+                    this.attempts.remove(attempt);
+                    this.inFlight--;
+
+                    if (this.future.isDone()) { //another URL already succeeded, or the future was cancelled
+                        return;
+                    } else if (cause != null) {
+                        if (this.suppressed == null) {
+                            this.suppressed = new ArrayList<>();
+                        }
+                        this.suppressed.add(new RuntimeException(mirrors[i], cause));
+                    } else if (value == null) { //remember that one of the URLs 404'd
+                        this.foundMissing = true;
                     }
-                    this.suppressed.add(new RuntimeException(urls[this.i], cause));
-                } else if (value == null) { //remember that one of the URLs 404'd
-                    this.foundMissing = true;
-                } else { //complete the future successfully with the retrieved value
+                }
+
+                if (cause == null && value != null) { //complete the future successfully with the retrieved value
                     this.future.complete(value);
+                } else { //try the next URL right away instead of waiting for a pending hedged request
+                    this.run();
+                }
+            }
+
+            @Override
+            public void run() {
+                int i;
+                synchronized (this) {
+                    this.cancelHedge();
+                    if (this.future.isDone()) { //the future was cancelled, don't try any more URLs
+                        return;
+                    } else if (this.next == mirrors.length) {
+                        if (this.inFlight == 0 && !this.finished) { //every URL has been tried
+                            this.finished = true;
+                            i = -1;
+                        } else { //wait for the attempts which are still in progress
+                            return;
+                        }
+                    } else {
+                        i = this.next++;
+                        this.inFlight++;
+                    }
+                }
+
+                if (i < 0) {
+                    this.finish();
                     return;
                 }
 
-                this.advance();
+                CompletableFuture<T> attempt = requester.get(mirrors[i], priority);
+                attempt.whenComplete((value, cause) -> this.completed(i, attempt, value, cause));
+
+                boolean cancel;
+                synchronized (this) {
+                    if (attempt.isDone()) { //the attempt has already been handled
+                        return;
+                    }
+
+                    this.attempts.add(attempt);
+                    cancel = this.future.isDone();
+                    if (!cancel && strategy == MirrorStrategy.HEDGED && this.next < mirrors.length) {
+                        MirrorStats stats = mirrorStats(mirrors[i]);
+                        long delay = stats != null ? stats.hedgeDelay(hedgePercentile) : MirrorStats.DEFAULT_HEDGE_DELAY;
+                        this.hedge = NETWORK_EVENT_LOOP_GROUP.schedule(this, delay, TimeUnit.NANOSECONDS);
+                    }
+                }
+
+                if (cancel) { //another URL succeeded in the meantime
+                    attempt.cancel(false);
+                } else if (strategy == MirrorStrategy.RACE) {
+                    this.run();
+                }
             }
 
-            protected void advance() {
-                if (++this.i < urls.length) {
-                    getSingle(urls[this.i], parseFunction).whenComplete(this);
-                } else if (this.foundMissing) { //the best result from any of the URLs was a 404
+            void finish() {
+                if (this.foundMissing) { //the best result from any of the URLs was a 404
                     if (this.suppressed != null) {
                         RuntimeException e = new RuntimeException();
                         this.suppressed.forEach(e::addSuppressed);
@@ -365,10 +735,33 @@ public class Http {
         }
 
         State state = new State();
-        state.advance();
+        state.run();
         return state.future;
     }
 
+    /**
+     * Orders the given mirrors by their recent latency. Mirrors whose latency isn't known yet are placed after the ones whose latency is known,
+     * and mirrors which have recently been failing are placed last. Otherwise, the given order is kept.
+     *
+     * @param urls the URLs of the mirrors
+     * @return the ordered URLs
+     */
+    String[] orderMirrors(@NonNull String[] urls) {
+        long now = System.nanoTime();
+        long[] keys = new long[urls.length];
+        for (int i = 0; i < urls.length; i++) {
+            MirrorStats stats = mirrorStats(urls[i]);
+            long latency = stats != null ? stats.latency(0.5d) : -1L;
+            keys[i] = stats != null && stats.isUnhealthy(now) ? Long.MAX_VALUE
+                    : latency >= 0L ? latency : Long.MAX_VALUE - 1L;
+        }
+
+        return IntStream.range(0, urls.length).boxed()
+                .sorted(Comparator.comparingLong(i -> keys[i])) //stable, so mirrors with equal keys keep their order
+                .map(i -> urls[i])
+                .toArray(String[]::new);
+    }
+
     /**
      * Attempts to GET a single URL.
      *
@@ -377,16 +770,84 @@ public class Http {
      * @return the parsed response body
      */
     public static <T> CompletableFuture<T> getSingle(@NonNull String url, @NonNull EFunction<ByteBuf, T> parseFunction) {
-        return get(url)
-                .thenCompose(buf -> buf == null
-                        ? CompletableFuture.completedFuture(null)
-                        : CompletableFuture.supplyAsync(() -> {
-                    try {
-                        return parseFunction.apply(buf);
-                    } finally {
-                        buf.release();
-                    }
-                }));
+        return getSingle(url, parseFunction, TerraExecutors.decode());
+    }
+
+    /**
+     * Attempts to GET a single URL.
+     *
+     * @param url           the URL
+     * @param parseFunction a function to use to parse the response body
+     * @param executor      the executor on which the response body will be parsed
+     * @return the parsed response body
+     */
+    public static <T> CompletableFuture<T> getSingle(@NonNull String url, @NonNull EFunction<ByteBuf, T> parseFunction, @NonNull Executor executor) {
+        return getSingle(url, parseFunction, executor, RequestPriority.current());
+    }
+
+    private static <T> CompletableFuture<T> getSingle(@NonNull String url, @NonNull EFunction<ByteBuf, T> parseFunction, @NonNull Executor executor, int priority) {
+        CompletableFuture<ByteBuf> request = get(url, priority);
+        CompletableFuture<T> result = Futures.propagateCancellation(new CompletableFuture<T>(), request);
+        request.whenComplete((buf, t) -> {
+            if (t != null) {
+                result.completeExceptionally(t);
+            } else if (buf == null) {
+                result.complete(null);
+            } else if (result.isDone()) { //the result was cancelled while the response was being received, discard it
+                buf.release();
+            } else {
+                try {
+                    executor.execute(() -> {
+                        try {
+                            if (!result.isDone()) {
+                                result.complete(parseFunction.apply(buf));
+                            }
+                        } catch (Throwable e) {
+                            result.completeExceptionally(e);
+                        } finally {
+                            buf.release();
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    buf.release();
+                    result.completeExceptionally(e);
+                }
+            }
+        });
+        return result;
+    }
+
+    private static <T> CompletableFuture<T> getSingleStreaming(@NonNull String url, @NonNull Supplier<? extends StreamDecoder<T>> decoderFactory, @NonNull Executor executor, int priority) {
+        StreamingResponse<T> stream = new StreamingResponse<>(decoderFactory, executor);
+        CompletableFuture<ByteBuf> request = new CompletableFuture<>();
+        get(url, request, priority, stream);
+
+        CompletableFuture<T> result = Futures.propagateCancellation(new CompletableFuture<T>(), request);
+        request.whenComplete((buf, t) -> {
+            if (t != null) {
+                stream.abort();
+                result.completeExceptionally(t);
+            } else if (buf == null) {
+                stream.abort();
+                result.complete(null);
+            } else if (result.isDone()) { //the result was cancelled while the response was being received, discard it
+                stream.abort();
+                buf.release();
+            } else { //takes ownership of the buffer
+                stream.finish(buf, result);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Requests a single URL on behalf of {@link #getFirst(String[], MirrorStrategy, SingleRequester)}.
+     *
+     * @author DaPorkchop_
+     */
+    @FunctionalInterface
+    private interface SingleRequester<T> {
+        CompletableFuture<T> get(@NonNull String url, int priority);
     }
 
     public static String formatUrl(@NonNull Map<String, String> properties, @NonNull String url) {
@@ -419,6 +880,17 @@ public class Http {
                 TerraMinusMinus.LOGGER.warn("Invalid entry: \"{}\"", entry);
             }
         }
+        for (String entry : TerraConfig.http.maxConcurrentStreams) {
+            if (matcher.reset(entry).matches()) {
+                try {
+                    setMaximumConcurrentStreamsTo(matcher.group(2), Integer.parseInt(matcher.group(1)));
+                } catch (Exception e) {
+                    TerraMinusMinus.LOGGER.error("Invalid entry: \"" + entry + '"', e);
+                }
+            } else {
+                TerraMinusMinus.LOGGER.warn("Invalid entry: \"{}\"", entry);
+            }
+        }
     }
 
     protected <T> void copyResultTo(@NonNull CompletableFuture<T> src, @NonNull CompletableFuture<T> dst) {
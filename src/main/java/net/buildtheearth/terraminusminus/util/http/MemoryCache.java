@@ -0,0 +1,110 @@
+package net.buildtheearth.terraminusminus.util.http;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import lombok.NonNull;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.LongAdder;
+
+import static net.daporkchop.lib.common.util.PValidation.*;
+
+/**
+ * Keeps the most recently used raw cache entries (including their {@link CacheEntry} header) in memory, so that reading them again doesn't
+ * require any disk I/O.
+ * <p>
+ * This mostly helps when decoded data was evicted from a dataset's cache (which only holds soft references), but is needed again shortly after.
+ * The data is kept in the same form in which it is stored on disk, so it's usually still compressed and much smaller than the decoded data.
+ * <p>
+ * Entries are stored as plain {@code byte[]}s, so there's no need to worry about reference counting when an entry is evicted while it's being read.
+ * The buffers returned by {@link #get(byte[], long)} share their contents with the cached entry, and must not be modified.
+ * <p>
+ * Entries are identified by the SHA-256 hash of their URL (see {@link FileCacheStorage#hash(String)}), like in the {@link CacheIndex}, so that they
+ * can be removed when the cache is pruned.
+ *
+ * @author DaPorkchop_
+ */
+final class MemoryCache {
+    private final Cache<ByteBuffer, byte[]> cache; //the keys wrap the URL hashes, as arrays don't compare their contents
+    private final long maxSize;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param maxSize the maximum total size of all entries, in bytes
+     */
+    MemoryCache(long maxSize) {
+        this.maxSize = notNegative(maxSize, "maxSize");
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(maxSize)
+                .weigher((ByteBuffer hash, byte[] data) -> data.length)
+                .build();
+    }
+
+    /**
+     * Gets the cached data for the given URL.
+     *
+     * @param hash the SHA-256 hash of the URL
+     * @param now  the current time
+     * @return the cached data, or {@code null} if the URL isn't cached in memory or its entry has expired
+     */
+    ByteBuf get(@NonNull byte[] hash, long now) {
+        ByteBuffer key = ByteBuffer.wrap(hash);
+        byte[] data = this.cache.getIfPresent(key);
+        if (data != null) {
+            ByteBuf buf = Unpooled.wrappedBuffer(data);
+            if (now < CacheIndex.expireTime(buf)) {
+                this.hits.increment();
+                return buf;
+            }
+
+            //the entry is expired, don't waste any memory on it
+            this.cache.asMap().remove(key, data);
+        }
+
+        this.misses.increment();
+        return null;
+    }
+
+    /**
+     * Stores the cached data for the given URL, replacing any existing data.
+     * <p>
+     * This method does not take ownership of the given buffer.
+     *
+     * @param hash the SHA-256 hash of the URL
+     * @param data the data
+     */
+    void put(@NonNull byte[] hash, @NonNull ByteBuf data) {
+        if (this.maxSize == 0L) { //the memory cache is disabled, nothing would be kept anyway so there's no point in copying the data
+            return;
+        }
+        this.cache.put(ByteBuffer.wrap(hash), ByteBufUtil.getBytes(data));
+    }
+
+    /**
+     * Removes the cached data for the given URL, if any.
+     *
+     * @param hash the SHA-256 hash of the URL
+     */
+    void remove(@NonNull byte[] hash) {
+        this.cache.invalidate(ByteBuffer.wrap(hash));
+    }
+
+    /**
+     * @return the number of times that data was found in memory
+     */
+    long hitCount() {
+        return this.hits.sum();
+    }
+
+    /**
+     * @return the number of times that data wasn't found in memory, and had to be read from disk instead
+     */
+    long missCount() {
+        return this.misses.sum();
+    }
+}
@@ -0,0 +1,113 @@
+package net.buildtheearth.terraminusminus.util.http;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.Math.*;
+import static net.daporkchop.lib.common.util.PValidation.*;
+
+/**
+ * Keeps track of the recent latencies and failures of requests to a single host, which are used to decide in which order the mirrors passed to
+ * {@link Http#getFirst(String[], net.daporkchop.lib.common.function.throwing.EFunction)} are tried, and when a {@link MirrorStrategy#HEDGED hedged}
+ * request is sent.
+ * <p>
+ * Thread-safe.
+ *
+ * @author DaPorkchop_
+ */
+final class MirrorStats {
+    /**
+     * The number of most recent latencies which are kept.
+     */
+    static final int SAMPLES = 64;
+
+    /**
+     * The number of latencies which need to be known before they're used. Until then, the host's latency is considered to be unknown.
+     */
+    static final int MIN_SAMPLES = 8;
+
+    /**
+     * A host is considered to be unhealthy if this many requests to it failed in a row...
+     */
+    static final int UNHEALTHY_FAILURES = 3;
+
+    /**
+     * ...until this much time has passed since the last failure, after which it's given another chance.
+     */
+    static final long UNHEALTHY_DURATION = TimeUnit.SECONDS.toNanos(30L);
+
+    /**
+     * The hedge delay used for hosts whose latency is unknown.
+     */
+    static final long DEFAULT_HEDGE_DELAY = TimeUnit.SECONDS.toNanos(1L);
+
+    /**
+     * The minimum hedge delay, so that hosts with very low latency aren't flooded with hedged requests because of jitter.
+     */
+    static final long MIN_HEDGE_DELAY = TimeUnit.MILLISECONDS.toNanos(10L);
+
+    private final long[] latencies = new long[SAMPLES];
+    private int count;
+    private int next;
+
+    private int consecutiveFailures;
+    private long lastFailureTime;
+
+    /**
+     * Notifies the stats that a request completed.
+     *
+     * @param latency the time it took to complete the request, in nanoseconds
+     */
+    public synchronized void succeeded(long latency) {
+        this.latencies[this.next] = notNegative(latency, "latency");
+        this.next = (this.next + 1) % SAMPLES;
+        this.count = min(this.count + 1, SAMPLES);
+        this.consecutiveFailures = 0;
+    }
+
+    /**
+     * Notifies the stats that a request failed.
+     *
+     * @param now the current time, as given by {@link System#nanoTime()}
+     */
+    public synchronized void failed(long now) {
+        this.consecutiveFailures++;
+        this.lastFailureTime = now;
+    }
+
+    /**
+     * @param now the current time, as given by {@link System#nanoTime()}
+     * @return whether the host has recently been failing, and should only be used as a last resort
+     */
+    public synchronized boolean isUnhealthy(long now) {
+        return this.consecutiveFailures >= UNHEALTHY_FAILURES && now - this.lastFailureTime < UNHEALTHY_DURATION;
+    }
+
+    /**
+     * Gets the given percentile of the recent latencies.
+     *
+     * @param percentile the percentile, between {@code 0.0d} and {@code 1.0d}
+     * @return the latency in nanoseconds, or {@code -1L} if not enough latencies are known
+     */
+    public synchronized long latency(double percentile) {
+        checkArg(percentile >= 0.0d && percentile <= 1.0d, "percentile must be between 0 and 1 (given: %s)", percentile);
+        if (this.count < MIN_SAMPLES) {
+            return -1L;
+        }
+
+        long[] sorted = Arrays.copyOf(this.latencies, this.count);
+        Arrays.sort(sorted);
+        return sorted[min((int) (percentile * this.count), this.count - 1)];
+    }
+
+    /**
+     * Gets the time to wait for a response from this host before sending a hedged request to the next mirror.
+     *
+     * @param percentile the percentile of the recent latencies to wait for, between {@code 0.0d} and {@code 1.0d}
+     * @return the delay, in nanoseconds
+     */
+    public long hedgeDelay(double percentile) {
+        long latency = this.latency(percentile);
+        return latency < 0L ? DEFAULT_HEDGE_DELAY : max(latency, MIN_HEDGE_DELAY);
+    }
+}
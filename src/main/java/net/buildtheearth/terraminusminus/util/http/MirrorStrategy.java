@@ -0,0 +1,46 @@
+package net.buildtheearth.terraminusminus.util.http;
+
+import lombok.NonNull;
+import net.buildtheearth.terraminusminus.TerraConfig;
+
+/**
+ * The ways in which {@link Http#getFirst(String[], net.daporkchop.lib.common.function.throwing.EFunction)} can request a resource which is
+ * available from multiple mirrors.
+ * <p>
+ * Regardless of the strategy, the next mirror is tried as soon as a mirror fails or responds with {@code 404 Not Found}, and the requests to all
+ * other mirrors are cancelled as soon as one of them succeeds.
+ *
+ * @author DaPorkchop_
+ */
+public enum MirrorStrategy {
+    /**
+     * The mirrors are tried one after another, in the order in which they were given.
+     */
+    SEQUENTIAL,
+    /**
+     * The mirrors are tried one after another, ordered by their recent latency. If a mirror doesn't respond within the
+     * {@link TerraConfig.HttpOpts#hedgePercentile usual time}, the next mirror is tried as well without cancelling the first request.
+     */
+    HEDGED,
+    /**
+     * All mirrors are requested at once, and the first response is used. This multiplies the number of requests, and is therefore only
+     * worthwhile for small resources.
+     */
+    RACE;
+
+    /**
+     * @return the strategy configured in {@link TerraConfig.HttpOpts#mirrorStrategy}, or {@link #SEQUENTIAL} if it's unknown
+     */
+    public static MirrorStrategy configured() {
+        return parse(TerraConfig.http.mirrorStrategy);
+    }
+
+    static MirrorStrategy parse(@NonNull String name) {
+        for (MirrorStrategy strategy : values()) {
+            if (strategy.name().equalsIgnoreCase(name)) {
+                return strategy;
+            }
+        }
+        return SEQUENTIAL;
+    }
+}
@@ -0,0 +1,123 @@
+package net.buildtheearth.terraminusminus.util.http;
+
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+import net.buildtheearth.terraminusminus.TerraConfig;
+import net.buildtheearth.terraminusminus.substitutes.ChunkPos;
+
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static java.lang.Math.*;
+import static net.daporkchop.lib.common.util.PValidation.*;
+
+/**
+ * Keeps track of the priority of the HTTP requests sent by the current thread.
+ * <p>
+ * A priority is a non-negative integer, where lower values are more urgent. Requests to each host are served in order of their deadline, which
+ * is the time at which they were submitted plus their priority multiplied by {@link TerraConfig.HttpOpts#priorityAgingMillis}. Urgent requests
+ * therefore overtake less urgent ones which were queued shortly before them, but a request is never delayed by more than its priority allows,
+ * no matter how many urgent requests keep arriving.
+ * <p>
+ * The priority is stored in a thread-local, so that it doesn't need to be passed through every dataset. Asynchronous steps which may send
+ * requests on another thread carry the priority over using {@link #capture(Supplier)} or {@link #capture(Function)}.
+ *
+ * @author DaPorkchop_
+ */
+@UtilityClass
+public class RequestPriority {
+    /**
+     * The most urgent priority, for data which is needed right now.
+     */
+    public final int HIGHEST = 0;
+
+    /**
+     * The priority used if none was set.
+     */
+    public final int DEFAULT = 8;
+
+    /**
+     * The priority for bulk work which nobody is waiting on, such as exporting previews or seeding caches.
+     */
+    public final int BACKGROUND = 256;
+
+    private final ThreadLocal<int[]> CURRENT = ThreadLocal.withInitial(() -> new int[]{ DEFAULT });
+
+    /**
+     * @return the priority of requests sent by the current thread
+     */
+    public int current() {
+        return CURRENT.get()[0];
+    }
+
+    /**
+     * Runs the given action with the given priority set for the current thread.
+     *
+     * @param priority the priority
+     * @param action   the action to run
+     * @return the action's result
+     */
+    public <T> T with(int priority, @NonNull Supplier<T> action) {
+        notNegative(priority, "priority");
+
+        int[] current = CURRENT.get();
+        int old = current[0];
+        current[0] = priority;
+        try {
+            return action.get();
+        } finally {
+            current[0] = old;
+        }
+    }
+
+    /**
+     * Runs the given action with the given priority set for the current thread.
+     *
+     * @param priority the priority
+     * @param action   the action to run
+     */
+    public void run(int priority, @NonNull Runnable action) {
+        with(priority, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * Wraps the given action so that it runs with the current thread's priority, regardless of which thread it is run on.
+     */
+    public <T> Supplier<T> capture(@NonNull Supplier<T> action) {
+        int priority = current();
+        return () -> with(priority, action);
+    }
+
+    /**
+     * Wraps the given function so that it runs with the current thread's priority, regardless of which thread it is run on.
+     */
+    public <T, R> Function<T, R> capture(@NonNull Function<T, R> function) {
+        int priority = current();
+        return value -> with(priority, () -> function.apply(value));
+    }
+
+    /**
+     * Gets the priority for loading a chunk, based on its distance to the chunk which the requesting player is in.
+     *
+     * @param pos    the position of the chunk to load
+     * @param origin the position of the chunk which the player is in
+     * @return the priority
+     */
+    public int forDistance(@NonNull ChunkPos pos, @NonNull ChunkPos origin) {
+        long distance = max(abs((long) pos.x() - origin.x()), abs((long) pos.z() - origin.z()));
+        return (int) min(distance, BACKGROUND);
+    }
+
+    /**
+     * Computes the deadline of a request with the given priority which is submitted now.
+     *
+     * @param priority the priority
+     * @return the deadline, in the same time base as {@link System#nanoTime()}
+     */
+    long deadline(int priority) {
+        return System.nanoTime() + priority * 1_000_000L * TerraConfig.http.priorityAgingMillis;
+    }
+}
@@ -0,0 +1,612 @@
+package net.buildtheearth.terraminusminus.util.http;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.util.ReferenceCountUtil;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
+import it.unimi.dsi.fastutil.longs.Long2LongMap;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongList;
+import lombok.NonNull;
+import net.buildtheearth.terraminusminus.TerraConfig;
+import net.buildtheearth.terraminusminus.TerraMinusMinus;
+import net.daporkchop.lib.common.misc.string.PStrings;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import static net.daporkchop.lib.common.util.PValidation.*;
+
+/**
+ * {@link CacheStorage} which appends all entries to a small number of large segment files, instead of storing each one in a separate file.
+ * <p>
+ * Each record in a segment consists of a header (containing the SHA-256 hash of the URL, the length of the data and its CRC32 checksum) followed by
+ * the data itself. Records are only ever appended, replacing an entry simply appends a new record and points the index at it. Removing an entry
+ * appends a tombstone, which is a record with a different magic number and no data, so that the entry isn't restored when the segment is replayed.
+ * <p>
+ * The index maps the first 64 bits of each URL's hash to the location of its newest record. It is kept in memory and periodically written to disk
+ * as a snapshot, which also records how far the segments had been written at the time. When opening the storage, the snapshot is loaded and any
+ * records written after it are replayed from the segments. A torn record at the end of a segment (e.g. after a crash) is detected by its checksum,
+ * and the segment is truncated to the last valid record.
+ * <p>
+ * Space used by replaced or removed entries is reclaimed by {@link #compact(LongAdder, LongAdder) compaction}, which copies the live records out of
+ * any segment which is mostly garbage and then deletes it.
+ * <p>
+ * As the index and the active segment are shared by all entries, every operation is synchronized. The storage is locked while it's open, so that
+ * no other process can open it and corrupt the segments by appending to them at the same time.
+ *
+ * @author DaPorkchop_
+ */
+class SegmentCacheStorage implements CacheStorage, Closeable {
+    protected static final int RECORD_MAGIC = 0x54435352; //"TCSR"
+    protected static final int TOMBSTONE_MAGIC = 0x54435354; //"TCST"
+    protected static final int INDEX_MAGIC = 0x54435349; //"TCSI"
+    protected static final int INDEX_VERSION = 1;
+
+    protected static final int HASH_SIZE = 32; //SHA-256
+    //magic, url hash, data length, data crc32
+    protected static final int RECORD_HEADER_SIZE = 4 + HASH_SIZE + 4 + 4;
+    //magic, version, checkpoint segment, checkpoint offset, entry count
+    protected static final int INDEX_HEADER_SIZE = 4 + 4 + 4 + 8 + 4;
+
+    protected static final int OFFSET_BITS = 40;
+    protected static final long OFFSET_MASK = (1L << OFFSET_BITS) - 1L;
+
+    protected static final String SEGMENT_SUFFIX = ".seg";
+
+    public static final long DEFAULT_SEGMENT_SIZE = 256L << 20L;
+
+    /**
+     * The number of writes after which a new snapshot of the index is written.
+     */
+    protected static final int SNAPSHOT_INTERVAL = 65536;
+
+    /**
+     * Segments in which less than this fraction of the data is still live are compacted when pruning.
+     */
+    protected static final double COMPACTION_THRESHOLD = 0.5d;
+
+    protected static long location(int segment, long offset) {
+        return ((long) segment << OFFSET_BITS) | offset;
+    }
+
+    protected static int locationSegment(long location) {
+        return (int) (location >>> OFFSET_BITS);
+    }
+
+    protected static long locationOffset(long location) {
+        return location & OFFSET_MASK;
+    }
+
+    protected static long key(byte[] hash) {
+        return ByteBuffer.wrap(hash).getLong();
+    }
+
+    protected final Path root;
+    protected final Path indexFile;
+    protected final Path indexTmpFile;
+    protected final long segmentSize;
+
+    protected final FileLock lock;
+
+    protected final Long2LongMap index = new Long2LongOpenHashMap();
+    protected final TreeMap<Integer, Segment> segments = new TreeMap<>();
+    protected Segment active;
+
+    protected int writesSinceSnapshot;
+
+    public SegmentCacheStorage(@NonNull Path root) throws IOException {
+        this(root, DEFAULT_SEGMENT_SIZE);
+    }
+
+    public SegmentCacheStorage(@NonNull Path root, long segmentSize) throws IOException {
+        checkArg(segmentSize > RECORD_HEADER_SIZE && segmentSize <= OFFSET_MASK, "invalid segment size: %d", segmentSize);
+        this.root = Files.createDirectories(root);
+        this.indexFile = root.resolve("index");
+        this.indexTmpFile = root.resolve("index.tmp");
+        this.segmentSize = segmentSize;
+
+        this.index.defaultReturnValue(-1L);
+
+        this.lock = lock(root.resolve("lock"));
+        try {
+            this.open();
+        } catch (IOException | RuntimeException e) {
+            this.lock.channel().close();
+            throw e;
+        }
+    }
+
+    /**
+     * Acquires an exclusive lock on the given lock file.
+     *
+     * @throws IOException if the lock is already held by another process (or by another instance in this process)
+     */
+    protected static FileLock lock(@NonNull Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+        try {
+            FileLock lock = channel.tryLock();
+            if (lock != null) {
+                return lock;
+            }
+        } catch (OverlappingFileLockException e) {
+            //no-op
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+
+        channel.close();
+        throw new IOException("cache storage is already in use by another process: " + file.getParent());
+    }
+
+    protected Path segmentFile(int id) {
+        return this.root.resolve(PStrings.fastFormat("%08d%s", id, SEGMENT_SUFFIX));
+    }
+
+    protected void open() throws IOException {
+        Files.deleteIfExists(this.indexTmpFile);
+
+        try (Stream<Path> stream = Files.list(this.root)) {
+            for (Iterator<Path> itr = stream.iterator(); itr.hasNext(); ) {
+                Path file = itr.next();
+                String name = file.getFileName().toString();
+                if (name.endsWith(SEGMENT_SUFFIX)) {
+                    int id;
+                    try {
+                        id = Integer.parseInt(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+                    } catch (NumberFormatException e) {
+                        continue;
+                    }
+                    this.segments.put(id, new Segment(id, FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)));
+                }
+            }
+        }
+
+        //load the index snapshot, then replay everything which was written after it
+        long checkpoint = this.loadSnapshot();
+        for (Segment segment : this.segments.tailMap(locationSegment(checkpoint), true).values()) {
+            this.replay(segment, segment.id == locationSegment(checkpoint) ? Math.min(locationOffset(checkpoint), segment.size) : 0L);
+        }
+
+        //delete any old segments which aren't referenced by the index any more (e.g. if we crashed while compacting)
+        IntSet referenced = new IntOpenHashSet();
+        for (LongIterator itr = this.index.values().iterator(); itr.hasNext(); ) {
+            referenced.add(locationSegment(itr.nextLong()));
+        }
+        for (Iterator<Segment> itr = this.segments.headMap(locationSegment(checkpoint), false).values().iterator(); itr.hasNext(); ) {
+            Segment segment = itr.next();
+            if (!referenced.contains(segment.id)) {
+                itr.remove();
+                segment.delete();
+            }
+        }
+
+        this.active = this.segments.isEmpty() ? this.createSegment(0) : this.segments.lastEntry().getValue();
+    }
+
+    /**
+     * Loads the index snapshot.
+     *
+     * @return the location up to which the segments had been written when the snapshot was taken
+     */
+    protected long loadSnapshot() throws IOException {
+        if (!Files.exists(this.indexFile)) {
+            return location(this.segments.isEmpty() ? 0 : this.segments.firstKey(), 0L);
+        }
+
+        ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(this.indexFile));
+        try {
+            CRC32 crc = new CRC32();
+            crc.update(buf.array(), 0, buf.capacity() - 4);
+            checkState(buf.getInt(buf.capacity() - 4) == (int) crc.getValue(), "checksum mismatch");
+            checkState(buf.getInt() == INDEX_MAGIC && buf.getInt() == INDEX_VERSION, "invalid header");
+
+            int checkpointSegment = buf.getInt();
+            long checkpointOffset = buf.getLong();
+            for (int i = 0, count = buf.getInt(); i < count; i++) {
+                this.index.put(buf.getLong(), buf.getLong());
+            }
+            return location(checkpointSegment, checkpointOffset);
+        } catch (RuntimeException e) { //the snapshot is corrupted, rebuild the index from scratch
+            if (!TerraConfig.reducedConsoleMessages) {
+                TerraMinusMinus.LOGGER.warn("cache index is corrupted, rebuilding it", e);
+            }
+            this.index.clear();
+            return location(this.segments.isEmpty() ? 0 : this.segments.firstKey(), 0L);
+        }
+    }
+
+    /**
+     * Writes a new snapshot of the index.
+     */
+    protected void snapshot() throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(INDEX_HEADER_SIZE + this.index.size() * 16 + 4);
+        buf.putInt(INDEX_MAGIC).putInt(INDEX_VERSION).putInt(this.active.id).putLong(this.active.size).putInt(this.index.size());
+        for (Long2LongMap.Entry entry : this.index.long2LongEntrySet()) {
+            buf.putLong(entry.getLongKey()).putLong(entry.getLongValue());
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buf.array(), 0, buf.position());
+        buf.putInt((int) crc.getValue());
+
+        Files.write(this.indexTmpFile, buf.array());
+        Files.move(this.indexTmpFile, this.indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        this.writesSinceSnapshot = 0;
+    }
+
+    /**
+     * Adds every valid record in the given segment starting at the given offset to the index, and truncates the segment after the last valid record.
+     */
+    protected void replay(Segment segment, long offset) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        byte[] hash = new byte[HASH_SIZE];
+        while (offset + RECORD_HEADER_SIZE <= segment.size) {
+            header.clear();
+            readFully(segment.channel, header, offset);
+            header.flip();
+
+            int magic = header.getInt();
+            header.get(hash);
+            int length = header.getInt();
+            int crc = header.getInt();
+            if ((magic != RECORD_MAGIC && magic != TOMBSTONE_MAGIC) || length < 0 || offset + RECORD_HEADER_SIZE + length > segment.size
+                || crc != checksum(segment.channel, offset + RECORD_HEADER_SIZE, length)) {
+                break;
+            }
+
+            if (magic == TOMBSTONE_MAGIC) {
+                this.index.remove(key(hash));
+            } else {
+                this.index.put(key(hash), location(segment.id, offset));
+            }
+            offset += RECORD_HEADER_SIZE + length;
+        }
+
+        if (offset != segment.size) { //there's a torn or corrupted record at the end of the segment, discard it
+            if (!TerraConfig.reducedConsoleMessages) {
+                TerraMinusMinus.LOGGER.warn("discarding {} bytes of corrupted data at the end of cache segment {}", segment.size - offset, segment.id);
+            }
+            segment.channel.truncate(offset);
+            segment.size = offset;
+        }
+    }
+
+    protected Segment createSegment(int id) throws IOException {
+        Segment segment = new Segment(id, FileChannel.open(this.segmentFile(id), StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING));
+        this.segments.put(id, segment);
+        return segment;
+    }
+
+    /**
+     * Reads the record at the given location.
+     *
+     * @param hash the expected hash of the record's URL, or {@code null} if any hash is acceptable
+     * @return the record's data, or {@code null} if the record is missing or invalid
+     */
+    protected ByteBuf readRecord(long location, byte[] hash) throws IOException {
+        Segment segment = this.segments.get(locationSegment(location));
+        long offset = locationOffset(location);
+        if (segment == null || offset + RECORD_HEADER_SIZE > segment.size) {
+            return null;
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        readFully(segment.channel, header, offset);
+        header.flip();
+
+        if (header.getInt() != RECORD_MAGIC) {
+            return null;
+        }
+        byte[] recordHash = new byte[HASH_SIZE];
+        header.get(recordHash);
+        if (hash != null && !Arrays.equals(hash, recordHash)) { //the index entry belongs to a different url with the same key
+            return null;
+        }
+
+        int length = header.getInt();
+        int crc = header.getInt();
+        if (length < 0 || offset + RECORD_HEADER_SIZE + length > segment.size) {
+            return null;
+        }
+
+        ByteBuf buf = ByteBufAllocator.DEFAULT.ioBuffer(length, length);
+        try {
+            for (int i = 0; i < length; ) {
+                int n = buf.writeBytes(segment.channel, offset + RECORD_HEADER_SIZE + i, length - i);
+                if (n < 0) {
+                    return null;
+                }
+                i += n;
+            }
+
+            CRC32 actualCrc = new CRC32();
+            actualCrc.update(buf.nioBuffer());
+            return (int) actualCrc.getValue() == crc ? buf.retain() : null;
+        } finally {
+            buf.release();
+        }
+    }
+
+    /**
+     * Appends a new record to the active segment.
+     *
+     * @return the location of the new record
+     */
+    protected long appendRecord(byte[] hash, ByteBuf data) throws IOException {
+        return this.appendRecord(RECORD_MAGIC, hash, data);
+    }
+
+    protected long appendRecord(int magic, byte[] hash, ByteBuf data) throws IOException {
+        int length = data.readableBytes();
+        if (this.active.size != 0L && this.active.size + RECORD_HEADER_SIZE + length > this.segmentSize) { //the active segment is full, start a new one
+            this.active = this.createSegment(this.active.id + 1);
+        }
+
+        CRC32 crc = new CRC32();
+        for (ByteBuffer buffer : data.nioBuffers()) {
+            crc.update(buffer);
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        header.putInt(magic).put(hash).putInt(length).putInt((int) crc.getValue()).flip();
+
+        Segment segment = this.active;
+        long offset = segment.size;
+        try {
+            writeFully(segment.channel, header, offset);
+            for (int i = 0; i < length; ) {
+                i += data.getBytes(data.readerIndex() + i, segment.channel, offset + RECORD_HEADER_SIZE + i, length - i);
+            }
+        } catch (IOException e) { //don't leave a partially written record behind
+            segment.channel.truncate(offset);
+            throw e;
+        }
+        segment.size = offset + RECORD_HEADER_SIZE + length;
+        return location(segment.id, offset);
+    }
+
+    @Override
+    public synchronized ByteBuf read(@NonNull String url) throws IOException {
+        byte[] hash = FileCacheStorage.hash(url);
+        long location = this.index.get(key(hash));
+        return location < 0L ? null : this.readRecord(location, hash);
+    }
+
+    @Override
+    public synchronized void write(@NonNull String url, @NonNull ByteBuf data) throws IOException {
+        byte[] hash = FileCacheStorage.hash(url);
+        this.index.put(key(hash), this.appendRecord(hash, data));
+
+        if (++this.writesSinceSnapshot >= SNAPSHOT_INTERVAL) {
+            this.snapshot();
+        }
+    }
+
+    @Override
+    public synchronized void remove(@NonNull byte[] hash) throws IOException {
+        if (this.index.remove(key(hash)) < 0L) { //the entry doesn't exist
+            return;
+        }
+
+        //the segment containing the entry's record may be replayed when the storage is opened again
+        this.appendRecord(TOMBSTONE_MAGIC, hash, Unpooled.EMPTY_BUFFER);
+        if (++this.writesSinceSnapshot >= SNAPSHOT_INTERVAL) {
+            this.snapshot();
+        }
+    }
+
+    @Override
+    public synchronized void forEach(int headerSize, @NonNull EntryVisitor visitor) throws IOException {
+        notNegative(headerSize, "headerSize");
+
+        ByteBuffer recordHeader = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        ByteBuffer header = ByteBuffer.allocate(headerSize);
+        for (LongIterator itr = this.index.values().iterator(); itr.hasNext(); ) {
+            long location = itr.nextLong();
+            Segment segment = this.segments.get(locationSegment(location));
+            long offset = locationOffset(location);
+            if (segment == null || offset + RECORD_HEADER_SIZE > segment.size) {
+                continue;
+            }
+
+            recordHeader.clear();
+            readFully(segment.channel, recordHeader, offset);
+            recordHeader.flip();
+            if (recordHeader.getInt() != RECORD_MAGIC) {
+                continue;
+            }
+            byte[] hash = new byte[HASH_SIZE];
+            recordHeader.get(hash);
+            int length = recordHeader.getInt();
+            if (length < 0 || offset + RECORD_HEADER_SIZE + length > segment.size) {
+                continue;
+            }
+
+            header.clear().limit(Math.min(headerSize, length));
+            readFully(segment.channel, header, offset + RECORD_HEADER_SIZE);
+            header.flip();
+            visitor.visit(hash, length, Unpooled.wrappedBuffer(header));
+        }
+    }
+
+    @Override
+    public synchronized void prune(@NonNull Predicate<ByteBuf> keep, @NonNull LongAdder count, @NonNull LongAdder size) throws IOException {
+        //remove all entries which shouldn't be kept
+        for (Iterator<Long2LongMap.Entry> itr = this.index.long2LongEntrySet().iterator(); itr.hasNext(); ) {
+            long location = itr.next().getLongValue();
+            ByteBuf data = this.readRecord(location, null);
+            try {
+                boolean shouldKeep;
+                try {
+                    shouldKeep = data != null && keep.test(data.duplicate());
+                } catch (Throwable ignored) {
+                    shouldKeep = false;
+                }
+
+                if (!shouldKeep) {
+                    itr.remove();
+                    count.increment();
+                    size.add(data != null ? RECORD_HEADER_SIZE + data.readableBytes() : 0L);
+                }
+            } finally {
+                ReferenceCountUtil.release(data);
+            }
+        }
+
+        this.compact(count, size);
+    }
+
+    @Override
+    public synchronized void compact(@NonNull LongAdder count, @NonNull LongAdder size) throws IOException {
+        //find out how much live data each segment contains, which only requires reading the record headers
+        Map<Integer, long[]> liveBytes = new TreeMap<>();
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        for (LongIterator itr = this.index.values().iterator(); itr.hasNext(); ) {
+            long location = itr.nextLong();
+            Segment segment = this.segments.get(locationSegment(location));
+            if (segment == null || locationOffset(location) + RECORD_HEADER_SIZE > segment.size) {
+                continue;
+            }
+
+            header.clear();
+            readFully(segment.channel, header, locationOffset(location));
+            if (header.getInt(0) == RECORD_MAGIC) {
+                liveBytes.computeIfAbsent(segment.id, id -> new long[1])[0] += RECORD_HEADER_SIZE + Math.max(header.getInt(4 + HASH_SIZE), 0);
+            }
+        }
+
+        //find segments which are mostly garbage
+        IntSet compact = new IntOpenHashSet();
+        for (Segment segment : this.segments.values()) {
+            long live = liveBytes.getOrDefault(segment.id, new long[1])[0];
+            if (segment != this.active && live < segment.size * COMPACTION_THRESHOLD) {
+                compact.add(segment.id);
+            }
+        }
+
+        if (!compact.isEmpty()) {
+            //copy all live records out of the segments which are being compacted
+            LongList toMove = new LongArrayList();
+            for (Long2LongMap.Entry entry : this.index.long2LongEntrySet()) {
+                if (compact.contains(locationSegment(entry.getLongValue()))) {
+                    toMove.add(entry.getLongKey());
+                }
+            }
+
+            byte[] hash = new byte[HASH_SIZE];
+            for (LongIterator itr = toMove.iterator(); itr.hasNext(); ) {
+                long key = itr.nextLong();
+                long location = this.index.get(key);
+
+                //the record's hash is needed to write the new record
+                header.clear();
+                readFully(this.segments.get(locationSegment(location)).channel, header, locationOffset(location));
+                header.position(4);
+                header.get(hash);
+
+                ByteBuf data = this.readRecord(location, hash);
+                try {
+                    if (data != null) {
+                        this.index.put(key, this.appendRecord(hash, data));
+                    } else {
+                        this.index.remove(key);
+                    }
+                } finally {
+                    ReferenceCountUtil.release(data);
+                }
+            }
+        }
+
+        //the index must be persisted before the compacted segments can be deleted
+        this.snapshot();
+
+        for (int id : compact) {
+            this.segments.remove(id).delete();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            this.snapshot();
+        } finally {
+            for (Segment segment : this.segments.values()) {
+                segment.channel.close();
+            }
+            this.segments.clear();
+            this.lock.channel().close(); //closing the channel releases the lock
+        }
+    }
+
+    protected static int checksum(FileChannel channel, long offset, int length) throws IOException {
+        CRC32 crc = new CRC32();
+        ByteBuffer buf = ByteBuffer.allocate(Math.min(length, 65536));
+        for (long end = offset + length; offset < end; ) {
+            buf.clear().limit((int) Math.min(buf.capacity(), end - offset));
+            readFully(channel, buf, offset);
+            buf.flip();
+            offset += buf.remaining();
+            crc.update(buf);
+        }
+        return (int) crc.getValue();
+    }
+
+    protected static void readFully(FileChannel channel, ByteBuffer dst, long position) throws IOException {
+        while (dst.hasRemaining()) {
+            int n = channel.read(dst, position);
+            if (n < 0) {
+                throw new IOException("unexpected end of file");
+            }
+            position += n;
+        }
+    }
+
+    protected static void writeFully(FileChannel channel, ByteBuffer src, long position) throws IOException {
+        while (src.hasRemaining()) {
+            position += channel.write(src, position);
+        }
+    }
+
+    /**
+     * A single segment file.
+     *
+     * @author DaPorkchop_
+     */
+    protected final class Segment {
+        protected final int id;
+        protected final FileChannel channel;
+        protected long size;
+
+        protected Segment(int id, @NonNull FileChannel channel) throws IOException {
+            this.id = id;
+            this.channel = channel;
+            this.size = channel.size();
+        }
+
+        protected void delete() throws IOException {
+            this.channel.close();
+            Files.deleteIfExists(SegmentCacheStorage.this.segmentFile(this.id));
+        }
+    }
+}
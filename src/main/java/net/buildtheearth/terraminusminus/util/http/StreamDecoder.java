@@ -0,0 +1,33 @@
+package net.buildtheearth.terraminusminus.util.http;
+
+import io.netty.buffer.ByteBuf;
+import lombok.NonNull;
+
+/**
+ * Decodes a response body incrementally, while it's still being received.
+ * <p>
+ * Used by {@link Http#getFirstStreaming(String[], java.util.function.Supplier, java.util.concurrent.Executor)}. A new instance is created for
+ * every response, and its methods are never called concurrently, although they may be called from different threads of the decode executor.
+ * <p>
+ * If a response can't be streamed (for example because it was read from the cache), a new decoder is given the whole body at once instead, so
+ * implementations must produce the same result no matter how the body is split up.
+ *
+ * @author DaPorkchop_
+ */
+public interface StreamDecoder<T> {
+    /**
+     * Decodes the next part of the response body.
+     * <p>
+     * This method does not take ownership of the given buffer, and must not retain it after returning.
+     *
+     * @param data the next part of the response body
+     */
+    void decode(@NonNull ByteBuf data) throws Exception;
+
+    /**
+     * Called once the whole response body has been passed to {@link #decode(ByteBuf)}.
+     *
+     * @return the decoded value
+     */
+    T finish() throws Exception;
+}
@@ -0,0 +1,192 @@
+package net.buildtheearth.terraminusminus.util.http;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.util.ReferenceCountUtil;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Feeds the body of a response to a {@link StreamDecoder} while it's being received.
+ * <p>
+ * Parts of the body are received on the network thread, and are queued to be decoded one after another on the decode executor. Once the request
+ * has completed, the streamed result is only used if the decoder saw the entire body which the request completed with. Otherwise (if the body
+ * was read from the cache, if the request was shared with a request which was already in flight, or if the server responded with
+ * {@code 304 Not Modified}), the complete body is decoded by a new decoder instead.
+ *
+ * @author DaPorkchop_
+ */
+@RequiredArgsConstructor
+final class StreamingResponse<T> {
+    private static final Object RESET = new Object();
+    private static final Object LAST = new Object();
+
+    @NonNull
+    private final Supplier<? extends StreamDecoder<T>> decoderFactory;
+    @NonNull
+    private final Executor executor;
+
+    //only accessed from the network thread
+    private HttpResponse head;
+
+    private final Queue<Object> queue = new ArrayDeque<>();
+    private boolean draining;
+
+    //only accessed by the task which is currently draining the queue
+    private StreamDecoder<T> decoder;
+    private long decodedBytes;
+    private boolean complete;
+    private Throwable failure;
+    private boolean aborted;
+    private Throwable rejected; //the exception thrown when the decode executor rejected a task, if any
+
+    /**
+     * Handles part of the body of a successful response, see {@link HostManager.Callback#handleContent(HttpResponse, ByteBuf, boolean)}.
+     */
+    void received(@NonNull HttpResponse head, @NonNull ByteBuf data, boolean last) {
+        if (this.head != head) { //a new response is being received (e.g. after a redirect), start over
+            this.head = head;
+            this.enqueue(RESET);
+        }
+        if (data.isReadable()) {
+            this.enqueue(data.retainedDuplicate());
+        }
+        if (last) {
+            this.enqueue(LAST);
+        }
+    }
+
+    /**
+     * Completes the given future with the decoded body once everything that was received so far has been decoded.
+     * <p>
+     * This method takes ownership of the given buffer.
+     *
+     * @param body   the complete response body
+     * @param result the future to complete
+     */
+    void finish(@NonNull ByteBuf body, @NonNull CompletableFuture<T> result) {
+        this.enqueue(new Finish<>(body, result));
+    }
+
+    /**
+     * Discards everything which was received, as the body isn't needed anymore.
+     */
+    void abort() {
+        this.enqueue(Finish.ABORT);
+    }
+
+    private void enqueue(@NonNull Object message) {
+        synchronized (this.queue) {
+            this.queue.add(message);
+            if (this.draining) { //the message will be handled by the task which is already running
+                return;
+            }
+            this.draining = true;
+        }
+
+        try {
+            this.executor.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            this.rejected = e;
+            this.aborted = true;
+            this.drain(); //doesn't decode anything, only releases the queued data and fails the result
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            Object message;
+            synchronized (this.queue) {
+                if ((message = this.queue.poll()) == null) {
+                    this.draining = false;
+                    return;
+                }
+            }
+
+            if (message == RESET) {
+                this.decoder = null;
+                this.decodedBytes = 0L;
+                this.complete = false;
+                this.failure = null;
+            } else if (message == LAST) {
+                this.complete = true;
+            } else if (message instanceof ByteBuf) {
+                this.decode((ByteBuf) message);
+            } else {
+                this.finish((Finish<?>) message);
+            }
+        }
+    }
+
+    private void decode(ByteBuf data) {
+        try {
+            if (this.aborted || this.failure != null) { //nobody is interested in the result
+                return;
+            }
+
+            if (this.decoder == null) {
+                this.decoder = this.decoderFactory.get();
+            }
+            this.decodedBytes += data.readableBytes();
+            this.decoder.decode(data);
+        } catch (Throwable t) { //the body will be decoded again once it's complete, which will fail again if the data is actually invalid
+            this.failure = t;
+        } finally {
+            data.release();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void finish(Finish<?> finish) {
+        CompletableFuture<T> result = (CompletableFuture<T>) finish.result;
+        if (finish == Finish.ABORT || this.aborted) {
+            this.aborted = true;
+            if (result != null) {
+                result.completeExceptionally(this.rejected != null ? this.rejected : new IllegalStateException("aborted"));
+            }
+            ReferenceCountUtil.release(finish.body);
+            return;
+        }
+        this.aborted = true; //the response is complete, anything received after this doesn't belong to it
+
+        try {
+            if (result.isDone()) { //the result was cancelled while the response was being received
+                return;
+            }
+
+            StreamDecoder<T> decoder;
+            if (this.complete && this.failure == null && this.decodedBytes == finish.body.readableBytes()) { //the entire body was already decoded
+                decoder = this.decoder != null ? this.decoder : this.decoderFactory.get();
+            } else {
+                decoder = this.decoderFactory.get();
+                decoder.decode(finish.body);
+            }
+            result.complete(decoder.finish());
+        } catch (Throwable t) {
+            result.completeExceptionally(t);
+        } finally {
+            finish.body.release();
+            this.decoder = null;
+        }
+    }
+
+    /**
+     * Requests the result to be completed once the queued data has been decoded.
+     *
+     * @author DaPorkchop_
+     */
+    @RequiredArgsConstructor
+    private static final class Finish<T> {
+        static final Finish<?> ABORT = new Finish<>(null, null);
+
+        private final ByteBuf body;
+        private final CompletableFuture<T> result;
+    }
+}
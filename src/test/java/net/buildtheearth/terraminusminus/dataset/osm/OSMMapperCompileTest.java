@@ -0,0 +1,97 @@
+package net.buildtheearth.terraminusminus.dataset.osm;
+
+import com.google.gson.stream.JsonReader;
+import net.buildtheearth.terraminusminus.TerraConstants;
+import net.buildtheearth.terraminusminus.dataset.geojson.Geometry;
+import net.buildtheearth.terraminusminus.dataset.geojson.geometry.LineString;
+import net.buildtheearth.terraminusminus.dataset.geojson.geometry.Point;
+import net.buildtheearth.terraminusminus.dataset.geojson.geometry.Polygon;
+import net.buildtheearth.terraminusminus.dataset.vector.geometry.VectorGeometry;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that compiled {@link OSMMapper}s produce the same results as the mappers they were compiled from.
+ */
+public class OSMMapperCompileTest {
+    private static final String[][] TAGS = {
+            { "highway", "motorway", "trunk", "primary", "secondary", "tertiary", "residential", "service", "footway", "path", "unknown" },
+            { "tunnel", "yes", "no", "culvert" },
+            { "bridge", "yes", "no" },
+            { "layer", "-1", "0", "1", "2" },
+            { "lanes", "1", "2", "4" },
+            { "building", "yes", "house" },
+            { "natural", "water", "coastline", "wood" },
+            { "waterway", "stream", "river", "riverbank", "canal" },
+            { "water", "lake", "river" },
+            { "landuse", "grass", "forest" },
+            { "leisure", "park" },
+            { "area", "yes" },
+            { "name", "foo" },
+    };
+
+    private static Root load(String name) throws IOException {
+        try (JsonReader reader = new JsonReader(new InputStreamReader(OSMMapper.class.getResourceAsStream(name), StandardCharsets.UTF_8))) {
+            return TerraConstants.GSON.fromJson(reader, Root.class);
+        }
+    }
+
+    private static Map<String, String> randomTags(SplittableRandom random) {
+        Map<String, String> tags = new HashMap<>();
+        for (String[] values : TAGS) {
+            if (random.nextInt(3) == 0) {
+                tags.put(values[0], values[1 + random.nextInt(values.length - 1)]);
+            }
+        }
+        return tags;
+    }
+
+    private static List<String> describe(Collection<VectorGeometry> results) {
+        if (results == null) {
+            return null;
+        }
+
+        List<String> out = new ArrayList<>();
+        for (VectorGeometry geometry : results) {
+            out.add(geometry.getClass().getName() + ' ' + geometry.id() + ' ' + geometry.layer());
+        }
+        return out;
+    }
+
+    @Test
+    public void testCompiledMatchesInterpreted() throws IOException {
+        Point[] points = {
+                new Point(0.0d, 0.0d),
+                new Point(0.0d, 0.001d),
+                new Point(0.001d, 0.001d),
+                new Point(0.001d, 0.0d),
+                new Point(0.0d, 0.0d)
+        };
+        Geometry line = new LineString(points);
+        Geometry polygon = new Polygon(new LineString(points), new LineString[0]);
+
+        for (String name : new String[]{ "osm.json5", "osm_no_buildings.json5", "osm_no_roads.json5", "osm_no_roads_or_buildings.json5" }) {
+            Root interpreted = load(name);
+            Root compiled = interpreted.compile();
+
+            SplittableRandom random = new SplittableRandom(1337L);
+            for (int i = 0; i < 5000; i++) {
+                Map<String, String> tags = randomTags(random);
+                for (Geometry geometry : new Geometry[]{ line, polygon }) {
+                    assertEquals(name + ' ' + tags, describe(interpreted.apply("test", tags, geometry, geometry)), describe(compiled.apply("test", tags, geometry, geometry)));
+                }
+            }
+        }
+    }
+}
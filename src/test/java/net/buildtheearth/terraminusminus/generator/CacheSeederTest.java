@@ -0,0 +1,212 @@
+package net.buildtheearth.terraminusminus.generator;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.HttpVersion;
+import net.buildtheearth.terraminusminus.TerraConfig;
+import net.buildtheearth.terraminusminus.substitutes.ChunkPos;
+import net.buildtheearth.terraminusminus.util.http.Http;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the area splitting and checkpointing of {@link CacheSeeder}, using a seeder which requests one resource per area from a local server.
+ */
+public class CacheSeederTest {
+    //a rectangle which isn't aligned to the areas on any side: 3x3 areas, the outer ones are cut off
+    private static final int MIN_X = 5;
+    private static final int MIN_Z = -3;
+    private static final int MAX_X = 40;
+    private static final int MAX_Z = 20;
+    private static final String REGION = MIN_X + " " + MIN_Z + " " + MAX_X + " " + MAX_Z;
+    private static final int TOTAL_AREAS = 9;
+
+    private static EarthGeneratorSettings settings;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private EventLoopGroup group;
+    private boolean cache;
+    private String url;
+
+    //the path of the area which the server fails to serve, or null if every request succeeds
+    private volatile String failingPath;
+
+    @Before
+    public void setup() {
+        if (settings == null) {
+            settings = EarthGeneratorSettings.parse(EarthGeneratorSettings.BTE_DEFAULT_SETTINGS);
+        }
+
+        this.group = new NioEventLoopGroup(1);
+        this.cache = TerraConfig.http.cache;
+        TerraConfig.http.cache = false; //every area has to actually be requested from the server
+
+        Channel channel = new ServerBootstrap()
+                .group(this.group)
+                .channel(NioServerSocketChannel.class)
+                .childHandler(new ChannelInitializer<Channel>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        ch.pipeline().addLast(
+                                new HttpServerCodec(),
+                                new HttpObjectAggregator(1 << 20),
+                                new SimpleChannelInboundHandler<FullHttpRequest>() {
+                                    @Override
+                                    protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest request) {
+                                        FullHttpResponse response = request.uri().equals(CacheSeederTest.this.failingPath)
+                                                ? new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.INTERNAL_SERVER_ERROR, Unpooled.EMPTY_BUFFER)
+                                                : new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK, Unpooled.copiedBuffer(request.uri(), StandardCharsets.UTF_8));
+                                        response.headers().set(HttpHeaderNames.CONTENT_LENGTH, response.content().readableBytes());
+                                        ctx.writeAndFlush(response);
+                                    }
+                                });
+                    }
+                })
+                .bind("127.0.0.1", 0).syncUninterruptibly().channel();
+        this.url = "http://127.0.0.1:" + ((InetSocketAddress) channel.localAddress()).getPort();
+    }
+
+    @After
+    public void teardown() {
+        this.group.shutdownGracefully(0L, 1L, TimeUnit.SECONDS);
+        TerraConfig.http.cache = this.cache;
+    }
+
+    private static String path(ChunkPos min, ChunkPos max) {
+        return "/" + min.x() + '/' + min.z() + '/' + max.x() + '/' + max.z();
+    }
+
+    @Test(timeout = 30000L)
+    public void testAreasClampedToRectangle() throws IOException {
+        TestSeeder seeder = new TestSeeder(null, 4);
+        seeder.seed(MIN_X, MIN_Z, MAX_X, MAX_Z);
+
+        assertEquals(TOTAL_AREAS, seeder.requested.size());
+        assertEquals(TOTAL_AREAS, seeder.areas().sum());
+
+        //every chunk in the rectangle is requested exactly once, and nothing outside of it
+        boolean[] covered = new boolean[(MAX_X - MIN_X + 1) * (MAX_Z - MIN_Z + 1)];
+        for (ChunkPos[] area : seeder.requested) {
+            ChunkPos min = area[0];
+            ChunkPos max = area[1];
+            assertTrue(min.x() >= MIN_X && min.z() >= MIN_Z && max.x() <= MAX_X && max.z() <= MAX_Z);
+            assertTrue(max.x() - min.x() < 1 << CacheSeeder.AREA_SHIFT && max.z() - min.z() < 1 << CacheSeeder.AREA_SHIFT);
+
+            for (int x = min.x(); x <= max.x(); x++) {
+                for (int z = min.z(); z <= max.z(); z++) {
+                    int index = (x - MIN_X) * (MAX_Z - MIN_Z + 1) + (z - MIN_Z);
+                    assertFalse("chunk " + x + ", " + z + " was requested twice", covered[index]);
+                    covered[index] = true;
+                }
+            }
+        }
+        for (boolean b : covered) {
+            assertTrue(b);
+        }
+
+        //the first area is cut off at the rectangle's minimum corner
+        assertEquals("/5/-3/15/-1", path(seeder.requested.get(0)[0], seeder.requested.get(0)[1]));
+    }
+
+    @Test(timeout = 30000L)
+    public void testCheckpointRoundTrip() throws IOException {
+        Path checkpoint = this.folder.getRoot().toPath().resolve("seed.checkpoint");
+
+        TestSeeder seeder = new TestSeeder(checkpoint, 4);
+        seeder.seed(MIN_X, MIN_Z, MAX_X, MAX_Z);
+        assertEquals(REGION + '\n' + TOTAL_AREAS + '\n', new String(Files.readAllBytes(checkpoint), StandardCharsets.UTF_8));
+        assertFalse(Files.exists(checkpoint.resolveSibling("seed.checkpoint.tmp")));
+
+        //the checkpoint is read back by a new seeder, but only for the same region
+        TestSeeder resumed = new TestSeeder(checkpoint, 4);
+        assertEquals(TOTAL_AREAS, resumed.readCheckpoint(REGION));
+        assertEquals(0, resumed.readCheckpoint(MIN_X + " " + MIN_Z + " " + MAX_X + " " + (MAX_Z + 1)));
+
+        //the region has already been seeded, so nothing is requested again
+        resumed.seed(MIN_X, MIN_Z, MAX_X, MAX_Z);
+        assertTrue(resumed.requested.isEmpty());
+    }
+
+    @Test(timeout = 30000L)
+    public void testResumeAfterFailedArea() throws IOException {
+        Path checkpoint = this.folder.getRoot().toPath().resolve("seed.checkpoint");
+
+        //area 4 is the center one, which isn't clamped at all
+        this.failingPath = "/16/0/31/15";
+        TestSeeder seeder = new TestSeeder(checkpoint, 4);
+        seeder.seed(MIN_X, MIN_Z, MAX_X, MAX_Z);
+        assertEquals(TOTAL_AREAS, seeder.requested.size());
+        assertEquals(1L, seeder.failedAreas().sum());
+        assertEquals(TOTAL_AREAS - 1L, seeder.areas().sum());
+
+        //the areas after the failed one were seeded, but the checkpoint can only record the ones before it
+        assertEquals(4, seeder.completedPrefix());
+        assertEquals(REGION + "\n4\n", new String(Files.readAllBytes(checkpoint), StandardCharsets.UTF_8));
+
+        //running the seeder again resumes at the failed area
+        this.failingPath = null;
+        TestSeeder resumed = new TestSeeder(checkpoint, 4);
+        resumed.seed(MIN_X, MIN_Z, MAX_X, MAX_Z);
+        assertEquals(TOTAL_AREAS - 4, resumed.requested.size());
+        assertEquals("/16/0/31/15", path(resumed.requested.get(0)[0], resumed.requested.get(0)[1]));
+        assertEquals(0L, resumed.failedAreas().sum());
+        assertEquals(REGION + '\n' + TOTAL_AREAS + '\n', new String(Files.readAllBytes(checkpoint), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Requests a single resource per area from the test server, instead of the generator's datasets.
+     */
+    private class TestSeeder extends CacheSeeder {
+        //the areas in the order they were requested
+        final List<ChunkPos[]> requested = Collections.synchronizedList(new ArrayList<>());
+
+        TestSeeder(Path checkpoint, int maxInFlight) {
+            super(settings, checkpoint, maxInFlight);
+        }
+
+        @Override
+        protected CompletableFuture<Void> seedArea(ChunkPos min, ChunkPos max) {
+            this.requested.add(new ChunkPos[]{ min, max });
+            return Http.get(CacheSeederTest.this.url + path(min, max)).thenAccept(ByteBuf::release).whenComplete((unused, t) -> {
+                if (t != null) {
+                    this.failedAreas.increment();
+                } else {
+                    this.areas.increment();
+                }
+            });
+        }
+    }
+}
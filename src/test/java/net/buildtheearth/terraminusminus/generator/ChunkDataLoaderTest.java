@@ -0,0 +1,57 @@
+package net.buildtheearth.terraminusminus.generator;
+
+import net.buildtheearth.terraminusminus.substitutes.ChunkPos;
+import net.buildtheearth.terraminusminus.util.http.RequestPriority;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static net.daporkchop.lib.common.util.PorkUtil.*;
+import static org.junit.Assert.*;
+
+public class ChunkDataLoaderTest {
+    @Test
+    public void testDistancePriority() {
+        PriorityRecordingLoader loader = new PriorityRecordingLoader();
+        ChunkPos origin = new ChunkPos(10, -3);
+
+        loader.load(origin, origin);
+        assertEquals(RequestPriority.HIGHEST, loader.priority);
+        loader.load(new ChunkPos(14, -7), origin);
+        assertEquals(4, loader.priority);
+
+        //a region containing the player's chunk is as urgent as the player's chunk itself
+        loader.loadRegion(new ChunkPos(0, -16), new ChunkPos(15, -1), origin);
+        assertEquals(RequestPriority.HIGHEST, loader.priority);
+        loader.loadRegion(new ChunkPos(16, -16), new ChunkPos(31, -1), origin);
+        assertEquals(6, loader.priority);
+        loader.loadRegion(new ChunkPos(-32, 0), new ChunkPos(-17, 15), origin);
+        assertEquals(27, loader.priority);
+
+        //the priority is only set while loading
+        assertEquals(RequestPriority.DEFAULT, RequestPriority.current());
+    }
+
+    /**
+     * Records the priority which chunks are loaded with, instead of actually loading them.
+     */
+    private static class PriorityRecordingLoader extends ChunkDataLoader {
+        int priority = -1;
+
+        PriorityRecordingLoader() {
+            super(EarthGeneratorSettings.parse(EarthGeneratorSettings.BTE_DEFAULT_SETTINGS));
+        }
+
+        @Override
+        public CompletableFuture<CachedChunkData> load(ChunkPos pos) {
+            this.priority = RequestPriority.current();
+            return new CompletableFuture<>();
+        }
+
+        @Override
+        public CompletableFuture<CachedChunkData>[] loadRegion(ChunkPos min, ChunkPos max) {
+            this.priority = RequestPriority.current();
+            return uncheckedCast(new CompletableFuture[0]);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package net.buildtheearth.terraminusminus.generator;
+
+import net.buildtheearth.terraminusminus.substitutes.ChunkPos;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.Assert.*;
+
+public class ChunkDataStoreTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ChunkDataStore store(int fingerprint) {
+        byte[] bytes = new byte[ChunkDataStore.FINGERPRINT_SIZE];
+        Arrays.fill(bytes, (byte) fingerprint);
+        return new ChunkDataStore(this.folder.getRoot().toPath(), bytes, Long.MAX_VALUE);
+    }
+
+    private static CachedChunkData data(int seed) {
+        CachedChunkData.Builder builder = CachedChunkData.builder();
+        for (int x = 0; x < 16; x++) {
+            for (int z = 0; z < 16; z++) {
+                builder.surfaceHeight(x, z, seed + x * 16 + z);
+                if (((x ^ z) & 1) == 0) {
+                    builder.updateWaterDepth(x, z, z);
+                }
+            }
+        }
+        builder.putCustom("seed", seed);
+        return builder.build();
+    }
+
+    private static void assertDataEquals(CachedChunkData expected, CachedChunkData actual) {
+        assertNotNull(actual);
+        for (int x = 0; x < 16; x++) {
+            for (int z = 0; z < 16; z++) {
+                assertEquals(expected.surfaceHeight(x, z), actual.surfaceHeight(x, z));
+                assertEquals(expected.groundHeight(x, z), actual.groundHeight(x, z));
+                assertEquals(expected.waterHeight(x, z), actual.waterHeight(x, z));
+            }
+        }
+        assertEquals((Object) expected.getCustom("seed"), actual.getCustom("seed"));
+    }
+
+    @Test
+    public void testRoundTrip() {
+        ChunkDataStore store = this.store(1);
+        CachedChunkData data = data(64);
+        store.write(new ChunkPos(3, -7), data);
+
+        //reads are executed after the pending writes
+        assertDataEquals(data, store.read(new ChunkPos(3, -7)).join());
+        assertNull(store.read(new ChunkPos(3, -6)).join());
+
+        CachedChunkData[] region = store.readRegion(new ChunkPos(2, -8), new ChunkPos(3, -7)).join();
+        assertEquals(4, region.length);
+        assertNull(region[0]);
+        assertNull(region[1]);
+        assertNull(region[2]);
+        assertDataEquals(data, region[3]);
+
+        //replacing the data
+        CachedChunkData replacement = data(128);
+        store.write(new ChunkPos(3, -7), replacement);
+        assertDataEquals(replacement, store.read(new ChunkPos(3, -7)).join());
+    }
+
+    @Test
+    public void testStaleFingerprint() {
+        ChunkDataStore store = this.store(1);
+        store.write(new ChunkPos(0, 0), data(64));
+        assertNotNull(store.read(new ChunkPos(0, 0)).join());
+
+        //the data was generated with different settings, so it's treated as missing
+        ChunkDataStore otherStore = this.store(2);
+        assertNull(otherStore.read(new ChunkPos(0, 0)).join());
+
+        //writing with the new settings resets the region file, which discards everything that was stored with the old ones
+        otherStore.write(new ChunkPos(1, 1), data(32));
+        assertNotNull(otherStore.read(new ChunkPos(1, 1)).join());
+        assertNull(otherStore.read(new ChunkPos(0, 0)).join());
+    }
+
+    @Test
+    public void testCorruptedRecord() throws IOException {
+        ChunkDataStore store = this.store(1);
+        store.write(new ChunkPos(0, 0), data(64));
+        store.write(new ChunkPos(0, 1), data(128));
+        assertNotNull(store.read(new ChunkPos(0, 1)).join());
+
+        //flip a byte in the middle of the last record, which will fail its checksum
+        Path file = store.regionFile(0, 0);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long position = channel.size() - 16L;
+            ByteBuffer buffer = ByteBuffer.allocate(1);
+            channel.read(buffer, position);
+            buffer.put(0, (byte) ~buffer.get(0));
+            buffer.clear();
+            channel.write(buffer, position);
+        }
+        assertNull(store.read(new ChunkPos(0, 1)).join());
+        assertDataEquals(data(64), store.read(new ChunkPos(0, 0)).join());
+    }
+
+    @Test
+    public void testTruncatedRecord() throws IOException {
+        ChunkDataStore store = this.store(1);
+        store.write(new ChunkPos(0, 0), data(64));
+        store.write(new ChunkPos(0, 1), data(128));
+        assertNotNull(store.read(new ChunkPos(0, 1)).join());
+
+        //the last record was only partially written
+        Path file = store.regionFile(0, 0);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 16L);
+        }
+        assertNull(store.read(new ChunkPos(0, 1)).join());
+        assertDataEquals(data(64), store.read(new ChunkPos(0, 0)).join());
+
+        //the chunk can be stored again afterwards
+        store.write(new ChunkPos(0, 1), data(256));
+        assertDataEquals(data(256), store.read(new ChunkPos(0, 1)).join());
+    }
+
+    @Test
+    public void testCompaction() throws IOException, InterruptedException, ExecutionException {
+        ChunkDataStore store = this.store(1);
+        for (int i = 0; i < 4; i++) { //the first three records for each chunk are replaced
+            store.write(new ChunkPos(0, 0), data(i));
+            store.write(new ChunkPos(5, 9), data(i * 2));
+        }
+        assertNotNull(store.read(new ChunkPos(0, 0)).join());
+
+        Path file = store.regionFile(0, 0);
+        long size = Files.size(file);
+        long liveBytes = ChunkDataStore.STORE_EXECUTOR.submit(() -> {
+            ChunkDataStore.RegionFile region = store.region(0, 0, false);
+            try (FileLock lock = region.channel.lock()) {
+                long live = ChunkDataStore.liveBytes(region.channel);
+                ChunkDataStore.compact(region.channel);
+                return live;
+            }
+        }).get();
+
+        assertTrue(liveBytes < (size - ChunkDataStore.HEADER_SIZE) / 2L);
+        assertEquals(ChunkDataStore.HEADER_SIZE + liveBytes, Files.size(file));
+        assertDataEquals(data(3), store.read(new ChunkPos(0, 0)).join());
+        assertDataEquals(data(6), store.read(new ChunkPos(5, 9)).join());
+
+        //new records are appended after the compacted ones
+        store.write(new ChunkPos(1, 1), data(7));
+        assertDataEquals(data(7), store.read(new ChunkPos(1, 1)).join());
+        assertDataEquals(data(3), store.read(new ChunkPos(0, 0)).join());
+    }
+}
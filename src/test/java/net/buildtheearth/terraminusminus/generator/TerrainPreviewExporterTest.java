@@ -0,0 +1,85 @@
+package net.buildtheearth.terraminusminus.generator;
+
+import net.buildtheearth.terraminusminus.util.TilePos;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class TerrainPreviewExporterTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static long fileCount(Path root) throws IOException {
+        try (Stream<Path> stream = Files.walk(root)) {
+            return stream.filter(Files::isRegularFile).count();
+        }
+    }
+
+    @Test(timeout = 30000L)
+    public void testTileLayout() throws IOException {
+        Path output = this.folder.getRoot().toPath();
+        TerrainPreviewExporter exporter = new TerrainPreviewExporter(new BlankPreview(), output, 4);
+
+        //tiles are 256 blocks wide at zoom 0, and twice as wide at each further zoom level
+        exporter.export(-300, 0, 300, 255, 0, 2);
+        assertEquals(0L, exporter.failedTiles().sum());
+        assertEquals(8L, exporter.tiles().sum());
+        assertEquals(8L, fileCount(output));
+
+        for (int x = -2; x <= 1; x++) {
+            assertTrue(Files.exists(output.resolve("0").resolve(String.valueOf(x)).resolve("0.png")));
+        }
+        for (int zoom = 1; zoom <= 2; zoom++) {
+            for (int x = -1; x <= 0; x++) {
+                assertTrue(Files.exists(output.resolve(String.valueOf(zoom)).resolve(String.valueOf(x)).resolve("0.png")));
+            }
+        }
+
+        BufferedImage tile = ImageIO.read(output.resolve("2").resolve("-1").resolve("0.png").toFile());
+        assertEquals(TerrainPreview.SIZE, tile.getWidth());
+        assertEquals(TerrainPreview.SIZE, tile.getHeight());
+    }
+
+    @Test
+    public void testZoomTooLarge() throws IOException {
+        Path output = this.folder.getRoot().toPath();
+        TerrainPreviewExporter exporter = new TerrainPreviewExporter(new BlankPreview(), output, 4);
+
+        try {
+            exporter.export(0, 0, 0, 0, 0, TerrainPreviewExporter.MAX_ZOOM + 1);
+            fail("zoom level " + (TerrainPreviewExporter.MAX_ZOOM + 1) + " was accepted");
+        } catch (IllegalArgumentException expected) {
+            //no-op
+        }
+        assertEquals(0L, fileCount(output));
+
+        //the least detailed zoom level can still be exported
+        exporter.export(0, 0, 0, 0, TerrainPreviewExporter.MAX_ZOOM, TerrainPreviewExporter.MAX_ZOOM);
+        assertEquals(1L, exporter.tiles().sum());
+        assertTrue(Files.exists(output.resolve(String.valueOf(TerrainPreviewExporter.MAX_ZOOM)).resolve("0").resolve("0.png")));
+    }
+
+    /**
+     * Renders every tile as a blank image, instead of generating terrain.
+     */
+    private static class BlankPreview extends TerrainPreview {
+        BlankPreview() {
+            super(EarthGeneratorSettings.parse(EarthGeneratorSettings.BTE_DEFAULT_SETTINGS), "maximumSize=0", Runnable::run);
+        }
+
+        @Override
+        public CompletableFuture<BufferedImage> tile(TilePos pos) {
+            return CompletableFuture.completedFuture(createBlankTile());
+        }
+    }
+}
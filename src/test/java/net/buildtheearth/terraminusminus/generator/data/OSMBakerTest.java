@@ -0,0 +1,148 @@
+package net.buildtheearth.terraminusminus.generator.data;
+
+import lombok.NonNull;
+import net.buildtheearth.terraminusminus.dataset.vector.VectorTiledDataset;
+import net.buildtheearth.terraminusminus.dataset.vector.geometry.VectorGeometry;
+import net.buildtheearth.terraminusminus.generator.CachedChunkData;
+import net.buildtheearth.terraminusminus.generator.EarthGeneratorPipelines;
+import net.buildtheearth.terraminusminus.generator.EarthGeneratorSettings;
+import net.buildtheearth.terraminusminus.generator.GeneratorDatasets;
+import net.buildtheearth.terraminusminus.generator.IEarthAsyncPipelineStep;
+import net.buildtheearth.terraminusminus.projection.EquirectangularProjection;
+import net.buildtheearth.terraminusminus.projection.OutOfProjectionBoundsException;
+import net.buildtheearth.terraminusminus.projection.transform.ScaleProjectionTransform;
+import net.buildtheearth.terraminusminus.substitutes.ChunkPos;
+import net.buildtheearth.terraminusminus.util.CornerBoundingBox2d;
+import net.buildtheearth.terraminusminus.util.bvh.BVH;
+import net.buildtheearth.terraminusminus.util.bvh.Bounds2d;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that baking the OSM data for a whole region produces the same output as baking each column individually.
+ */
+public class OSMBakerTest {
+    //one degree is 4096 blocks, so every tile of the OSM dataset (1/64 of a degree) is 64x64 blocks
+    private static final double SCALE = 4096.0d;
+    private static final int TILE_SIZE = 64;
+
+    @Test
+    public void testRegionMatchesColumns() {
+        TestDatasets datasets = new TestDatasets(EarthGeneratorSettings.parse(EarthGeneratorSettings.DEFAULT_SETTINGS)
+                .withProjection(new ScaleProjectionTransform(new EquirectangularProjection(), SCALE, SCALE)));
+        IEarthDataBaker<?>[] bakers = { new OSMBaker() };
+
+        ChunkPos min = new ChunkPos(-3, -2);
+        ChunkPos max = new ChunkPos(4, 3);
+        int sizeZ = max.z() - min.z() + 1;
+
+        CompletableFuture<CachedChunkData>[] regionFutures = IEarthAsyncPipelineStep.getRegionFutures(min, max, datasets, bakers, CachedChunkData::builder);
+        CompletableFuture.allOf(regionFutures).join();
+        assertEquals("the region's data should be requested at once", 1, datasets.dataset.requests.get());
+
+        for (int i = 0; i < regionFutures.length; i++) {
+            ChunkPos pos = new ChunkPos(min.x() + i / sizeZ, min.z() + i % sizeZ);
+            CachedChunkData expected = IEarthAsyncPipelineStep.getFuture(pos, datasets, bakers, CachedChunkData::builder).join();
+            CachedChunkData actual = regionFutures[i].join();
+
+            for (int x = 0; x < 16; x++) {
+                for (int z = 0; z < 16; z++) {
+                    assertEquals(pos + " " + x + ", " + z, expected.surfaceHeight(x, z), actual.surfaceHeight(x, z));
+                    assertEquals(pos + " " + x + ", " + z, expected.waterHeight(x, z), actual.waterHeight(x, z));
+                }
+            }
+        }
+    }
+
+    /**
+     * The default datasets, except for the parsed OSM data, which is replaced by {@link TestDataset}.
+     */
+    private static class TestDatasets extends GeneratorDatasets {
+        final TestDataset dataset = new TestDataset();
+
+        TestDatasets(EarthGeneratorSettings settings) {
+            super(settings);
+            this.custom.put(EarthGeneratorPipelines.KEY_DATASET_OSM_PARSED, this.dataset);
+        }
+    }
+
+    /**
+     * Contains a single element for each tile, which covers the tile (in block coordinates) except for a 1 block border.
+     */
+    private static class TestDataset extends VectorTiledDataset {
+        final AtomicInteger requests = new AtomicInteger();
+
+        TestDataset() {
+            super(key -> {
+                String[] parts = key.split("[/.]");
+                int tileX = Integer.parseInt(parts[1]);
+                int tileZ = Integer.parseInt(parts[2]);
+                return CompletableFuture.completedFuture(new VectorGeometry[]{ new TileElement(tileX, tileZ) });
+            });
+        }
+
+        @Override
+        public CompletableFuture<BVH<VectorGeometry>[]> getAsync(@NonNull CornerBoundingBox2d bounds) throws OutOfProjectionBoundsException {
+            this.requests.incrementAndGet();
+            return super.getAsync(bounds);
+        }
+    }
+
+    private static class TileElement implements VectorGeometry {
+        final String id;
+        final Bounds2d bounds;
+
+        TileElement(int tileX, int tileZ) {
+            this.id = tileX + "," + tileZ;
+            this.bounds = Bounds2d.of(tileX * TILE_SIZE + 1, (tileX + 1) * TILE_SIZE - 1, tileZ * TILE_SIZE + 1, (tileZ + 1) * TILE_SIZE - 1);
+        }
+
+        @Override
+        public void apply(@NonNull CachedChunkData.Builder builder, int chunkX, int chunkZ, @NonNull Bounds2d bounds) {
+            for (int x = 0; x < 16; x++) {
+                for (int z = 0; z < 16; z++) {
+                    double blockX = bounds.minX() + x + 0.5d;
+                    double blockZ = bounds.minZ() + z + 0.5d;
+                    if (blockX >= this.minX() && blockX <= this.maxX() && blockZ >= this.minZ() && blockZ <= this.maxZ()) {
+                        //the output depends on which elements were applied, as well as the order they were applied in
+                        builder.surfaceHeight(x, z, builder.surfaceHeight(x, z) * 31 + this.id.hashCode());
+                    }
+                }
+            }
+        }
+
+        @Override
+        public String id() {
+            return this.id;
+        }
+
+        @Override
+        public double layer() {
+            return 0.0d;
+        }
+
+        @Override
+        public double minX() {
+            return this.bounds.minX();
+        }
+
+        @Override
+        public double maxX() {
+            return this.bounds.maxX();
+        }
+
+        @Override
+        public double minZ() {
+            return this.bounds.minZ();
+        }
+
+        @Override
+        public double maxZ() {
+            return this.bounds.maxZ();
+        }
+    }
+}
@@ -2,8 +2,22 @@ package net.buildtheearth.terraminusminus.projection;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import net.buildtheearth.terraminusminus.TerraConstants;
+import net.buildtheearth.terraminusminus.projection.dymaxion.BTEDymaxionProjection;
+import net.buildtheearth.terraminusminus.projection.dymaxion.ConformalDynmaxionProjection;
+import net.buildtheearth.terraminusminus.projection.dymaxion.DymaxionProjection;
+import net.buildtheearth.terraminusminus.projection.mercator.WebMercatorProjection;
+import net.buildtheearth.terraminusminus.projection.transform.ClampProjectionTransform;
+import net.buildtheearth.terraminusminus.projection.transform.FlipHorizontalProjectionTransform;
+import net.buildtheearth.terraminusminus.projection.transform.FlipVerticalProjectionTransform;
+import net.buildtheearth.terraminusminus.projection.transform.OffsetProjectionTransform;
+import net.buildtheearth.terraminusminus.projection.transform.RotateProjectionTransform;
+import net.buildtheearth.terraminusminus.projection.transform.ScaleProjectionTransform;
+import net.buildtheearth.terraminusminus.projection.transform.SwapAxesProjectionTransform;
+import net.buildtheearth.terraminusminus.util.MathUtils;
 import org.junit.Test;
 
+import java.util.SplittableRandom;
+
 import static org.junit.Assert.*;
 
 public class ProjectionTest {
@@ -64,4 +78,89 @@ public class ProjectionTest {
         }
     }
 
+
+    @Test
+    public void testBatchMatchesSingle() {
+        GeographicProjection bte = new BTEDymaxionProjection();
+        GeographicProjection[] projections = {
+                new EquirectangularProjection(),
+                new SinusoidalProjection(),
+                new EqualEarthProjection(),
+                new WebMercatorProjection(4),
+                new DymaxionProjection(),
+                bte,
+                new ScaleProjectionTransform(new FlipVerticalProjectionTransform(bte), 7318261.522857145, 7318261.522857145),
+                new FlipHorizontalProjectionTransform(bte),
+                new OffsetProjectionTransform(bte, 12.0d, -3.0d),
+                new RotateProjectionTransform(bte, 30.0d),
+                new SwapAxesProjectionTransform(bte),
+                new ClampProjectionTransform(bte, -1.0d, 1.0d, -1.0d, 1.0d),
+        };
+
+        SplittableRandom r = new SplittableRandom(1337L);
+        int count = 1024;
+        double[] geo = new double[count * 2];
+        for (int i = 0; i < geo.length; i += 2) { //some points are intentionally out of bounds
+            geo[i] = r.nextDouble(-200.0d, 200.0d);
+            geo[i + 1] = r.nextDouble(-100.0d, 100.0d);
+        }
+
+        for (GeographicProjection projection : projections) {
+            double[] proj = new double[count * 2 + 1];
+            boolean allValid = projection.fromGeo(geo, 0, proj, 1, count);
+            assertBatchMatches(projection, true, geo, 0, proj, 1, count, allValid);
+
+            //project back, in-place
+            double[] back = proj.clone();
+            allValid = projection.toGeo(back, 1, back, 1, count);
+            assertBatchMatches(projection, false, proj, 1, back, 1, count, allValid);
+        }
+    }
+
+    private static void assertBatchMatches(GeographicProjection projection, boolean fromGeo, double[] src, int srcOff, double[] dst, int dstOff, int count, boolean allValid) {
+        boolean expectedAllValid = true;
+        for (int i = 0; i < count; i++) {
+            double x = src[srcOff + i * 2];
+            double y = src[srcOff + i * 2 + 1];
+            double[] expected;
+            try {
+                expected = fromGeo ? projection.fromGeo(x, y) : projection.toGeo(x, y);
+            } catch (OutOfProjectionBoundsException e) {
+                expected = new double[]{ Double.NaN, Double.NaN };
+                expectedAllValid = false;
+            }
+            assertEquals(projection + " " + x + ", " + y, expected[0], dst[dstOff + i * 2], 0.0d);
+            assertEquals(projection + " " + x + ", " + y, expected[1], dst[dstOff + i * 2 + 1], 0.0d);
+        }
+        assertEquals(projection.toString(), expectedAllValid, allValid);
+    }
+
+    @Test
+    public void testConformalInverseLookupMatchesNewton() throws OutOfProjectionBoundsException {
+        GeographicProjection projection = new ConformalDynmaxionProjection();
+        GeographicProjection legacy = new LegacyConformalDynmaxionProjection();
+
+        SplittableRandom r = new SplittableRandom(1337L);
+        for (int i = 0; i < 100000; i++) {
+            double lon = r.nextDouble(-180.0d, 180.0d);
+            double lat = r.nextDouble(-90.0d, 90.0d);
+
+            double[] expected = legacy.fromGeo(lon, lat);
+            double[] actual = projection.fromGeo(lon, lat);
+            assertEquals(lon + ", " + lat, expected[0], actual[0], 1.0e-12d);
+            assertEquals(lon + ", " + lat, expected[1], actual[1], 1.0e-12d);
+        }
+    }
+
+    /**
+     * Inverts the conformal vector field using Newton's method with a fixed iteration count and no lookup table, as it was originally implemented.
+     */
+    private static class LegacyConformalDynmaxionProjection extends ConformalDynmaxionProjection {
+        @Override
+        protected void invertVectorField(double x, double y, double[] out) {
+            double[] c = this.inverse.applyNewtonsMethod(x, y, x / ARC + 0.5, y / ARC + MathUtils.ROOT3 / 6, 5);
+            out[0] = c[0];
+            out[1] = c[1];
+        }
+    }
 }
@@ -0,0 +1,87 @@
+package net.buildtheearth.terraminusminus.util;
+
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.*;
+
+public class SharedFutureTest {
+
+    @Test
+    public void testCompletion() {
+        CompletableFuture<String> delegate = new CompletableFuture<>();
+        SharedFuture<String> shared = new SharedFuture<>(delegate);
+
+        CompletableFuture<String> a = shared.newConsumer();
+        CompletableFuture<String> b = shared.newConsumer();
+        assertNotSame(a, b);
+
+        delegate.complete("value");
+        assertEquals("value", a.join());
+        assertEquals("value", b.join());
+    }
+
+    @Test
+    public void testCancelOneConsumer() {
+        CompletableFuture<String> delegate = new CompletableFuture<>();
+        SharedFuture<String> shared = new SharedFuture<>(delegate);
+
+        CompletableFuture<String> a = shared.newConsumer();
+        CompletableFuture<String> b = shared.newConsumer();
+        a.cancel(false);
+        assertFalse("the shared future is still needed by another consumer", delegate.isCancelled());
+
+        delegate.complete("value");
+        assertEquals("value", b.join());
+    }
+
+    @Test
+    public void testCancelAllConsumers() {
+        CompletableFuture<String> delegate = new CompletableFuture<>();
+        SharedFuture<String> shared = new SharedFuture<>(delegate);
+
+        CompletableFuture<String> a = shared.newConsumer();
+        CompletableFuture<String> b = shared.newConsumer();
+        a.cancel(false);
+        b.cancel(false);
+        assertTrue(delegate.isCancelled());
+        assertTrue(shared.isCancelled());
+        assertNull("no consumers may be added after the shared future was cancelled", shared.newConsumer());
+    }
+
+    @Test
+    public void testCancelAfterCompletion() {
+        CompletableFuture<String> delegate = new CompletableFuture<>();
+        SharedFuture<String> shared = new SharedFuture<>(delegate);
+
+        CompletableFuture<String> a = shared.newConsumer();
+        delegate.complete("value");
+        a.cancel(false);
+
+        //the value is already available, so new consumers may still use it
+        assertEquals("value", shared.newConsumer().join());
+    }
+
+    @Test
+    public void testDelegateCancelled() {
+        CompletableFuture<String> delegate = new CompletableFuture<>();
+        SharedFuture<String> shared = new SharedFuture<>(delegate);
+
+        CompletableFuture<String> a = shared.newConsumer();
+        delegate.cancel(false);
+        assertTrue(a.isCompletedExceptionally());
+        assertNull(shared.newConsumer());
+    }
+
+    @Test
+    public void testThenComposeCancellation() {
+        CompletableFuture<String> src = new CompletableFuture<>();
+        CompletableFuture<String> inner = new CompletableFuture<>();
+        CompletableFuture<String> composed = Futures.thenCompose(src, s -> inner);
+
+        src.complete("value");
+        composed.cancel(false);
+        assertTrue("cancellation must reach the inner future", inner.isCancelled());
+    }
+}
@@ -0,0 +1,55 @@
+package net.buildtheearth.terraminusminus.util.bvh;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.*;
+
+public class STRTreeBVHTest {
+
+    private static Bounds2d randomBounds(SplittableRandom r, double range, double maxSize) {
+        double x = r.nextDouble(-range, range);
+        double z = r.nextDouble(-range, range);
+        return Bounds2d.of(x, x + r.nextDouble(maxSize), z, z + r.nextDouble(maxSize));
+    }
+
+    private static void sort(List<Bounds2d> list) {
+        list.sort(Comparator.comparingInt(System::identityHashCode));
+    }
+
+    @Test
+    public void testQueriesMatchBruteForce() {
+        SplittableRandom r = new SplittableRandom(1337L);
+
+        for (int count : new int[]{ 2, 17, 256, 10000 }) {
+            Bounds2d[] values = new Bounds2d[count];
+            for (int i = 0; i < count; i++) {
+                values[i] = randomBounds(r, 10000.0d, 500.0d);
+            }
+
+            STRTreeBVH<Bounds2d> bvh = new STRTreeBVH<>(values);
+            assertEquals(count, bvh.size());
+            assertEquals(count, bvh.stream().count());
+
+            for (int i = 0; i < 256; i++) {
+                Bounds2d query = randomBounds(r, 10000.0d, 2000.0d);
+
+                List<Bounds2d> expected = new ArrayList<>();
+                for (Bounds2d value : values) {
+                    if (query.intersects(value)) {
+                        expected.add(value);
+                    }
+                }
+                List<Bounds2d> actual = bvh.getAllIntersecting(query);
+
+                sort(expected);
+                sort(actual);
+                assertEquals(expected, actual);
+            }
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package net.buildtheearth.terraminusminus.util.http;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import net.buildtheearth.terraminusminus.TerraConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.*;
+
+public class CacheCompressionTest {
+    private static final long NOW = 1_000_000_000L;
+
+    private static ByteBuf entry(byte[] body) {
+        ByteBuf buf = Unpooled.buffer();
+        buf.writeByte(CacheEntry.CACHE_VERSION);
+        new CacheEntry(CacheEntry.STATUS_SUCCESS, NOW, -1L, Long.MAX_VALUE, 0, "\"some-etag\"", null, false).write(buf);
+        return buf.writeBytes(body);
+    }
+
+    private static byte[] geoJson() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 256; i++) {
+            builder.append("{\"type\":\"Feature\",\"geometry\":{\"type\":\"Point\",\"coordinates\":[").append(i * 0.001d).append(",51.5]},")
+                    .append("\"properties\":{\"highway\":\"residential\",\"id\":").append(i).append("}}\n");
+        }
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static CacheEntry header(ByteBuf entry) {
+        ByteBuf duplicate = entry.duplicate();
+        assertEquals(CacheEntry.CACHE_VERSION, duplicate.readByte());
+        return new CacheEntry(duplicate);
+    }
+
+    private static byte[] body(ByteBuf entry) {
+        ByteBuf duplicate = entry.duplicate();
+        duplicate.readByte();
+        new CacheEntry(duplicate);
+        return ByteBufUtil.getBytes(duplicate);
+    }
+
+    private boolean compressCache;
+
+    @Before
+    public void setupConfig() {
+        this.compressCache = TerraConfig.http.compressCache;
+        TerraConfig.http.compressCache = true;
+    }
+
+    @After
+    public void resetConfig() {
+        TerraConfig.http.compressCache = this.compressCache;
+    }
+
+    @Test
+    public void testRoundTrip() {
+        byte[] body = geoJson();
+        ByteBuf entry = entry(body);
+
+        ByteBuf encoded = CacheCompression.encode(entry);
+        assertEquals(CacheEntry.FLAG_DEFLATE, header(encoded).flags);
+        assertEquals("\"some-etag\"", header(encoded).etag);
+        assertTrue(encoded.readableBytes() < entry.readableBytes() / 4);
+
+        ByteBuf decoded = CacheCompression.decode(encoded);
+        assertNotNull(decoded);
+        assertEquals(0, header(decoded).flags);
+        assertEquals(Long.MAX_VALUE, header(decoded).expireTime);
+        assertArrayEquals(body, body(decoded));
+        assertTrue(ByteBufUtil.equals(entry, decoded));
+
+        //neither method takes ownership of its argument
+        assertEquals(1, entry.refCnt());
+        encoded.release();
+        decoded.release();
+    }
+
+    @Test
+    public void testNotCompressed() {
+        //too small
+        ByteBuf entry = entry("{}".getBytes(StandardCharsets.UTF_8));
+        ByteBuf encoded = CacheCompression.encode(entry);
+        assertEquals(0, header(encoded).flags);
+        assertTrue(ByteBufUtil.equals(entry, encoded));
+        encoded.release();
+
+        //already compressed
+        byte[] png = new byte[4096];
+        System.arraycopy(new byte[]{ (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' }, 0, png, 0, 8);
+        entry = entry(png);
+        encoded = CacheCompression.encode(entry);
+        assertEquals(0, header(encoded).flags);
+        encoded.release();
+
+        //doesn't compress well
+        byte[] random = new byte[4096];
+        new SplittableRandom(1337L).nextBytes(random);
+        entry = entry(random);
+        encoded = CacheCompression.encode(entry);
+        assertEquals(0, header(encoded).flags);
+        assertTrue(ByteBufUtil.equals(entry, encoded));
+        encoded.release();
+
+        //compression is disabled, the entry is stored in the legacy format
+        TerraConfig.http.compressCache = false;
+        entry = entry(geoJson());
+        encoded = CacheCompression.encode(entry);
+        assertEquals(CacheEntry.LEGACY_CACHE_VERSION, encoded.getByte(0));
+        assertEquals(entry.readableBytes() - 1, encoded.readableBytes());
+        ByteBuf converted = CacheCompression.decode(encoded);
+        assertTrue(ByteBufUtil.equals(entry, converted));
+        converted.release();
+        encoded.release();
+
+        //uncompressed entries are decoded unmodified
+        ByteBuf decoded = CacheCompression.decode(entry);
+        assertTrue(ByteBufUtil.equals(entry, decoded));
+        decoded.release();
+    }
+
+    @Test
+    public void testLegacyVersion() {
+        byte[] body = geoJson();
+        ByteBuf entry = entry(body);
+
+        //convert to the legacy format by removing the flags field
+        ByteBuf legacy = Unpooled.buffer();
+        legacy.writeByte(CacheEntry.LEGACY_CACHE_VERSION)
+                .writeBytes(entry, 1, CacheCompression.FLAGS_OFFSET - 1)
+                .writeBytes(entry, CacheCompression.FLAGS_OFFSET + 1, entry.readableBytes() - CacheCompression.FLAGS_OFFSET - 1);
+        assertEquals(Long.MAX_VALUE, CacheIndex.expireTime(legacy));
+
+        ByteBuf decoded = CacheCompression.decode(legacy);
+        assertTrue(ByteBufUtil.equals(entry, decoded));
+        decoded.release();
+    }
+
+    @Test
+    public void testCorrupted() {
+        ByteBuf encoded = CacheCompression.encode(entry(geoJson()));
+
+        ByteBuf truncated = encoded.slice(0, encoded.readableBytes() - 16);
+        assertNull(CacheCompression.decode(truncated));
+
+        ByteBuf garbage = encoded.copy();
+        for (int i = garbage.readableBytes() - 64; i < garbage.readableBytes(); i++) {
+            garbage.setByte(i, ~garbage.getByte(i));
+        }
+        assertNull(CacheCompression.decode(garbage));
+
+        encoded.release();
+    }
+}
@@ -0,0 +1,155 @@
+package net.buildtheearth.terraminusminus.util.http;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.apache.commons.codec.binary.Hex;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class CacheIndexTest {
+    private static final long NOW = 1_000_000_000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Creates the data of a cache entry with the given expiry time, padded to the given size.
+     */
+    private static ByteBuf entry(long time, long expireTime, int size) {
+        ByteBuf buf = Unpooled.buffer(size);
+        buf.writeByte(CacheEntry.CACHE_VERSION);
+        buf.writeByte(CacheEntry.STATUS_SUCCESS);
+        buf.writeLong(time).writeLong(-1L).writeLong(expireTime);
+        buf.writeByte(0); //flags
+        buf.writeInt(-1);
+        buf.writeZero(size - buf.writerIndex());
+        return buf;
+    }
+
+    private static Set<String> hashes(List<CacheIndex.Entry> entries) {
+        return entries.stream().map(entry -> Hex.encodeHexString(entry.hash)).collect(Collectors.toSet());
+    }
+
+    private static Set<String> hashes(String... urls) {
+        return Arrays.stream(urls).map(url -> Hex.encodeHexString(FileCacheStorage.hash(url))).collect(Collectors.toSet());
+    }
+
+    @Test
+    public void testEvictExpired() {
+        CacheIndex index = new CacheIndex(this.folder.getRoot().toPath().resolve("index"));
+        index.written(FileCacheStorage.hash("a"), entry(NOW, NOW + 10L, 100), NOW);
+        index.written(FileCacheStorage.hash("b"), entry(NOW, NOW + 20L, 100), NOW);
+        assertEquals(200L, index.totalSize());
+
+        List<CacheIndex.Entry> evicted = index.evict(NOW + 15L, Long.MAX_VALUE);
+        assertEquals(1, evicted.size());
+        assertEquals(hashes("a"), hashes(evicted));
+        assertEquals(100L, index.totalSize());
+        assertEquals(1, index.size());
+        assertFalse(index.contains(FileCacheStorage.hash("a")));
+        assertTrue(index.contains(FileCacheStorage.hash("b")));
+    }
+
+    @Test
+    public void testEvictLeastRecentlyUsed() {
+        CacheIndex index = new CacheIndex(this.folder.getRoot().toPath().resolve("index"));
+        for (int i = 0; i < 10; i++) {
+            index.written(FileCacheStorage.hash("url" + i), entry(NOW, Long.MAX_VALUE, 100), NOW + i);
+        }
+        //the oldest entries are read again, so they're now the most recently used
+        index.accessed(FileCacheStorage.hash("url0"), NOW + 100L);
+        index.accessed(FileCacheStorage.hash("url1"), NOW + 101L);
+
+        //evicts down to 90% of the maximum size
+        List<CacheIndex.Entry> evicted = index.evict(NOW + 200L, 500L);
+        assertEquals(hashes("url2", "url3", "url4", "url5", "url6", "url7"), hashes(evicted));
+        assertEquals(400L, index.totalSize());
+
+        //nothing else is evicted as long as the cache is within its maximum size
+        assertTrue(index.evict(NOW + 300L, 500L).isEmpty());
+    }
+
+    @Test
+    public void testInvalidEntriesExpire() {
+        CacheIndex index = new CacheIndex(this.folder.getRoot().toPath().resolve("index"));
+        ByteBuf outdated = entry(NOW, Long.MAX_VALUE, 100).setByte(0, CacheEntry.LEGACY_CACHE_VERSION - 1);
+        index.written(FileCacheStorage.hash("outdated"), outdated, NOW);
+        index.written(FileCacheStorage.hash("truncated"), Unpooled.wrappedBuffer(new byte[]{ CacheEntry.CACHE_VERSION }), NOW);
+        assertEquals(2, index.evict(NOW, Long.MAX_VALUE).size());
+    }
+
+    @Test
+    public void testSaveLoad() throws IOException {
+        Path file = this.folder.getRoot().toPath().resolve("index");
+
+        CacheIndex index = new CacheIndex(file);
+        assertTrue(index.needsRebuild(NOW));
+        index.written(FileCacheStorage.hash("a"), entry(NOW, NOW + 10L, 100), NOW);
+        index.written(FileCacheStorage.hash("b"), entry(NOW, NOW + 20L, 50), NOW);
+        index.rebuild(new FileCacheStorage(this.folder.newFolder().toPath()), NOW); //empty, but the entries were written during the rebuild
+        index.save();
+
+        index = new CacheIndex(file);
+        assertFalse(index.needsRebuild(NOW));
+        assertTrue(index.needsRebuild(NOW + CacheIndex.REBUILD_INTERVAL));
+        assertEquals(2, index.size());
+        assertEquals(150L, index.totalSize());
+        assertEquals(1, index.evict(NOW + 15L, Long.MAX_VALUE).size());
+
+        //a corrupted index is discarded and rebuilt
+        Files.write(file, new byte[]{ 1, 2, 3, 4, 5, 6, 7, 8 });
+        index = new CacheIndex(file);
+        assertTrue(index.needsRebuild(NOW));
+        assertEquals(0, index.size());
+    }
+
+    private void testRebuild(CacheStorage storage) throws IOException {
+        storage.write("https://example.com/a", entry(NOW, NOW + 10L, 100));
+        storage.write("https://example.com/b", entry(NOW + 5L, Long.MAX_VALUE, 200));
+
+        CacheIndex index = new CacheIndex(this.folder.getRoot().toPath().resolve("index"));
+        index.rebuild(storage, NOW + 20L);
+        assertEquals(2, index.size());
+        assertEquals(300L, index.totalSize());
+
+        List<CacheIndex.Entry> evicted = index.evict(NOW + 20L, Long.MAX_VALUE);
+        assertEquals(hashes("https://example.com/a"), hashes(evicted));
+        for (CacheIndex.Entry entry : evicted) {
+            storage.remove(entry.hash);
+        }
+        assertNull(storage.read("https://example.com/a"));
+        ByteBuf b = storage.read("https://example.com/b");
+        assertNotNull(b);
+        b.release();
+
+        index.rebuild(storage, NOW + 30L);
+        assertEquals(1, index.size());
+        assertEquals(200L, index.totalSize());
+    }
+
+    @Test
+    public void testRebuildFileStorage() throws IOException {
+        this.testRebuild(new FileCacheStorage(this.folder.newFolder().toPath()));
+    }
+
+    @Test
+    public void testRebuildSegmentStorage() throws IOException {
+        SegmentCacheStorage storage = new SegmentCacheStorage(this.folder.newFolder().toPath());
+        try {
+            this.testRebuild(storage);
+        } finally {
+            storage.close();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package net.buildtheearth.terraminusminus.util.http;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import net.buildtheearth.terraminusminus.TerraConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.Assert.*;
+
+public class CacheOnlyTest {
+    private boolean cache;
+    private boolean cacheOnly;
+
+    @Before
+    public void setConfig() {
+        this.cache = TerraConfig.http.cache;
+        this.cacheOnly = TerraConfig.http.cacheOnly;
+    }
+
+    @After
+    public void resetConfig() {
+        TerraConfig.http.cache = this.cache;
+        TerraConfig.http.cacheOnly = this.cacheOnly;
+    }
+
+    private static void assertNotCached(String url) {
+        try {
+            Http.get(url).join();
+            fail("request for uncached resource succeeded");
+        } catch (CompletionException e) {
+            assertTrue(String.valueOf(e.getCause()), e.getCause() instanceof IOException);
+        }
+    }
+
+    @Test(timeout = 10000L)
+    public void testMissFailsWithoutRequest() throws IOException {
+        try (ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            String url = "http://127.0.0.1:" + server.getLocalPort() + "/" + UUID.randomUUID();
+
+            TerraConfig.http.cacheOnly = true;
+            TerraConfig.http.cache = true;
+            assertNotCached(url);
+
+            //requests fail the same way if the cache is disabled entirely
+            TerraConfig.http.cache = false;
+            assertNotCached(url);
+
+            //nothing ever connected to the server
+            server.setSoTimeout(500);
+            try {
+                server.accept().close();
+                fail("a request was sent in cache-only mode");
+            } catch (SocketTimeoutException expected) {
+                //no-op
+            }
+        }
+    }
+
+    @Test(timeout = 10000L)
+    public void testExpiredEntryIsUsed() {
+        String url = "http://127.0.0.1:1/" + UUID.randomUUID(); //nothing will ever be listening there
+
+        long now = System.currentTimeMillis();
+        ByteBuf entry = Unpooled.buffer();
+        entry.writeByte(CacheEntry.CACHE_VERSION);
+        new CacheEntry(CacheEntry.STATUS_SUCCESS, now - 2000L, -1L, now - 1000L, 0, null, null, false).write(entry);
+        entry.writeCharSequence("seeded", StandardCharsets.UTF_8);
+        Disk.writeCache(url, entry);
+        Disk.flush();
+
+        TerraConfig.http.cacheOnly = true;
+        TerraConfig.http.cache = true;
+        ByteBuf data = Http.get(url).join();
+        try {
+            assertEquals("seeded", data.toString(StandardCharsets.UTF_8));
+        } finally {
+            data.release();
+        }
+    }
+}
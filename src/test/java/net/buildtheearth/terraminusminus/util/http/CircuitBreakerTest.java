@@ -0,0 +1,126 @@
+package net.buildtheearth.terraminusminus.util.http;
+
+import io.netty.buffer.ByteBuf;
+import net.buildtheearth.terraminusminus.TerraConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class CircuitBreakerTest {
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1L);
+
+    private boolean cache;
+    private boolean circuitBreaker;
+
+    @Before
+    public void setup() {
+        this.cache = TerraConfig.http.cache;
+        TerraConfig.http.cache = false;
+        this.circuitBreaker = TerraConfig.http.circuitBreaker;
+        TerraConfig.http.circuitBreaker = true;
+    }
+
+    @After
+    public void teardown() {
+        TerraConfig.http.cache = this.cache;
+        TerraConfig.http.circuitBreaker = this.circuitBreaker;
+    }
+
+    @Test
+    public void testOpenAndClose() {
+        CircuitBreaker breaker = new CircuitBreaker();
+        long now = 0L;
+
+        for (int i = 1; i < CircuitBreaker.FAILURE_THRESHOLD; i++) {
+            breaker.onFailure(now);
+            assertTrue(breaker.allowRequests(now));
+        }
+        breaker.onFailure(now);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertFalse(breaker.allowRequests(now + CircuitBreaker.MIN_OPEN_DURATION - MS));
+
+        //after a while, a probe may be sent
+        now += CircuitBreaker.MIN_OPEN_DURATION;
+        assertTrue(breaker.allowRequests(now));
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+
+        //a single failure isn't enough to open the breaker again
+        breaker.onFailure(now);
+        assertTrue(breaker.allowRequests(now));
+    }
+
+    @Test
+    public void testBackoff() {
+        CircuitBreaker breaker = new CircuitBreaker();
+        long now = 0L;
+        for (int i = 0; i < CircuitBreaker.FAILURE_THRESHOLD; i++) {
+            breaker.onFailure(now);
+        }
+
+        //every failed probe doubles the time until the next one, up to the maximum
+        long duration = CircuitBreaker.MIN_OPEN_DURATION;
+        for (int i = 0; i < 10; i++) {
+            assertFalse(breaker.allowRequests(now + duration - MS));
+            now += duration;
+            assertTrue(breaker.allowRequests(now));
+
+            breaker.onFailure(now);
+            assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+            duration = Math.min(duration * 2L, CircuitBreaker.MAX_OPEN_DURATION);
+        }
+        assertEquals(CircuitBreaker.MAX_OPEN_DURATION, duration);
+
+        //a successful probe resets the backoff
+        now += duration;
+        assertTrue(breaker.allowRequests(now));
+        breaker.onSuccess();
+        for (int i = 0; i < CircuitBreaker.FAILURE_THRESHOLD; i++) {
+            breaker.onFailure(now);
+        }
+        assertTrue(breaker.allowRequests(now + CircuitBreaker.MIN_OPEN_DURATION));
+    }
+
+    /**
+     * Requests the given URL, which must fail.
+     *
+     * @return the message of the exception the request failed with
+     */
+    private static String failure(String url) {
+        try {
+            ByteBuf buf = Http.get(url).join();
+            if (buf != null) {
+                buf.release();
+            }
+            throw new AssertionError("request to " + url + " succeeded");
+        } catch (CompletionException e) {
+            return String.valueOf(e.getCause().getMessage());
+        }
+    }
+
+    @Test(timeout = 20000L)
+    public void testFailFast() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) { //find a port which nothing is listening on
+            port = socket.getLocalPort();
+        }
+        String url = "http://127.0.0.1:" + port;
+
+        //connections are refused, but an attempt is still made for every request until the breaker opens
+        for (int i = 0; i < CircuitBreaker.FAILURE_THRESHOLD; i++) {
+            assertFalse(failure(url + "/" + i).contains("circuit breaker"));
+        }
+
+        //now requests are failed without trying to connect
+        assertTrue(failure(url + "/open").contains("circuit breaker"));
+    }
+}
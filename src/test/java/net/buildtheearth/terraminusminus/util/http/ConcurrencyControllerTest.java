@@ -0,0 +1,237 @@
+package net.buildtheearth.terraminusminus.util.http;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.DateFormatter;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.DefaultHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.HttpVersion;
+import net.buildtheearth.terraminusminus.TerraConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ConcurrencyControllerTest {
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1L);
+
+    private EventLoopGroup group;
+    private boolean cache;
+    private boolean adaptiveConcurrency;
+
+    private final AtomicInteger activeRequests = new AtomicInteger();
+    private final AtomicInteger throttledRequests = new AtomicInteger();
+
+    @Before
+    public void setup() {
+        this.group = new NioEventLoopGroup(1);
+        this.cache = TerraConfig.http.cache;
+        TerraConfig.http.cache = false;
+        this.adaptiveConcurrency = TerraConfig.http.adaptiveConcurrency;
+        TerraConfig.http.adaptiveConcurrency = true;
+    }
+
+    @After
+    public void teardown() {
+        this.group.shutdownGracefully(0L, 1L, TimeUnit.SECONDS);
+        TerraConfig.http.cache = this.cache;
+        TerraConfig.http.adaptiveConcurrency = this.adaptiveConcurrency;
+    }
+
+    @Test
+    public void testSlowStartAndIncrease() {
+        ConcurrencyController controller = new ConcurrencyController(64);
+        assertEquals(1, controller.limit());
+
+        long now = 0L;
+        for (int i = 0; i < 15; i++, now += 10L * MS) {
+            controller.onSuccess(now, now + 10L * MS);
+        }
+        assertEquals("the limit should grow quickly during slow start", 16, controller.limit());
+
+        controller.onThrottled(now, now + 10L * MS);
+        now += 20L * MS;
+        assertEquals(8, controller.limit());
+
+        //after slow start, the limit only grows by about 1 per round-trip
+        for (int i = 0; i < 9; i++, now += 10L * MS) {
+            controller.onSuccess(now, now + 10L * MS);
+        }
+        assertEquals(9, controller.limit());
+    }
+
+    @Test
+    public void testUpperBound() {
+        ConcurrencyController controller = new ConcurrencyController(4);
+        for (int i = 0; i < 100; i++) {
+            controller.onSuccess(i * MS, (i + 1L) * MS);
+        }
+        assertEquals(4, controller.limit());
+
+        controller.setMaxLimit(2);
+        assertEquals(2, controller.limit());
+    }
+
+    @Test
+    public void testOneDecreasePerWindow() {
+        ConcurrencyController controller = new ConcurrencyController(64);
+        for (int i = 0; i < 31; i++) {
+            controller.onSuccess(0L, 10L * MS);
+        }
+        assertEquals(32, controller.limit());
+
+        //a whole window of requests sent at the same time is throttled, but the limit should only be cut once
+        for (int i = 0; i < 32; i++) {
+            controller.onThrottled(20L * MS, 30L * MS);
+        }
+        assertEquals(16, controller.limit());
+
+        //requests sent after the decrease may cut it again
+        controller.onThrottled(40L * MS, 50L * MS);
+        assertEquals(8, controller.limit());
+    }
+
+    @Test
+    public void testLatencySpike() {
+        ConcurrencyController controller = new ConcurrencyController(64);
+        for (int i = 0; i < 9; i++) {
+            controller.onSuccess(0L, 10L * MS);
+        }
+        assertEquals(10, controller.limit());
+
+        controller.onSuccess(20L * MS, 120L * MS);
+        assertEquals(8, controller.limit());
+    }
+
+    /**
+     * Starts a plain HTTP server which responds with {@code 429 Too Many Requests} if more than the given number of requests are active at
+     * once.
+     *
+     * @return the URL of the server
+     */
+    private String startThrottlingServer(int maxActiveRequests) {
+        Channel channel = new ServerBootstrap()
+                .group(this.group)
+                .channel(NioServerSocketChannel.class)
+                .childHandler(new ChannelInitializer<Channel>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        ch.pipeline().addLast(
+                                new HttpServerCodec(),
+                                new HttpObjectAggregator(1 << 20),
+                                new SimpleChannelInboundHandler<FullHttpRequest>() {
+                                    @Override
+                                    protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest request) {
+                                        if (ConcurrencyControllerTest.this.activeRequests.incrementAndGet() > maxActiveRequests) {
+                                            ConcurrencyControllerTest.this.activeRequests.decrementAndGet();
+                                            ConcurrencyControllerTest.this.throttledRequests.incrementAndGet();
+
+                                            FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.TOO_MANY_REQUESTS);
+                                            response.headers().set(HttpHeaderNames.CONTENT_LENGTH, 0);
+                                            ctx.writeAndFlush(response);
+                                            return;
+                                        }
+
+                                        String body = request.uri();
+                                        ctx.executor().schedule(() -> {
+                                            ConcurrencyControllerTest.this.activeRequests.decrementAndGet();
+
+                                            FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK, Unpooled.copiedBuffer(body, StandardCharsets.UTF_8));
+                                            response.headers().set(HttpHeaderNames.CONTENT_LENGTH, response.content().readableBytes());
+                                            ctx.writeAndFlush(response);
+                                        }, 10L, TimeUnit.MILLISECONDS);
+                                    }
+                                });
+                    }
+                })
+                .bind("127.0.0.1", 0).syncUninterruptibly().channel();
+        return "http://127.0.0.1:" + ((InetSocketAddress) channel.localAddress()).getPort();
+    }
+
+    @Test(timeout = 30000L)
+    public void testThrottlingServer() throws Exception {
+        String url = this.startThrottlingServer(4);
+        Http.setMaximumConcurrentRequestsTo(url, 16);
+
+        List<CompletableFuture<ByteBuf>> futures = new ArrayList<>();
+        for (int i = 0; i < 256; i++) {
+            futures.add(Http.get(url + "/" + i));
+        }
+
+        int failed = 0;
+        for (CompletableFuture<ByteBuf> future : futures) {
+            try {
+                future.join().release();
+            } catch (Exception e) {
+                failed++;
+            }
+        }
+
+        assertEquals("throttled requests should have been retried", 0, failed);
+        assertTrue("too many requests were throttled: " + this.throttledRequests.get(), this.throttledRequests.get() < 64);
+
+        HostManager manager = Http.MANAGERS.get(new Host(new URL(url)));
+        int limit = manager.eventLoop.submit(manager::maxActiveRequests).get();
+        assertTrue("the concurrency limit should have backed off: " + limit, limit < 16);
+    }
+
+    @Test(timeout = 20000L)
+    public void testNoRetryWhenDisabled() throws Exception {
+        TerraConfig.http.adaptiveConcurrency = false;
+        String url = this.startThrottlingServer(0);
+
+        try {
+            Http.get(url + "/throttled").join().release();
+            fail("the throttled response should have been passed on");
+        } catch (CompletionException e) {
+            //expected
+        }
+
+        Thread.sleep(2L * HostManager.THROTTLED_RETRY_BASE_DELAY);
+        assertEquals("the throttled request shouldn't have been retried", 1, this.throttledRequests.get());
+    }
+
+    @Test
+    public void testRetryDelay() {
+        HttpResponse response = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.TOO_MANY_REQUESTS);
+        assertEquals(HostManager.THROTTLED_RETRY_BASE_DELAY, HostManager.throttledRetryDelay(response, 0));
+        assertEquals(HostManager.THROTTLED_RETRY_BASE_DELAY * 4L, HostManager.throttledRetryDelay(response, 2));
+
+        response.headers().set(HttpHeaderNames.RETRY_AFTER, "2");
+        assertEquals(2000L, HostManager.throttledRetryDelay(response, 0));
+
+        response.headers().set(HttpHeaderNames.RETRY_AFTER, DateFormatter.format(new Date(System.currentTimeMillis() - 1000L)));
+        assertEquals(0L, HostManager.throttledRetryDelay(response, 0));
+
+        //the host wants us to wait too long
+        response.headers().set(HttpHeaderNames.RETRY_AFTER, "3600");
+        assertEquals(-1L, HostManager.throttledRetryDelay(response, 0));
+    }
+}
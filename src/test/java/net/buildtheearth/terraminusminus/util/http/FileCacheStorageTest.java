@@ -0,0 +1,249 @@
+package net.buildtheearth.terraminusminus.util.http;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class FileCacheStorageTest {
+    private static final int URLS = 4;
+    private static final int ITERATIONS = 500;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Entry point for the child processes started by {@link #testMultipleProcesses()}.
+     * <p>
+     * Exits with a non-zero status if a corrupted entry was read.
+     */
+    public static void main(String... args) throws IOException {
+        if (!readAndWrite(new FileCacheStorage(Paths.get(args[0])), args[1])) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Generates an entry which can be validated by {@link #isValid(String, String)}. Entries are up to a few hundred KiB in size, so that partially
+     * written ones are very likely to be seen if writes aren't atomic.
+     */
+    private static String value(String url, String writer, int i) {
+        String part = url + '|' + writer + '|' + i + ';';
+        int count = ThreadLocalRandom.current().nextInt(1, 8192);
+        StringBuilder builder = new StringBuilder(part.length() * count);
+        for (int j = 0; j < count; j++) {
+            builder.append(part);
+        }
+        return builder.toString();
+    }
+
+    private static boolean isValid(String url, String value) {
+        int end = value.indexOf(';');
+        if (end < 0 || !value.startsWith(url + '|')) {
+            return false;
+        }
+        String part = value.substring(0, end + 1);
+        if (value.length() % part.length() != 0) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i += part.length()) {
+            if (!value.startsWith(part, i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String read(CacheStorage storage, String url) throws IOException {
+        ByteBuf buf = storage.read(url);
+        if (buf == null) {
+            return null;
+        }
+        try {
+            return buf.toString(StandardCharsets.UTF_8);
+        } finally {
+            buf.release();
+        }
+    }
+
+    /**
+     * Randomly reads and replaces a few entries.
+     *
+     * @return whether all entries which were read were valid
+     */
+    private static boolean readAndWrite(CacheStorage storage, String writer) throws IOException {
+        ThreadLocalRandom r = ThreadLocalRandom.current();
+        for (int i = 0; i < ITERATIONS; i++) {
+            String url = "https://example.com/" + r.nextInt(URLS);
+            if (r.nextBoolean()) {
+                ByteBuf data = Unpooled.copiedBuffer(value(url, writer, i), StandardCharsets.UTF_8);
+                try {
+                    storage.write(url, data);
+                } finally {
+                    data.release();
+                }
+            } else {
+                String value = read(storage, url);
+                if (value != null && !isValid(url, value)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static long fileCount(Path directory) throws IOException {
+        try (Stream<Path> stream = Files.list(directory)) {
+            return stream.filter(Files::isRegularFile).count();
+        }
+    }
+
+    @Test
+    public void testReadWrite() throws IOException {
+        Path root = this.folder.getRoot().toPath();
+
+        FileCacheStorage storage = new FileCacheStorage(root);
+        assertNull(read(storage, "https://example.com/a"));
+
+        storage.write("https://example.com/a", Unpooled.copiedBuffer("first", StandardCharsets.UTF_8));
+        storage.write("https://example.com/a", Unpooled.copiedBuffer("replaced", StandardCharsets.UTF_8));
+        assertEquals("replaced", read(storage, "https://example.com/a"));
+        assertEquals(0L, fileCount(storage.tmpDirectory));
+
+        storage = new FileCacheStorage(root);
+        assertEquals("replaced", read(storage, "https://example.com/a"));
+    }
+
+    @Test
+    public void testLegacyTmpFile() throws IOException {
+        Path root = this.folder.getRoot().toPath();
+        Files.write(root.resolve(FileCacheStorage.TMP_DIRECTORY), new byte[]{ 1, 2, 3 });
+
+        FileCacheStorage storage = new FileCacheStorage(root);
+        assertTrue(Files.isDirectory(storage.tmpDirectory));
+        storage.write("https://example.com/a", Unpooled.copiedBuffer("a", StandardCharsets.UTF_8));
+        assertEquals("a", read(storage, "https://example.com/a"));
+    }
+
+    @Test(timeout = 60000L)
+    public void testConcurrentThreads() throws Exception {
+        FileCacheStorage storage = new FileCacheStorage(this.folder.getRoot().toPath());
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                String writer = "thread" + i;
+                futures.add(executor.submit(() -> readAndWrite(storage, writer)));
+            }
+            for (Future<Boolean> future : futures) {
+                assertTrue("a corrupted entry was read", future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        for (int i = 0; i < URLS; i++) {
+            String url = "https://example.com/" + i;
+            String value = read(storage, url);
+            assertTrue(value == null || isValid(url, value));
+        }
+        assertEquals(0L, fileCount(storage.tmpDirectory));
+    }
+
+    @Test(timeout = 120000L)
+    public void testMultipleProcesses() throws Exception {
+        Path root = this.folder.getRoot().toPath();
+        FileCacheStorage storage = new FileCacheStorage(root);
+
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        List<Process> processes = new ArrayList<>();
+        try {
+            for (int i = 0; i < 3; i++) {
+                processes.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), FileCacheStorageTest.class.getName(), root.toString(), "process" + i)
+                        .redirectOutput(ProcessBuilder.Redirect.INHERIT)
+                        .redirectError(ProcessBuilder.Redirect.INHERIT)
+                        .start());
+            }
+
+            //read and write from this process at the same time
+            assertTrue("a corrupted entry was read", readAndWrite(storage, "parent"));
+
+            for (Process process : processes) {
+                assertTrue(process.waitFor(100L, TimeUnit.SECONDS));
+                assertEquals("a corrupted entry was read by a child process", 0, process.exitValue());
+            }
+        } finally {
+            processes.forEach(Process::destroyForcibly);
+        }
+
+        for (int i = 0; i < URLS; i++) {
+            String url = "https://example.com/" + i;
+            String value = read(storage, url);
+            assertTrue(value == null || isValid(url, value));
+        }
+        assertEquals(0L, fileCount(storage.tmpDirectory));
+    }
+
+    @Test
+    public void testPruneStaleTmpFiles() throws IOException {
+        FileCacheStorage storage = new FileCacheStorage(this.folder.getRoot().toPath());
+        storage.write("https://example.com/a", Unpooled.copiedBuffer("a", StandardCharsets.UTF_8));
+
+        Path stale = storage.tmpDirectory.resolve("stale.tmp");
+        Files.write(stale, new byte[16]);
+        Files.setLastModifiedTime(stale, FileTime.fromMillis(System.currentTimeMillis() - FileCacheStorage.STALE_TMP_FILE_AGE * 2L));
+        Path fresh = storage.tmpDirectory.resolve("fresh.tmp"); //may still be written by another process
+        Files.write(fresh, new byte[16]);
+
+        LongAdder count = new LongAdder();
+        LongAdder size = new LongAdder();
+        storage.prune(buf -> true, count, size);
+        assertEquals(1L, count.sum());
+        assertEquals(16L, size.sum());
+        assertFalse(Files.exists(stale));
+        assertTrue(Files.exists(fresh));
+        assertEquals("a", read(storage, "https://example.com/a"));
+    }
+
+    @Test
+    public void testMappedRead() throws IOException {
+        FileCacheStorage storage = new FileCacheStorage(this.folder.getRoot().toPath(), 4L);
+        storage.write("https://example.com/small", Unpooled.copiedBuffer("abc", StandardCharsets.UTF_8));
+        storage.write("https://example.com/large", Unpooled.copiedBuffer("abcdefgh", StandardCharsets.UTF_8));
+
+        ByteBuf small = storage.read("https://example.com/small");
+        assertFalse(storage.isMapped(small));
+        small.release();
+
+        ByteBuf large = storage.read("https://example.com/large");
+        assertTrue(storage.isMapped(large));
+        assertEquals("abcdefgh", large.toString(StandardCharsets.UTF_8));
+
+        //derived buffers keep the mapping alive
+        ByteBuf slice = large.retainedSlice(4, 4);
+        assertFalse(large.release());
+        assertEquals("efgh", slice.toString(StandardCharsets.UTF_8));
+        assertTrue(slice.release());
+        assertEquals(0, large.refCnt());
+    }
+}
@@ -0,0 +1,202 @@
+package net.buildtheearth.terraminusminus.util.http;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http2.Http2FrameCodecBuilder;
+import io.netty.handler.codec.http2.Http2MultiplexHandler;
+import io.netty.handler.codec.http2.Http2Settings;
+import io.netty.handler.codec.http2.Http2StreamFrameToHttpObjectCodec;
+import io.netty.handler.ssl.ApplicationProtocolConfig;
+import io.netty.handler.ssl.ApplicationProtocolNames;
+import io.netty.handler.ssl.ApplicationProtocolNegotiationHandler;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import net.buildtheearth.terraminusminus.TerraConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests HTTP/2 support in {@link HostManager} against a local server.
+ */
+public class Http2Test {
+
+    private EventLoopGroup group;
+    private boolean cache;
+    private boolean http2;
+
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicInteger activeRequests = new AtomicInteger();
+    private final AtomicInteger maxActiveRequests = new AtomicInteger();
+
+    @Before
+    public void setup() {
+        this.group = new NioEventLoopGroup(1);
+        this.cache = TerraConfig.http.cache;
+        TerraConfig.http.cache = false;
+        this.http2 = TerraConfig.http.http2;
+        TerraConfig.http.http2 = true;
+    }
+
+    @After
+    public void teardown() {
+        this.group.shutdownGracefully(0L, 1L, TimeUnit.SECONDS);
+        TerraConfig.http.cache = this.cache;
+        TerraConfig.http.http2 = this.http2;
+    }
+
+    private SslContext serverSslContext(String... protocols) throws Exception {
+        try (InputStream cert = Http2Test.class.getResourceAsStream("localhost.crt");
+             InputStream key = Http2Test.class.getResourceAsStream("localhost.key")) {
+            return SslContextBuilder.forServer(cert, key)
+                    .applicationProtocolConfig(new ApplicationProtocolConfig(
+                            ApplicationProtocolConfig.Protocol.ALPN,
+                            ApplicationProtocolConfig.SelectorFailureBehavior.NO_ADVERTISE,
+                            ApplicationProtocolConfig.SelectedListenerFailureBehavior.ACCEPT,
+                            protocols))
+                    .build();
+        }
+    }
+
+    /**
+     * Starts a server which responds to every request with the negotiated protocol and the request path, after a short delay.
+     *
+     * @return the URL of the server
+     */
+    private String startServer(SslContext sslContext) throws Exception {
+        Channel channel = new ServerBootstrap()
+                .group(this.group)
+                .channel(NioServerSocketChannel.class)
+                .childHandler(new ChannelInitializer<Channel>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        Http2Test.this.connections.incrementAndGet();
+                        ch.pipeline().addLast(
+                                sslContext.newHandler(ch.alloc()),
+                                new ApplicationProtocolNegotiationHandler(ApplicationProtocolNames.HTTP_1_1) {
+                                    @Override
+                                    protected void configurePipeline(ChannelHandlerContext ctx, String protocol) {
+                                        if (ApplicationProtocolNames.HTTP_2.equals(protocol)) {
+                                            ctx.pipeline().addLast(
+                                                    Http2FrameCodecBuilder.forServer().initialSettings(Http2Settings.defaultSettings().maxConcurrentStreams(100L)).build(),
+                                                    new Http2MultiplexHandler(new ChannelInitializer<Channel>() {
+                                                        @Override
+                                                        protected void initChannel(Channel stream) {
+                                                            stream.pipeline().addLast(
+                                                                    new Http2StreamFrameToHttpObjectCodec(true),
+                                                                    new HttpObjectAggregator(1 << 20),
+                                                                    new ResponseHandler("h2"));
+                                                        }
+                                                    }));
+                                        } else {
+                                            ctx.pipeline().addLast(
+                                                    new HttpServerCodec(),
+                                                    new HttpObjectAggregator(1 << 20),
+                                                    new ResponseHandler("http/1.1"));
+                                        }
+                                    }
+                                });
+                    }
+                })
+                .bind("127.0.0.1", 0).syncUninterruptibly().channel();
+        return "https://localhost:" + ((InetSocketAddress) channel.localAddress()).getPort();
+    }
+
+    private List<String> getAll(String baseUrl, int count) {
+        List<CompletableFuture<ByteBuf>> futures = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            futures.add(Http.get(baseUrl + "/" + i));
+        }
+
+        List<String> responses = new ArrayList<>();
+        for (CompletableFuture<ByteBuf> future : futures) {
+            ByteBuf buf = future.join();
+            try {
+                responses.add(buf.toString(StandardCharsets.UTF_8));
+            } finally {
+                buf.release();
+            }
+        }
+        return responses;
+    }
+
+    @Test(timeout = 20000L)
+    public void testMultiplexing() throws Exception {
+        String url = this.startServer(this.serverSslContext(ApplicationProtocolNames.HTTP_2, ApplicationProtocolNames.HTTP_1_1));
+        Http.setMaximumConcurrentStreamsTo(url, 8);
+
+        List<String> responses = this.getAll(url, 64);
+        for (int i = 0; i < responses.size(); i++) {
+            assertEquals("h2 /" + i, responses.get(i));
+        }
+
+        assertEquals("all requests should share a single connection", 1, this.connections.get());
+        assertTrue("too many concurrent streams: " + this.maxActiveRequests.get(), this.maxActiveRequests.get() <= 8);
+        assertTrue("requests weren't multiplexed", this.maxActiveRequests.get() > 1);
+    }
+
+    @Test(timeout = 20000L)
+    public void testHttp1Fallback() throws Exception {
+        String url = this.startServer(this.serverSslContext(ApplicationProtocolNames.HTTP_1_1));
+        Http.setMaximumConcurrentRequestsTo(url, 4);
+
+        List<String> responses = this.getAll(url, 16);
+        for (int i = 0; i < responses.size(); i++) {
+            assertEquals("http/1.1 /" + i, responses.get(i));
+        }
+
+        assertTrue("too many connections: " + this.connections.get(), this.connections.get() <= 4);
+    }
+
+    @ChannelHandler.Sharable
+    private final class ResponseHandler extends SimpleChannelInboundHandler<FullHttpRequest> {
+        private final String protocol;
+
+        ResponseHandler(String protocol) {
+            this.protocol = protocol;
+        }
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest request) {
+            int active = Http2Test.this.activeRequests.incrementAndGet();
+            Http2Test.this.maxActiveRequests.accumulateAndGet(active, Math::max);
+
+            String body = this.protocol + ' ' + request.uri();
+            ctx.executor().schedule(() -> {
+                Http2Test.this.activeRequests.decrementAndGet();
+
+                FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK, Unpooled.copiedBuffer(body, StandardCharsets.UTF_8));
+                response.headers().set(HttpHeaderNames.CONTENT_LENGTH, response.content().readableBytes());
+                ctx.writeAndFlush(response);
+            }, 20L, TimeUnit.MILLISECONDS);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package net.buildtheearth.terraminusminus.util.http;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.HttpVersion;
+import net.buildtheearth.terraminusminus.TerraConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that cancelled requests are removed from {@link HostManager}'s queue instead of being sent.
+ */
+public class HttpCancellationTest {
+
+    private EventLoopGroup group;
+    private boolean cache;
+
+    private final AtomicInteger receivedRequests = new AtomicInteger();
+
+    @Before
+    public void setup() {
+        this.group = new NioEventLoopGroup(1);
+        this.cache = TerraConfig.http.cache;
+        TerraConfig.http.cache = false;
+    }
+
+    @After
+    public void teardown() {
+        this.group.shutdownGracefully(0L, 1L, TimeUnit.SECONDS);
+        TerraConfig.http.cache = this.cache;
+    }
+
+    /**
+     * Starts a plain HTTP server which responds to every request with the request path, after a short delay.
+     *
+     * @return the URL of the server
+     */
+    private String startServer() {
+        Channel channel = new ServerBootstrap()
+                .group(this.group)
+                .channel(NioServerSocketChannel.class)
+                .childHandler(new ChannelInitializer<Channel>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        ch.pipeline().addLast(
+                                new HttpServerCodec(),
+                                new HttpObjectAggregator(1 << 20),
+                                new SimpleChannelInboundHandler<FullHttpRequest>() {
+                                    @Override
+                                    protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest request) {
+                                        HttpCancellationTest.this.receivedRequests.incrementAndGet();
+
+                                        String body = request.uri();
+                                        ctx.executor().schedule(() -> {
+                                            FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK, Unpooled.copiedBuffer(body, StandardCharsets.UTF_8));
+                                            response.headers().set(HttpHeaderNames.CONTENT_LENGTH, response.content().readableBytes());
+                                            ctx.writeAndFlush(response);
+                                        }, 20L, TimeUnit.MILLISECONDS);
+                                    }
+                                });
+                    }
+                })
+                .bind("127.0.0.1", 0).syncUninterruptibly().channel();
+        return "http://127.0.0.1:" + ((InetSocketAddress) channel.localAddress()).getPort();
+    }
+
+    @Test(timeout = 20000L)
+    public void testCancelledRequestsAreNotSent() {
+        String url = this.startServer();
+        Http.setMaximumConcurrentRequestsTo(url, 1);
+
+        List<CompletableFuture<ByteBuf>> futures = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            futures.add(Http.get(url + "/" + i));
+        }
+        for (int i = 0; i < 31; i++) { //cancel everything except the last request
+            futures.get(i).cancel(false);
+        }
+
+        ByteBuf buf = futures.get(31).join();
+        try {
+            assertEquals("/31", buf.toString(StandardCharsets.UTF_8));
+        } finally {
+            buf.release();
+        }
+
+        //the first request may already have been sent before it was cancelled
+        assertTrue("cancelled requests were sent: " + this.receivedRequests.get(), this.receivedRequests.get() <= 2);
+    }
+}
@@ -0,0 +1,172 @@
+package net.buildtheearth.terraminusminus.util.http;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.HttpVersion;
+import net.buildtheearth.terraminusminus.TerraConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that concurrent requests for the same URL are coalesced into a single request.
+ */
+public class HttpCoalescingTest {
+
+    private EventLoopGroup group;
+    private boolean cache;
+
+    private final AtomicInteger receivedRequests = new AtomicInteger();
+
+    @Before
+    public void setup() {
+        this.group = new NioEventLoopGroup(1);
+        this.cache = TerraConfig.http.cache;
+        TerraConfig.http.cache = false;
+    }
+
+    @After
+    public void teardown() {
+        this.group.shutdownGracefully(0L, 1L, TimeUnit.SECONDS);
+        TerraConfig.http.cache = this.cache;
+    }
+
+    /**
+     * Starts a plain HTTP server which responds to every request with the request path, after a short delay.
+     *
+     * @return the URL of the server
+     */
+    private String startServer() {
+        Channel channel = new ServerBootstrap()
+                .group(this.group)
+                .channel(NioServerSocketChannel.class)
+                .childHandler(new ChannelInitializer<Channel>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        ch.pipeline().addLast(
+                                new HttpServerCodec(),
+                                new HttpObjectAggregator(1 << 20),
+                                new SimpleChannelInboundHandler<FullHttpRequest>() {
+                                    @Override
+                                    protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest request) {
+                                        HttpCoalescingTest.this.receivedRequests.incrementAndGet();
+
+                                        String body = request.uri();
+                                        ctx.executor().schedule(() -> {
+                                            FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK, Unpooled.copiedBuffer(body, StandardCharsets.UTF_8));
+                                            response.headers().set(HttpHeaderNames.CONTENT_LENGTH, response.content().readableBytes());
+                                            ctx.writeAndFlush(response);
+                                        }, 100L, TimeUnit.MILLISECONDS);
+                                    }
+                                });
+                    }
+                })
+                .bind("127.0.0.1", 0).syncUninterruptibly().channel();
+        return "http://127.0.0.1:" + ((InetSocketAddress) channel.localAddress()).getPort();
+    }
+
+    private static String read(CompletableFuture<ByteBuf> future) {
+        ByteBuf buf = future.join();
+        try {
+            return buf.toString(StandardCharsets.UTF_8);
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Test(timeout = 20000L)
+    public void testCoalescing() {
+        String url = this.startServer();
+        long coalescedBefore = Http.coalescedRequestCount();
+
+        List<CompletableFuture<ByteBuf>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            futures.add(Http.get(url + "/tile"));
+        }
+        for (CompletableFuture<ByteBuf> future : futures) {
+            assertEquals("/tile", read(future));
+        }
+
+        assertEquals(1, this.receivedRequests.get());
+        assertEquals(7L, Http.coalescedRequestCount() - coalescedBefore);
+
+        //the request is no longer in flight, so it has to be sent again
+        assertEquals("/tile", read(Http.get(url + "/tile")));
+        assertEquals(2, this.receivedRequests.get());
+    }
+
+    @Test(timeout = 20000L)
+    public void testPartialCancellation() {
+        String url = this.startServer();
+
+        CompletableFuture<ByteBuf> cancelled = Http.get(url + "/tile");
+        CompletableFuture<ByteBuf> kept = Http.get(url + "/tile");
+        cancelled.cancel(false);
+
+        //the request must still be completed, as another caller is still waiting for it
+        assertEquals("/tile", read(kept));
+        assertEquals(1, this.receivedRequests.get());
+    }
+
+    @Test
+    public void testSharedBody() {
+        CoalescedRequest request = new CoalescedRequest();
+        CompletableFuture<ByteBuf> first = new CompletableFuture<>();
+        CompletableFuture<ByteBuf> second = new CompletableFuture<>();
+        CompletableFuture<ByteBuf> cancelled = new CompletableFuture<>();
+        assertTrue(request.addConsumer(first));
+        assertTrue(request.addConsumer(second));
+        assertTrue(request.addConsumer(cancelled));
+        cancelled.cancel(false);
+        assertFalse(request.future.isCancelled());
+
+        ByteBuf body = Unpooled.copiedBuffer("body", StandardCharsets.UTF_8);
+        request.future.complete(body);
+        assertEquals(2, body.refCnt()); //one reference per remaining consumer, the request's own reference was released
+        assertEquals("body", read(first));
+        assertEquals("body", read(second));
+        assertEquals(0, body.refCnt());
+
+        //the request has completed, so no more consumers can be added
+        assertFalse(request.addConsumer(new CompletableFuture<>()));
+    }
+
+    @Test
+    public void testCancelAll() {
+        CoalescedRequest request = new CoalescedRequest();
+        CompletableFuture<ByteBuf> first = new CompletableFuture<>();
+        CompletableFuture<ByteBuf> second = new CompletableFuture<>();
+        assertTrue(request.addConsumer(first));
+        assertTrue(request.addConsumer(second));
+
+        first.cancel(false);
+        second.cancel(false);
+        assertTrue(request.future.isCancelled());
+        assertFalse(request.addConsumer(new CompletableFuture<>()));
+    }
+}
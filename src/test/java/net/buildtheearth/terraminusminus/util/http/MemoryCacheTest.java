@@ -0,0 +1,101 @@
+package net.buildtheearth.terraminusminus.util.http;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class MemoryCacheTest {
+    private static final long NOW = 1_000_000_000L;
+    private static final byte[] A = FileCacheStorage.hash("a");
+
+    private static ByteBuf entry(long expireTime, String body) {
+        ByteBuf buf = Unpooled.buffer();
+        buf.writeByte(CacheEntry.CACHE_VERSION);
+        buf.writeByte(CacheEntry.STATUS_SUCCESS);
+        buf.writeLong(NOW).writeLong(-1L).writeLong(expireTime);
+        buf.writeByte(0); //flags
+        buf.writeInt(-1);
+        buf.writeCharSequence(body, StandardCharsets.UTF_8);
+        return buf;
+    }
+
+    private static String body(ByteBuf buf) {
+        try {
+            return buf.toString(CacheIndex.ENTRY_HEADER_SIZE + 1 + 4, buf.readableBytes() - CacheIndex.ENTRY_HEADER_SIZE - 1 - 4, StandardCharsets.UTF_8);
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Test
+    public void testHitsAndMisses() {
+        MemoryCache cache = new MemoryCache(1L << 20L);
+        assertNull(cache.get(A, NOW));
+
+        ByteBuf data = entry(Long.MAX_VALUE, "hello");
+        data.readByte(); //the reader index of the original buffer must not matter...
+        data.readerIndex(0);
+        cache.put(A, data);
+        data.release(); //...and the cache doesn't take ownership of it
+
+        assertEquals("hello", body(cache.get(A, NOW)));
+        assertEquals("hello", body(cache.get(A, NOW)));
+
+        cache.put(A, entry(Long.MAX_VALUE, "replaced"));
+        assertEquals("replaced", body(cache.get(A, NOW)));
+
+        assertEquals(3L, cache.hitCount());
+        assertEquals(1L, cache.missCount());
+
+        //entries are identified by the contents of the hash, not the array instance
+        assertEquals("replaced", body(cache.get(FileCacheStorage.hash("a"), NOW)));
+        cache.remove(FileCacheStorage.hash("a"));
+        assertNull(cache.get(A, NOW));
+    }
+
+    @Test
+    public void testExpired() {
+        MemoryCache cache = new MemoryCache(1L << 20L);
+        cache.put(A, entry(NOW + 10L, "hello"));
+        assertEquals("hello", body(cache.get(A, NOW)));
+        assertNull(cache.get(A, NOW + 10L));
+
+        //expired entries are removed
+        assertNull(cache.get(A, NOW));
+        assertEquals(1L, cache.hitCount());
+        assertEquals(2L, cache.missCount());
+    }
+
+    @Test
+    public void testSizeLimit() {
+        MemoryCache cache = new MemoryCache(4096L);
+        for (int i = 0; i < 64; i++) {
+            cache.put(FileCacheStorage.hash("url" + i), entry(Long.MAX_VALUE, new String(new char[1024]).replace('\0', 'x')));
+        }
+
+        int cached = 0;
+        for (int i = 0; i < 64; i++) {
+            ByteBuf buf = cache.get(FileCacheStorage.hash("url" + i), NOW);
+            if (buf != null) {
+                cached++;
+                buf.release();
+            }
+        }
+        assertTrue("too many entries were kept: " + cached, cached <= 4);
+
+        //nothing is kept if the memory cache is disabled
+        cache = new MemoryCache(0L);
+        cache.put(A, entry(Long.MAX_VALUE, "hello"));
+        assertNull(cache.get(A, NOW));
+
+        //the data isn't even read in that case
+        ByteBuf released = entry(Long.MAX_VALUE, "hello");
+        released.release();
+        cache.put(A, released);
+        assertNull(cache.get(A, NOW));
+    }
+}
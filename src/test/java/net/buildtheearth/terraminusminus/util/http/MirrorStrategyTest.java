@@ -0,0 +1,199 @@
+package net.buildtheearth.terraminusminus.util.http;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.HttpVersion;
+import net.buildtheearth.terraminusminus.TerraConfig;
+import net.buildtheearth.terraminusminus.util.TerraExecutors;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class MirrorStrategyTest {
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1L);
+
+    private EventLoopGroup group;
+    private boolean cache;
+
+    @Before
+    public void setup() {
+        this.group = new NioEventLoopGroup(1);
+        this.cache = TerraConfig.http.cache;
+        TerraConfig.http.cache = false;
+    }
+
+    @After
+    public void teardown() {
+        this.group.shutdownGracefully(0L, 1L, TimeUnit.SECONDS);
+        TerraConfig.http.cache = this.cache;
+    }
+
+    /**
+     * Starts a plain HTTP server which responds to every request with the given status and its own name, after the given delay.
+     *
+     * @return the URL of the server
+     */
+    private String startServer(String name, HttpResponseStatus status, long delayMillis) {
+        Channel channel = new ServerBootstrap()
+                .group(this.group)
+                .channel(NioServerSocketChannel.class)
+                .childHandler(new ChannelInitializer<Channel>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        ch.pipeline().addLast(
+                                new HttpServerCodec(),
+                                new HttpObjectAggregator(1 << 20),
+                                new SimpleChannelInboundHandler<FullHttpRequest>() {
+                                    @Override
+                                    protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest request) {
+                                        ctx.executor().schedule(() -> {
+                                            FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, status, Unpooled.copiedBuffer(name, StandardCharsets.UTF_8));
+                                            response.headers().set(HttpHeaderNames.CONTENT_LENGTH, response.content().readableBytes());
+                                            ctx.writeAndFlush(response);
+                                        }, delayMillis, TimeUnit.MILLISECONDS);
+                                    }
+                                });
+                    }
+                })
+                .bind("127.0.0.1", 0).syncUninterruptibly().channel();
+        return "http://127.0.0.1:" + ((InetSocketAddress) channel.localAddress()).getPort() + "/tile";
+    }
+
+    private static String getFirst(MirrorStrategy strategy, String... urls) {
+        return Http.getFirst(urls, buf -> buf.toString(StandardCharsets.UTF_8), TerraExecutors.decode(), strategy).join();
+    }
+
+    @Test
+    public void testParse() {
+        assertEquals(MirrorStrategy.SEQUENTIAL, MirrorStrategy.parse("sequential"));
+        assertEquals(MirrorStrategy.RACE, MirrorStrategy.parse("RACE"));
+        assertEquals(MirrorStrategy.HEDGED, MirrorStrategy.parse("hedged"));
+        assertEquals(MirrorStrategy.SEQUENTIAL, MirrorStrategy.parse("unknown"));
+    }
+
+    @Test
+    public void testStats() {
+        MirrorStats stats = new MirrorStats();
+        assertEquals(-1L, stats.latency(0.5d));
+        assertEquals(MirrorStats.DEFAULT_HEDGE_DELAY, stats.hedgeDelay(0.95d));
+
+        for (int i = 1; i <= 100; i++) {
+            stats.succeeded(i * MS);
+        }
+        //only the most recent latencies are kept
+        assertEquals(37L * MS, stats.latency(0.0d));
+        assertEquals(69L * MS, stats.latency(0.5d));
+        assertEquals(100L * MS, stats.latency(1.0d));
+        assertEquals(97L * MS, stats.hedgeDelay(0.95d));
+
+        long now = System.nanoTime();
+        for (int i = 0; i < MirrorStats.UNHEALTHY_FAILURES; i++) {
+            assertFalse(stats.isUnhealthy(now));
+            stats.failed(now);
+        }
+        assertTrue(stats.isUnhealthy(now));
+        assertFalse(stats.isUnhealthy(now + MirrorStats.UNHEALTHY_DURATION));
+
+        stats.succeeded(MS);
+        assertFalse(stats.isUnhealthy(now));
+    }
+
+    @Test
+    public void testOrderMirrors() {
+        String slow = "https://slow.example.com/tile";
+        String fast = "https://fast.example.com/tile";
+        String unknown = "https://unknown.example.com/tile";
+        String failing = "https://failing.example.com/tile";
+
+        for (int i = 0; i < MirrorStats.MIN_SAMPLES; i++) {
+            Http.mirrorStats(slow).succeeded(100L * MS);
+            Http.mirrorStats(fast).succeeded(10L * MS);
+            Http.mirrorStats(failing).succeeded(MS);
+        }
+        for (int i = 0; i < MirrorStats.UNHEALTHY_FAILURES; i++) {
+            Http.mirrorStats(failing).failed(System.nanoTime());
+        }
+
+        assertArrayEquals(new String[]{ fast, slow, unknown, failing }, Http.orderMirrors(new String[]{ failing, unknown, slow, fast }));
+        assertArrayEquals(new String[]{ "file:///a", "file:///b" }, Http.orderMirrors(new String[]{ "file:///a", "file:///b" }));
+    }
+
+    @Test(timeout = 20000L)
+    public void testSequential() {
+        String failing = this.startServer("failing", HttpResponseStatus.INTERNAL_SERVER_ERROR, 0L);
+        String slow = this.startServer("slow", HttpResponseStatus.OK, 300L);
+        String fast = this.startServer("fast", HttpResponseStatus.OK, 0L);
+
+        //the first mirror which succeeds is used, no matter how long it takes
+        assertEquals("slow", getFirst(MirrorStrategy.SEQUENTIAL, failing, slow, fast));
+    }
+
+    @Test(timeout = 20000L)
+    public void testHedged() {
+        String slow = this.startServer("slow", HttpResponseStatus.OK, 5000L);
+        String fast = this.startServer("fast", HttpResponseStatus.OK, 0L);
+
+        //the slow mirror usually responds within 20ms, so the next mirror is tried once it takes longer than that
+        for (int i = 0; i < MirrorStats.MIN_SAMPLES; i++) {
+            Http.mirrorStats(slow).succeeded(20L * MS);
+        }
+
+        long start = System.nanoTime();
+        assertEquals("fast", getFirst(MirrorStrategy.HEDGED, slow, fast));
+        long elapsed = System.nanoTime() - start;
+        assertTrue("took too long: " + elapsed / MS + "ms", elapsed < MirrorStats.DEFAULT_HEDGE_DELAY);
+    }
+
+    @Test(timeout = 20000L)
+    public void testHedgedFailure() {
+        String failing = this.startServer("failing", HttpResponseStatus.INTERNAL_SERVER_ERROR, 0L);
+        String fast = this.startServer("fast", HttpResponseStatus.OK, 0L);
+
+        //the next mirror is tried as soon as the first one fails, without waiting for the hedge delay
+        long start = System.nanoTime();
+        assertEquals("fast", getFirst(MirrorStrategy.HEDGED, failing, fast));
+        long elapsed = System.nanoTime() - start;
+        assertTrue("took too long: " + elapsed / MS + "ms", elapsed < MirrorStats.DEFAULT_HEDGE_DELAY);
+    }
+
+    @Test(timeout = 20000L)
+    public void testRace() {
+        String slow = this.startServer("slow", HttpResponseStatus.OK, 2000L);
+        String fast = this.startServer("fast", HttpResponseStatus.OK, 0L);
+
+        long start = System.nanoTime();
+        assertEquals("fast", getFirst(MirrorStrategy.RACE, slow, fast));
+        long elapsed = System.nanoTime() - start;
+        assertTrue("took too long: " + elapsed / MS + "ms", elapsed < 2000L * MS);
+    }
+
+    @Test(timeout = 20000L)
+    public void testAllMissing() {
+        String missing = this.startServer("missing", HttpResponseStatus.NOT_FOUND, 0L);
+        String failing = this.startServer("failing", HttpResponseStatus.INTERNAL_SERVER_ERROR, 0L);
+
+        for (MirrorStrategy strategy : MirrorStrategy.values()) {
+            assertNull(getFirst(strategy, missing, failing));
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package net.buildtheearth.terraminusminus.util.http;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.HttpVersion;
+import net.buildtheearth.terraminusminus.TerraConfig;
+import net.buildtheearth.terraminusminus.substitutes.ChunkPos;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the order in which {@link HostManager} serves requests with different priorities.
+ */
+public class RequestPriorityTest {
+
+    private EventLoopGroup group;
+    private boolean cache;
+    private int priorityAgingMillis;
+
+    private final List<String> receivedPaths = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void setup() {
+        this.group = new NioEventLoopGroup(1);
+        this.cache = TerraConfig.http.cache;
+        this.priorityAgingMillis = TerraConfig.http.priorityAgingMillis;
+        TerraConfig.http.cache = false;
+    }
+
+    @After
+    public void teardown() {
+        this.group.shutdownGracefully(0L, 1L, TimeUnit.SECONDS);
+        TerraConfig.http.cache = this.cache;
+        TerraConfig.http.priorityAgingMillis = this.priorityAgingMillis;
+    }
+
+    /**
+     * Starts a plain HTTP server which responds to every request with the request path. Requests for paths starting with {@code /slow} take
+     * considerably longer to be answered than others.
+     *
+     * @return the URL of the server
+     */
+    private String startServer() {
+        Channel channel = new ServerBootstrap()
+                .group(this.group)
+                .channel(NioServerSocketChannel.class)
+                .childHandler(new ChannelInitializer<Channel>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        ch.pipeline().addLast(
+                                new HttpServerCodec(),
+                                new HttpObjectAggregator(1 << 20),
+                                new SimpleChannelInboundHandler<FullHttpRequest>() {
+                                    @Override
+                                    protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest request) {
+                                        String body = request.uri();
+                                        RequestPriorityTest.this.receivedPaths.add(body);
+
+                                        ctx.executor().schedule(() -> {
+                                            FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK, Unpooled.copiedBuffer(body, StandardCharsets.UTF_8));
+                                            response.headers().set(HttpHeaderNames.CONTENT_LENGTH, response.content().readableBytes());
+                                            ctx.writeAndFlush(response);
+                                        }, body.startsWith("/slow") ? 300L : 5L, TimeUnit.MILLISECONDS);
+                                    }
+                                });
+                    }
+                })
+                .bind("127.0.0.1", 0).syncUninterruptibly().channel();
+        return "http://127.0.0.1:" + ((InetSocketAddress) channel.localAddress()).getPort();
+    }
+
+    private static void joinAll(List<CompletableFuture<ByteBuf>> futures) {
+        for (CompletableFuture<ByteBuf> future : futures) {
+            future.join().release();
+        }
+    }
+
+    @Test(timeout = 20000L)
+    public void testUrgentRequestsOvertake() {
+        String url = this.startServer();
+        Http.setMaximumConcurrentRequestsTo(url, 1);
+
+        List<CompletableFuture<ByteBuf>> futures = new ArrayList<>();
+        futures.add(Http.get(url + "/slow", RequestPriority.HIGHEST));
+        for (int i = 0; i < 8; i++) {
+            futures.add(Http.get(url + "/low/" + i, RequestPriority.BACKGROUND));
+        }
+        futures.add(RequestPriority.with(RequestPriority.HIGHEST, () -> Http.get(url + "/high")));
+        joinAll(futures);
+
+        assertEquals(10, this.receivedPaths.size());
+        assertEquals("/slow", this.receivedPaths.get(0));
+        assertEquals("the urgent request should have been sent before all of the background requests", "/high", this.receivedPaths.get(1));
+    }
+
+    @Test(timeout = 20000L)
+    public void testAging() throws InterruptedException {
+        TerraConfig.http.priorityAgingMillis = 1;
+
+        String url = this.startServer();
+        Http.setMaximumConcurrentRequestsTo(url, 1);
+
+        List<CompletableFuture<ByteBuf>> futures = new ArrayList<>();
+        futures.add(Http.get(url + "/slow", RequestPriority.HIGHEST));
+        futures.add(Http.get(url + "/old", 10));
+        Thread.sleep(100L); //the old request's deadline has passed by now
+        futures.add(Http.get(url + "/new", RequestPriority.HIGHEST));
+        joinAll(futures);
+
+        assertEquals("a request which has waited past its deadline shouldn't be overtaken", "/old", this.receivedPaths.get(1));
+        assertEquals("/new", this.receivedPaths.get(2));
+    }
+
+    @Test
+    public void testThreadLocalPriority() {
+        assertEquals(RequestPriority.DEFAULT, RequestPriority.current());
+        Supplier<Integer> captured = RequestPriority.with(3, () -> RequestPriority.capture(RequestPriority::current));
+        assertEquals(RequestPriority.DEFAULT, RequestPriority.current());
+        assertEquals("captured priority should be restored when the action is run", 3, (int) captured.get());
+        assertEquals(RequestPriority.DEFAULT, RequestPriority.current());
+    }
+
+    @Test
+    public void testForDistance() {
+        ChunkPos origin = new ChunkPos(10, -5);
+        assertEquals(0, RequestPriority.forDistance(origin, origin));
+        assertEquals(4, RequestPriority.forDistance(new ChunkPos(14, -7), origin));
+        assertEquals(RequestPriority.BACKGROUND, RequestPriority.forDistance(new ChunkPos(Integer.MAX_VALUE, 0), origin));
+    }
+}
@@ -0,0 +1,202 @@
+package net.buildtheearth.terraminusminus.util.http;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class SegmentCacheStorageTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static ByteBuf data(String value) {
+        return Unpooled.copiedBuffer(value, StandardCharsets.UTF_8);
+    }
+
+    private static String read(CacheStorage storage, String url) throws IOException {
+        ByteBuf buf = storage.read(url);
+        if (buf == null) {
+            return null;
+        }
+        try {
+            return buf.toString(StandardCharsets.UTF_8);
+        } finally {
+            buf.release();
+        }
+    }
+
+    private static long segmentCount(Path root) throws IOException {
+        try (Stream<Path> stream = Files.list(root)) {
+            return stream.filter(p -> p.getFileName().toString().endsWith(SegmentCacheStorage.SEGMENT_SUFFIX)).count();
+        }
+    }
+
+    @Test
+    public void testReadWrite() throws IOException {
+        Path root = this.folder.getRoot().toPath();
+
+        SegmentCacheStorage storage = new SegmentCacheStorage(root);
+        assertNull(read(storage, "https://example.com/a"));
+
+        storage.write("https://example.com/a", data("first"));
+        storage.write("https://example.com/b", data("second"));
+        storage.write("https://example.com/a", data("replaced"));
+        assertEquals("replaced", read(storage, "https://example.com/a"));
+        assertEquals("second", read(storage, "https://example.com/b"));
+        storage.close();
+
+        storage = new SegmentCacheStorage(root);
+        assertEquals("replaced", read(storage, "https://example.com/a"));
+        assertEquals("second", read(storage, "https://example.com/b"));
+        assertNull(read(storage, "https://example.com/c"));
+        storage.close();
+    }
+
+    @Test
+    public void testRecovery() throws IOException {
+        Path root = this.folder.getRoot().toPath();
+
+        SegmentCacheStorage storage = new SegmentCacheStorage(root);
+        storage.write("https://example.com/a", data("a"));
+        storage.close(); //writes an index snapshot
+
+        //simulate a crash: more records are written after the snapshot, and the last one is only partially written
+        storage = new SegmentCacheStorage(root);
+        storage.write("https://example.com/b", data("b"));
+        storage.write("https://example.com/c", data("c"));
+        Path segmentFile = storage.segmentFile(storage.active.id);
+        long size = storage.active.size;
+        for (SegmentCacheStorage.Segment segment : storage.segments.values()) {
+            segment.channel.close();
+        }
+        storage.lock.channel().close(); //the lock is released when the process dies
+        try (FileChannel channel = FileChannel.open(segmentFile, StandardOpenOption.WRITE)) {
+            channel.truncate(size - 1L);
+        }
+
+        storage = new SegmentCacheStorage(root);
+        assertEquals("a", read(storage, "https://example.com/a"));
+        assertEquals("b", read(storage, "https://example.com/b"));
+        assertNull(read(storage, "https://example.com/c"));
+
+        //the torn record must have been discarded, so new records are readable
+        storage.write("https://example.com/c", data("c2"));
+        assertEquals("c2", read(storage, "https://example.com/c"));
+        storage.close();
+
+        //a corrupted index snapshot is rebuilt from the segments
+        Files.write(root.resolve("index"), new byte[]{ 1, 2, 3, 4, 5, 6, 7, 8 });
+        storage = new SegmentCacheStorage(root);
+        assertEquals("a", read(storage, "https://example.com/a"));
+        assertEquals("b", read(storage, "https://example.com/b"));
+        assertEquals("c2", read(storage, "https://example.com/c"));
+        storage.close();
+    }
+
+    @Test
+    public void testRemove() throws IOException {
+        Path root = this.folder.getRoot().toPath();
+
+        SegmentCacheStorage storage = new SegmentCacheStorage(root);
+        storage.write("https://example.com/a", data("a"));
+        storage.write("https://example.com/b", data("b"));
+        storage.remove(FileCacheStorage.hash("https://example.com/a"));
+        assertNull(read(storage, "https://example.com/a"));
+
+        //simulate a crash, so that no snapshot is written and the records are replayed from the segment
+        for (SegmentCacheStorage.Segment segment : storage.segments.values()) {
+            segment.channel.close();
+        }
+        storage.lock.channel().close();
+
+        storage = new SegmentCacheStorage(root);
+        assertNull(read(storage, "https://example.com/a"));
+        assertEquals("b", read(storage, "https://example.com/b"));
+
+        //an entry can be written again after being removed
+        storage.write("https://example.com/a", data("a2"));
+        storage.close();
+
+        storage = new SegmentCacheStorage(root);
+        assertEquals("a2", read(storage, "https://example.com/a"));
+        assertEquals("b", read(storage, "https://example.com/b"));
+        storage.close();
+    }
+
+    @Test
+    public void testCorruptedRecord() throws IOException {
+        Path root = this.folder.getRoot().toPath();
+
+        SegmentCacheStorage storage = new SegmentCacheStorage(root);
+        storage.write("https://example.com/a", data("aaaaaaaa"));
+
+        //flip a byte in the record's data
+        storage.active.channel.write(ByteBuffer.wrap(new byte[]{ 'b' }), SegmentCacheStorage.RECORD_HEADER_SIZE);
+        assertNull(read(storage, "https://example.com/a"));
+        storage.close();
+    }
+
+    @Test
+    public void testPruneAndCompact() throws IOException {
+        Path root = this.folder.getRoot().toPath();
+
+        SegmentCacheStorage storage = new SegmentCacheStorage(root, 1024L);
+        for (int i = 0; i < 256; i++) {
+            storage.write("https://example.com/" + i, data((i & 1) == 0 ? "keep" + i : "drop this entry" + i));
+        }
+        long segmentsBefore = segmentCount(root);
+        assertTrue(segmentsBefore > 1L);
+
+        LongAdder count = new LongAdder();
+        LongAdder size = new LongAdder();
+        storage.prune(buf -> buf.toString(StandardCharsets.UTF_8).startsWith("keep"), count, size);
+        assertEquals(128L, count.sum());
+        assertTrue(size.sum() > 0L);
+        assertTrue(segmentCount(root) < segmentsBefore);
+
+        for (int i = 0; i < 256; i++) {
+            assertEquals((i & 1) == 0 ? "keep" + i : null, read(storage, "https://example.com/" + i));
+        }
+        storage.close();
+
+        storage = new SegmentCacheStorage(root, 1024L);
+        for (int i = 0; i < 256; i++) {
+            assertEquals((i & 1) == 0 ? "keep" + i : null, read(storage, "https://example.com/" + i));
+        }
+        storage.close();
+    }
+
+    @Test
+    public void testExclusive() throws IOException {
+        Path root = this.folder.getRoot().toPath();
+
+        SegmentCacheStorage storage = new SegmentCacheStorage(root);
+        try {
+            new SegmentCacheStorage(root).close();
+            fail("storage was opened twice");
+        } catch (IOException e) {
+            //expected
+        }
+        storage.write("https://example.com/a", data("a"));
+        storage.close();
+
+        //the lock must have been released
+        storage = new SegmentCacheStorage(root);
+        assertEquals("a", read(storage, "https://example.com/a"));
+        storage.close();
+    }
+}
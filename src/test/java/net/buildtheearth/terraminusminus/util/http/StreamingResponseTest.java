@@ -0,0 +1,108 @@
+package net.buildtheearth.terraminusminus.util.http;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.DefaultHttpResponse;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class StreamingResponseTest {
+    private final AtomicInteger decoders = new AtomicInteger();
+
+    private StreamingResponse<String> stream() {
+        return new StreamingResponse<>(() -> {
+            this.decoders.incrementAndGet();
+            return new StreamDecoder<String>() {
+                final StringBuilder builder = new StringBuilder();
+
+                @Override
+                public void decode(ByteBuf data) {
+                    this.builder.append(data.toString(StandardCharsets.UTF_8));
+                }
+
+                @Override
+                public String finish() {
+                    return this.builder.toString();
+                }
+            };
+        }, Runnable::run);
+    }
+
+    private static HttpResponse head() {
+        return new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+    }
+
+    private static ByteBuf buf(String s) {
+        return Unpooled.copiedBuffer(s, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testStreamed() {
+        StreamingResponse<String> stream = this.stream();
+        HttpResponse head = head();
+        ByteBuf first = buf("hello ");
+        stream.received(head, first, false);
+        stream.received(head, buf("world"), true);
+        assertEquals(1, first.refCnt()); //the received data is released once it's been decoded
+
+        CompletableFuture<String> result = new CompletableFuture<>();
+        ByteBuf body = buf("hello world");
+        stream.finish(body, result);
+        assertEquals("hello world", result.join());
+        assertEquals(0, body.refCnt());
+        assertEquals(1, this.decoders.get()); //the body wasn't decoded again
+    }
+
+    @Test
+    public void testFallback() {
+        //nothing was streamed, e.g. because the body was read from the cache
+        StreamingResponse<String> stream = this.stream();
+        CompletableFuture<String> result = new CompletableFuture<>();
+        stream.finish(buf("cached"), result);
+        assertEquals("cached", result.join());
+        assertEquals(1, this.decoders.get());
+
+        //the stream ended early
+        this.decoders.set(0);
+        stream = this.stream();
+        stream.received(head(), buf("incomp"), false);
+        result = new CompletableFuture<>();
+        stream.finish(buf("incomplete"), result);
+        assertEquals("incomplete", result.join());
+        assertEquals(2, this.decoders.get());
+    }
+
+    @Test
+    public void testNewResponse() {
+        //the body of a previous response (e.g. a redirect) is discarded
+        StreamingResponse<String> stream = this.stream();
+        stream.received(head(), buf("moved"), true);
+        HttpResponse head = head();
+        stream.received(head, buf("actual "), false);
+        stream.received(head, buf("body"), true);
+
+        CompletableFuture<String> result = new CompletableFuture<>();
+        stream.finish(buf("actual body"), result);
+        assertEquals("actual body", result.join());
+        assertEquals(2, this.decoders.get());
+    }
+
+    @Test
+    public void testAbort() {
+        StreamingResponse<String> stream = this.stream();
+        stream.abort();
+
+        ByteBuf data = buf("ignored");
+        stream.received(head(), data, true);
+        assertEquals(1, data.refCnt());
+        assertEquals(0, this.decoders.get());
+    }
+}